@@ -0,0 +1,160 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Charge HTTP en boucle fermée sur l'API, pour comparer les modes de threads du serveur.
+ * <p>
+ * Programme autonome, sans dépendance, lancé avec le lanceur de sources du JDK :
+ * {@code java bench/LoadTest.java --base http://localhost:8080 --user ... --password ...}.
+ * L'utilisateur est authentifié une fois ({@code /api/auth/login}), puis {@code --concurrency}
+ * clients enchaînent les requêtes {@code GET --path}, où {@code {id}} est remplacé par un
+ * identifiant tiré au hasard dans {@code --ids}. Seules les requêtes terminées après
+ * {@code --warmup} secondes sont mesurées, pendant {@code --duration} secondes.
+ * </p>
+ * <p>
+ * Affiche une ligne par exécution : débit, erreurs et percentiles de latence côté client.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String base = options.getOrDefault("base", "http://localhost:8080");
+        String path = options.getOrDefault("path", "/api/sales/{id}/bids");
+        long[] ids = Arrays.stream(options.getOrDefault("ids", "1").split(",")).mapToLong(Long::parseLong).toArray();
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "15"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        String label = options.getOrDefault("label", "run");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        String cookie = login(client, base, required(options, "user"), required(options, "password"));
+
+        long start = System.nanoTime();
+        long measureFrom = start + Duration.ofSeconds(warmup).toNanos();
+        long end = measureFrom + Duration.ofSeconds(duration).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Recorder> recorders = new ArrayList<>();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                Recorder recorder = new Recorder();
+                recorders.add(recorder);
+                clients.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path.replace("{id}", Long.toString(id))))
+                                .header("Cookie", cookie)
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long sent = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long received = System.nanoTime();
+                        if (sent >= measureFrom && received <= end) {
+                            if (ok) {
+                                recorder.add(received - sent);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        long[] latencies = recorders.stream().flatMapToLong(Recorder::stream).sorted().toArray();
+        System.out.printf("%s concurrency=%d requests=%d errors=%d throughput=%.1f req/s p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                label, concurrency, latencies.length, errors.get(), latencies.length / (double) duration,
+                millis(latencies, 0.50), millis(latencies, 0.90), millis(latencies, 0.99), millis(latencies, 1.0));
+    }
+
+    /**
+     * Authentifie l'utilisateur et renvoie le cookie JWT à rejouer sur chaque requête.
+     */
+    private static String login(HttpClient client, String base, String user, String password) throws Exception {
+        String body = "{\"username\":\"" + user + "\",\"password\":\"" + password + "\"}";
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(base + "/api/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(value -> value.startsWith("JWT="))
+                .map(value -> value.substring(0, value.indexOf(';') > 0 ? value.indexOf(';') : value.length()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Login failed with status " + response.statusCode()));
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name);
+        }
+        return value;
+    }
+
+    /**
+     * Latences mesurées par un client, en nanosecondes ; propre à son thread.
+     */
+    private static final class Recorder {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private java.util.stream.LongStream stream() {
+            return Arrays.stream(values, 0, size);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Runs the same closed-loop load against the application started with platform threads,
+# then with virtual threads, and appends one result line per mode to target/bench-results.txt.
+#
+# Required: BENCH_USER, BENCH_PASSWORD (an account with the USER role) and a reachable database.
+# Optional: BENCH_SALE_IDS (comma-separated), BENCH_PATH, BENCH_CONCURRENCY, BENCH_WARMUP,
+# BENCH_DURATION, BENCH_PORT.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+: "${BENCH_USER:?BENCH_USER is required}"
+: "${BENCH_PASSWORD:?BENCH_PASSWORD is required}"
+SALE_IDS="${BENCH_SALE_IDS:-1}"
+REQUEST_PATH="${BENCH_PATH:-/api/sales/{id}/bids}"
+CONCURRENCY="${BENCH_CONCURRENCY:-200}"
+WARMUP="${BENCH_WARMUP:-15}"
+DURATION="${BENCH_DURATION:-60}"
+PORT="${BENCH_PORT:-8080}"
+BASE="http://localhost:${PORT}"
+RESULTS="target/bench-results.txt"
+
+./mvnw -q -B -DskipTests package
+JAR="$(ls target/*.jar | grep -v '\.original$' | head -n 1)"
+
+for mode in platform virtual; do
+    virtual=false
+    [ "$mode" = virtual ] && virtual=true
+
+    java -Dspring.threads.virtual.enabled="$virtual" -Dserver.port="$PORT" -jar "$JAR" \
+        > "target/bench-${mode}.log" 2>&1 &
+    app=$!
+    trap 'kill "$app" 2>/dev/null || true' EXIT
+
+    for _ in $(seq 1 60); do
+        curl -fs "${BASE}/actuator/health" > /dev/null && break
+        sleep 1
+    done
+    curl -fs "${BASE}/actuator/health" > /dev/null || { echo "Application did not start, see target/bench-${mode}.log" >&2; exit 1; }
+
+    java bench/LoadTest.java --base "$BASE" --user "$BENCH_USER" --password "$BENCH_PASSWORD" \
+        --path "$REQUEST_PATH" --ids "$SALE_IDS" --concurrency "$CONCURRENCY" \
+        --warmup "$WARMUP" --duration "$DURATION" --label "$mode" | tee -a "$RESULTS"
+
+    kill "$app"
+    wait "$app" 2>/dev/null || true
+    trap - EXIT
+done
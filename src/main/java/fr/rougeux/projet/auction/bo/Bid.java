@@ -19,6 +19,9 @@ public class Bid {
     /** Montant de l'enchère */
     private int bidAmount;
 
+    /** Enchère maximale jusqu'à laquelle le système enchérit pour l'utilisateur (0 si enchère simple) */
+    private int maxAmount;
+
     /** Vente concernée par l'enchère */
     private Sale sale;
 
@@ -43,6 +46,7 @@ public class Bid {
         this.bidId = source.bidId;
         this.bidTime = source.bidTime;
         this.bidAmount = source.bidAmount;
+        this.maxAmount = source.maxAmount;
 
         this.sale = (source.sale != null) ? new Sale(source.sale) : null;
         this.user = (source.user != null) ? new User(source.user) : null;
@@ -76,6 +80,24 @@ public class Bid {
         this.bidAmount = bidAmount;
     }
 
+    public int getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(int maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    /**
+     * Retourne le montant jusqu'auquel l'utilisateur s'engage :
+     * son enchère maximale s'il en a fixé une, le montant de l'enchère sinon.
+     *
+     * @return le plafond de l'enchère
+     */
+    public int getProxyLimit() {
+        return Math.max(bidAmount, maxAmount);
+    }
+
     public Sale getSale() {
         return sale;
     }
@@ -120,6 +142,17 @@ public class Bid {
         }
     }
 
+    /**
+     * Vérifie que l'enchère maximale, si elle est fixée, n'est pas inférieure au montant de l'enchère.
+     *
+     * @throws BusinessException si l'enchère maximale est inférieure au montant de l'enchère
+     */
+    public void checkMaxAmount() {
+        if(this.maxAmount != 0 && this.maxAmount < this.bidAmount) {
+            throw new BusinessException("bid.maxAmount.tooLow");
+        }
+    }
+
     /**
      * Vérifie que l'utilisateur qui place l'enchère n'est pas le vendeur de l'objet.
      *
@@ -132,22 +165,15 @@ public class Bid {
     }
 
     /**
-     * Vérifie que l'utilisateur a suffisamment de crédits pour placer l'enchère.
-     * Si l'utilisateur a déjà une enchère sur cette vente, seule la différence est vérifiée.
+     * Vérifie que l'utilisateur a suffisamment de crédits pour placer l'enchère,
+     * à partir de sa précédente enchère sur la vente déjà connue de l'appelant.
+     * Le crédit vérifié couvre l'enchère maximale, si elle est fixée ({@link #getProxyLimit()}).
      *
+     * @param previousBid montant de la précédente enchère de l'utilisateur sur la vente (0 si aucune)
      * @throws BusinessException si l'utilisateur n'a pas assez de crédits
      */
-    public void checkUserCanBid() {
-        int previousBid = 0;
-        if (sale.getBids() != null) {
-            previousBid = sale.getBids().stream()
-                    .filter(b -> b.getUser().getUserId() == this.user.getUserId())
-                    .mapToInt(Bid::getBidAmount)
-                    .max()
-                    .orElse(0);
-        }
-
-        int diff = bidAmount - previousBid;
+    public void checkUserCanBid(int previousBid) {
+        int diff = getProxyLimit() - previousBid;
         this.user.canBid(diff);
     }
 
@@ -164,14 +190,23 @@ public class Bid {
 
     /**
      * Valide toutes les règles métiers pour placer une enchère.
+     * <p>
+     * Les règles portant sur l'état de la vente (vente en cours, montant supérieur au prix courant)
+     * ne sont vérifiées que si cet état a été lu : en mode compare-and-set, la vente ne porte que
+     * son identifiant et l'UPDATE conditionnel les applique en base.
+     * </p>
      *
+     * @param previousBid précédente réservation de l'utilisateur sur la vente (0 si aucune)
      * @throws BusinessException si une des validations échoue
      */
-    public void validateBid() {
+    public void validateBid(int previousBid) {
         checkNotNull();
-        // checkSaleStatus(); // TODO: à réactiver lorsque faker regénérera des ventes en cours
-        checkHigherBid();
-        checkUserCanBid();
+        if (sale.getEndingDate() != null) {
+            checkSaleStatus();
+            checkHigherBid();
+        }
+        checkMaxAmount();
+        checkUserCanBid(previousBid);
     }
 
     // =========================
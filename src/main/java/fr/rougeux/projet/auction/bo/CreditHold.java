@@ -0,0 +1,69 @@
+package fr.rougeux.projet.auction.bo;
+
+/**
+ * BO représentant une réservation de crédit d'un utilisateur sur une vente.
+ * <p>
+ * Une réservation par couple (utilisateur, vente) : son montant est le plafond de la meilleure
+ * enchère de l'utilisateur sur la vente (son enchère maximale s'il en a fixé une),
+ * tant qu'il la mène ou que la vente n'est pas réglée.
+ * </p>
+ */
+public class CreditHold {
+
+    /** Identifiant de l'utilisateur dont le crédit est réservé */
+    private long userId;
+
+    /** Identifiant de la vente concernée */
+    private long saleId;
+
+    /** Montant réservé */
+    private int amount;
+
+    // =========================
+    // Constructors
+    // =========================
+
+    /** Constructeur par défaut */
+    public CreditHold() {}
+
+    /**
+     * Constructeur d'une réservation.
+     *
+     * @param userId identifiant de l'utilisateur
+     * @param saleId identifiant de la vente
+     * @param amount montant réservé
+     */
+    public CreditHold(long userId, long saleId, int amount) {
+        this.userId = userId;
+        this.saleId = saleId;
+        this.amount = amount;
+    }
+
+    // =========================
+    // Getters et Setters
+    // =========================
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public long getSaleId() {
+        return saleId;
+    }
+
+    public void setSaleId(long saleId) {
+        this.saleId = saleId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,149 @@
+package fr.rougeux.projet.auction.bo;
+
+import fr.rougeux.projet.auction.dto.response.PriceBucketDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * BO représentant une minute de l'historique de prix d'une vente.
+ * <p>
+ * Les enchères acceptées sur une vente étant strictement croissantes, le prix d'ouverture
+ * d'un intervalle est aussi son plus bas, et son prix de clôture son plus haut : deux agrégats
+ * partiels d'un même intervalle se fusionnent dans n'importe quel ordre ({@link #merge}).
+ * </p>
+ */
+public class PriceBucket {
+
+    /** Identifiant de la vente */
+    private long saleId;
+
+    /** Début de l'intervalle */
+    private LocalDateTime bucketStart;
+
+    private int openPrice;
+    private int highPrice;
+    private int lowPrice;
+    private int closePrice;
+
+    /** Nombre d'enchères de l'intervalle */
+    private int bidCount;
+
+    // =========================
+    // Constructors
+    // =========================
+
+    /** Constructeur par défaut */
+    public PriceBucket() {}
+
+    /**
+     * Constructeur d'un intervalle complet.
+     *
+     * @param saleId      identifiant de la vente
+     * @param bucketStart début de l'intervalle
+     * @param openPrice   premier prix
+     * @param highPrice   plus haut prix
+     * @param lowPrice    plus bas prix
+     * @param closePrice  dernier prix
+     * @param bidCount    nombre d'enchères
+     */
+    public PriceBucket(long saleId, LocalDateTime bucketStart, int openPrice, int highPrice, int lowPrice,
+                       int closePrice, int bidCount) {
+        this.saleId = saleId;
+        this.bucketStart = bucketStart;
+        this.openPrice = openPrice;
+        this.highPrice = highPrice;
+        this.lowPrice = lowPrice;
+        this.closePrice = closePrice;
+        this.bidCount = bidCount;
+    }
+
+    // =========================
+    // Getters et Setters
+    // =========================
+
+    public long getSaleId() {
+        return saleId;
+    }
+
+    public void setSaleId(long saleId) {
+        this.saleId = saleId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public int getOpenPrice() {
+        return openPrice;
+    }
+
+    public void setOpenPrice(int openPrice) {
+        this.openPrice = openPrice;
+    }
+
+    public int getHighPrice() {
+        return highPrice;
+    }
+
+    public void setHighPrice(int highPrice) {
+        this.highPrice = highPrice;
+    }
+
+    public int getLowPrice() {
+        return lowPrice;
+    }
+
+    public void setLowPrice(int lowPrice) {
+        this.lowPrice = lowPrice;
+    }
+
+    public int getClosePrice() {
+        return closePrice;
+    }
+
+    public void setClosePrice(int closePrice) {
+        this.closePrice = closePrice;
+    }
+
+    public int getBidCount() {
+        return bidCount;
+    }
+
+    public void setBidCount(int bidCount) {
+        this.bidCount = bidCount;
+    }
+
+    // =========================
+    // Méthodes métier
+    // =========================
+
+    /**
+     * Fusionne dans cet intervalle un agrégat partiel du même intervalle, ou d'un intervalle
+     * qu'il englobe (regroupement de plusieurs minutes).
+     *
+     * @param other agrégat à fusionner
+     */
+    public void merge(PriceBucket other) {
+        this.openPrice = Math.min(this.openPrice, other.openPrice);
+        this.highPrice = Math.max(this.highPrice, other.highPrice);
+        this.lowPrice = Math.min(this.lowPrice, other.lowPrice);
+        this.closePrice = Math.max(this.closePrice, other.closePrice);
+        this.bidCount += other.bidCount;
+    }
+
+    // =========================
+    // Conversion vers DTO
+    // =========================
+
+    /**
+     * Convertit ce BO en PriceBucketDto pour transfert vers le controller ou l'API.
+     * @return PriceBucketDto correspondant
+     */
+    public PriceBucketDto toDTO() {
+        return new PriceBucketDto(bucketStart, openPrice, highPrice, lowPrice, closePrice, bidCount);
+    }
+}
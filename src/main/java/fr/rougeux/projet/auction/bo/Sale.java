@@ -2,6 +2,7 @@ package fr.rougeux.projet.auction.bo;
 
 import fr.rougeux.projet.auction.dto.bo.SaleDto;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +28,11 @@ public class Sale {
      */
     private LocalDateTime endingDate;
 
+    /**
+     * Date et heure de clôture de la vente (null tant qu'elle n'est pas clôturée)
+     */
+    private LocalDateTime closedAt;
+
     /**
      * Prix de départ de la vente
      */
@@ -37,6 +43,16 @@ public class Sale {
      */
     private int salePrice;
 
+    /**
+     * Identifiant de l'utilisateur menant la vente (0 si aucune enchère)
+     */
+    private long leaderId;
+
+    /**
+     * Nombre d'enchères acceptées sur la vente
+     */
+    private int bidCount;
+
     /**
      * Vendeur de l'objet
      */
@@ -71,8 +87,11 @@ public class Sale {
         this.saleId = source.saleId;
         this.startingDate = source.startingDate;
         this.endingDate = source.endingDate;
+        this.closedAt = source.closedAt;
         this.startingPrice = source.startingPrice;
         this.salePrice = source.salePrice;
+        this.leaderId = source.leaderId;
+        this.bidCount = source.bidCount;
 
         this.seller = (source.seller != null) ? new User(source.seller) : null;
         this.item = (source.item != null) ? new Item(source.item) : null;
@@ -112,6 +131,14 @@ public class Sale {
         this.endingDate = endingDate;
     }
 
+    public LocalDateTime getClosedAt() {
+        return closedAt;
+    }
+
+    public void setClosedAt(LocalDateTime closedAt) {
+        this.closedAt = closedAt;
+    }
+
     public int getStartingPrice() {
         return startingPrice;
     }
@@ -128,6 +155,22 @@ public class Sale {
         this.salePrice = salePrice;
     }
 
+    public long getLeaderId() {
+        return leaderId;
+    }
+
+    public void setLeaderId(long leaderId) {
+        this.leaderId = leaderId;
+    }
+
+    public int getBidCount() {
+        return bidCount;
+    }
+
+    public void setBidCount(int bidCount) {
+        this.bidCount = bidCount;
+    }
+
     public User getSeller() {
         return seller;
     }
@@ -159,10 +202,27 @@ public class Sale {
     /**
      * Vérifie si la vente est toujours en cours.
      *
-     * @return vrai si la date de fin est après maintenant
+     * @return vrai si la vente n'est pas clôturée et que la date de fin est après maintenant
      */
     public boolean isOngoing() {
-        return endingDate.isAfter(LocalDateTime.now());
+        return closedAt == null && endingDate.isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Applique la clôture progressive (anti-sniping) : une enchère placée dans les {@code window}
+     * dernières secondes de la vente repousse sa date de fin de {@code extension}.
+     *
+     * @param bidTime   horodatage de l'enchère acceptée
+     * @param window    fenêtre de fin de vente déclenchant la prolongation (nulle pour la désactiver)
+     * @param extension durée de la prolongation
+     * @return vrai si la date de fin a été repoussée
+     */
+    public boolean extendEnding(LocalDateTime bidTime, Duration window, Duration extension) {
+        if (window.isZero() || extension.isZero() || bidTime.isBefore(endingDate.minus(window))) {
+            return false;
+        }
+        endingDate = endingDate.plus(extension);
+        return true;
     }
 
     /**
@@ -207,6 +267,8 @@ public class Sale {
         dto.setStartingPrice(this.startingPrice);
         dto.setSalePrice(this.getCurrentPrice());
         dto.setStatus(this.getStatus());
+        dto.setLeaderId(this.leaderId);
+        dto.setBidCount(this.bidCount);
         dto.setSeller(this.seller != null ? this.seller.toDTO() : null);
         dto.setItem(this.item != null ? this.item.toDTO() : null);
         if (this.bids != null) {
@@ -0,0 +1,16 @@
+package fr.rougeux.projet.auction.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active l'exécution des tâches planifiées ({@link org.springframework.scheduling.annotation.Scheduled})
+ * de l'application, notamment les jobs de maintenance du package {@code job}.
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -41,6 +41,7 @@ public class WebConfig {
                 registry.addMapping("/**")
                         .allowedOrigins("http://localhost:4200") // Angular
                         .allowedMethods("GET","POST","PUT","DELETE","OPTIONS")
+                        .exposedHeaders("Idempotent-Replayed")
                         .allowCredentials(true);
             }
         };
@@ -0,0 +1,60 @@
+package fr.rougeux.projet.auction.configuration;
+
+import fr.rougeux.projet.auction.controller.websocket.BidSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Configuration du canal WebSocket d'enchères ({@link BidSocketHandler}).
+ * <p>
+ * Le handshake passe par la chaîne de sécurité HTTP (JWT du cookie, rôle <b>USER</b>) ;
+ * les trames reçues sont bornées à une petite taille, les enchères binaires ne dépassant
+ * pas quelques dizaines d'octets.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final BidSocketHandler bidSocketHandler;
+
+    /**
+     * @param bidSocketHandler handler du canal d'enchères
+     */
+    public WebSocketConfig(BidSocketHandler bidSocketHandler) {
+        this.bidSocketHandler = bidSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(@NonNull WebSocketHandlerRegistry registry) {
+        registry.addHandler(bidSocketHandler, "/api/bid/ws")
+                .setAllowedOrigins("http://localhost:4200"); // Angular
+    }
+
+    /**
+     * Limites des sessions WebSocket du conteneur de servlets.
+     *
+     * @param maxMessageSize taille maximale d'une trame reçue, en octets
+     * @param idleTimeoutMs  durée d'inactivité avant fermeture d'une session, en millisecondes
+     * @return la configuration du conteneur WebSocket
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(
+            @Value("${app.bid.ws.max-message-size:256}") int maxMessageSize,
+            @Value("${app.bid.ws.idle-timeout-ms:300000}") long idleTimeoutMs) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxMessageSize);
+        container.setMaxTextMessageBufferSize(maxMessageSize);
+        container.setMaxSessionIdleTimeout(idleTimeoutMs);
+        return container;
+    }
+}
@@ -0,0 +1,124 @@
+package fr.rougeux.projet.auction.configuration.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fr.rougeux.projet.auction.configuration.thread.ConnectionLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Configuration des réplicas en lecture ({@code app.datasource.replicas.enabled=true}).
+ * <p>
+ * La {@link DataSource} de l'application devient une {@link ReplicaRoutingDataSource} : le primaire
+ * ({@code spring.datasource.*}) reçoit les écritures, les réplicas ({@code app.datasource.replicas.urls},
+ * mêmes identifiants et mêmes réglages {@code spring.datasource.hikari.*} que le primaire) les lectures
+ * des requêtes {@code GET} de l'API et des transactions en lecture seule.
+ * </p>
+ * <p>
+ * L'emprunt d'une connexion à un réplica attend au plus {@code app.datasource.replicas.connection-timeout-ms} :
+ * un réplica injoignable est écarté et la lecture faite sur le primaire.
+ * </p>
+ * <p>
+ * En mode threads virtuels, le primaire et chaque réplica sont bornés séparément à la taille de leur pool
+ * ({@link ConnectionLimiter}).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+    /**
+     * Crée les pools de connexions des réplicas.
+     *
+     * @param properties          propriétés {@code spring.datasource.*} du primaire
+     * @param environment         environnement, pour les réglages {@code spring.datasource.hikari.*}
+     * @param urls                URL JDBC des réplicas
+     * @param connectionTimeoutMs attente maximale d'une connexion à un réplica, en millisecondes
+     * @param meterRegistry       registre des métriques
+     * @param connectionLimiter   bornes des pools, en mode threads virtuels
+     * @return les réplicas
+     */
+    @Bean
+    public ReplicaSet replicaSet(DataSourceProperties properties,
+                                 Environment environment,
+                                 @Value("${app.datasource.replicas.urls}") List<String> urls,
+                                 @Value("${app.datasource.replicas.connection-timeout-ms:1000}") long connectionTimeoutMs,
+                                 MeterRegistry meterRegistry,
+                                 ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("app.datasource.replicas.urls is empty.");
+        }
+        List<HikariDataSource> pools = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource pool = pool(properties, environment);
+            pool.setJdbcUrl(urls.get(i));
+            pool.setPoolName("replica-" + (i + 1));
+            pool.setReadOnly(true);
+            pool.setConnectionTimeout(connectionTimeoutMs);
+            pools.add(pool);
+        }
+        return new ReplicaSet(pools, access(connectionLimiter), meterRegistry);
+    }
+
+    /**
+     * Remplace la {@link DataSource} de Spring Boot par la {@link ReplicaRoutingDataSource}.
+     *
+     * @param properties  propriétés {@code spring.datasource.*} du primaire
+     * @param environment environnement, pour les réglages {@code spring.datasource.hikari.*}
+     * @param replicaSet        réplicas en lecture
+     * @param connectionLimiter bornes des pools, en mode threads virtuels
+     * @return la source de données de l'application
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, ReplicaSet replicaSet,
+                                 ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        HikariDataSource primary = pool(properties, environment);
+        primary.setPoolName("primary");
+        return new ReplicaRoutingDataSource(primary, replicaSet, access(connectionLimiter));
+    }
+
+    /**
+     * Enregistre le filtre fixant la destination des lectures de chaque requête.
+     *
+     * @param recentWriters utilisateurs ayant écrit récemment
+     * @return le filtre, exécuté après la chaîne de sécurité
+     */
+    @Bean
+    public ReadRoutingFilter readRoutingFilter(RecentWriters recentWriters) {
+        return new ReadRoutingFilter(recentWriters);
+    }
+
+    /**
+     * @return l'accès aux connexions d'un pool : borné à sa taille en mode threads virtuels, direct sinon
+     */
+    private static Function<HikariDataSource, DataSource> access(ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        ConnectionLimiter limiter = connectionLimiter.getIfAvailable();
+        return limiter != null ? limiter::limit : pool -> pool;
+    }
+
+    /**
+     * @return un pool configuré comme celui de Spring Boot : {@code spring.datasource.*} puis {@code spring.datasource.hikari.*}
+     */
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind(HIKARI_PREFIX, Bindable.ofInstance(pool));
+        return pool;
+    }
+}
@@ -0,0 +1,51 @@
+package fr.rougeux.projet.auction.configuration.datasource;
+
+/**
+ * Destination des lectures du thread courant, fixée par {@link ReadRoutingFilter} pour la durée d'une requête.
+ * <p>
+ * Sans destination fixée (tâches planifiées, écriture différée d'une réponse, WebSocket), seules les
+ * transactions en lecture seule lisent sur un réplica.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+final class ReadRoute {
+
+    /**
+     * Destination des lectures hors transaction, ou de toutes les lectures.
+     */
+    enum Target {
+        /**
+         * Les lectures hors transaction et les transactions en lecture seule vont sur un réplica.
+         */
+        REPLICA,
+        /**
+         * Toutes les lectures vont sur le primaire, y compris les transactions en lecture seule.
+         */
+        PRIMARY
+    }
+
+    private static final ThreadLocal<Target> CURRENT = new ThreadLocal<>();
+
+    private ReadRoute() {
+    }
+
+    /**
+     * @return la destination du thread courant, {@code null} si aucune n'est fixée
+     */
+    static Target current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param target destination du thread courant, {@code null} pour la retirer
+     */
+    static void set(Target target) {
+        if (target == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(target);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package fr.rougeux.projet.auction.configuration.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filtre fixant la destination des lectures ({@link ReadRoute}) des requêtes de l'API.
+ * <p>
+ * Une requête {@code GET} ou {@code HEAD} ne fait que lire : ses lectures vont sur un réplica.
+ * Un utilisateur ayant enchéri récemment ({@link RecentWriters}) lit sur le primaire, quelle que soit
+ * la requête. Les autres requêtes gardent la règle par défaut : seules leurs transactions en lecture
+ * seule lisent sur un réplica.
+ * </p>
+ * <p>
+ * Exécuté après la chaîne de sécurité, il voit l'utilisateur authentifié. La destination n'est fixée
+ * que sur le thread de la requête : une réponse écrite au fil de la lecture lit sur le primaire.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class ReadRoutingFilter extends OncePerRequestFilter {
+
+    private static final String PATH = "/api/";
+
+    private final RecentWriters recentWriters;
+
+    /**
+     * @param recentWriters utilisateurs ayant écrit récemment
+     */
+    public ReadRoutingFilter(RecentWriters recentWriters) {
+        this.recentWriters = recentWriters;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean recentWriter = authentication != null && authentication.isAuthenticated()
+                && recentWriters.contains(authentication.getName());
+        boolean readOnly = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+
+        ReadRoute.set(recentWriter ? ReadRoute.Target.PRIMARY : readOnly ? ReadRoute.Target.REPLICA : null);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadRoute.set(null);
+        }
+    }
+}
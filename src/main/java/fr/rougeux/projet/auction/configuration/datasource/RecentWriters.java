@@ -0,0 +1,61 @@
+package fr.rougeux.projet.auction.configuration.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Utilisateurs ayant écrit récemment, pour qui les lectures restent sur le primaire
+ * (lecture de ses propres écritures).
+ * <p>
+ * Un utilisateur est retenu pendant {@code app.datasource.replicas.max-lag-ms} après sa dernière enchère,
+ * le retard maximal admis d'un réplica : ses lectures suivantes voient son enchère, même sur un autre
+ * point d'accès que celui qui l'a reçue. Sans réplica ({@code app.datasource.replicas.enabled=false}),
+ * rien n'est retenu.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class RecentWriters {
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> writers;
+
+    /**
+     * Constructeur du registre.
+     *
+     * @param enabled  vrai si des réplicas sont configurés
+     * @param maxLagMs durée pendant laquelle un utilisateur lit sur le primaire après une écriture, en millisecondes
+     */
+    public RecentWriters(@Value("${app.datasource.replicas.enabled:false}") boolean enabled,
+                         @Value("${app.datasource.replicas.max-lag-ms:5000}") long maxLagMs) {
+        this.enabled = enabled;
+        this.writers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(maxLagMs))
+                .build();
+    }
+
+    /**
+     * Retient une écriture validée d'un utilisateur.
+     *
+     * @param username identifiant de connexion de l'utilisateur (son e-mail)
+     */
+    public void record(String username) {
+        if (enabled) {
+            writers.put(username, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @param username identifiant de connexion de l'utilisateur
+     * @return vrai si l'utilisateur a écrit depuis moins de {@code app.datasource.replicas.max-lag-ms}
+     */
+    public boolean contains(String username) {
+        return enabled && writers.getIfPresent(username) != null;
+    }
+}
@@ -0,0 +1,89 @@
+package fr.rougeux.projet.auction.configuration.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Function;
+
+/**
+ * {@link DataSource} envoyant les lectures sur un réplica et tout le reste sur le primaire.
+ * <p>
+ * Une connexion va sur un réplica :
+ * </p>
+ * <ul>
+ *     <li>dans une transaction en lecture seule ({@code @Transactional(readOnly = true)}),
+ *     sauf si la requête est liée au primaire ({@link ReadRoute.Target#PRIMARY}) ;</li>
+ *     <li>hors transaction, si la requête ne fait que lire ({@link ReadRoute.Target#REPLICA}).</li>
+ * </ul>
+ * <p>
+ * Sans réplica disponible, ou si l'emprunt au réplica échoue, la connexion est prise sur le primaire.
+ * La connexion physique n'est empruntée qu'à la première instruction ({@link LazyConnectionDataSourceProxy}) :
+ * le gestionnaire de transactions a alors déjà déclaré la transaction en lecture seule.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final HikariDataSource primary;
+
+    /**
+     * @param primary  pool de connexions du primaire, qui reçoit les écritures
+     * @param replicas réplicas en lecture
+     * @param access   accès aux connexions d'un pool (le pool lui-même, ou le pool borné en mode threads virtuels)
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, ReplicaSet replicas, Function<HikariDataSource, DataSource> access) {
+        super(new Router(access.apply(primary), replicas));
+        this.primary = primary;
+    }
+
+    /**
+     * Ferme le pool du primaire à l'arrêt ; les réplicas sont fermés par leur {@link ReplicaSet}.
+     */
+    @Override
+    public void close() {
+        primary.close();
+    }
+
+    /**
+     * Choix du pool au moment de l'emprunt effectif d'une connexion.
+     */
+    private static final class Router extends DelegatingDataSource {
+
+        private final ReplicaSet replicas;
+
+        private Router(DataSource primary, ReplicaSet replicas) {
+            super(primary);
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (readsFromReplica()) {
+                Connection connection = replicas.getConnection();
+                if (connection != null) {
+                    return connection;
+                }
+            }
+            return super.getConnection();
+        }
+
+        private static boolean readsFromReplica() {
+            ReadRoute.Target target = ReadRoute.current();
+            if (target == ReadRoute.Target.PRIMARY) {
+                return false;
+            }
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+            }
+            return target == ReadRoute.Target.REPLICA;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package fr.rougeux.projet.auction.configuration.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Pools de connexions des réplicas en lecture et leur état de santé.
+ * <p>
+ * Chaque réplica est vérifié toutes les {@code app.datasource.replicas.health-interval-ms} par une
+ * connexion validée ({@link Connection#isValid}) ; un réplica dont un emprunt de connexion échoue
+ * est aussi écarté aussitôt, jusqu'à la vérification suivante réussie. Les lectures sont réparties
+ * à tour de rôle entre les réplicas disponibles. La vérification emprunte directement au pool, sans
+ * passer par la borne des lectures en mode threads virtuels.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.datasource.replicas.up} (réplicas disponibles).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class ReplicaSet implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaSet.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param pools         pools de connexions des réplicas
+     * @param access        accès aux connexions d'un pool (le pool lui-même, ou le pool borné en mode threads virtuels)
+     * @param meterRegistry registre des métriques
+     */
+    public ReplicaSet(List<HikariDataSource> pools, Function<HikariDataSource, DataSource> access, MeterRegistry meterRegistry) {
+        this.replicas = pools.stream().map(pool -> new Replica(pool, access.apply(pool))).toList();
+        Gauge.builder("auction.datasource.replicas.up", this, ReplicaSet::upCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Emprunte une connexion au prochain réplica disponible, à tour de rôle.
+     *
+     * @return une connexion à un réplica, {@code null} si aucun réplica n'est disponible
+     */
+    Connection getConnection() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.up) {
+                continue;
+            }
+            try {
+                return replica.access.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Vérifie chaque réplica, et remet en service ceux qui répondent de nouveau.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-interval-ms:5000}")
+    public void check() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection()) {
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    markDown(replica, null);
+                } else if (!replica.up) {
+                    replica.up = true;
+                    LOG.info("datasource.replica.up {}", replica.pool.getPoolName());
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    /**
+     * Ferme les pools des réplicas à l'arrêt.
+     */
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private void markDown(Replica replica, Exception cause) {
+        if (replica.up) {
+            replica.up = false;
+            LOG.warn("datasource.replica.down {} {}", replica.pool.getPoolName(),
+                    cause != null ? cause.getMessage() : "invalid connection");
+        }
+    }
+
+    private int upCount() {
+        return (int) replicas.stream().filter(replica -> replica.up).count();
+    }
+
+    /**
+     * Réplica et sa disponibilité ; un réplica est supposé disponible jusqu'à son premier échec.
+     */
+    private static final class Replica {
+
+        private final HikariDataSource pool;
+        private final DataSource access;
+        private volatile boolean up = true;
+
+        private Replica(HikariDataSource pool, DataSource access) {
+            this.pool = pool;
+            this.access = access;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package fr.rougeux.projet.auction.configuration.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.rougeux.projet.auction.dto.error.ErrorDto;
+import fr.rougeux.projet.auction.service.ratelimit.BidRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Filtre de limitation du débit de <code>/api/bid/place</code> ({@link BidRateLimiter}).
+ * <p>
+ * Placé en fin de chaîne de sécurité, il ne voit que des utilisateurs authentifiés et autorisés.
+ * L'identifiant de la vente est lu dans le corps de la requête, qui est ensuite rejoué tel quel
+ * au contrôleur. Une enchère au-delà des limites reçoit aussitôt une réponse 429 avec un en-tête
+ * {@code Retry-After}, sans atteindre le contrôleur ni la base.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class BidRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String PATH = "/api/bid/place";
+
+    private final BidRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final int maxBodySize;
+
+    /**
+     * Constructeur du filtre.
+     *
+     * @param rateLimiter  limiteur du débit des enchères
+     * @param objectMapper lecteur JSON du corps de la requête
+     * @param maxBodySize  taille maximale, en octets, du corps lu pour trouver la vente
+     */
+    public BidRateLimitFilter(BidRateLimiter rateLimiter,
+                              ObjectMapper objectMapper,
+                              @Value("${app.bid.rate-limit.max-body-size:4096}") int maxBodySize) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !(request.getContextPath() + PATH).equals(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(maxBodySize + 1);
+        if (body.length > maxBodySize) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        long waitMs = rateLimiter.tryAcquire(rateLimiter.limitsFor(authentication.getAuthorities()),
+                authentication.getName(), saleIdOf(body));
+        if (waitMs > 0) {
+            reject(response, waitMs);
+            return;
+        }
+        filterChain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    /**
+     * @return l'identifiant de la vente, -1 si le corps n'en contient pas (le contrôleur refusera la requête)
+     */
+    private long saleIdOf(byte[] body) {
+        try {
+            JsonNode saleId = objectMapper.readTree(body).path("saleId");
+            return saleId.canConvertToLong() ? saleId.asLong() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void reject(HttpServletResponse response, long waitMs) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMs + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorDto(HttpStatus.TOO_MANY_REQUESTS.value(), "bid.rateLimited", System.currentTimeMillis()));
+    }
+
+    /**
+     * Requête dont le corps, déjà lu par le filtre, est rejoué depuis la mémoire.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package fr.rougeux.projet.auction.configuration.security;
 
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.Cookie;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -23,6 +25,7 @@ import org.springframework.security.oauth2.server.resource.web.BearerTokenResolv
 import org.springframework.security.provisioning.JdbcUserDetailsManager;
 import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 
 import javax.crypto.spec.SecretKeySpec;
 import javax.sql.DataSource;
@@ -36,6 +39,7 @@ import javax.sql.DataSource;
  *     <li>La gestion des rôles et permissions via JWT</li>
  *     <li>Une politique sans session (API REST stateless)</li>
  *     <li>La récupération du token JWT depuis un cookie HTTP</li>
+ *     <li>La limitation du débit des enchères ({@link BidRateLimitFilter})</li>
  * </ul>
  * <p>
  * Le but est d’assurer la protection des endpoints de l’API en fonction du rôle de l’utilisateur
@@ -92,11 +96,12 @@ public class SecurityConfig {
      * d’accès aux différentes routes de l’API selon le rôle utilisateur.
      *
      * @param http l’objet {@link HttpSecurity} à configurer.
+     * @param bidRateLimitFilter filtre de limitation du débit des enchères, appliqué après l’autorisation
      * @return une instance de {@link SecurityFilterChain}.
      * @throws Exception en cas d’erreur de configuration.
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, BidRateLimitFilter bidRateLimitFilter) throws Exception {
         http
                 // Désactivation des mécanismes non nécessaires pour une API REST
                 .csrf(AbstractHttpConfigurer::disable)
@@ -105,17 +110,26 @@ public class SecurityConfig {
 
                 // Configuration des permissions
                 .authorizeHttpRequests(auth -> auth
+                        // Fin d'un flux SSE déjà autorisé : le JWT n'est pas relu lors du dispatch asynchrone
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/auth/login").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/auth/me").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/auth/logout").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/sales/**").hasRole("USER")
+                        .requestMatchers(HttpMethod.POST, "/api/sales/lookup").hasRole("USER")
                         .requestMatchers(HttpMethod.POST, "/api/bid/place").hasRole("USER")
+                        .requestMatchers(HttpMethod.GET, "/api/bid/ws").hasRole("USER")
                         .requestMatchers(HttpMethod.GET, "/api/users/**").hasRole("USER")
                         .requestMatchers(HttpMethod.GET, "/api/categories").hasRole("USER")
                         .requestMatchers(HttpMethod.GET, "/img/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/**").hasRole("ADMIN")
                         .anyRequest().denyAll()
                 )
 
+                // Limitation du débit des enchères, pour les seuls utilisateurs autorisés
+                .addFilterAfter(bidRateLimitFilter, AuthorizationFilter.class)
+
                 // Configuration du serveur de ressources OAuth2 avec JWT
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
@@ -131,6 +145,20 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Empêche l’enregistrement automatique du {@link BidRateLimitFilter} comme filtre de servlet :
+     * il ne doit s’exécuter que dans la chaîne de sécurité, une fois l’utilisateur authentifié.
+     *
+     * @param filter filtre de limitation du débit des enchères
+     * @return l’enregistrement désactivé du filtre
+     */
+    @Bean
+    public FilterRegistrationBean<BidRateLimitFilter> bidRateLimitFilterRegistration(BidRateLimitFilter filter) {
+        FilterRegistrationBean<BidRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     /**
      * Définit l’encodeur JWT utilisé pour signer les tokens.
      *
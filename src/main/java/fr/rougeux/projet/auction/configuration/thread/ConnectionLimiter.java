@@ -0,0 +1,53 @@
+package fr.rougeux.projet.auction.configuration.thread;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enveloppe chaque pool de connexions dans sa propre {@link ConnectionLimitingDataSource}.
+ * <p>
+ * Chaque pool (le primaire, chacun des réplicas) est borné à sa propre taille
+ * ({@code maximumPoolSize}) : une borne commune, posée devant le routage vers les réplicas,
+ * laisserait passer plus de connexions qu'un pool n'en a, ou en refuserait alors que
+ * d'autres pools sont libres.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class ConnectionLimiter {
+
+    private final int maxWaiting;
+    private final long acquireTimeoutMs;
+    private final Map<String, ConnectionLimitingDataSource> limited = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxWaiting       nombre maximal de threads en attente d'une connexion, par pool
+     * @param acquireTimeoutMs attente maximale d'une connexion, en millisecondes
+     */
+    public ConnectionLimiter(int maxWaiting, long acquireTimeoutMs) {
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    /**
+     * @param pool pool de connexions, déjà configuré
+     * @return le pool, borné à sa taille maximale
+     */
+    public DataSource limit(HikariDataSource pool) {
+        ConnectionLimitingDataSource dataSource =
+                new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(), maxWaiting, acquireTimeoutMs);
+        limited.put(pool.getPoolName(), dataSource);
+        return dataSource;
+    }
+
+    /**
+     * @return les pools bornés, par nom de pool
+     */
+    public Map<String, ConnectionLimitingDataSource> getLimited() {
+        return Map.copyOf(limited);
+    }
+}
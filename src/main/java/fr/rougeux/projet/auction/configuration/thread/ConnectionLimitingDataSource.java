@@ -0,0 +1,147 @@
+package fr.rougeux.projet.auction.configuration.thread;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DataSource} bornant le nombre de connexions empruntées simultanément à la taille du pool.
+ * <p>
+ * Avec des threads virtuels, le nombre de requêtes concurrentes n'est plus limité par un pool
+ * de threads : sans borne, des milliers de threads se disputent les quelques connexions du pool.
+ * Ici, un thread n'entre dans le pool qu'avec un permis d'un {@link Semaphore} équitable de
+ * {@code permits} places, sur lequel un thread virtuel attend sans bloquer de thread porteur.
+ * Au-delà de {@code maxWaiting} threads en attente, ou après {@code acquireTimeoutMs}, l'emprunt
+ * échoue aussitôt par une {@link SQLTransientConnectionException} : la surcharge est rejetée
+ * au lieu de s'accumuler.
+ * </p>
+ * <p>
+ * Le permis est rendu à la fermeture de la connexion.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long acquireTimeoutMs;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param target           pool de connexions
+     * @param permits          nombre maximal de connexions empruntées simultanément
+     * @param maxWaiting       nombre maximal de threads en attente d'un permis
+     * @param acquireTimeoutMs attente maximale d'un permis, en millisecondes
+     */
+    public ConnectionLimitingDataSource(DataSource target, int permits, int maxWaiting, long acquireTimeoutMs) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * @return le nombre de threads en attente d'un permis
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return le nombre de connexions empruntées
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            active.incrementAndGet();
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            throw new SQLTransientConnectionException("Too many threads waiting for a database connection.");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection permit.");
+            }
+            active.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection permit.", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Emprunte une connexion au pool, le permis étant déjà acquis ; sa fermeture rend le permis.
+     */
+    private Connection limited(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> invoke(connection, closed, method, args));
+    }
+
+    private Object invoke(Connection connection, AtomicBoolean closed, Method method, Object[] args) throws Throwable {
+        if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+            try {
+                connection.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    release();
+                }
+            }
+            return null;
+        }
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,82 @@
+package fr.rougeux.projet.auction.configuration.thread;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Diagnostic des threads virtuels épinglés à leur thread porteur.
+ * <p>
+ * Un thread virtuel qui bloque dans un bloc {@code synchronized} (par exemple dans le pilote JDBC)
+ * ne libère pas son thread porteur : au-delà de quelques épinglages simultanés, les requêtes
+ * attendent un porteur libre. Les évènements JFR {@code jdk.VirtualThreadPinned} plus longs que
+ * {@code app.vthread.pinned-threshold-ms} sont lus en continu, comptés et journalisés avec le haut
+ * de leur pile d'appels, qui désigne la section synchronisée en cause.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.vthread.pinned} (épinglages détectés).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class PinnedThreadMonitor implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 8;
+
+    private final RecordingStream stream = new RecordingStream();
+    private final Counter pinned;
+
+    /**
+     * Démarre la lecture des évènements d'épinglage.
+     *
+     * @param thresholdMs   durée d'épinglage à partir de laquelle un évènement est relevé, en millisecondes
+     * @param meterRegistry registre des métriques
+     */
+    public PinnedThreadMonitor(@Value("${app.vthread.pinned-threshold-ms:20}") long thresholdMs,
+                               MeterRegistry meterRegistry) {
+        this.pinned = Counter.builder("auction.vthread.pinned").register(meterRegistry);
+        stream.enable(PINNED).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED, this::onPinned);
+        stream.startAsync();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        if (LOG.isWarnEnabled()) {
+            List<RecordedFrame> frames = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+            String stack = frames.stream()
+                    .limit(STACK_DEPTH)
+                    .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                            + ":" + frame.getLineNumber())
+                    .collect(Collectors.joining(" <- "));
+            LOG.warn("vthread.pinned {} ms {}", event.getDuration().toMillis(), stack);
+        }
+    }
+
+    /**
+     * Arrête la lecture des évènements à la fermeture du contexte.
+     */
+    @Override
+    public void destroy() {
+        stream.close();
+    }
+}
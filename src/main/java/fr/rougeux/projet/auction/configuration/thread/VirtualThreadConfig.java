@@ -0,0 +1,92 @@
+package fr.rougeux.projet.auction.configuration.thread;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration du mode threads virtuels ({@code spring.threads.virtual.enabled=true}).
+ * <p>
+ * Spring Boot exécute alors les requêtes Tomcat, les tâches {@code @Async} et {@code @Scheduled}
+ * sur des threads virtuels : un appel JDBC bloquant ne retient plus qu'un thread virtuel,
+ * et non un thread du pool de Tomcat. Les boucles dédiées à un seul thread (séquenceur, écriture
+ * groupée, diffusion des évènements, clôture des ventes) restent sur des threads plateforme.
+ * </p>
+ * <p>
+ * Le nombre de requêtes simultanées n'étant plus borné par le pool de threads, chaque pool de connexions
+ * est enveloppé dans une {@link ConnectionLimitingDataSource} dimensionnée sur sa propre taille
+ * ({@link ConnectionLimiter}) : la {@link DataSource} de Spring Boot ici, le primaire et chaque réplica
+ * dans {@link fr.rougeux.projet.auction.configuration.datasource.ReadReplicaConfig}.
+ * </p>
+ * <p>
+ * Métriques exposées, par pool (étiquette {@code pool}) : {@code auction.datasource.limit.waiting}
+ * (threads en attente d'une connexion) et {@code auction.datasource.limit.active} (connexions empruntées).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    /**
+     * @param maxWaiting       nombre maximal de threads en attente d'une connexion, par pool
+     * @param acquireTimeoutMs attente maximale d'une connexion, en millisecondes
+     * @return l'enveloppe des pools de connexions
+     */
+    @Bean
+    public static ConnectionLimiter connectionLimiter(
+            @Value("${app.datasource.limit.max-waiting:1000}") int maxWaiting,
+            @Value("${app.datasource.limit.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        return new ConnectionLimiter(maxWaiting, acquireTimeoutMs);
+    }
+
+    /**
+     * Enveloppe le pool de connexions de Spring Boot dans une {@link ConnectionLimitingDataSource}.
+     * <p>
+     * La {@link fr.rougeux.projet.auction.configuration.datasource.ReplicaRoutingDataSource} n'est pas enveloppée : ses pools le sont déjà, chacun à sa taille.
+     * </p>
+     *
+     * @param connectionLimiter enveloppe des pools de connexions
+     * @return le post-processeur de la {@link DataSource}
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimitingPostProcessor(ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    return connectionLimiter.getObject().limit(pool);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * @param connectionLimiter enveloppe des pools de connexions
+     * @return les jauges de la limitation des connexions, par pool
+     */
+    @Bean
+    public MeterBinder connectionLimitingMetrics(ConnectionLimiter connectionLimiter) {
+        return registry -> connectionLimiter.getLimited().forEach((pool, limited) -> {
+            Gauge.builder("auction.datasource.limit.waiting", limited, ConnectionLimitingDataSource::getWaiting)
+                    .tag("pool", pool)
+                    .register(registry);
+            Gauge.builder("auction.datasource.limit.active", limited, ConnectionLimitingDataSource::getActive)
+                    .tag("pool", pool)
+                    .register(registry);
+        });
+    }
+}
@@ -1,22 +1,35 @@
 package fr.rougeux.projet.auction.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.rougeux.projet.auction.dto.request.BidRequestDto;
 import fr.rougeux.projet.auction.dto.response.BidResponseDto;
 import fr.rougeux.projet.auction.exception.BusinessException;
 import fr.rougeux.projet.auction.exception.NotFoundException;
 import fr.rougeux.projet.auction.service.BidService;
+import fr.rougeux.projet.auction.service.idempotency.IdempotencyStore;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.security.Principal;
+
 /**
  * Contrôleur REST gérant les opérations liées aux enchères (bids).
  *
  * <p>Ce contrôleur permet à un utilisateur authentifié de placer une enchère
  * sur une vente donnée via l'endpoint <code>/api/bid/place</code>.</p>
  *
+ * <p>Un client qui rejoue sa requête (délai dépassé, réseau mobile) l'accompagne d'un en-tête
+ * <code>Idempotency-Key</code> : l'enchère n'est alors placée qu'une fois, et les répétitions
+ * reçoivent la réponse de la première exécution ({@link IdempotencyStore}), signalée par l'en-tête
+ * <code>Idempotent-Replayed: true</code>.</p>
+ *
  * <p>L'accès à ces opérations est restreint aux utilisateurs ayant le rôle <b>USER</b>.</p>
  *
  * @author Rougeux Max
@@ -26,15 +39,24 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("api/bid")
 public class BidController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final BidService bidService;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructeur d’injection du service des enchères.
      *
      * @param bidService service métier gérant la logique des enchères
+     * @param idempotencyStore registre des clés d’idempotence
+     * @param objectMapper sérialiseur JSON des réponses conservées
      */
-    public BidController(BidService bidService) {
+    public BidController(BidService bidService, IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
         this.bidService = bidService;
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -44,16 +66,48 @@ public class BidController {
      * avant d’enregistrer l’enchère. En cas d’erreur (enchère trop basse, vente terminée, etc.),
      * une exception métier est levée et renvoyée sous forme d’erreur HTTP appropriée.</p>
      *
+     * <p>Avec une clé d’idempotence, le corps JSON de la réponse est conservé et renvoyé tel quel
+     * aux répétitions de la requête, sans nouvelle exécution.</p>
+     *
+     * @param idempotencyKey clé d’idempotence facultative, choisie par le client pour cette enchère
      * @param bidRequest données de l’enchère à placer (identifiant de la vente, montant, etc.)
+     * @param principal utilisateur authentifié, propriétaire de la clé d’idempotence
      * @return un objet {@link BidResponseDto} contenant les informations de la vente mise à jour
      *         et celles de l’utilisateur après placement de l’enchère
      *
      * @throws NotFoundException si la vente ou l’utilisateur n’existe pas
-     * @throws BusinessException si la règle métier d’enchère n’est pas respectée
+     * @throws BusinessException si la règle métier d’enchère n’est pas respectée,
+     *                           ou si la clé d’idempotence est déjà utilisée pour une autre enchère
      */
     @PreAuthorize("hasRole('USER')")
     @PostMapping("/place")
-    public BidResponseDto placeBid(@RequestBody BidRequestDto bidRequest) {
-        return bidService.placeBid(bidRequest);
+    public ResponseEntity<?> placeBid(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                      @RequestBody BidRequestDto bidRequest,
+                                      Principal principal) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(bidService.placeBid(bidRequest));
+        }
+        IdempotencyStore.Response response = idempotencyStore.execute(principal.getName(), idempotencyKey,
+                fingerprint(bidRequest), () -> toJson(bidService.placeBid(bidRequest)));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(response.replayed()))
+                .body(response.body());
+    }
+
+    /**
+     * Empreinte d’une enchère : la vente, le montant et l’enchère maximale. Une clé réutilisée
+     * pour une enchère dont l’un d’eux diffère est refusée.
+     */
+    private static String fingerprint(BidRequestDto bidRequest) {
+        return bidRequest.getSaleId() + ":" + bidRequest.getBidAmount() + ":" + bidRequest.getMaxAmount();
+    }
+
+    private byte[] toJson(BidResponseDto response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -1,13 +1,32 @@
 package fr.rougeux.projet.auction.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.rougeux.projet.auction.dto.bo.BidDto;
 import fr.rougeux.projet.auction.dto.bo.SaleDto;
+import fr.rougeux.projet.auction.dto.request.SaleSearchDto;
+import fr.rougeux.projet.auction.dto.response.BidPageDto;
+import fr.rougeux.projet.auction.dto.response.PriceBucketDto;
+import fr.rougeux.projet.auction.dto.response.SaleHitDto;
+import fr.rougeux.projet.auction.dto.response.SalePageDto;
+import fr.rougeux.projet.auction.service.RowStream;
 import fr.rougeux.projet.auction.service.SaleService;
+import fr.rougeux.projet.auction.service.event.SaleEventBus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -15,8 +34,9 @@ import java.util.List;
  * <p>
  * Cette classe expose les endpoints liés aux ventes aux enchères :
  * <ul>
- *     <li>Récupération de toutes les ventes</li>
- *     <li>Consultation d’une vente spécifique par son identifiant</li>
+ *     <li>Recherche paginée des ventes (filtres et tri)</li>
+ *     <li>Recherche plein texte des ventes en cours</li>
+ *     <li>Consultation d’une vente spécifique par son identifiant, ou de plusieurs à la fois</li>
  *     <li>Enchérir sur une vente existante</li>
  * </ul>
  * Tous les endpoints sont sécurisés et accessibles uniquement aux utilisateurs
@@ -25,8 +45,19 @@ import java.util.List;
  *
  * <h3>Routes disponibles :</h3>
  * <ul>
- *     <li><b>GET /api/sales</b> — Récupère la liste de toutes les ventes</li>
- *     <li><b>GET /api/sales/{id}</b> — Récupère les détails d’une vente</li>
+ *     <li><b>GET /api/sales?categoryId=&amp;status=&amp;minPrice=&amp;maxPrice=&amp;sellerId=&amp;endingAfter=&amp;endingBefore=&amp;sort=&amp;after=&amp;limit=</b>
+ *     — Récupère une page de ventes filtrées et triées</li>
+ *     <li><b>GET /api/sales?ids=1,2,3</b> — Récupère plusieurs ventes par leurs identifiants</li>
+ *     <li><b>POST /api/sales/lookup</b> — Récupère plusieurs ventes par leurs identifiants, passés dans le corps</li>
+ *     <li><b>GET /api/sales/stream?categoryId=&amp;status=&amp;...&amp;sort=&amp;after=</b>
+ *     — Toutes les ventes filtrées et triées, en un tableau JSON écrit au fil de la lecture</li>
+ *     <li><b>GET /api/sales/search?q=...&amp;limit=N</b> — Recherche plein texte des ventes en cours</li>
+ *     <li><b>GET /api/sales/{id}</b> — Récupère les détails d’une vente et ses meilleures enchères</li>
+ *     <li><b>GET /api/sales/{id}/bids?after=...&amp;limit=N</b> — Historique paginé des enchères d’une vente</li>
+ *     <li><b>GET /api/sales/{id}/bids/stream</b> — Historique complet des enchères d’une vente, écrit au fil de la lecture</li>
+ *     <li><b>GET /api/sales/{id}/price-history?bucket=1m</b> — Historique de prix d’une vente par intervalles</li>
+ *     <li><b>GET /api/sales/{id}/events</b> — Flux SSE des mises à jour d’une vente</li>
+ *     <li><b>GET /api/sales/events?ids=...</b> — Flux SSE multiplexé des mises à jour de plusieurs ventes</li>
  *     <li><b>POST /api/sales/bid</b> — Envoie une enchère sur une vente</li>
  * </ul>
  *
@@ -38,28 +69,111 @@ import java.util.List;
 public class SaleController {
 
     private final SaleService saleService;
+    private final SaleEventBus saleEventBus;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructeur injectant le service de gestion des ventes.
      *
      * @param saleService service métier responsable de la logique des ventes.
+     * @param saleEventBus bus de diffusion des mises à jour de ventes.
+     * @param objectMapper sérialiseur JSON des réponses écrites au fil de la lecture.
      */
-    public SaleController(SaleService saleService) {
+    public SaleController(SaleService saleService, SaleEventBus saleEventBus, ObjectMapper objectMapper) {
         this.saleService = saleService;
+        this.saleEventBus = saleEventBus;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Récupère la liste de toutes les ventes disponibles.
+     * Récupère une page de ventes, filtrées par catégorie, statut ({@code ONGOING} par défaut, {@code OVER}, {@code ALL}),
+     * fourchette de prix, vendeur et fenêtre de fin, et triées par {@code ENDING_SOON} (défaut), {@code NEWEST},
+     * {@code PRICE_ASC} ou {@code PRICE_DESC} (aussi acceptés en camelCase : {@code endingSoon}...).
      * <p>
+     * Les pages non filtrées des ventes en cours triées par {@code ENDING_SOON} ou {@code NEWEST}
+     * sont lues dans un index en mémoire, sans accès à la base.
+     * La page suivante est obtenue en passant le curseur {@code next} de la réponse dans {@code after},
+     * avec les mêmes filtres et le même tri.
      * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
      * </p>
      *
-     * @return une liste de {@link SaleDto} représentant les ventes.
+     * @param search filtres, tri, curseur et taille de la page.
+     * @return un {@link SalePageDto} contenant les ventes et le curseur de la page suivante.
      */
     @PreAuthorize("hasRole('USER')")
     @GetMapping("")
-    public List<SaleDto> getVentes() {
-        return saleService.findAll();
+    public SalePageDto getVentes(SaleSearchDto search) {
+        return saleService.findPage(search);
+    }
+
+    /**
+     * Récupère plusieurs ventes par leurs identifiants, avec leurs meilleures enchères, à la place
+     * d’autant d’appels à {@code GET /api/sales/{id}} (listes de suivi, enchères de l’utilisateur).
+     * <p>
+     * Les identifiants inconnus sont omis de la réponse. Pour une longue liste, utiliser
+     * {@code POST /api/sales/lookup}. Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param ids identifiants des ventes, séparés par des virgules.
+     * @return la liste des {@link SaleDto}, dans l’ordre des identifiants demandés.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "", params = "ids")
+    public List<SaleDto> getVentesByIds(@RequestParam List<Long> ids) {
+        return saleService.findByIds(ids);
+    }
+
+    /**
+     * Récupère plusieurs ventes par leurs identifiants, passés dans le corps de la requête,
+     * comme {@code GET /api/sales?ids=...}.
+     * <p>
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param ids tableau JSON des identifiants des ventes.
+     * @return la liste des {@link SaleDto}, dans l’ordre des identifiants demandés.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @PostMapping("/lookup")
+    public List<SaleDto> lookupVentes(@RequestBody List<Long> ids) {
+        return saleService.findByIds(ids);
+    }
+
+    /**
+     * Renvoie toutes les ventes filtrées et triées comme {@code GET /api/sales}, sans taille de page,
+     * en un tableau JSON écrit au fil de la lecture en base.
+     * <p>
+     * Aucune liste n'est construite : la mémoire utilisée ne dépend pas du nombre de ventes, et les
+     * premières ventes sont envoyées dès leur lecture. Les paramètres sont validés avant l’envoi
+     * de la réponse ; une erreur en cours d’écriture interrompt la réponse.
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param search filtres, tri et curseur de départ.
+     * @return le tableau JSON des {@link SaleDto}, dans l’ordre du tri.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamVentes(SaleSearchDto search) {
+        return stream(saleService.streamSales(search));
+    }
+
+    /**
+     * Recherche les ventes en cours dont le nom ou la description de l’objet correspond au texte saisi,
+     * accents et pluriels ignorés ; le dernier mot peut être incomplet.
+     * <p>
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param q     texte recherché.
+     * @param limit nombre maximal de ventes renvoyées.
+     * @return la liste des {@link SaleHitDto}, par pertinence décroissante.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping("/search")
+    public List<SaleHitDto> searchVentes(@RequestParam String q,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        return saleService.search(q, limit);
     }
 
     /**
@@ -76,4 +190,112 @@ public class SaleController {
     public SaleDto getVenteById(@PathVariable long id) {
         return saleService.findById(id);
     }
+
+    /**
+     * Récupère une page de l’historique des enchères d’une vente, par montant décroissant.
+     * <p>
+     * La page suivante est obtenue en passant le curseur {@code next} de la réponse dans {@code after}.
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param id    identifiant unique de la vente.
+     * @param after curseur {@code montant,identifiant} de la page précédente, absent pour la première page.
+     * @param limit nombre maximal d’enchères de la page.
+     * @return un {@link BidPageDto} contenant les enchères et le curseur de la page suivante.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping("/{id}/bids")
+    public BidPageDto getVenteBids(@PathVariable long id,
+                                   @RequestParam(required = false) String after,
+                                   @RequestParam(defaultValue = "50") int limit) {
+        return saleService.findBids(id, after, limit);
+    }
+
+    /**
+     * Renvoie tout l’historique des enchères d’une vente, par montant décroissant,
+     * en un tableau JSON écrit au fil de la lecture en base.
+     * <p>
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param id identifiant unique de la vente.
+     * @return le tableau JSON des {@link BidDto}.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping("/{id}/bids/stream")
+    public ResponseEntity<StreamingResponseBody> streamVenteBids(@PathVariable long id) {
+        return stream(saleService.streamBids(id));
+    }
+
+    /**
+     * Récupère l’historique de prix d’une vente par intervalles : prix d’ouverture, plus haut,
+     * plus bas, de clôture et nombre d’enchères de chaque intervalle.
+     * <p>
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param id     identifiant unique de la vente.
+     * @param bucket durée d’un intervalle ({@code 1m}, {@code 15m}, {@code 1h}...).
+     * @return la liste des {@link PriceBucketDto}, par date croissante.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping("/{id}/price-history")
+    public List<PriceBucketDto> getVentePriceHistory(@PathVariable long id,
+                                                     @RequestParam(defaultValue = "1m") String bucket) {
+        return saleService.findPriceHistory(id, bucket);
+    }
+
+    /**
+     * Ouvre un flux Server-Sent Events des mises à jour d’une vente (prix, meneur, date de fin, clôture),
+     * à la place de la scrutation de {@code GET /api/sales/{id}}.
+     * <p>
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param id identifiant unique de la vente.
+     * @return le flux des mises à jour de la vente.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getVenteEvents(@PathVariable long id) {
+        return saleEventBus.subscribe(List.of(id));
+    }
+
+    /**
+     * Ouvre un flux Server-Sent Events unique pour les mises à jour de plusieurs ventes.
+     * <p>
+     * Accessible uniquement aux utilisateurs authentifiés avec le rôle <b>USER</b>.
+     * </p>
+     *
+     * @param ids identifiants des ventes suivies.
+     * @return le flux des mises à jour des ventes.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getVentesEvents(@RequestParam List<Long> ids) {
+        return saleEventBus.subscribe(ids);
+    }
+
+    /**
+     * Écrit un parcours en tableau JSON directement dans le flux de la réponse, élément par élément.
+     *
+     * @param rows parcours à écrire, exécuté sur le thread d’écriture de la réponse
+     * @return la réponse JSON
+     */
+    private <T> ResponseEntity<StreamingResponseBody> stream(RowStream<T> rows) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                rows.forEach(row -> {
+                    try {
+                        generator.writeObject(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 }
@@ -0,0 +1,233 @@
+package fr.rougeux.projet.auction.controller.websocket;
+
+import fr.rougeux.projet.auction.bo.User;
+import fr.rougeux.projet.auction.dto.request.BidRequestDto;
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
+import fr.rougeux.projet.auction.exception.BusinessException;
+import fr.rougeux.projet.auction.service.BidService;
+import fr.rougeux.projet.auction.service.event.BidFrameCodec;
+import fr.rougeux.projet.auction.service.event.SaleEventBus;
+import fr.rougeux.projet.auction.service.ratelimit.BidRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canal WebSocket d'enchères, exposé sur <code>/api/bid/ws</code>.
+ *
+ * <p>L'utilisateur est authentifié une seule fois, par le JWT de la requête de handshake,
+ * puis chargé avec son compte de crédit ({@link BidService#loadBidder}) : les enchères suivantes
+ * ne repassent ni par la chaîne de filtres de sécurité, ni par la lecture de l'utilisateur en base.</p>
+ *
+ * <p>Les enchères sont reçues en trames binaires compactes et reçoivent une trame d'acquittement
+ * ou de refus, dans l'ordre de leur réception, au lieu d'un {@code BidResponseDto} complet
+ * (format décrit par {@link BidFrameCodec}). Le client suit automatiquement les ventes
+ * sur lesquelles il enchérit, et peut en suivre d'autres : les mises à jour de prix lui sont
+ * poussées par le {@link SaleEventBus}, dans leur encodage binaire partagé.</p>
+ *
+ * <p>Les envois sont sérialisés par un {@link ConcurrentWebSocketSessionDecorator} : un client
+ * trop lent, au-delà de {@code app.bid.ws.send-time-limit-ms} ou {@code app.bid.ws.send-buffer-size},
+ * est déconnecté.</p>
+ *
+ * <p>Les enchères sont soumises aux mêmes limites de débit que l'API REST ({@link BidRateLimiter}),
+ * selon les rôles portés par le JWT du handshake.</p>
+ *
+ * <p>La connexion ne survit pas au JWT du handshake : une fois son expiration passée, la session
+ * est fermée ({@link CloseStatus#POLICY_VIOLATION}, raison {@code token.expired}) à la trame suivante,
+ * ou au plus tard au contrôle périodique des sessions, toutes les {@code app.bid.ws.expiry-check-ms}.
+ * Le client se reconnecte avec un nouveau jeton.</p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class BidSocketHandler extends BinaryWebSocketHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BidSocketHandler.class);
+
+    private static final String CHANNEL = "bidChannel";
+
+    private static final CloseStatus TOKEN_EXPIRED = CloseStatus.POLICY_VIOLATION.withReason("token.expired");
+
+    private final BidService bidService;
+    private final SaleEventBus saleEventBus;
+    private final BidRateLimiter rateLimiter;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSize;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur du canal d'enchères.
+     *
+     * @param bidService      service métier des enchères
+     * @param saleEventBus    bus de diffusion des mises à jour de ventes
+     * @param rateLimiter     limiteur du débit des enchères
+     * @param sendTimeLimitMs durée maximale d'un envoi vers le client, en millisecondes
+     * @param sendBufferSize  taille maximale, en octets, des trames en attente d'envoi vers le client
+     */
+    public BidSocketHandler(BidService bidService,
+                            SaleEventBus saleEventBus,
+                            BidRateLimiter rateLimiter,
+                            @Value("${app.bid.ws.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                            @Value("${app.bid.ws.send-buffer-size:65536}") int sendBufferSize) {
+        this.bidService = bidService;
+        this.saleEventBus = saleEventBus;
+        this.rateLimiter = rateLimiter;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    /**
+     * Charge l'enchérisseur authentifié au handshake et ouvre son abonnement aux mises à jour.
+     */
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws IOException {
+        Principal principal = session.getPrincipal();
+        if (principal == null) {
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        User bidder;
+        try {
+            bidder = bidService.loadBidder(principal.getName());
+        } catch (BusinessException e) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(e.getMessage()));
+            return;
+        }
+        BidRateLimiter.Limits limits = rateLimiter.limitsFor(
+                principal instanceof Authentication authentication ? authentication.getAuthorities() : List.of());
+        Instant expiresAt = principal instanceof JwtAuthenticationToken jwt ? jwt.getToken().getExpiresAt() : null;
+        WebSocketSession out = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSize);
+        SaleEventBus.BinarySubscription subscription = saleEventBus.subscribeBinary(frame -> send(out, frame));
+        Channel channel = new Channel(bidder, principal.getName(), limits, expiresAt, out, subscription);
+        session.getAttributes().put(CHANNEL, channel);
+        channels.put(session.getId(), channel);
+    }
+
+    /**
+     * Traite une trame reçue : enchère, ou ajout / retrait d'une vente suivie.
+     */
+    @Override
+    protected void handleBinaryMessage(@NonNull WebSocketSession session, @NonNull BinaryMessage message) {
+        Channel channel = (Channel) session.getAttributes().get(CHANNEL);
+        if (channel == null) {
+            return;
+        }
+        if (channel.isExpired(Instant.now())) {
+            close(channel);
+            return;
+        }
+        ByteBuffer frame = message.getPayload();
+        int clientSeq = 0;
+        try {
+            switch (BidFrameCodec.typeOf(frame)) {
+                case BidFrameCodec.BID -> {
+                    BidFrameCodec.BidFrame bid = BidFrameCodec.decodeBid(frame);
+                    clientSeq = bid.clientSeq();
+                    if (rateLimiter.tryAcquire(channel.limits, channel.subject, bid.saleId()) > 0) {
+                        throw new BusinessException("bid.rateLimited");
+                    }
+                    channel.subscription.watch(bid.saleId());
+                    send(channel.out, placeBid(channel.bidder, bid));
+                }
+                case BidFrameCodec.SUBSCRIBE -> {
+                    if (!channel.subscription.watch(BidFrameCodec.decodeSaleId(frame))) {
+                        throw new BusinessException("sale.events.tooMany");
+                    }
+                }
+                case BidFrameCodec.UNSUBSCRIBE -> channel.subscription.unwatch(BidFrameCodec.decodeSaleId(frame));
+                default -> throw new BusinessException("bid.frame.invalid");
+            }
+        } catch (BusinessException e) {
+            send(channel.out, BidFrameCodec.encodeReject(clientSeq, e.getMessage()));
+        } catch (RuntimeException e) {
+            LOG.error("Failed to handle bid frame of {}.", channel.bidder.getUserId(), e);
+            send(channel.out, BidFrameCodec.encodeReject(clientSeq, "bid.error"));
+        }
+    }
+
+    /**
+     * Place une enchère reçue et encode son acquittement.
+     */
+    private byte[] placeBid(User bidder, BidFrameCodec.BidFrame bid) {
+        BidRequestDto request = new BidRequestDto(bid.saleId(), bid.amount());
+        request.setMaxAmount(bid.maxAmount());
+
+        SaleEventDto sale = SaleEventDto.of(bidService.placeBid(bidder, request).sale());
+        return BidFrameCodec.encodeAck(bid.clientSeq(), sale, sale.leaderId() == bidder.getUserId());
+    }
+
+    /**
+     * Ferme l'abonnement aux mises à jour du client déconnecté.
+     */
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
+        Channel channel = (Channel) session.getAttributes().remove(CHANNEL);
+        if (channel != null) {
+            channels.remove(session.getId());
+            channel.subscription.close();
+        }
+    }
+
+    /**
+     * Ferme les sessions dont le JWT a expiré, y compris celles qui n'envoient plus de trame.
+     */
+    @Scheduled(fixedDelayString = "${app.bid.ws.expiry-check-ms:10000}")
+    public void closeExpired() {
+        Instant now = Instant.now();
+        for (Channel channel : List.copyOf(channels.values())) {
+            if (channel.isExpired(now)) {
+                close(channel);
+            }
+        }
+    }
+
+    private void close(Channel channel) {
+        channels.remove(channel.out.getId());
+        channel.subscription.close();
+        try {
+            channel.out.close(TOKEN_EXPIRED);
+        } catch (IOException e) {
+            LOG.debug("Failed to close session {}.", channel.out.getId(), e);
+        }
+    }
+
+    private void send(WebSocketSession out, byte[] frame) {
+        try {
+            out.sendMessage(new BinaryMessage(frame));
+        } catch (IOException | IllegalStateException e) {
+            // Client déconnecté ou trop lent : la fermeture de la session retire son abonnement
+            LOG.debug("Failed to send frame on session {}.", out.getId(), e);
+        }
+    }
+
+    /**
+     * État d'une connexion : enchérisseur, limites de débit, expiration du JWT du handshake,
+     * session d'envoi et abonnement aux mises à jour.
+     */
+    private record Channel(User bidder, String subject, BidRateLimiter.Limits limits, Instant expiresAt,
+                           WebSocketSession out, SaleEventBus.BinarySubscription subscription) {
+
+        private boolean isExpired(Instant now) {
+            return expiresAt != null && !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -7,10 +7,22 @@ public class CategoryDto {
 
     private long categoryId;
     private String label;
+    private int saleCount;
+    private int ongoingCount;
+    private int endingSoonCount;
 
     public long getCategoryId() { return categoryId; }
     public void setCategoryId(long categoryId) { this.categoryId = categoryId; }
 
     public String getLabel() { return label; }
     public void setLabel(String label) { this.label = label; }
+
+    public int getSaleCount() { return saleCount; }
+    public void setSaleCount(int saleCount) { this.saleCount = saleCount; }
+
+    public int getOngoingCount() { return ongoingCount; }
+    public void setOngoingCount(int ongoingCount) { this.ongoingCount = ongoingCount; }
+
+    public int getEndingSoonCount() { return endingSoonCount; }
+    public void setEndingSoonCount(int endingSoonCount) { this.endingSoonCount = endingSoonCount; }
 }
@@ -14,6 +14,8 @@ public class SaleDto {
     private int startingPrice;
     private int salePrice;
     private String status;
+    private long leaderId;
+    private int bidCount;
     private UserDto seller;
     private ItemDto item;
     private List<BidDto> bidLst;
@@ -36,6 +38,12 @@ public class SaleDto {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public long getLeaderId() { return leaderId; }
+    public void setLeaderId(long leaderId) { this.leaderId = leaderId; }
+
+    public int getBidCount() { return bidCount; }
+    public void setBidCount(int bidCount) { this.bidCount = bidCount; }
+
     public UserDto getSeller() { return seller; }
     public void setSeller(UserDto seller) { this.seller = seller; }
 
@@ -2,8 +2,7 @@ package fr.rougeux.projet.auction.dto.request;
 
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-
-import java.time.LocalDateTime;
+import jakarta.validation.constraints.PositiveOrZero;
 
 public class BidRequestDto {
 
@@ -13,14 +12,14 @@ public class BidRequestDto {
     @Positive(message = "Bid must be higher than zero")
     private int bidAmount;
 
-    private LocalDateTime bidTime = LocalDateTime.now();
+    @PositiveOrZero(message = "Max bid must not be negative")
+    private int maxAmount;
 
     public BidRequestDto() {}
 
-    public BidRequestDto(long saleId, int bidAmount, LocalDateTime bidTime) {
+    public BidRequestDto(long saleId, int bidAmount) {
         this.saleId = saleId;
         this.bidAmount = bidAmount;
-        this.bidTime = bidTime != null ? bidTime : LocalDateTime.now();
     }
 
     public Long getSaleId() { return saleId; }
@@ -29,6 +28,6 @@ public class BidRequestDto {
     public int getBidAmount() { return bidAmount; }
     public void setBidAmount(int bidAmount) { this.bidAmount = bidAmount; }
 
-    public LocalDateTime getBidTime() { return bidTime; }
-    public void setBidTime(LocalDateTime bidTime) { this.bidTime = bidTime; }
+    public int getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(int maxAmount) { this.maxAmount = maxAmount; }
 }
@@ -0,0 +1,57 @@
+package fr.rougeux.projet.auction.dto.request;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Paramètres de recherche de {@code GET /api/sales} : filtres, tri et pagination par clé.
+ */
+public class SaleSearchDto {
+
+    private Long categoryId;
+    private String status = "ONGOING";
+    private Integer minPrice;
+    private Integer maxPrice;
+    private Long sellerId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime endingAfter;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime endingBefore;
+
+    private String sort = "ENDING_SOON";
+    private String after;
+    private int limit = 20;
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getMinPrice() { return minPrice; }
+    public void setMinPrice(Integer minPrice) { this.minPrice = minPrice; }
+
+    public Integer getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(Integer maxPrice) { this.maxPrice = maxPrice; }
+
+    public Long getSellerId() { return sellerId; }
+    public void setSellerId(Long sellerId) { this.sellerId = sellerId; }
+
+    public LocalDateTime getEndingAfter() { return endingAfter; }
+    public void setEndingAfter(LocalDateTime endingAfter) { this.endingAfter = endingAfter; }
+
+    public LocalDateTime getEndingBefore() { return endingBefore; }
+    public void setEndingBefore(LocalDateTime endingBefore) { this.endingBefore = endingBefore; }
+
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+
+    public String getAfter() { return after; }
+    public void setAfter(String after) { this.after = after; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
@@ -0,0 +1,15 @@
+package fr.rougeux.projet.auction.dto.response;
+
+import fr.rougeux.projet.auction.dto.bo.BidDto;
+
+import java.util.List;
+
+/**
+ * Page de l'historique des enchères d'une vente.
+ *
+ * @param bids enchères de la page, par montant décroissant
+ * @param next curseur de la page suivante ({@code montant,identifiant} de la dernière enchère),
+ *             {@code null} s'il n'y en a pas
+ */
+public record BidPageDto(List<BidDto> bids, String next) {
+}
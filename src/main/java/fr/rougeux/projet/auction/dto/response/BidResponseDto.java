@@ -3,4 +3,16 @@ package fr.rougeux.projet.auction.dto.response;
 import fr.rougeux.projet.auction.dto.bo.SaleDto;
 import fr.rougeux.projet.auction.dto.bo.UserDto;
 
-public record BidResponseDto(SaleDto sale, UserDto user) {}
+/**
+ * Résultat d'une enchère acceptée.
+ *
+ * @param sale    vente après l'enchère
+ * @param user    enchérisseur, crédit actualisé
+ * @param pending vrai si l'enchère est acceptée mais que son écriture en base n'est pas encore confirmée
+ */
+public record BidResponseDto(SaleDto sale, UserDto user, boolean pending) {
+
+    public BidResponseDto(SaleDto sale, UserDto user) {
+        this(sale, user, false);
+    }
+}
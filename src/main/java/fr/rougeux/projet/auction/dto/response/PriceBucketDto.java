@@ -0,0 +1,16 @@
+package fr.rougeux.projet.auction.dto.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Intervalle de l'historique de prix d'une vente (ouverture, plus haut, plus bas, clôture).
+ *
+ * @param start    début de l'intervalle
+ * @param open     premier prix de l'intervalle
+ * @param high     plus haut prix de l'intervalle
+ * @param low      plus bas prix de l'intervalle
+ * @param close    dernier prix de l'intervalle
+ * @param bidCount nombre d'enchères de l'intervalle
+ */
+public record PriceBucketDto(LocalDateTime start, int open, int high, int low, int close, int bidCount) {
+}
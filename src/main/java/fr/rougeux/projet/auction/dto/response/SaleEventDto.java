@@ -0,0 +1,21 @@
+package fr.rougeux.projet.auction.dto.response;
+
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mise à jour d'une vente diffusée en temps réel (prix, meneur, nombre d'enchères, date de fin et statut).
+ */
+public record SaleEventDto(long saleId, String status, int salePrice, long leaderId, int bidCount,
+                           LocalDateTime endingDate) {
+
+    /**
+     * @param sale vente à diffuser
+     * @return la mise à jour correspondant à la vente, sans ses enchères ni son article
+     */
+    public static SaleEventDto of(SaleDto sale) {
+        return new SaleEventDto(sale.getSaleId(), sale.getStatus(), sale.getSalePrice(), sale.getLeaderId(),
+                sale.getBidCount(), sale.getEndingDate());
+    }
+}
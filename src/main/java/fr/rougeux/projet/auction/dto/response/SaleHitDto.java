@@ -0,0 +1,12 @@
+package fr.rougeux.projet.auction.dto.response;
+
+/**
+ * Vente trouvée par la recherche plein texte.
+ *
+ * @param saleId     identifiant de la vente
+ * @param itemName   nom de l'objet mis en vente
+ * @param categoryId catégorie de l'objet
+ * @param score      pertinence de la vente pour la requête, comparable au sein d'une même réponse
+ */
+public record SaleHitDto(long saleId, String itemName, long categoryId, double score) {
+}
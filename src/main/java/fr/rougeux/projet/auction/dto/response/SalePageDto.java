@@ -0,0 +1,15 @@
+package fr.rougeux.projet.auction.dto.response;
+
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
+
+import java.util.List;
+
+/**
+ * Page de la liste des ventes.
+ *
+ * @param sales ventes de la page, dans l'ordre demandé
+ * @param next  curseur de la page suivante ({@code clé,identifiant} de la dernière vente),
+ *              {@code null} s'il n'y en a pas
+ */
+public record SalePageDto(List<SaleDto> sales, String next) {
+}
@@ -0,0 +1,74 @@
+package fr.rougeux.projet.auction.job;
+
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import fr.rougeux.projet.auction.service.credit.CreditLedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Job de libération par lots des réservations de crédit.
+ * <p>
+ * Supprime en base, à intervalle court, les réservations déjà libérées en mémoire
+ * par le {@link CreditLedger} (enchérisseurs dépassés). Le règlement des ventes terminées
+ * est fait à leur clôture par le {@link fr.rougeux.projet.auction.service.closing.SaleCloser}.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class CreditHoldReleaseJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CreditHoldReleaseJob.class);
+
+    private final CreditLedger creditLedger;
+    private final CreditHoldDao creditHoldDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    /**
+     * Constructeur du job.
+     *
+     * @param creditLedger        registre en mémoire des réservations
+     * @param creditHoldDao       DAO des réservations
+     * @param transactionTemplate template de transaction de chaque lot
+     * @param batchSize           taille maximale d'un lot
+     */
+    public CreditHoldReleaseJob(CreditLedger creditLedger,
+                                CreditHoldDao creditHoldDao,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${app.credit.release.batch-size:500}") int batchSize) {
+        this.creditLedger = creditLedger;
+        this.creditHoldDao = creditHoldDao;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Supprime en base les réservations libérées en mémoire, puis le signale au registre
+     * pour qu'il retire les comptes devenus inactifs. En cas d'échec, le lot est replacé dans la file pour la prochaine exécution.
+     */
+    @Scheduled(fixedDelayString = "${app.credit.release.purge-interval-ms:1000}")
+    public void purgeReleased() {
+        List<CreditHold> batch;
+        while (!(batch = creditLedger.drainPurges(batchSize)).isEmpty()) {
+            List<CreditHold> purged = batch;
+            try {
+                transactionTemplate.executeWithoutResult(status -> creditHoldDao.deleteAll(purged));
+            } catch (DataAccessException e) {
+                LOG.error("db.access.error", e);
+                purged.forEach(creditLedger::schedulePurge);
+                return;
+            }
+            creditLedger.purged(purged);
+        }
+    }
+}
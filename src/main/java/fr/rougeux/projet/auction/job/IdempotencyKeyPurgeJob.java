@@ -0,0 +1,51 @@
+package fr.rougeux.projet.auction.job;
+
+import fr.rougeux.projet.auction.repository.IdempotencyKeyDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Job de suppression des clés d'idempotence expirées de la table IDEMPOTENCY_KEYS.
+ * <p>
+ * Actif uniquement lorsque les clés sont partagées par la base ({@code app.bid.idempotency.database=true}) ;
+ * les clés expirées sont déjà ignorées à la lecture, le job ne fait que borner la taille de la table.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "app.bid.idempotency.database", havingValue = "true")
+public class IdempotencyKeyPurgeJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyKeyPurgeJob.class);
+    private final IdempotencyKeyDao idempotencyKeyDao;
+
+    /**
+     * Constructeur du job.
+     *
+     * @param idempotencyKeyDao DAO des clés d'idempotence
+     */
+    public IdempotencyKeyPurgeJob(IdempotencyKeyDao idempotencyKeyDao) {
+        this.idempotencyKeyDao = idempotencyKeyDao;
+    }
+
+    /**
+     * Supprime les clés expirées.
+     */
+    @Scheduled(fixedDelayString = "${app.bid.idempotency.purge-interval-ms:600000}")
+    public void purge() {
+        try {
+            int purged = idempotencyKeyDao.deleteExpired();
+            if (purged > 0) {
+                LOG.info("{} expired idempotency key(s) purged.", purged);
+            }
+        } catch (DataAccessException e) {
+            LOG.error("db.access.error", e);
+        }
+    }
+}
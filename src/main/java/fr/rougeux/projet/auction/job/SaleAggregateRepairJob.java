@@ -0,0 +1,83 @@
+package fr.rougeux.projet.auction.job;
+
+import fr.rougeux.projet.auction.repository.SaleDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Job de backfill et de réparation des colonnes dénormalisées de SALES
+ * ({@code current_price}, {@code leader_user_id}, {@code bid_count}).
+ * <p>
+ * Ces colonnes sont maintenues à chaque enchère acceptée ; le job les recalcule depuis BIDS
+ * une seule fois au démarrage, et ne réécrit que les ventes qui ont divergé
+ * (données importées, écriture interrompue, etc.). Le recalcul parcourt toute la table :
+ * sa répétition périodique est désactivée par défaut.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class SaleAggregateRepairJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SaleAggregateRepairJob.class);
+    private final SaleDao saleDao;
+    private final boolean backfillOnStartup;
+    private final boolean periodicRepair;
+
+    /**
+     * Constructeur du job.
+     *
+     * @param saleDao           le DAO utilisé pour recalculer les colonnes des ventes
+     * @param backfillOnStartup vrai pour recalculer les colonnes au démarrage
+     * @param periodicRepair    vrai pour répéter le recalcul à intervalle régulier
+     */
+    public SaleAggregateRepairJob(SaleDao saleDao,
+                                  @Value("${app.sale.aggregates.backfill-on-startup:true}") boolean backfillOnStartup,
+                                  @Value("${app.sale.aggregates.repair.enabled:false}") boolean periodicRepair) {
+        this.saleDao = saleDao;
+        this.backfillOnStartup = backfillOnStartup;
+        this.periodicRepair = periodicRepair;
+    }
+
+    /**
+     * Recalcule une fois, au démarrage, les colonnes dénormalisées des ventes qui ont divergé de BIDS.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (backfillOnStartup) {
+            repair();
+        }
+    }
+
+    /**
+     * Répète le recalcul à intervalle régulier, si la réparation périodique est activée.
+     */
+    @Scheduled(initialDelayString = "${app.sale.aggregates.repair-interval-ms:3600000}",
+               fixedDelayString = "${app.sale.aggregates.repair-interval-ms:3600000}")
+    @Transactional
+    public void repairPeriodically() {
+        if (periodicRepair) {
+            repair();
+        }
+    }
+
+    private void repair() {
+        try {
+            int repaired = saleDao.repairBidAggregates();
+            if (repaired > 0) {
+                LOG.warn("{} sale(s) had bid aggregates out of sync with BIDS and were repaired.", repaired);
+            }
+        } catch (DataAccessException e) {
+            LOG.error("db.access.error", e);
+        }
+    }
+}
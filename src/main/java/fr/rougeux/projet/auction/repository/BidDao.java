@@ -2,7 +2,10 @@ package fr.rougeux.projet.auction.repository;
 
 import fr.rougeux.projet.auction.bo.Bid;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Interface DAO (Data Access Object) pour la gestion des enchères ({@link Bid}).
@@ -22,15 +25,48 @@ import java.util.List;
 public interface BidDao {
 
     /**
-     * Récupère toutes les enchères associées à une vente donnée.
+     * Récupère les meilleures enchères d’une vente donnée.
      *
-     * <p>Les enchères sont généralement triées par montant décroissant
+     * <p>Les enchères sont triées par montant décroissant
      * afin d’obtenir la plus haute enchère en premier.</p>
      *
      * @param saleId identifiant unique de la vente
-     * @return liste des enchères associées à la vente, ou une liste vide si aucune n’existe
+     * @param limit nombre maximal d’enchères renvoyées
+     * @return les {@code limit} plus hautes enchères de la vente, ou une liste vide si aucune n’existe
      */
-    List<Bid> readAll(long saleId);
+    List<Bid> readTop(long saleId, int limit);
+
+    /**
+     * Récupère les meilleures enchères de plusieurs ventes en une seule requête.
+     *
+     * @param saleIds identifiants des ventes, non vide
+     * @param limit   nombre maximal d’enchères renvoyées par vente
+     * @return les enchères de chaque vente, triées par montant décroissant ; les ventes sans enchère sont absentes
+     */
+    Map<Long, List<Bid>> readTopBySales(Collection<Long> saleIds, int limit);
+
+    /**
+     * Récupère une page de l’historique des enchères d’une vente, par pagination par clé (seek).
+     *
+     * <p>Les enchères sont triées par montant décroissant puis par identifiant ; la page commence
+     * juste après l’enchère {@code (afterAmount, afterBidId)}, dernière de la page précédente.
+     * Le coût de la lecture ne dépend pas du rang de la page.</p>
+     *
+     * @param saleId identifiant unique de la vente
+     * @param afterAmount montant de la dernière enchère de la page précédente
+     * @param afterBidId identifiant de la dernière enchère de la page précédente
+     * @param limit nombre maximal d’enchères renvoyées
+     * @return les enchères suivantes, ou une liste vide si aucune n’existe
+     */
+    List<Bid> readPage(long saleId, int afterAmount, long afterBidId, int limit);
+
+    /**
+     * Parcourt tout l'historique des enchères d'une vente, sans le charger en liste.
+     *
+     * @param saleId identifiant unique de la vente
+     * @param action traitement appliqué à chaque enchère, par montant décroissant puis par identifiant
+     */
+    void forEachBySale(long saleId, Consumer<Bid> action);
 
     /**
      * Crée une nouvelle enchère dans la base de données.
@@ -47,4 +83,27 @@ public interface BidDao {
      * @param bid enchère à insérer dans la base
      */
     void create(Bid bid);
+
+    /**
+     * Insère un lot d'enchères en un seul aller-retour (batch JDBC).
+     *
+     * <p>Utilisé par l'écriture groupée : l'appelant porte la transaction
+     * englobant le lot.</p>
+     *
+     * @param bids enchères à insérer, dans l'ordre de leur acceptation
+     */
+    void createAll(List<Bid> bids);
+
+    /**
+     * Insère un lot d'enchères en ignorant celles déjà présentes (batch JDBC).
+     *
+     * <p>Une enchère est considérée comme présente si la vente porte déjà une enchère
+     * du même montant : les montants acceptés sur une vente étant strictement croissants,
+     * le couple (vente, montant) l'identifie. Utilisé par le rejeu du journal des enchères,
+     * qui peut ainsi être répété sans créer de doublon.</p>
+     *
+     * @param bids enchères à insérer, dans l'ordre de leur acceptation
+     * @return les enchères effectivement insérées, dans le même ordre
+     */
+    List<Bid> createAllIfAbsent(List<Bid> bids);
 }
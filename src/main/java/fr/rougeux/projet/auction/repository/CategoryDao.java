@@ -3,6 +3,7 @@ package fr.rougeux.projet.auction.repository;
 import fr.rougeux.projet.auction.bo.Category;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO pour l'accès aux données des catégories.
@@ -18,13 +19,20 @@ import java.util.List;
 public interface CategoryDao {
 
     /**
-     * Récupère toutes les catégories présentes dans la base de données.
+     * Récupère toutes les catégories présentes dans la base de données, sans leurs compteurs.
      * <p>
-     * Les informations récupérées peuvent inclure le nombre d'items associés à chaque catégorie.
      * L'implémentation doit retourner une liste vide si aucune catégorie n'est trouvée.
      * </p>
      *
      * @return une liste de {@link Category} représentant toutes les catégories
      */
     List<Category> readAll();
+
+    /**
+     * Compte les ventes de chaque catégorie, clôturées ou non, jusqu'à une vente donnée.
+     *
+     * @param upToSaleId identifiant de la dernière vente comptée
+     * @return le nombre de ventes par identifiant de catégorie ; une catégorie sans vente est absente
+     */
+    Map<Long, Integer> countSales(long upToSaleId);
 }
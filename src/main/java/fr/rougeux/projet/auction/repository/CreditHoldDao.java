@@ -0,0 +1,84 @@
+package fr.rougeux.projet.auction.repository;
+
+import fr.rougeux.projet.auction.bo.CreditHold;
+
+import java.util.List;
+
+/**
+ * DAO pour l'accès aux réservations de crédit ({@link CreditHold}).
+ * <p>
+ * Les réservations sont stockées dans la table CREDIT_HOLDS, à raison d'une ligne
+ * par couple (utilisateur, vente).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public interface CreditHoldDao {
+
+    /**
+     * Récupère toutes les réservations d'un utilisateur.
+     *
+     * @param userId l'identifiant de l'utilisateur
+     * @return la liste de ses réservations, vide s'il n'en a aucune
+     */
+    List<CreditHold> readByUserId(long userId);
+
+    /**
+     * Récupère le montant réservé par un utilisateur sur une vente.
+     *
+     * @param userId l'identifiant de l'utilisateur
+     * @param saleId l'identifiant de la vente
+     * @return le montant réservé, 0 si l'utilisateur n'a pas de réservation sur la vente
+     */
+    int readAmount(long userId, long saleId);
+
+
+    /**
+     * Vérifie, en base, que le crédit d'un utilisateur couvre une réservation en plus de celles
+     * qu'il porte sur les autres ventes.
+     * <p>
+     * La ligne de l'utilisateur reste verrouillée jusqu'à la fin de la transaction courante :
+     * deux réservations concurrentes du même utilisateur, même placées par des instances différentes,
+     * sont vérifiées l'une après l'autre.
+     * </p>
+     *
+     * @param hold la réservation à vérifier, avant son enregistrement
+     * @return vrai si le crédit de l'utilisateur couvre la réservation
+     */
+    boolean coversHold(CreditHold hold);
+
+    /**
+     * Crée ou remplace la réservation d'un utilisateur sur une vente.
+     *
+     * @param hold la réservation à enregistrer
+     */
+    void upsert(CreditHold hold);
+
+    /**
+     * Crée ou remplace un lot de réservations en un seul aller-retour.
+     * Les réservations sont appliquées dans l'ordre de la liste.
+     *
+     * @param holds les réservations à enregistrer
+     */
+    void upsertAll(List<CreditHold> holds);
+
+    /**
+     * Supprime un lot de réservations.
+     * <p>
+     * Une réservation n'est supprimée que si son montant n'a pas changé entre-temps,
+     * afin de ne pas effacer une nouvelle enchère du même utilisateur.
+     * </p>
+     *
+     * @param holds les réservations à supprimer
+     */
+    void deleteAll(List<CreditHold> holds);
+
+    /**
+     * Supprime toutes les réservations portant sur une vente, lors de son règlement.
+     *
+     * @param saleId l'identifiant de la vente
+     * @return les réservations supprimées
+     */
+    List<CreditHold> deleteBySale(long saleId);
+}
@@ -0,0 +1,68 @@
+package fr.rougeux.projet.auction.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * DAO des clés d'idempotence partagées entre les instances de l'application.
+ * <p>
+ * Les clés sont stockées dans la table IDEMPOTENCY_KEYS, à raison d'une ligne par couple
+ * (utilisateur, clé). Une ligne sans réponse est une exécution en cours sur l'une des instances.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public interface IdempotencyKeyDao {
+
+    /**
+     * Clé enregistrée.
+     *
+     * @param fingerprint empreinte de la requête associée à la clé
+     * @param response    corps de la réponse, {@code null} si l'exécution est en cours
+     */
+    record StoredKey(String fingerprint, byte[] response) {
+    }
+
+    /**
+     * Réserve une clé pour une exécution. Une clé expirée est réservée à nouveau.
+     *
+     * @param owner       utilisateur propriétaire de la clé
+     * @param key         clé d'idempotence
+     * @param fingerprint empreinte de la requête
+     * @param expiresAt   date d'expiration de la clé
+     * @return vrai si la clé a été réservée, faux si elle est déjà utilisée
+     */
+    boolean claim(String owner, String key, String fingerprint, LocalDateTime expiresAt);
+
+    /**
+     * @param owner utilisateur propriétaire de la clé
+     * @param key   clé d'idempotence
+     * @return la clé enregistrée, vide si elle n'existe pas
+     */
+    Optional<StoredKey> read(String owner, String key);
+
+    /**
+     * Enregistre la réponse d'une exécution terminée.
+     *
+     * @param owner    utilisateur propriétaire de la clé
+     * @param key      clé d'idempotence
+     * @param response corps de la réponse
+     */
+    void complete(String owner, String key, byte[] response);
+
+    /**
+     * Libère une clé réservée dont l'exécution a échoué.
+     *
+     * @param owner utilisateur propriétaire de la clé
+     * @param key   clé d'idempotence
+     */
+    void release(String owner, String key);
+
+    /**
+     * Supprime les clés expirées.
+     *
+     * @return le nombre de clés supprimées
+     */
+    int deleteExpired();
+}
@@ -0,0 +1,51 @@
+package fr.rougeux.projet.auction.repository;
+
+import fr.rougeux.projet.auction.bo.PriceBucket;
+
+import java.util.List;
+
+/**
+ * DAO de l'historique de prix des ventes ({@link PriceBucket}).
+ * <p>
+ * Les intervalles d'une minute sont stockés dans la table SALE_PRICE_BUCKETS, à raison d'une ligne
+ * par couple (vente, minute).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public interface PriceBucketDao {
+
+    /**
+     * Récupère les intervalles enregistrés d'une vente.
+     *
+     * @param saleId l'identifiant de la vente
+     * @return les intervalles, par date croissante
+     */
+    List<PriceBucket> readBySale(long saleId);
+
+    /**
+     * Récupère le plus haut prix enregistré d'une vente : les enchères d'un montant inférieur
+     * ou égal sont déjà comptées dans la table.
+     *
+     * @param saleId l'identifiant de la vente
+     * @return le plus haut prix enregistré, 0 si aucun
+     */
+    int readMaxClose(long saleId);
+
+    /**
+     * Agrège par minute, depuis BIDS, les enchères d'une vente d'un montant supérieur à {@code afterAmount}.
+     *
+     * @param saleId      l'identifiant de la vente
+     * @param afterAmount montant au-delà duquel les enchères sont agrégées
+     * @return les intervalles, par date croissante
+     */
+    List<PriceBucket> aggregateBids(long saleId, int afterAmount);
+
+    /**
+     * Fusionne un lot d'agrégats partiels dans les intervalles enregistrés, en un seul aller-retour.
+     *
+     * @param buckets les agrégats à fusionner
+     */
+    void mergeAll(List<PriceBucket> buckets);
+}
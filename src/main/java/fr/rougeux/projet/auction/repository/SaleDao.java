@@ -1,8 +1,14 @@
 package fr.rougeux.projet.auction.repository;
 
+import fr.rougeux.projet.auction.bo.Bid;
 import fr.rougeux.projet.auction.bo.Sale;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * DAO pour l'accès aux données des ventes.
@@ -18,15 +24,37 @@ import java.util.List;
 public interface SaleDao {
 
     /**
-     * Récupère toutes les ventes présentes dans la base de données.
+     * Récupère une page de ventes filtrées et triées.
      * <p>
      * L'implémentation peut effectuer les jointures nécessaires pour inclure
      * les relations {@link fr.rougeux.projet.auction.bo.Item} et {@link fr.rougeux.projet.auction.bo.User}.
+     * La page commence après la position {@link SaleQuery#after()}, sans saut de lignes (pas d'OFFSET).
      * </p>
      *
-     * @return une liste de {@link Sale} représentant toutes les ventes
+     * @param query filtres, tri et position de la page
+     * @param now   instant de référence du statut des ventes
+     * @return au plus {@link SaleQuery#limit()} ventes, dans l'ordre du tri
      */
-    List<Sale> readAll();
+    List<Sale> readPage(SaleQuery query, LocalDateTime now);
+
+    /**
+     * Parcourt toutes les ventes filtrées et triées à partir du curseur, sans les charger en liste.
+     *
+     * @param query  filtres, tri et position de départ ; la taille de page est ignorée
+     * @param now    instant de référence du statut des ventes
+     * @param action traitement appliqué à chaque vente, dans l'ordre du tri (mêmes champs que {@link #readPage})
+     */
+    void forEachPage(SaleQuery query, LocalDateTime now, Consumer<Sale> action);
+
+    /**
+     * Parcourt, par identifiant croissant, les ventes en cours créées après une vente donnée,
+     * sans les charger en liste.
+     *
+     * @param afterSaleId identifiant de la dernière vente déjà parcourue, 0 pour toutes
+     * @param now         instant de référence du statut des ventes
+     * @param action      traitement appliqué à chaque vente (mêmes champs que {@link #readPage})
+     */
+    void forEachOngoing(long afterSaleId, LocalDateTime now, Consumer<Sale> action);
 
     /**
      * Récupère une vente à partir de son identifiant.
@@ -40,6 +68,33 @@ public interface SaleDao {
      */
     Sale readById(long saleId);
 
+    /**
+     * Récupère une vente et ses meilleures enchères en une seule requête.
+     * <p>
+     * La vente porte son vendeur, son objet et sa catégorie, comme pour {@link #readById}, et ses enchères
+     * les plus hautes avec leur enchérisseur. L'implémentation peut lever une exception
+     * (par exemple {@link org.springframework.dao.EmptyResultDataAccessException}) si aucune vente n'est trouvée.
+     * </p>
+     *
+     * @param saleId  l'identifiant de la vente
+     * @param topBids nombre maximal d'enchères chargées
+     * @return la vente, ses enchères triées par montant décroissant (liste modifiable, éventuellement vide)
+     */
+    Sale readDetail(long saleId, int topBids);
+
+    /**
+     * Récupère plusieurs ventes à partir de leurs identifiants, en une seule requête.
+     * <p>
+     * Chaque vente porte son vendeur, son objet et sa catégorie, comme pour {@link #readById}.
+     * Les identifiants sans vente sont ignorés. Le nombre d'identifiants est borné par l'appelant
+     * (SQL Server accepte au plus 2100 paramètres par requête).
+     * </p>
+     *
+     * @param saleIds les identifiants des ventes, non vide
+     * @return les ventes trouvées, sans ordre garanti
+     */
+    List<Sale> readByIds(Collection<Long> saleIds);
+
     /**
      * Récupère toutes les ventes associées à un utilisateur donné.
      * <p>
@@ -53,4 +108,128 @@ public interface SaleDao {
      * @return une liste de {@link Sale} représentant les ventes de l'utilisateur
      */
     List<Sale> readByUserId(long userId);
+
+    /**
+     * Accepte une enchère par compare-and-set sur le prix courant de la vente.
+     * <p>
+     * Le prix courant, le meneur et le nombre d'enchères ne sont mis à jour que si la vente
+     * est encore en cours et que le montant dépasse strictement le prix courant ;
+     * le nombre de lignes modifiées décide seul de l'acceptation, sans lecture préalable
+     * de la vente ni de ses enchères. Le même ordre applique la clôture progressive.
+     * </p>
+     *
+     * @param saleId    l'identifiant de la vente
+     * @param amount    le montant de l'enchère
+     * @param userId    l'identifiant de l'enchérisseur
+     * @param window    fenêtre de fin de vente déclenchant la prolongation (nulle pour la désactiver)
+     * @param extension durée de la prolongation
+     * @return l'enchère reportée si elle a été acceptée, vide sinon
+     */
+    Optional<RecordedBid> compareAndSetPrice(long saleId, int amount, long userId, Duration window, Duration extension);
+
+    /**
+     * Reporte sur la vente une enchère déjà validée.
+     * <p>
+     * Incrémente le nombre d'enchères et met à jour le prix courant et le meneur, si le montant
+     * dépasse toujours le prix courant. Une enchère reportée dans la fenêtre de fin
+     * de la vente, à l'heure du serveur de base de données, repousse sa date de fin, dans le même
+     * ordre. Une vente clôturée, terminée à l'heure du serveur, ou dont le prix courant a atteint
+     * le montant n'est pas modifiée.
+     * </p>
+     *
+     * @param bid       l'enchère validée, portant sa vente et son utilisateur
+     * @param window    fenêtre de fin de vente déclenchant la prolongation (nulle pour la désactiver)
+     * @param extension durée de la prolongation
+     * @return l'enchère reportée, vide si la vente est clôturée, terminée ou déjà à un prix supérieur ou égal
+     */
+    Optional<RecordedBid> recordBid(Bid bid, Duration window, Duration extension);
+
+    /**
+     * Reporte sur leurs ventes un lot d'enchères déjà validées, en un seul aller-retour.
+     * <p>
+     * Les enchères sont appliquées dans l'ordre de la liste : chacune incrémente le nombre d'enchères,
+     * et ne met à jour le prix courant et le meneur que si son montant dépasse le prix courant. La date de fin de chaque vente, déjà prolongée en mémoire,
+     * est reportée telle quelle si elle est postérieure à celle en base.
+     * </p>
+     *
+     * @param bids les enchères acceptées, portant leur vente et leur utilisateur
+     */
+    void recordBids(List<Bid> bids);
+
+    /**
+     * Recalcule le prix courant, le meneur et le nombre d'enchères des ventes
+     * à partir de la table BIDS, pour les seules ventes dont les colonnes ont divergé.
+     *
+     * @return le nombre de ventes corrigées
+     */
+    int repairBidAggregates();
+
+    /**
+     * Parcourt, par identifiant croissant, les ventes non clôturées créées après une vente donnée,
+     * sans les charger en liste. Seuls l'identifiant et la date de fin de chaque vente sont renseignés.
+     *
+     * @param afterSaleId identifiant de la dernière vente déjà parcourue, 0 pour toutes
+     * @param action      traitement appliqué à chaque vente
+     */
+    void forEachUnclosed(long afterSaleId, Consumer<Sale> action);
+
+    /**
+     * Parcourt, par identifiant croissant, les ventes non clôturées créées après une vente donnée,
+     * sans les charger en liste. Seuls l'identifiant, la date de fin et le nom, la description
+     * et la catégorie de l'objet de chaque vente sont renseignés.
+     *
+     * @param afterSaleId identifiant de la dernière vente déjà parcourue, 0 pour toutes
+     * @param action      traitement appliqué à chaque vente
+     */
+    void forEachSearchable(long afterSaleId, Consumer<Sale> action);
+
+    /**
+     * @return le plus grand identifiant de vente, 0 s'il n'y a aucune vente
+     */
+    long readMaxSaleId();
+
+    /**
+     * Parcourt, sans les charger en liste, les ventes dont l'identifiant est compris entre deux bornes.
+     * Seuls l'identifiant, la date de fin, la date de clôture et la catégorie de l'objet
+     * de chaque vente sont renseignés.
+     *
+     * @param afterSaleId  identifiant exclu à partir duquel parcourir, 0 pour toutes
+     * @param upToSaleId   identifiant de la dernière vente parcourue
+     * @param unclosedOnly vrai pour ne parcourir que les ventes non clôturées
+     * @param action       traitement appliqué à chaque vente
+     */
+    void forEachCategorized(long afterSaleId, long upToSaleId, boolean unclosedOnly, Consumer<Sale> action);
+
+    /**
+     * Clôture une vente arrivée à échéance : son prix courant devient son prix final
+     * et son meneur son gagnant.
+     *
+     * @param saleId l'identifiant de la vente
+     * @param now    l'instant de clôture, qui doit avoir atteint la date de fin
+     * @return la vente clôturée (identifiant, dates de fin et de clôture, nombre d'enchères, prix final
+     *         dans {@code salePrice}, gagnant dans {@code leaderId}, 0 si aucun), vide si elle était
+     *         déjà clôturée ou pas encore terminée
+     */
+    Optional<Sale> close(long saleId, LocalDateTime now);
+
+    /**
+     * Enchère reportée sur une vente.
+     *
+     * @param previousLeaderId   l'identifiant du meneur avant l'enchère (0 si aucun)
+     * @param previousEndingDate la date de fin avant l'enchère
+     * @param endingDate         la date de fin après l'enchère
+     * @param bidCount           le nombre d'enchères après l'enchère
+     * @param currentPrice       le prix courant après l'enchère
+     * @param leaderId           l'identifiant du meneur après l'enchère
+     */
+    record RecordedBid(long previousLeaderId, LocalDateTime previousEndingDate, LocalDateTime endingDate,
+                       int bidCount, int currentPrice, long leaderId) {
+
+        /**
+         * @return vrai si l'enchère a prolongé la vente
+         */
+        public boolean extended() {
+            return endingDate.isAfter(previousEndingDate);
+        }
+    }
 }
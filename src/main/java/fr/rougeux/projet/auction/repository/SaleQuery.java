@@ -0,0 +1,159 @@
+package fr.rougeux.projet.auction.repository;
+
+import fr.rougeux.projet.auction.bo.Sale;
+
+import java.time.LocalDateTime;
+
+/**
+ * Critères de lecture d'une page de ventes : filtres, tri et position de la page.
+ * <p>
+ * Un filtre {@code null} n'est pas appliqué. La page suivante est lue par pagination par clé :
+ * {@code after} est la clé de tri de la dernière vente de la page précédente, départagée
+ * par l'identifiant de la vente.
+ * </p>
+ *
+ * @param categoryId   catégorie de l'article vendu
+ * @param status       statut des ventes
+ * @param minPrice     prix courant minimal, inclus
+ * @param maxPrice     prix courant maximal, inclus
+ * @param sellerId     vendeur
+ * @param endingAfter  date de fin minimale, incluse
+ * @param endingBefore date de fin maximale, exclue
+ * @param sort         ordre des ventes
+ * @param after        position de la dernière vente de la page précédente, {@code null} pour la première page
+ * @param limit        nombre maximal de ventes lues
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public record SaleQuery(Long categoryId,
+                        Status status,
+                        Integer minPrice,
+                        Integer maxPrice,
+                        Long sellerId,
+                        LocalDateTime endingAfter,
+                        LocalDateTime endingBefore,
+                        Sort sort,
+                        Cursor after,
+                        int limit) {
+
+    /**
+     * Statut des ventes lues, tel que renvoyé par {@link Sale#getStatus()}.
+     */
+    public enum Status {
+
+        /** Ventes non clôturées dont la date de fin n'est pas atteinte */
+        ONGOING,
+
+        /** Ventes clôturées ou dont la date de fin est atteinte */
+        OVER,
+
+        /** Toutes les ventes */
+        ALL
+    }
+
+    /**
+     * Ordre des ventes, départagé par l'identifiant de la vente dans le même sens.
+     */
+    public enum Sort {
+
+        /** Date de fin croissante */
+        ENDING_SOON(true, true),
+
+        /** Date de début décroissante */
+        NEWEST(true, false),
+
+        /** Prix courant croissant */
+        PRICE_ASC(false, true),
+
+        /** Prix courant décroissant */
+        PRICE_DESC(false, false);
+
+        private final boolean byDate;
+        private final boolean ascending;
+
+        Sort(boolean byDate, boolean ascending) {
+            this.byDate = byDate;
+            this.ascending = ascending;
+        }
+
+        /**
+         * @return vrai si la clé de tri est une date, faux si c'est le prix courant
+         */
+        public boolean byDate() {
+            return byDate;
+        }
+
+        /**
+         * @return vrai si l'ordre est croissant
+         */
+        public boolean ascending() {
+            return ascending;
+        }
+
+        /**
+         * Lit un tri sous la forme de son nom ({@code ENDING_SOON}), en camelCase ({@code endingSoon})
+         * ou en kebab-case ({@code ending-soon}), sans tenir compte de la casse.
+         *
+         * @param value nom du tri
+         * @return le tri correspondant
+         * @throws IllegalArgumentException si aucun tri ne correspond
+         */
+        public static Sort parse(String value) {
+            String name = value.trim().replace("-", "").replace("_", "");
+            for (Sort sort : values()) {
+                if (sort.name().replace("_", "").equalsIgnoreCase(name)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException(value);
+        }
+
+        /**
+         * @param sale vente lue avec ce tri
+         * @return la position de la vente, à partir de laquelle lire la page suivante
+         */
+        public Cursor cursorOf(Sale sale) {
+            return switch (this) {
+                case ENDING_SOON -> new Cursor(sale.getEndingDate(), 0, sale.getSaleId());
+                case NEWEST -> new Cursor(sale.getStartingDate(), 0, sale.getSaleId());
+                case PRICE_ASC, PRICE_DESC -> new Cursor(null, sale.getCurrentPrice(), sale.getSaleId());
+            };
+        }
+    }
+
+    /**
+     * Position d'une vente dans un tri : sa date ou son prix selon le tri, et son identifiant.
+     *
+     * @param date   clé de tri des tris par date
+     * @param price  clé de tri des tris par prix
+     * @param saleId identifiant de la vente
+     */
+    public record Cursor(LocalDateTime date, int price, long saleId) {
+
+        /**
+         * @return la position sous la forme {@code clé,identifiant}
+         */
+        public String encode() {
+            return (date != null ? date.toString() : Integer.toString(price)) + "," + saleId;
+        }
+
+        /**
+         * @param value position encodée par {@link #encode()}
+         * @param sort  tri de la page
+         * @return la position décodée
+         * @throws IllegalArgumentException ou {@link java.time.format.DateTimeParseException}
+         *                                  si la position est invalide pour ce tri
+         */
+        public static Cursor decode(String value, Sort sort) {
+            int separator = value.lastIndexOf(',');
+            if (separator < 0) {
+                throw new IllegalArgumentException(value);
+            }
+            String key = value.substring(0, separator).trim();
+            long saleId = Long.parseLong(value.substring(separator + 1).trim());
+            return sort.byDate()
+                    ? new Cursor(LocalDateTime.parse(key), 0, saleId)
+                    : new Cursor(null, Integer.parseInt(key), saleId);
+        }
+    }
+}
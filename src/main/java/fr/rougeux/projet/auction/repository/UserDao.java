@@ -1,7 +1,10 @@
 package fr.rougeux.projet.auction.repository;
 
+import fr.rougeux.projet.auction.bo.CreditHold;
 import fr.rougeux.projet.auction.bo.User;
 
+import java.util.List;
+
 
 /**
  * DAO pour l'accès aux données des utilisateurs.
@@ -28,4 +31,14 @@ public interface UserDao {
      */
     User readByEmail(String email);
     void update(User user);
+
+    /**
+     * Débite le crédit des gagnants de ventes terminées, à hauteur de leur réservation.
+     * <p>
+     * Seule la colonne {@code credit} est modifiée, en un seul lot.
+     * </p>
+     *
+     * @param holds les réservations des gagnants à convertir en débit
+     */
+    void debitCredits(List<CreditHold> holds);
 }
@@ -3,6 +3,8 @@ package fr.rougeux.projet.auction.repository.impl;
 import fr.rougeux.projet.auction.bo.Bid;
 import fr.rougeux.projet.auction.bo.User;
 import fr.rougeux.projet.auction.repository.BidDao;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -11,7 +13,12 @@ import org.springframework.stereotype.Repository;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Implémentation JDBC du DAO {@link BidDao} pour la gestion des enchères.
@@ -22,8 +29,11 @@ import java.util.List;
  *
  * <p>Elle gère :
  * <ul>
- *   <li>la lecture de toutes les enchères liées à une vente,</li>
- *   <li>la création d'une nouvelle enchère.</li>
+ *   <li>la lecture des meilleures enchères d'une vente ou de plusieurs ventes à la fois, la pagination par clé de son historique
+ *   et son parcours complet, sur l'index couvrant {@code idx_bids_sale (sale_id, bid_amount DESC, bid_id)},</li>
+ *   <li>la lecture de la meilleure enchère d'un utilisateur sur une vente,</li>
+ *   <li>la création d'une nouvelle enchère,</li>
+ *   <li>la création idempotente d'un lot d'enchères, pour le rejeu du journal.</li>
  * </ul>
  * </p>
  *
@@ -36,43 +46,160 @@ import java.util.List;
 @Repository
 public class BidDaoImpl implements BidDao {
 
+    private static final String SELECT_BIDS = """
+                SELECT TOP (:limit) b.bid_id, b.bid_amount, b.bid_time,
+                       u.user_id, u.last_name, u.first_name, u.user_img
+                FROM BIDS b
+                LEFT OUTER JOIN USERS u ON u.user_id = b.user_id
+            """;
+
+    private static final String INSERT_QUERY = """
+                INSERT INTO BIDS (bid_amount, bid_time, user_id, sale_id)
+                VALUES (:amount, :time, :userId, :saleId)
+            """;
+
+    private static final String INSERT_IF_ABSENT_QUERY = """
+                INSERT INTO BIDS (bid_amount, bid_time, user_id, sale_id)
+                SELECT :amount, :time, :userId, :saleId
+                WHERE NOT EXISTS (SELECT 1 FROM BIDS WHERE sale_id = :saleId AND bid_amount = :amount)
+            """;
+
     private final NamedParameterJdbcTemplate jdbc;
 
+    /**
+     * Template JDBC des parcours sans limite, sur la même source de données, lisant les lignes par lots.
+     */
+    private final NamedParameterJdbcTemplate streamingJdbc;
+
     /**
      * Constructeur d’injection du {@link NamedParameterJdbcTemplate}.
      *
-     * @param jdbc instance de template JDBC utilisée pour exécuter les requêtes
+     * @param jdbc      instance de template JDBC utilisée pour exécuter les requêtes
+     * @param fetchSize nombre de lignes lues par aller-retour lors d'un parcours sans limite
      */
-    public BidDaoImpl(NamedParameterJdbcTemplate jdbc) {
+    public BidDaoImpl(NamedParameterJdbcTemplate jdbc,
+                      @Value("${app.jdbc.stream.fetch-size:500}") int fetchSize) {
         this.jdbc = jdbc;
+        JdbcTemplate streaming = new JdbcTemplate(jdbc.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(fetchSize);
+        this.streamingJdbc = new NamedParameterJdbcTemplate(streaming);
     }
 
     /**
-     * Récupère la liste de toutes les enchères associées à une vente donnée.
-     *
-     * <p>Les enchères sont triées par montant décroissant afin que
-     * la plus haute enchère apparaisse en premier.</p>
+     * Récupère les meilleures enchères d'une vente, lues dans l'ordre de l'index.
      *
      * @param saleId identifiant unique de la vente
-     * @return liste des enchères liées à la vente, triées par montant
+     * @param limit nombre maximal d'enchères renvoyées
+     * @return les plus hautes enchères de la vente, triées par montant décroissant
      */
     @Override
-    public List<Bid> readAll(long saleId) {
+    public List<Bid> readTop(long saleId, int limit) {
+        String query = SELECT_BIDS + """
+                    WHERE b.sale_id = :saleId
+                    ORDER BY b.bid_amount DESC, b.bid_id
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+        paramSource.addValue("limit", limit);
+
+        return jdbc.query(query, paramSource, new BidRowMapper());
+    }
+
+    /**
+     * Récupère les meilleures enchères de plusieurs ventes, lues pour chaque vente dans l'ordre de l'index
+     * par un {@code CROSS APPLY}, puis regroupées par vente.
+     *
+     * @param saleIds identifiants des ventes
+     * @param limit   nombre maximal d'enchères renvoyées par vente
+     * @return les plus hautes enchères de chaque vente ayant des enchères, triées par montant décroissant
+     */
+    @Override
+    public Map<Long, List<Bid>> readTopBySales(Collection<Long> saleIds, int limit) {
         String query = """
-                    SELECT b.bid_id, b.bid_amount, b.bid_time,
-                           u.user_id, u.last_name, u.first_name, u.user_img
-                    FROM BIDS b
-                    LEFT OUTER JOIN USERS u ON u.user_id = b.user_id
-                    WHERE b.sale_id = :id
-                    ORDER BY b.bid_amount DESC
+                    SELECT tb.sale_id, tb.bid_id, tb.bid_amount, tb.bid_time,
+                           tb.user_id, tb.last_name, tb.first_name, tb.user_img
+                    FROM SALES s
+                    CROSS APPLY (
+                        SELECT TOP (:limit) b.sale_id, b.bid_id, b.bid_amount, b.bid_time,
+                               u.user_id, u.last_name, u.first_name, u.user_img
+                        FROM BIDS b
+                        LEFT OUTER JOIN USERS u ON u.user_id = b.user_id
+                        WHERE b.sale_id = s.sale_id
+                        ORDER BY b.bid_amount DESC, b.bid_id
+                    ) tb
+                    WHERE s.sale_id IN (:saleIds)
+                    ORDER BY tb.sale_id, tb.bid_amount DESC, tb.bid_id
                 """;
 
         MapSqlParameterSource paramSource = new MapSqlParameterSource();
-        paramSource.addValue("id", saleId);
+        paramSource.addValue("saleIds", saleIds);
+        paramSource.addValue("limit", limit);
+
+        Map<Long, List<Bid>> bidsBySale = new HashMap<>();
+        BidRowMapper mapper = new BidRowMapper();
+        jdbc.query(query, paramSource, rs -> {
+            bidsBySale.computeIfAbsent(rs.getLong("sale_id"), id -> new ArrayList<>())
+                    .add(mapper.mapRow(rs, rs.getRow()));
+        });
+        return bidsBySale;
+    }
+
+    /**
+     * Récupère une page de l'historique des enchères d'une vente.
+     *
+     * <p>La condition sur le montant est écrite en intervalle ({@code bid_amount <= :afterAmount})
+     * pour que SQL Server la résolve par une recherche dans l'index, sans parcourir les pages précédentes.</p>
+     *
+     * @param saleId identifiant unique de la vente
+     * @param afterAmount montant de la dernière enchère de la page précédente
+     * @param afterBidId identifiant de la dernière enchère de la page précédente
+     * @param limit nombre maximal d'enchères renvoyées
+     * @return les enchères suivantes, triées par montant décroissant puis par identifiant
+     */
+    @Override
+    public List<Bid> readPage(long saleId, int afterAmount, long afterBidId, int limit) {
+        String query = SELECT_BIDS + """
+                    WHERE b.sale_id = :saleId
+                      AND b.bid_amount <= :afterAmount
+                      AND (b.bid_amount < :afterAmount OR b.bid_id > :afterBidId)
+                    ORDER BY b.bid_amount DESC, b.bid_id
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+        paramSource.addValue("afterAmount", afterAmount);
+        paramSource.addValue("afterBidId", afterBidId);
+        paramSource.addValue("limit", limit);
 
         return jdbc.query(query, paramSource, new BidRowMapper());
     }
 
+    /**
+     * Parcourt tout l'historique des enchères d'une vente dans l'ordre de l'index, sans limite
+     * ni liste intermédiaire : chaque enchère est transmise dès sa lecture.
+     *
+     * @param saleId identifiant unique de la vente
+     * @param action traitement appliqué à chaque enchère, par montant décroissant puis par identifiant
+     */
+    @Override
+    public void forEachBySale(long saleId, Consumer<Bid> action) {
+        String query = """
+                SELECT b.bid_id, b.bid_amount, b.bid_time,
+                       u.user_id, u.last_name, u.first_name, u.user_img
+                FROM BIDS b
+                LEFT OUTER JOIN USERS u ON u.user_id = b.user_id
+                WHERE b.sale_id = :saleId
+                ORDER BY b.bid_amount DESC, b.bid_id
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+        BidRowMapper mapper = new BidRowMapper();
+
+        streamingJdbc.query(query, paramSource, rs -> action.accept(mapper.mapRow(rs, 0)));
+    }
+
     /**
      * Crée une nouvelle enchère dans la base de données.
      *
@@ -83,18 +210,51 @@ public class BidDaoImpl implements BidDao {
      */
     @Override
     public void create(Bid bid) {
-        String query = """
-                    INSERT INTO BIDS (bid_amount, bid_time, user_id, sale_id)
-                    VALUES (:amount, :time, :userId, :saleId)
-                """;
+        jdbc.update(INSERT_QUERY, toParams(bid));
+    }
+
+    /**
+     * Insère un lot d'enchères en un seul aller-retour (batch JDBC).
+     *
+     * @param bids les enchères à insérer, dans l'ordre de leur acceptation
+     */
+    @Override
+    public void createAll(List<Bid> bids) {
+        if (bids.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(INSERT_QUERY, bids.stream().map(this::toParams).toArray(MapSqlParameterSource[]::new));
+    }
 
+    /**
+     * Insère un lot d'enchères en ignorant celles dont la vente porte déjà le même montant.
+     *
+     * @param bids les enchères à insérer, dans l'ordre de leur acceptation
+     * @return les enchères dont l'insertion a modifié une ligne
+     */
+    @Override
+    public List<Bid> createAllIfAbsent(List<Bid> bids) {
+        if (bids.isEmpty()) {
+            return List.of();
+        }
+        int[] inserted = jdbc.batchUpdate(INSERT_IF_ABSENT_QUERY,
+                bids.stream().map(this::toParams).toArray(MapSqlParameterSource[]::new));
+        List<Bid> created = new ArrayList<>(bids.size());
+        for (int i = 0; i < bids.size(); i++) {
+            if (inserted[i] != 0) {
+                created.add(bids.get(i));
+            }
+        }
+        return created;
+    }
+
+    private MapSqlParameterSource toParams(Bid bid) {
         MapSqlParameterSource paramSource = new MapSqlParameterSource();
         paramSource.addValue("amount", bid.getBidAmount());
         paramSource.addValue("time", bid.getBidTime());
         paramSource.addValue("userId", bid.getUser().getUserId());
         paramSource.addValue("saleId", bid.getSale().getSaleId());
-
-        jdbc.update(query, paramSource);
+        return paramSource;
     }
 
     // =========================================
@@ -2,17 +2,22 @@ package fr.rougeux.projet.auction.repository.impl;
 
 import fr.rougeux.projet.auction.bo.Category;
 import fr.rougeux.projet.auction.repository.CategoryDao;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implémentation du {@link CategoryDao} pour accéder aux données des catégories.
  * <p>
  * Utilise un {@link NamedParameterJdbcTemplate} pour exécuter les requêtes SQL avec paramètres nommés
- * et mappe automatiquement les résultats vers des objets {@link Category}.
+ * et mappe les résultats vers des objets {@link Category}.
  * </p>
  *
  * @author Rougeux Max
@@ -33,22 +38,61 @@ public class CategoryDaoImpl implements CategoryDao {
     }
 
     /**
-     * Récupère toutes les catégories de la base de données, avec le nombre d'items associés.
-     * <p>
-     * La requête effectue une jointure gauche avec la table ITEMS pour compter le nombre d'items
-     * par catégorie. Le mapping des colonnes vers les champs de {@link Category} est automatique
-     * grâce à {@link BeanPropertyRowMapper}.
-     * </p>
+     * Récupère toutes les catégories de la base de données, par identifiant croissant.
      *
-     * @return une liste de {@link Category} représentant toutes les catégories et leur nombre d'items
+     * @return une liste de {@link Category} représentant toutes les catégories
      */
     @Override
     public List<Category> readAll() {
         String query = """
-                SELECT c.category_id, c.label, COUNT(i.category_id) as item_count FROM CATEGORIES c LEFT JOIN ITEMS i ON c.category_id = i.category_id
-                group by c.category_id, c.label
+                SELECT c.category_id, c.label
+                FROM CATEGORIES c
+                ORDER BY c.category_id
                 """;
 
-        return jdbc.query(query, new BeanPropertyRowMapper<>(Category.class));
+        return jdbc.query(query, new CategoryRowMapper());
+    }
+
+    /**
+     * Compte les ventes de chaque catégorie jusqu'à une vente donnée, en un seul parcours des ventes.
+     * Utilisé seulement pour recaler périodiquement les compteurs tenus en mémoire.
+     *
+     * @param upToSaleId identifiant de la dernière vente comptée
+     * @return le nombre de ventes par identifiant de catégorie
+     */
+    @Override
+    public Map<Long, Integer> countSales(long upToSaleId) {
+        String query = """
+                SELECT i.category_id, COUNT(*) AS sale_count
+                FROM SALES s
+                JOIN ITEMS i ON s.item_id = i.item_id
+                WHERE s.sale_id <= :upToSaleId
+                GROUP BY i.category_id
+                """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("upToSaleId", upToSaleId);
+        Map<Long, Integer> counts = new HashMap<>();
+        jdbc.query(query, params, rs -> {
+            counts.put(rs.getLong("category_id"), rs.getInt("sale_count"));
+        });
+        return counts;
+    }
+
+    // =========================================
+    // ROW MAPPER
+    // =========================================
+
+    /**
+     * Mapper SQL-Java pour convertir une ligne de la table <b>CATEGORIES</b>
+     * en un objet métier {@link Category}.
+     */
+    private static class CategoryRowMapper implements RowMapper<Category> {
+        @Override
+        public Category mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Category category = new Category();
+            category.setCategoryId(rs.getLong("category_id"));
+            category.setLabel(rs.getString("label"));
+            return category;
+        }
     }
 }
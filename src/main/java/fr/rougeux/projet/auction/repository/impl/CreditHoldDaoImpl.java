@@ -0,0 +1,195 @@
+package fr.rougeux.projet.auction.repository.impl;
+
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Implémentation JDBC du DAO {@link CreditHoldDao}.
+ *
+ * <p>Les écritures portent sur une seule ligne de CREDIT_HOLDS par enchère,
+ * la table USERS n'étant plus modifiée qu'au règlement d'une vente.</p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Repository
+public class CreditHoldDaoImpl implements CreditHoldDao {
+
+    private static final String UPSERT_QUERY = """
+                MERGE CREDIT_HOLDS WITH (HOLDLOCK) AS h
+                USING (SELECT :userId AS user_id, :saleId AS sale_id) AS src
+                ON h.user_id = src.user_id AND h.sale_id = src.sale_id
+                WHEN MATCHED THEN UPDATE SET amount = :amount, updated_at = SYSDATETIME()
+                WHEN NOT MATCHED THEN INSERT (user_id, sale_id, amount) VALUES (:userId, :saleId, :amount);
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Constructeur d’injection du {@link NamedParameterJdbcTemplate}.
+     *
+     * @param jdbc instance de template JDBC utilisée pour exécuter les requêtes
+     */
+    public CreditHoldDaoImpl(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Récupère toutes les réservations d'un utilisateur.
+     *
+     * @param userId l'identifiant de l'utilisateur
+     * @return la liste de ses réservations
+     */
+    @Override
+    public List<CreditHold> readByUserId(long userId) {
+        String query = """
+                    SELECT h.user_id, h.sale_id, h.amount
+                    FROM CREDIT_HOLDS h
+                    WHERE h.user_id = :userId
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("userId", userId);
+
+        return jdbc.query(query, paramSource, new CreditHoldRowMapper());
+    }
+
+    /**
+     * Récupère le montant réservé par un utilisateur sur une vente.
+     *
+     * @param userId l'identifiant de l'utilisateur
+     * @param saleId l'identifiant de la vente
+     * @return le montant réservé, 0 si aucune réservation n'existe
+     */
+    @Override
+    public int readAmount(long userId, long saleId) {
+        String query = """
+                    SELECT h.amount
+                    FROM CREDIT_HOLDS h
+                    WHERE h.user_id = :userId AND h.sale_id = :saleId
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("userId", userId);
+        paramSource.addValue("saleId", saleId);
+
+        return jdbc.query(query, paramSource, (rs, rowNum) -> rs.getInt("amount")).stream()
+                .findFirst()
+                .orElse(0);
+    }
+
+    /**
+     * Compare le crédit de l'utilisateur, lu sous verrou de mise à jour, à la somme de ses réservations
+     * sur les autres ventes et de la réservation vérifiée.
+     *
+     * @param hold la réservation à vérifier
+     * @return vrai si le crédit de l'utilisateur couvre la réservation
+     */
+    @Override
+    public boolean coversHold(CreditHold hold) {
+        String query = """
+                    SELECT u.credit - COALESCE(SUM(h.amount), 0) AS available
+                    FROM USERS u WITH (UPDLOCK, ROWLOCK)
+                    LEFT JOIN CREDIT_HOLDS h ON h.user_id = u.user_id AND h.sale_id <> :saleId
+                    WHERE u.user_id = :userId
+                    GROUP BY u.credit
+                """;
+
+        return jdbc.query(query, toParams(hold), (rs, rowNum) -> rs.getInt("available")).stream()
+                .findFirst()
+                .map(available -> available >= hold.getAmount())
+                .orElse(false);
+    }
+
+    /**
+     * Crée ou remplace la réservation d'un utilisateur sur une vente en un seul ordre MERGE.
+     *
+     * @param hold la réservation à enregistrer
+     */
+    @Override
+    public void upsert(CreditHold hold) {
+        jdbc.update(UPSERT_QUERY, toParams(hold));
+    }
+
+    /**
+     * Crée ou remplace un lot de réservations en un seul aller-retour (batch JDBC).
+     *
+     * @param holds les réservations à enregistrer
+     */
+    @Override
+    public void upsertAll(List<CreditHold> holds) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(UPSERT_QUERY, holds.stream().map(this::toParams).toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Supprime un lot de réservations en un seul aller-retour (batch JDBC).
+     *
+     * @param holds les réservations à supprimer
+     */
+    @Override
+    public void deleteAll(List<CreditHold> holds) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        String query = """
+                    DELETE FROM CREDIT_HOLDS
+                    WHERE user_id = :userId AND sale_id = :saleId AND amount = :amount
+                """;
+
+        jdbc.batchUpdate(query, holds.stream().map(this::toParams).toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Supprime toutes les réservations d'une vente et les renvoie (clause OUTPUT du même ordre).
+     *
+     * @param saleId l'identifiant de la vente
+     * @return les réservations supprimées
+     */
+    @Override
+    public List<CreditHold> deleteBySale(long saleId) {
+        String query = """
+                    DELETE FROM CREDIT_HOLDS
+                    OUTPUT deleted.user_id, deleted.sale_id, deleted.amount
+                    WHERE sale_id = :saleId
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+
+        return jdbc.query(query, paramSource, new CreditHoldRowMapper());
+    }
+
+    private MapSqlParameterSource toParams(CreditHold hold) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("userId", hold.getUserId());
+        paramSource.addValue("saleId", hold.getSaleId());
+        paramSource.addValue("amount", hold.getAmount());
+        return paramSource;
+    }
+
+    // =========================================
+    // ROW MAPPER
+    // =========================================
+
+    /**
+     * Mapper SQL-Java pour convertir une ligne de la table <b>CREDIT_HOLDS</b>
+     * en un objet métier {@link CreditHold}.
+     */
+    private static class CreditHoldRowMapper implements RowMapper<CreditHold> {
+        @Override
+        public CreditHold mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new CreditHold(rs.getLong("user_id"), rs.getLong("sale_id"), rs.getInt("amount"));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package fr.rougeux.projet.auction.repository.impl;
+
+import fr.rougeux.projet.auction.repository.IdempotencyKeyDao;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Implémentation JDBC du DAO {@link IdempotencyKeyDao}.
+ *
+ * <p>La réservation d'une clé est un seul ordre MERGE : il n'y a pas de lecture préalable,
+ * et deux instances ne peuvent pas réserver la même clé.</p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Repository
+public class IdempotencyKeyDaoImpl implements IdempotencyKeyDao {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Constructeur d’injection du {@link NamedParameterJdbcTemplate}.
+     *
+     * @param jdbc instance de template JDBC utilisée pour exécuter les requêtes
+     */
+    public IdempotencyKeyDaoImpl(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Réserve une clé absente ou expirée en un seul ordre MERGE.
+     *
+     * @param owner       utilisateur propriétaire de la clé
+     * @param key         clé d'idempotence
+     * @param fingerprint empreinte de la requête
+     * @param expiresAt   date d'expiration de la clé
+     * @return vrai si la clé a été réservée
+     */
+    @Override
+    public boolean claim(String owner, String key, String fingerprint, LocalDateTime expiresAt) {
+        String query = """
+                    MERGE IDEMPOTENCY_KEYS WITH (HOLDLOCK) AS k
+                    USING (SELECT :owner AS owner, :key AS idem_key) AS src
+                    ON k.owner = src.owner AND k.idem_key = src.idem_key
+                    WHEN MATCHED AND k.expires_at <= SYSDATETIME() THEN
+                        UPDATE SET fingerprint = :fingerprint, response = NULL, expires_at = :expiresAt
+                    WHEN NOT MATCHED THEN
+                        INSERT (owner, idem_key, fingerprint, expires_at) VALUES (:owner, :key, :fingerprint, :expiresAt);
+                """;
+
+        MapSqlParameterSource paramSource = keyParams(owner, key);
+        paramSource.addValue("fingerprint", fingerprint);
+        paramSource.addValue("expiresAt", expiresAt);
+
+        return jdbc.update(query, paramSource) > 0;
+    }
+
+    /**
+     * Lit une clé non expirée.
+     *
+     * @param owner utilisateur propriétaire de la clé
+     * @param key   clé d'idempotence
+     * @return la clé enregistrée, vide si elle n'existe pas ou a expiré
+     */
+    @Override
+    public Optional<StoredKey> read(String owner, String key) {
+        String query = """
+                    SELECT k.fingerprint, k.response
+                    FROM IDEMPOTENCY_KEYS k
+                    WHERE k.owner = :owner AND k.idem_key = :key AND k.expires_at > SYSDATETIME()
+                """;
+
+        return jdbc.query(query, keyParams(owner, key),
+                        (rs, rowNum) -> new StoredKey(rs.getString("fingerprint"), rs.getBytes("response")))
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Enregistre la réponse d'une exécution terminée.
+     *
+     * @param owner    utilisateur propriétaire de la clé
+     * @param key      clé d'idempotence
+     * @param response corps de la réponse
+     */
+    @Override
+    public void complete(String owner, String key, byte[] response) {
+        String query = """
+                    UPDATE IDEMPOTENCY_KEYS
+                    SET response = :response
+                    WHERE owner = :owner AND idem_key = :key
+                """;
+
+        MapSqlParameterSource paramSource = keyParams(owner, key);
+        paramSource.addValue("response", response);
+
+        jdbc.update(query, paramSource);
+    }
+
+    /**
+     * Supprime une clé réservée dont l'exécution a échoué.
+     *
+     * @param owner utilisateur propriétaire de la clé
+     * @param key   clé d'idempotence
+     */
+    @Override
+    public void release(String owner, String key) {
+        String query = """
+                    DELETE FROM IDEMPOTENCY_KEYS
+                    WHERE owner = :owner AND idem_key = :key AND response IS NULL
+                """;
+
+        jdbc.update(query, keyParams(owner, key));
+    }
+
+    /**
+     * Supprime les clés expirées.
+     *
+     * @return le nombre de clés supprimées
+     */
+    @Override
+    public int deleteExpired() {
+        String query = """
+                    DELETE FROM IDEMPOTENCY_KEYS
+                    WHERE expires_at <= SYSDATETIME()
+                """;
+
+        return jdbc.update(query, new MapSqlParameterSource());
+    }
+
+    private MapSqlParameterSource keyParams(String owner, String key) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("owner", owner);
+        paramSource.addValue("key", key);
+        return paramSource;
+    }
+}
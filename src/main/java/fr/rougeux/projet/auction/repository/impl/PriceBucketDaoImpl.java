@@ -0,0 +1,165 @@
+package fr.rougeux.projet.auction.repository.impl;
+
+import fr.rougeux.projet.auction.bo.PriceBucket;
+import fr.rougeux.projet.auction.repository.PriceBucketDao;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Implémentation JDBC du DAO {@link PriceBucketDao}.
+ *
+ * <p>La fusion d'un agrégat partiel est un seul ordre MERGE : prix d'ouverture et plus bas
+ * par minimum, clôture et plus haut par maximum, nombre d'enchères par somme.</p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Repository
+public class PriceBucketDaoImpl implements PriceBucketDao {
+
+    private static final String MERGE_QUERY = """
+                MERGE SALE_PRICE_BUCKETS WITH (HOLDLOCK) AS p
+                USING (SELECT :saleId AS sale_id, :bucketStart AS bucket_start) AS src
+                ON p.sale_id = src.sale_id AND p.bucket_start = src.bucket_start
+                WHEN MATCHED THEN UPDATE SET
+                    open_price = IIF(:open < p.open_price, :open, p.open_price),
+                    high_price = IIF(:high > p.high_price, :high, p.high_price),
+                    low_price = IIF(:low < p.low_price, :low, p.low_price),
+                    close_price = IIF(:close > p.close_price, :close, p.close_price),
+                    bid_count = p.bid_count + :bidCount
+                WHEN NOT MATCHED THEN
+                    INSERT (sale_id, bucket_start, open_price, high_price, low_price, close_price, bid_count)
+                    VALUES (:saleId, :bucketStart, :open, :high, :low, :close, :bidCount);
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Constructeur d’injection du {@link NamedParameterJdbcTemplate}.
+     *
+     * @param jdbc instance de template JDBC utilisée pour exécuter les requêtes
+     */
+    public PriceBucketDaoImpl(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Récupère les intervalles enregistrés d'une vente.
+     *
+     * @param saleId l'identifiant de la vente
+     * @return les intervalles, par date croissante
+     */
+    @Override
+    public List<PriceBucket> readBySale(long saleId) {
+        String query = """
+                    SELECT p.sale_id, p.bucket_start, p.open_price, p.high_price, p.low_price, p.close_price, p.bid_count
+                    FROM SALE_PRICE_BUCKETS p
+                    WHERE p.sale_id = :saleId
+                    ORDER BY p.bucket_start
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+
+        return jdbc.query(query, paramSource, new PriceBucketRowMapper());
+    }
+
+    /**
+     * Récupère le plus haut prix enregistré d'une vente.
+     *
+     * @param saleId l'identifiant de la vente
+     * @return le plus haut prix enregistré, 0 si aucun
+     */
+    @Override
+    public int readMaxClose(long saleId) {
+        String query = """
+                    SELECT ISNULL(MAX(p.close_price), 0)
+                    FROM SALE_PRICE_BUCKETS p
+                    WHERE p.sale_id = :saleId
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+
+        Integer maxClose = jdbc.queryForObject(query, paramSource, Integer.class);
+        return maxClose != null ? maxClose : 0;
+    }
+
+    /**
+     * Agrège par minute les enchères d'une vente au-delà d'un montant, par une recherche
+     * dans l'index {@code idx_bids_sale} : seules les enchères non encore enregistrées sont lues.
+     *
+     * @param saleId      l'identifiant de la vente
+     * @param afterAmount montant au-delà duquel les enchères sont agrégées
+     * @return les intervalles, par date croissante
+     */
+    @Override
+    public List<PriceBucket> aggregateBids(long saleId, int afterAmount) {
+        String query = """
+                    SELECT :saleId AS sale_id,
+                           DATEADD(minute, DATEDIFF(minute, 0, b.bid_time), 0) AS bucket_start,
+                           MIN(b.bid_amount) AS open_price, MAX(b.bid_amount) AS high_price,
+                           MIN(b.bid_amount) AS low_price, MAX(b.bid_amount) AS close_price,
+                           COUNT(*) AS bid_count
+                    FROM BIDS b
+                    WHERE b.sale_id = :saleId AND b.bid_amount > :afterAmount
+                    GROUP BY DATEADD(minute, DATEDIFF(minute, 0, b.bid_time), 0)
+                    ORDER BY bucket_start
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", saleId);
+        paramSource.addValue("afterAmount", afterAmount);
+
+        return jdbc.query(query, paramSource, new PriceBucketRowMapper());
+    }
+
+    /**
+     * Fusionne un lot d'agrégats partiels en un seul aller-retour (batch JDBC).
+     *
+     * @param buckets les agrégats à fusionner
+     */
+    @Override
+    public void mergeAll(List<PriceBucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(MERGE_QUERY, buckets.stream().map(this::toParams).toArray(MapSqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource toParams(PriceBucket bucket) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("saleId", bucket.getSaleId());
+        paramSource.addValue("bucketStart", bucket.getBucketStart());
+        paramSource.addValue("open", bucket.getOpenPrice());
+        paramSource.addValue("high", bucket.getHighPrice());
+        paramSource.addValue("low", bucket.getLowPrice());
+        paramSource.addValue("close", bucket.getClosePrice());
+        paramSource.addValue("bidCount", bucket.getBidCount());
+        return paramSource;
+    }
+
+    // =========================================
+    // ROW MAPPER
+    // =========================================
+
+    /**
+     * Mapper SQL-Java pour convertir une ligne de la table <b>SALE_PRICE_BUCKETS</b>
+     * en un objet métier {@link PriceBucket}.
+     */
+    private static class PriceBucketRowMapper implements RowMapper<PriceBucket> {
+        @Override
+        public PriceBucket mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new PriceBucket(rs.getLong("sale_id"), rs.getObject("bucket_start", LocalDateTime.class),
+                    rs.getInt("open_price"), rs.getInt("high_price"), rs.getInt("low_price"),
+                    rs.getInt("close_price"), rs.getInt("bid_count"));
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package fr.rougeux.projet.auction.repository.impl;
 
+import fr.rougeux.projet.auction.bo.Bid;
 import fr.rougeux.projet.auction.bo.Category;
 import fr.rougeux.projet.auction.bo.Item;
 import fr.rougeux.projet.auction.bo.Sale;
 import fr.rougeux.projet.auction.bo.User;
 import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.repository.SaleQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Implémentation du DAO pour l'entité {@link Sale}.
@@ -28,6 +41,42 @@ import java.util.List;
 @Repository
 public class SaleDaoImpl implements SaleDao {
 
+    /**
+     * Report d'une enchère validée : une enchère devenue insuffisante depuis la lecture de la vente ne modifie
+     * aucune ligne. La fin de vente et sa fenêtre de prolongation sont comparées à l'heure du serveur de base de données.
+     */
+    private static final String RECORD_BID_QUERY = """
+            UPDATE SALES
+            SET bid_count = bid_count + 1, leader_user_id = :userId, current_price = :amount,
+                ending_date = CASE WHEN :window > 0 AND ending_date <= DATEADD(second, :window, SYSDATETIME())
+                                   THEN DATEADD(second, :extension, ending_date) ELSE ending_date END
+            OUTPUT COALESCE(deleted.leader_user_id, 0) AS previous_leader,
+                   deleted.ending_date AS previous_ending_date,
+                   inserted.ending_date, inserted.bid_count, inserted.current_price, inserted.leader_user_id
+            WHERE sale_id = :id AND closed_at IS NULL AND ending_date > SYSDATETIME()
+              AND COALESCE(current_price, starting_price) < :amount
+            """;
+
+    /**
+     * Report d'un lot d'enchères acceptées en mémoire, dont la date de fin est déjà prolongée.
+     */
+    private static final String RECORD_BIDS_QUERY = """
+            UPDATE SALES
+            SET bid_count = bid_count + 1,
+                leader_user_id = CASE WHEN COALESCE(current_price, 0) < :amount THEN :userId ELSE leader_user_id END,
+                current_price = CASE WHEN COALESCE(current_price, 0) < :amount THEN :amount ELSE current_price END,
+                ending_date = CASE WHEN ending_date < :endingDate THEN :endingDate ELSE ending_date END
+            WHERE sale_id = :id AND closed_at IS NULL
+            """;
+
+    private static final RowMapper<RecordedBid> RECORDED_BID_MAPPER = (rs, rowNum) -> new RecordedBid(
+            rs.getLong("previous_leader"),
+            rs.getTimestamp("previous_ending_date").toLocalDateTime(),
+            rs.getTimestamp("ending_date").toLocalDateTime(),
+            rs.getInt("bid_count"),
+            rs.getInt("current_price"),
+            rs.getLong("leader_user_id"));
+
     /**
      * Template JDBC avec support des paramètres nommés.
      * <p>
@@ -37,44 +86,173 @@ public class SaleDaoImpl implements SaleDao {
      */
     public final NamedParameterJdbcTemplate jdbc;
 
+    /**
+     * Template JDBC des parcours sans limite, sur la même source de données, lisant les lignes par lots.
+     */
+    private final NamedParameterJdbcTemplate streamingJdbc;
+
     /**
      * Constructeur du DAO vente.
      * <p>
      * Initialise le DAO avec le template JDBC nécessaire pour l'exécution des requêtes.
      * </p>
      *
-     * @param jdbc le template JDBC avec paramètres nommés injecté par Spring
+     * @param jdbc      le template JDBC avec paramètres nommés injecté par Spring
+     * @param fetchSize nombre de lignes lues par aller-retour lors d'un parcours sans limite
      */
-    public SaleDaoImpl(NamedParameterJdbcTemplate jdbc) {
+    public SaleDaoImpl(NamedParameterJdbcTemplate jdbc,
+                       @Value("${app.jdbc.stream.fetch-size:500}") int fetchSize) {
         this.jdbc = jdbc;
+        JdbcTemplate streaming = new JdbcTemplate(jdbc.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(fetchSize);
+        this.streamingJdbc = new NamedParameterJdbcTemplate(streaming);
     }
 
     /**
-     * Récupère toutes les ventes de la base de données.
+     * Récupère une page de ventes filtrées et triées, par pagination par clé.
      * <p>
      * Effectue un LEFT OUTER JOIN sur les tables USERS, ITEMS et CATEGORIES
      * pour mapper les relations {@link User}, {@link Item} et {@link Category}.
+     * Le prix courant, le meneur et le nombre d'enchères sont lus directement sur SALES,
+     * sans jointure ni agrégation sur BIDS. Seuls les filtres renseignés sont ajoutés à la clause WHERE ;
+     * la page reprend strictement après la clé de tri et l'identifiant de la dernière vente lue,
+     * ce qui permet de parcourir l'index du tri à partir de cette position.
      * </p>
      *
+     * @param query filtres, tri et position de la page
+     * @param now   instant de référence du statut des ventes
      * @return une liste de {@link Sale} avec relations chargées
      */
     @Override
-    public List<Sale> readAll() {
+    public List<Sale> readPage(SaleQuery query, LocalDateTime now) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("limit", query.limit());
+
+        return jdbc.query(pageQuery(query, now, paramSource, "TOP (:limit) "), paramSource, new SaleRowMapper(true));
+    }
+
+    /**
+     * Parcourt toutes les ventes filtrées et triées à partir du curseur, sans limite ni liste intermédiaire.
+     * <p>
+     * Même requête que {@link #readPage} sans {@code TOP} : chaque ligne est convertie puis transmise
+     * dès sa lecture, et les lignes sont lues par lots de {@code app.jdbc.stream.fetch-size}.
+     * La connexion reste empruntée jusqu'à la fin du parcours.
+     * </p>
+     *
+     * @param query  filtres, tri et position de départ ; la taille de page est ignorée
+     * @param now    instant de référence du statut des ventes
+     * @param action traitement appliqué à chaque vente, dans l'ordre du tri
+     */
+    @Override
+    public void forEachPage(SaleQuery query, LocalDateTime now, Consumer<Sale> action) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        SaleRowMapper mapper = new SaleRowMapper(true);
+
+        streamingJdbc.query(pageQuery(query, now, paramSource, ""), paramSource,
+                rs -> action.accept(mapper.mapRow(rs, 0)));
+    }
+
+    /**
+     * Parcourt, par identifiant croissant, les ventes en cours créées après une vente donnée,
+     * avec les mêmes colonnes qu'une page de ventes, sans les charger en liste.
+     *
+     * @param afterSaleId identifiant de la dernière vente déjà parcourue, 0 pour toutes
+     * @param now         instant de référence du statut des ventes
+     * @param action      traitement appliqué à chaque vente
+     */
+    @Override
+    public void forEachOngoing(long afterSaleId, LocalDateTime now, Consumer<Sale> action) {
         String query = """
-                SELECT s.sale_id, s.starting_date, s.ending_date, s.starting_price,
-                       MAX(b.bid_amount) AS sale_price,
+                SELECT s.sale_id, s.starting_date, s.ending_date, s.closed_at, s.starting_price,
+                       s.current_price AS sale_price, s.leader_user_id, s.bid_count,
                        u.user_id, u.last_name, u.first_name, u.user_img,
                        i.item_id, i.item_name, i.item_img, i.item_desc,
                        c.category_id, c.label
                 FROM SALES s
-                LEFT OUTER JOIN BIDS b ON s.sale_id = b.sale_id
                 LEFT OUTER JOIN USERS u ON s.seller_id = u.user_id
                 LEFT OUTER JOIN ITEMS i ON s.item_id = i.item_id
                 LEFT OUTER JOIN CATEGORIES c ON i.category_id = c.category_id
-                GROUP BY s.sale_id, s.starting_date, s.ending_date, s.starting_price, u.user_id, u.last_name, u.first_name, u.user_img, i.item_id, i.item_name, i.item_img, i.item_desc, c.category_id, c.label
+                WHERE s.sale_id > :afterSaleId AND s.closed_at IS NULL AND s.ending_date > :now
+                ORDER BY s.sale_id
                 """;
 
-        return jdbc.query(query, new SaleRowMapper(true));
+        MapSqlParameterSource paramSource = new MapSqlParameterSource()
+                .addValue("afterSaleId", afterSaleId)
+                .addValue("now", now);
+        SaleRowMapper mapper = new SaleRowMapper(true);
+
+        streamingJdbc.query(query, paramSource, rs -> action.accept(mapper.mapRow(rs, 0)));
+    }
+
+    /**
+     * Construit la requête d'une page de ventes et renseigne ses paramètres.
+     *
+     * @param query       filtres, tri et position de la page
+     * @param now         instant de référence du statut des ventes
+     * @param paramSource paramètres de la requête, complétés
+     * @param top         clause {@code TOP} de la requête, vide pour toutes les ventes
+     * @return la requête SQL
+     */
+    private static String pageQuery(SaleQuery query, LocalDateTime now, MapSqlParameterSource paramSource, String top) {
+        paramSource.addValue("now", now);
+        StringBuilder where = new StringBuilder("WHERE 1 = 1");
+
+        if (query.status() == SaleQuery.Status.ONGOING) {
+            where.append(" AND s.closed_at IS NULL AND s.ending_date > :now");
+        } else if (query.status() == SaleQuery.Status.OVER) {
+            where.append(" AND (s.closed_at IS NOT NULL OR s.ending_date <= :now)");
+        }
+        if (query.categoryId() != null) {
+            where.append(" AND i.category_id = :categoryId");
+            paramSource.addValue("categoryId", query.categoryId());
+        }
+        if (query.sellerId() != null) {
+            where.append(" AND s.seller_id = :sellerId");
+            paramSource.addValue("sellerId", query.sellerId());
+        }
+        if (query.minPrice() != null) {
+            where.append(" AND s.list_price >= :minPrice");
+            paramSource.addValue("minPrice", query.minPrice());
+        }
+        if (query.maxPrice() != null) {
+            where.append(" AND s.list_price <= :maxPrice");
+            paramSource.addValue("maxPrice", query.maxPrice());
+        }
+        if (query.endingAfter() != null) {
+            where.append(" AND s.ending_date >= :endingAfter");
+            paramSource.addValue("endingAfter", query.endingAfter());
+        }
+        if (query.endingBefore() != null) {
+            where.append(" AND s.ending_date < :endingBefore");
+            paramSource.addValue("endingBefore", query.endingBefore());
+        }
+
+        SaleQuery.Sort sort = query.sort();
+        String key = switch (sort) {
+            case ENDING_SOON -> "s.ending_date";
+            case NEWEST -> "s.starting_date";
+            case PRICE_ASC, PRICE_DESC -> "s.list_price";
+        };
+        String direction = sort.ascending() ? "ASC" : "DESC";
+        String comparison = sort.ascending() ? ">" : "<";
+        if (query.after() != null) {
+            where.append(" AND (").append(key).append(' ').append(comparison).append(" :afterKey OR (")
+                    .append(key).append(" = :afterKey AND s.sale_id ").append(comparison).append(" :afterId))");
+            paramSource.addValue("afterKey", sort.byDate() ? query.after().date() : query.after().price());
+            paramSource.addValue("afterId", query.after().saleId());
+        }
+
+        return "SELECT " + top + """
+                s.sale_id, s.starting_date, s.ending_date, s.closed_at, s.starting_price,
+                       s.current_price AS sale_price, s.leader_user_id, s.bid_count,
+                       u.user_id, u.last_name, u.first_name, u.user_img,
+                       i.item_id, i.item_name, i.item_img, i.item_desc,
+                       c.category_id, c.label
+                FROM SALES s
+                LEFT OUTER JOIN USERS u ON s.seller_id = u.user_id
+                LEFT OUTER JOIN ITEMS i ON s.item_id = i.item_id
+                LEFT OUTER JOIN CATEGORIES c ON i.category_id = c.category_id
+                """ + where + " ORDER BY " + key + " " + direction + ", s.sale_id " + direction;
     }
 
     /**
@@ -90,7 +268,8 @@ public class SaleDaoImpl implements SaleDao {
     @Override
     public Sale readById(long saleId) {
         String query = """
-                SELECT s.sale_id, s.starting_date, s.ending_date, s.starting_price, s.sale_price,
+                SELECT s.sale_id, s.starting_date, s.ending_date, s.closed_at, s.starting_price,
+                       s.current_price AS sale_price, s.leader_user_id, s.bid_count,
                        u.user_id, u.last_name, u.first_name, u.user_img,
                        i.item_id, i.item_name, i.item_img, i.item_desc,
                        c.category_id, c.label
@@ -107,6 +286,79 @@ public class SaleDaoImpl implements SaleDao {
         return jdbc.queryForObject(query, paramSource, new SaleRowMapper(true));
     }
 
+    /**
+     * Récupère une vente et ses meilleures enchères en un seul aller-retour.
+     * <p>
+     * Les enchères sont jointes par un {@code OUTER APPLY} lisant les {@code :topBids} premières entrées
+     * de l'index {@code idx_bids_sale} : la vente est répétée sur chaque ligne, et une vente sans enchère
+     * donne une seule ligne aux colonnes d'enchère nulles. Le graphe est assemblé par {@link SaleDetailExtractor}.
+     * </p>
+     *
+     * @param saleId  l'identifiant de la vente à récupérer
+     * @param topBids nombre maximal d'enchères chargées
+     * @return l'objet {@link Sale} correspondant, avec relations et enchères chargées
+     */
+    @Override
+    public Sale readDetail(long saleId, int topBids) {
+        String query = """
+                SELECT s.sale_id, s.starting_date, s.ending_date, s.closed_at, s.starting_price,
+                       s.current_price AS sale_price, s.leader_user_id, s.bid_count,
+                       u.user_id, u.last_name, u.first_name, u.user_img,
+                       i.item_id, i.item_name, i.item_img, i.item_desc,
+                       c.category_id, c.label,
+                       tb.bid_id, tb.bid_amount, tb.bid_time,
+                       tb.bidder_id, tb.bidder_last_name, tb.bidder_first_name, tb.bidder_img
+                 FROM SALES s
+                 LEFT OUTER JOIN USERS u ON s.seller_id = u.user_id
+                 LEFT OUTER JOIN ITEMS i ON s.item_id = i.item_id
+                 LEFT OUTER JOIN CATEGORIES c ON i.category_id = c.category_id
+                 OUTER APPLY (
+                     SELECT TOP (:topBids) b.bid_id, b.bid_amount, b.bid_time,
+                            bu.user_id AS bidder_id, bu.last_name AS bidder_last_name,
+                            bu.first_name AS bidder_first_name, bu.user_img AS bidder_img
+                     FROM BIDS b
+                     LEFT OUTER JOIN USERS bu ON bu.user_id = b.user_id
+                     WHERE b.sale_id = s.sale_id
+                     ORDER BY b.bid_amount DESC, b.bid_id
+                 ) tb
+                 WHERE s.sale_id = :id
+                 ORDER BY tb.bid_amount DESC, tb.bid_id
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("id", saleId);
+        paramSource.addValue("topBids", topBids);
+
+        return jdbc.query(query, paramSource, new SaleDetailExtractor());
+    }
+
+    /**
+     * Récupère plusieurs ventes par leurs identifiants, avec les mêmes jointures que {@link #readById}.
+     *
+     * @param saleIds les identifiants des ventes à récupérer
+     * @return les ventes trouvées, avec relations chargées
+     */
+    @Override
+    public List<Sale> readByIds(Collection<Long> saleIds) {
+        String query = """
+                SELECT s.sale_id, s.starting_date, s.ending_date, s.closed_at, s.starting_price,
+                       s.current_price AS sale_price, s.leader_user_id, s.bid_count,
+                       u.user_id, u.last_name, u.first_name, u.user_img,
+                       i.item_id, i.item_name, i.item_img, i.item_desc,
+                       c.category_id, c.label
+                 FROM SALES s
+                 LEFT OUTER JOIN USERS u ON s.seller_id = u.user_id
+                 LEFT OUTER JOIN ITEMS i ON s.item_id = i.item_id
+                 LEFT OUTER JOIN CATEGORIES c ON i.category_id = c.category_id
+                 WHERE s.sale_id IN (:ids)
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("ids", saleIds);
+
+        return jdbc.query(query, paramSource, new SaleRowMapper(true));
+    }
+
     /**
      * Récupère toutes les ventes réalisées par un utilisateur spécifique.
      * <p>
@@ -120,7 +372,8 @@ public class SaleDaoImpl implements SaleDao {
     @Override
     public List<Sale> readByUserId(long userId) {
         String query = """
-                SELECT s.sale_id, s.starting_date, s.ending_date, s.starting_price, s.seller_id,
+                SELECT s.sale_id, s.starting_date, s.ending_date, s.closed_at, s.starting_price, s.seller_id,
+                       s.current_price AS sale_price, s.leader_user_id, s.bid_count,
                        i.item_id, i.item_name, i.item_img, i.item_desc,
                        c.category_id, c.label
                 FROM SALES s
@@ -135,6 +388,283 @@ public class SaleDaoImpl implements SaleDao {
         return jdbc.query(query, paramSource, new SaleRowMapper(false));
     }
 
+    /**
+     * Accepte une enchère par un UPDATE conditionnel sur <b>SALES.current_price</b>.
+     * <p>
+     * Le même ordre met à jour le meneur et le nombre d'enchères.
+     * Tant qu'aucune enchère n'a été acceptée, le prix de départ fait office de prix courant.
+     * La date de fin est comparée à l'horloge du serveur de base de données.
+     * Une enchère placée dans la fenêtre de fin repousse la date de fin dans le même ordre :
+     * sous concurrence, chaque enchère acceptée voit la date de fin prolongée par la précédente.
+     * Le meneur remplacé, les dates de fin et l'état de la vente après l'enchère sont renvoyés
+     * par la clause OUTPUT du même ordre.
+     * </p>
+     *
+     * @param saleId    l'identifiant de la vente
+     * @param amount    le montant de l'enchère
+     * @param userId    l'identifiant de l'enchérisseur
+     * @param window    fenêtre de fin de vente déclenchant la prolongation
+     * @param extension durée de la prolongation
+     * @return l'enchère reportée si une ligne a été modifiée, vide sinon
+     */
+    @Override
+    public Optional<RecordedBid> compareAndSetPrice(long saleId, int amount, long userId,
+                                                    Duration window, Duration extension) {
+        String query = """
+                UPDATE SALES
+                SET current_price = :amount, leader_user_id = :userId, bid_count = bid_count + 1,
+                    ending_date = CASE WHEN :window > 0 AND ending_date <= DATEADD(second, :window, SYSDATETIME())
+                                       THEN DATEADD(second, :extension, ending_date) ELSE ending_date END
+                OUTPUT COALESCE(deleted.leader_user_id, 0) AS previous_leader,
+                       deleted.ending_date AS previous_ending_date,
+                       inserted.ending_date, inserted.bid_count, inserted.current_price, inserted.leader_user_id
+                WHERE sale_id = :id
+                  AND COALESCE(current_price, starting_price) < :amount
+                  AND ending_date > SYSDATETIME()
+                  AND closed_at IS NULL
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("id", saleId);
+        paramSource.addValue("amount", amount);
+        paramSource.addValue("userId", userId);
+        paramSource.addValue("window", window.toSeconds());
+        paramSource.addValue("extension", extension.toSeconds());
+
+        return jdbc.query(query, paramSource, RECORDED_BID_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Reporte une enchère déjà validée sur les colonnes dénormalisées de <b>SALES</b>.
+     * <p>
+     * La ligne n'est modifiée que si le montant dépasse toujours le prix courant : une enchère
+     * concurrente acceptée depuis la lecture de la vente la rend insuffisante. La date de fin
+     * n'est repoussée que si l'heure du serveur de base de données ({@code SYSDATETIME()})
+     * tombe dans la fenêtre de fin, comme pour {@link #compareAndSetPrice}.
+     * Le verrou de ligne pris par l'UPDATE sérialise les enchères concurrentes sur la vente.
+     * Une vente clôturée, ou terminée à l'heure du serveur, n'est pas modifiée.
+     * </p>
+     *
+     * @param bid       l'enchère validée
+     * @param window    fenêtre de fin de vente déclenchant la prolongation
+     * @param extension durée de la prolongation
+     * @return l'enchère reportée, vide si la vente est clôturée, terminée ou déjà à un prix supérieur ou égal
+     */
+    @Override
+    public Optional<RecordedBid> recordBid(Bid bid, Duration window, Duration extension) {
+        MapSqlParameterSource paramSource = recordBidParams(bid.getSale().getSaleId(), bid.getBidAmount(), bid.getUser().getUserId());
+        paramSource.addValue("window", window.toSeconds());
+        paramSource.addValue("extension", extension.toSeconds());
+
+        return jdbc.query(RECORD_BID_QUERY, paramSource, RECORDED_BID_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Reporte un lot d'enchères sur <b>SALES</b> en un seul aller-retour (batch JDBC).
+     *
+     * @param bids les enchères acceptées, dans l'ordre de leur acceptation
+     */
+    @Override
+    public void recordBids(List<Bid> bids) {
+        if (bids.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = bids.stream()
+                .map(bid -> recordBidParams(bid.getSale().getSaleId(), bid.getBidAmount(), bid.getUser().getUserId())
+                        .addValue("endingDate", bid.getSale().getEndingDate()))
+                .toArray(MapSqlParameterSource[]::new);
+
+        jdbc.batchUpdate(RECORD_BIDS_QUERY, batch);
+    }
+
+    private MapSqlParameterSource recordBidParams(long saleId, int amount, long userId) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("id", saleId);
+        paramSource.addValue("amount", amount);
+        paramSource.addValue("userId", userId);
+        return paramSource;
+    }
+
+    /**
+     * Recalcule les colonnes dénormalisées de <b>SALES</b> depuis <b>BIDS</b>.
+     * <p>
+     * Sert de backfill au démarrage et de réparation périodique, si elle est activée : seules les ventes
+     * dont le prix courant, le meneur ou le nombre d'enchères diffèrent sont réécrites.
+     * En cas d'égalité de montant, le meneur est l'auteur de la première enchère.
+     * </p>
+     *
+     * @return le nombre de ventes corrigées
+     */
+    @Override
+    public int repairBidAggregates() {
+        String query = """
+                UPDATE s
+                SET s.current_price = a.max_amount, s.leader_user_id = a.leader_id, s.bid_count = a.bid_count
+                FROM SALES s
+                CROSS APPLY (
+                    SELECT COUNT(*) AS bid_count, MAX(b.bid_amount) AS max_amount,
+                           (SELECT TOP 1 l.user_id FROM BIDS l
+                            WHERE l.sale_id = s.sale_id
+                            ORDER BY l.bid_amount DESC, l.bid_id) AS leader_id
+                    FROM BIDS b
+                    WHERE b.sale_id = s.sale_id
+                ) a
+                WHERE s.bid_count <> a.bid_count
+                   OR ISNULL(s.current_price, -1) <> ISNULL(a.max_amount, -1)
+                   OR ISNULL(s.leader_user_id, -1) <> ISNULL(a.leader_id, -1)
+                """;
+
+        return jdbc.update(query, new MapSqlParameterSource());
+    }
+
+    /**
+     * Parcourt, par identifiant croissant, l'identifiant et la date de fin des ventes non clôturées
+     * créées après une vente donnée, sans les charger en liste.
+     *
+     * @param afterSaleId identifiant de la dernière vente déjà parcourue, 0 pour toutes
+     * @param action      traitement appliqué à chaque vente (seuls {@code saleId} et {@code endingDate} sont renseignés)
+     */
+    @Override
+    public void forEachUnclosed(long afterSaleId, Consumer<Sale> action) {
+        String query = """
+                SELECT s.sale_id, s.ending_date
+                FROM SALES s
+                WHERE s.closed_at IS NULL AND s.sale_id > :afterSaleId
+                ORDER BY s.sale_id
+                """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("afterSaleId", afterSaleId);
+        jdbc.query(query, params, rs -> {
+            Sale sale = new Sale();
+            sale.setSaleId(rs.getLong("sale_id"));
+            sale.setEndingDate(rs.getTimestamp("ending_date").toLocalDateTime());
+            action.accept(sale);
+        });
+    }
+
+    /**
+     * Parcourt, par identifiant croissant, les ventes non clôturées créées après une vente donnée,
+     * avec le texte de leur objet, sans les charger en liste.
+     *
+     * @param afterSaleId identifiant de la dernière vente déjà parcourue, 0 pour toutes
+     * @param action      traitement appliqué à chaque vente (identifiant, date de fin, nom, description et catégorie de l'objet)
+     */
+    @Override
+    public void forEachSearchable(long afterSaleId, Consumer<Sale> action) {
+        String query = """
+                SELECT s.sale_id, s.ending_date, i.item_name, i.item_desc, i.category_id
+                FROM SALES s
+                JOIN ITEMS i ON s.item_id = i.item_id
+                WHERE s.closed_at IS NULL AND s.sale_id > :afterSaleId
+                ORDER BY s.sale_id
+                """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("afterSaleId", afterSaleId);
+        jdbc.query(query, params, rs -> {
+            Category category = new Category();
+            category.setCategoryId(rs.getLong("category_id"));
+            Item item = new Item();
+            item.setItemName(rs.getString("item_name"));
+            item.setItemDesc(rs.getString("item_desc"));
+            item.setCategory(category);
+            Sale sale = new Sale();
+            sale.setSaleId(rs.getLong("sale_id"));
+            sale.setEndingDate(rs.getTimestamp("ending_date").toLocalDateTime());
+            sale.setItem(item);
+            action.accept(sale);
+        });
+    }
+
+    /**
+     * @return le plus grand identifiant de vente, 0 s'il n'y a aucune vente
+     */
+    @Override
+    public long readMaxSaleId() {
+        String query = "SELECT COALESCE(MAX(sale_id), 0) FROM SALES";
+
+        Long maxSaleId = jdbc.queryForObject(query, new MapSqlParameterSource(), Long.class);
+        return maxSaleId == null ? 0 : maxSaleId;
+    }
+
+    /**
+     * Parcourt les ventes dont l'identifiant est compris entre deux bornes, avec la catégorie
+     * de leur objet, sans les charger en liste.
+     *
+     * @param afterSaleId  identifiant exclu à partir duquel parcourir, 0 pour toutes
+     * @param upToSaleId   identifiant de la dernière vente parcourue
+     * @param unclosedOnly vrai pour ne parcourir que les ventes non clôturées
+     * @param action       traitement appliqué à chaque vente (identifiant, dates de fin et de clôture, catégorie de l'objet)
+     */
+    @Override
+    public void forEachCategorized(long afterSaleId, long upToSaleId, boolean unclosedOnly, Consumer<Sale> action) {
+        String query = """
+                SELECT s.sale_id, s.ending_date, s.closed_at, i.category_id
+                FROM SALES s
+                JOIN ITEMS i ON s.item_id = i.item_id
+                WHERE s.sale_id > :afterSaleId AND s.sale_id <= :upToSaleId
+                """ + (unclosedOnly ? " AND s.closed_at IS NULL" : "");
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterSaleId", afterSaleId)
+                .addValue("upToSaleId", upToSaleId);
+        jdbc.query(query, params, rs -> {
+            Category category = new Category();
+            category.setCategoryId(rs.getLong("category_id"));
+            Item item = new Item();
+            item.setCategory(category);
+            Timestamp closedAt = rs.getTimestamp("closed_at");
+            Sale sale = new Sale();
+            sale.setSaleId(rs.getLong("sale_id"));
+            sale.setEndingDate(rs.getTimestamp("ending_date").toLocalDateTime());
+            sale.setClosedAt(closedAt == null ? null : closedAt.toLocalDateTime());
+            sale.setItem(item);
+            action.accept(sale);
+        });
+    }
+
+    /**
+     * Clôture une vente arrivée à échéance en un seul ordre UPDATE.
+     * <p>
+     * Le prix courant devient le prix final ({@code sale_price}) et le meneur le gagnant
+     * ({@code winner_user_id}). La vente n'est modifiée que si elle n'est pas déjà clôturée
+     * et que sa date de fin est atteinte à l'instant fourni : deux clôtures concurrentes
+     * ne peuvent réussir toutes les deux.
+     * </p>
+     *
+     * @param saleId l'identifiant de la vente
+     * @param now    l'instant de clôture
+     * @return la vente clôturée (identifiant, dates de fin et de clôture, nombre d'enchères, prix final
+     *         et gagnant, 0 si aucun), vide si elle n'a pas été modifiée
+     */
+    @Override
+    public Optional<Sale> close(long saleId, LocalDateTime now) {
+        String query = """
+                UPDATE SALES
+                SET closed_at = :now, sale_price = current_price, winner_user_id = leader_user_id
+                OUTPUT inserted.sale_id, inserted.closed_at, inserted.ending_date, inserted.bid_count,
+                       COALESCE(inserted.sale_price, 0) AS sale_price,
+                       COALESCE(inserted.winner_user_id, 0) AS winner_user_id
+                WHERE sale_id = :id
+                  AND closed_at IS NULL
+                  AND ending_date <= :now
+                """;
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("id", saleId);
+        paramSource.addValue("now", now);
+
+        return jdbc.query(query, paramSource, (rs, rowNum) -> {
+            Sale sale = new Sale();
+            sale.setSaleId(rs.getLong("sale_id"));
+            sale.setClosedAt(rs.getTimestamp("closed_at").toLocalDateTime());
+            sale.setEndingDate(rs.getTimestamp("ending_date").toLocalDateTime());
+            sale.setBidCount(rs.getInt("bid_count"));
+            sale.setSalePrice(rs.getInt("sale_price"));
+            sale.setLeaderId(rs.getLong("winner_user_id"));
+            return sale;
+        }).stream().findFirst();
+    }
+
     // =========================
     // ROW MAPPERS
     // =========================
@@ -156,8 +686,12 @@ public class SaleDaoImpl implements SaleDao {
             sale.setSaleId(rs.getLong("sale_id"));
             sale.setStartingDate(rs.getTimestamp("starting_date").toLocalDateTime());
             sale.setEndingDate(rs.getTimestamp("ending_date").toLocalDateTime());
+            Timestamp closedAt = rs.getTimestamp("closed_at");
+            sale.setClosedAt(closedAt != null ? closedAt.toLocalDateTime() : null);
             sale.setStartingPrice(rs.getInt("starting_price"));
             sale.setSalePrice(rs.getInt("sale_price"));
+            sale.setLeaderId(rs.getLong("leader_user_id"));
+            sale.setBidCount(rs.getInt("bid_count"));
 
             // Seller Mapping
             if(withSeller) {
@@ -188,4 +722,49 @@ public class SaleDaoImpl implements SaleDao {
             return sale;
         }
     }
+
+    /**
+     * Extracteur d'une vente et de ses enchères, lues par {@link #readDetail}.
+     * <p>
+     * La vente est mappée sur la première ligne par {@link SaleRowMapper}, puis chaque ligne portant
+     * une enchère y ajoute une {@link Bid} et son enchérisseur.
+     * </p>
+     */
+    private static class SaleDetailExtractor implements ResultSetExtractor<Sale> {
+        @Override
+        public Sale extractData(ResultSet rs) throws SQLException {
+            Sale sale = null;
+            List<Bid> bids = new ArrayList<>();
+            while (rs.next()) {
+                if (sale == null) {
+                    sale = new SaleRowMapper(true).mapRow(rs, 0);
+                }
+                long bidId = rs.getLong("bid_id");
+                if (rs.wasNull()) {
+                    continue;
+                }
+
+                // Bid mapping
+                Bid bid = new Bid();
+                bid.setBidId(bidId);
+                bid.setBidAmount(rs.getInt("bid_amount"));
+                bid.setBidTime(rs.getObject("bid_time", LocalDateTime.class));
+
+                // Bidder mapping
+                User bidder = new User();
+                bidder.setUserId(rs.getLong("bidder_id"));
+                bidder.setLastName(rs.getString("bidder_last_name"));
+                bidder.setFirstName(rs.getString("bidder_first_name"));
+                bidder.setUserImg(rs.getString("bidder_img"));
+                bid.setUser(bidder);
+
+                bids.add(bid);
+            }
+            if (sale == null) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            sale.setBids(bids);
+            return sale;
+        }
+    }
 }
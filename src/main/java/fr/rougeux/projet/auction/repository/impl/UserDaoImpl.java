@@ -1,5 +1,6 @@
 package fr.rougeux.projet.auction.repository.impl;
 
+import fr.rougeux.projet.auction.bo.CreditHold;
 import fr.rougeux.projet.auction.bo.User;
 import fr.rougeux.projet.auction.repository.UserDao;
 import org.springframework.dao.DataAccessException;
@@ -8,6 +9,8 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Implémentation du DAO (Data Access Object) pour la gestion des utilisateurs.
  * <p>
@@ -105,4 +108,29 @@ public class UserDaoImpl implements UserDao {
 
         jdbc.update(query, params);
     }
+
+    /**
+     * Débite le crédit des gagnants de ventes terminées en un seul aller-retour (batch JDBC).
+     *
+     * @param holds les réservations des gagnants à convertir en débit
+     */
+    @Override
+    public void debitCredits(List<CreditHold> holds) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        String query = """
+                UPDATE USERS
+                SET credit = credit - :amount
+                WHERE user_id = :userId
+                """;
+
+        MapSqlParameterSource[] batch = holds.stream()
+                .map(hold -> new MapSqlParameterSource()
+                        .addValue("amount", hold.getAmount())
+                        .addValue("userId", hold.getUserId()))
+                .toArray(MapSqlParameterSource[]::new);
+
+        jdbc.batchUpdate(query, batch);
+    }
 }
@@ -1,5 +1,6 @@
 package fr.rougeux.projet.auction.service;
 
+import fr.rougeux.projet.auction.bo.User;
 import fr.rougeux.projet.auction.dto.request.BidRequestDto;
 import fr.rougeux.projet.auction.dto.response.BidResponseDto;
 import fr.rougeux.projet.auction.exception.BusinessException;
@@ -38,7 +39,7 @@ public interface BidService {
      * <ol>
      *     <li>Valide l’intégrité et la cohérence des données,</li>
      *     <li>Vérifie les règles métier (enchère supérieure, crédit suffisant, etc.),</li>
-     *     <li>Persiste l’enchère et met à jour le crédit de l’utilisateur.</li>
+     *     <li>Persiste l’enchère et la réservation de crédit de l’utilisateur sur la vente.</li>
      * </ol>
      * </p>
      *
@@ -48,4 +49,24 @@ public interface BidService {
      * @throws BusinessException si une règle métier empêche le placement de l’enchère
      */
     BidResponseDto placeBid(BidRequestDto bidRequest);
+
+    /**
+     * Charge un enchérisseur authentifié une seule fois pour plusieurs enchères (canal WebSocket).
+     *
+     * @param email adresse e-mail de l’utilisateur authentifié
+     * @return l’utilisateur, dont le compte de crédit est chargé
+     * @throws NotFoundException si l’utilisateur n’existe pas
+     */
+    User loadBidder(String email);
+
+    /**
+     * Place une nouvelle enchère pour un enchérisseur déjà chargé par {@link #loadBidder}.
+     *
+     * @param bidder     enchérisseur
+     * @param bidRequest DTO contenant les informations de l’enchère à placer
+     * @return {@link BidResponseDto} contenant la vente actualisée et l’utilisateur mis à jour
+     * @throws NotFoundException si la vente n’existe pas
+     * @throws BusinessException si une règle métier empêche le placement de l’enchère
+     */
+    BidResponseDto placeBid(User bidder, BidRequestDto bidRequest);
 }
@@ -17,7 +17,8 @@ import java.util.List;
 public interface CategoryService {
 
     /**
-     * Récupère toutes les catégories disponibles.
+     * Récupère toutes les catégories disponibles, avec leur nombre de ventes au total,
+     * en cours et se terminant bientôt.
      * <p>
      * Les implémentations doivent gérer la logique métier associée et retourner
      * les catégories sous forme de {@link CategoryDto}. En cas d'absence de catégories,
@@ -0,0 +1,25 @@
+package fr.rougeux.projet.auction.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Parcours différé d'une collection lue en base, élément par élément, sans liste intermédiaire.
+ * <p>
+ * Les paramètres sont validés à la création du parcours ; la requête n'est exécutée
+ * qu'à l'appel de {@link #forEach}, qui garde une connexion empruntée jusqu'à la fin du parcours.
+ * </p>
+ *
+ * @param <T> type des éléments parcourus
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface RowStream<T> {
+
+    /**
+     * Exécute la requête et transmet chaque élément dès sa lecture.
+     *
+     * @param action traitement appliqué à chaque élément, dans l'ordre de la requête
+     */
+    void forEach(Consumer<? super T> action);
+}
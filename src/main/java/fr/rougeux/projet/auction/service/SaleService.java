@@ -1,6 +1,12 @@
 package fr.rougeux.projet.auction.service;
 
+import fr.rougeux.projet.auction.dto.bo.BidDto;
 import fr.rougeux.projet.auction.dto.bo.SaleDto;
+import fr.rougeux.projet.auction.dto.request.SaleSearchDto;
+import fr.rougeux.projet.auction.dto.response.BidPageDto;
+import fr.rougeux.projet.auction.dto.response.PriceBucketDto;
+import fr.rougeux.projet.auction.dto.response.SaleHitDto;
+import fr.rougeux.projet.auction.dto.response.SalePageDto;
 
 import java.util.List;
 
@@ -18,14 +24,29 @@ import java.util.List;
 public interface SaleService {
 
     /**
-     * Récupère toutes les ventes de la base de données.
+     * Récupère une page de ventes filtrées et triées.
      * <p>
      * L'implémentation peut lever une exception en cas de problème d'accès à la base.
      * </p>
      *
-     * @return une liste de {@link SaleDto} représentant toutes les ventes
+     * @param search filtres, tri, curseur de la page précédente et taille de la page
+     * @return la page de ventes et le curseur de la suivante
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si un filtre, le tri ou le curseur est invalide
      */
-    List<SaleDto> findAll();
+    SalePageDto findPage(SaleSearchDto search);
+
+    /**
+     * Prépare le parcours de toutes les ventes filtrées et triées, sans taille de page.
+     * <p>
+     * Les paramètres sont validés à l'appel ; les ventes ne sont lues qu'au parcours,
+     * une à une, sans être chargées en liste.
+     * </p>
+     *
+     * @param search filtres, tri et curseur de départ ; la taille de page est ignorée
+     * @return le parcours des ventes, dans l'ordre du tri
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si un filtre, le tri ou le curseur est invalide
+     */
+    RowStream<SaleDto> streamSales(SaleSearchDto search);
 
     /**
      * Récupère toutes les ventes associées à un utilisateur donné.
@@ -40,7 +61,7 @@ public interface SaleService {
     List<SaleDto> findByUserId(long userId);
 
     /**
-     * Récupère une vente par son identifiant.
+     * Récupère une vente par son identifiant, avec ses meilleures enchères seulement.
      * <p>
      * L'implémentation doit lever {@link fr.rougeux.projet.auction.exception.NotFoundException}
      * si aucune vente n'est trouvée pour l'identifiant donné.
@@ -50,4 +71,60 @@ public interface SaleService {
      * @return le {@link SaleDto} correspondant
      */
     SaleDto findById(long id);
+
+    /**
+     * Récupère plusieurs ventes par leurs identifiants, avec leurs meilleures enchères,
+     * comme autant d'appels à {@link #findById} mais sans erreur pour une vente inexistante.
+     *
+     * @param ids les identifiants des ventes ; les doublons sont ignorés
+     * @return les ventes trouvées, dans l'ordre des identifiants demandés ; les identifiants inconnus sont omis
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si aucun identifiant n'est fourni,
+     *         ou s'il y en a trop
+     */
+    List<SaleDto> findByIds(List<Long> ids);
+
+    /**
+     * Récupère une page de l'historique des enchères d'une vente, par montant décroissant.
+     * <p>
+     * Une vente inexistante, ou sans enchère, renvoie une page vide.
+     * </p>
+     *
+     * @param id    l'identifiant de la vente
+     * @param after curseur renvoyé par la page précédente, {@code null} pour la première page
+     * @param limit nombre maximal d'enchères de la page
+     * @return la page d'enchères et le curseur de la suivante
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si le curseur est invalide
+     */
+    BidPageDto findBids(long id, String after, int limit);
+
+    /**
+     * Prépare le parcours de tout l'historique des enchères d'une vente, par montant décroissant,
+     * sans le charger en liste.
+     *
+     * @param id l'identifiant de la vente
+     * @return le parcours des enchères, vide si la vente n'existe pas ou n'a pas d'enchère
+     */
+    RowStream<BidDto> streamBids(long id);
+
+    /**
+     * Récupère l'historique de prix d'une vente par intervalles (ouverture, plus haut, plus bas,
+     * clôture, nombre d'enchères). Les intervalles sans enchère sont omis.
+     *
+     * @param id     l'identifiant de la vente
+     * @param bucket durée d'un intervalle, en minutes ({@code 5m}) ou en heures ({@code 1h})
+     * @return les intervalles, par date croissante
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si la durée est invalide
+     */
+    List<PriceBucketDto> findPriceHistory(long id, String bucket);
+
+    /**
+     * Recherche les ventes en cours dont le nom ou la description de l'objet correspond à un texte,
+     * par pertinence décroissante.
+     *
+     * @param q     texte recherché ; le dernier mot peut être incomplet
+     * @param limit nombre maximal de ventes renvoyées
+     * @return les ventes trouvées
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si le texte est vide
+     */
+    List<SaleHitDto> search(String q, int limit);
 }
@@ -0,0 +1,331 @@
+package fr.rougeux.projet.auction.service.catalog;
+
+import fr.rougeux.projet.auction.bo.Category;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.dto.bo.CategoryDto;
+import fr.rougeux.projet.auction.repository.CategoryDao;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.service.closing.SaleExtendedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compteurs des ventes de chaque catégorie, tenus en mémoire : ventes au total, en cours,
+ * et en cours se terminant dans {@code app.category.facets.ending-soon-minutes}.
+ * <p>
+ * Les compteurs sont ajustés à chaque événement plutôt que recalculés :
+ * </p>
+ * <ul>
+ *     <li>création : les ventes créées depuis le dernier passage sont lues par identifiant croissant
+ *     toutes les {@code app.category.facets.refresh-interval-ms} ;</li>
+ *     <li>clôture : la vente n'est plus en cours ({@link #onClose}) ;</li>
+ *     <li>enchère prolongeant la vente : sa date de fin est repoussée ({@link SaleExtendedEvent}) ;</li>
+ *     <li>passage du temps : les ventes en cours sont rangées par date de fin, et seules celles entrant
+ *     dans la fenêtre de fin proche, ou arrivées à leur fin, sont déplacées à chaque pas de
+ *     {@code app.category.facets.tick-ms}.</li>
+ * </ul>
+ * <p>
+ * Les compteurs sont recalés sur la base au démarrage puis toutes les
+ * {@code app.category.facets.reconcile-interval-ms}. Les clôtures survenues pendant une lecture
+ * en base y sont rejouées, et une prolongation n'est jamais annulée par une lecture antérieure.
+ * La liste des catégories et de leurs compteurs est republiée après chaque modification :
+ * sa lecture ne fait aucun calcul.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class CategoryFacets {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryFacets.class);
+
+    private static final Comparator<Tracked> BY_ENDING = Comparator
+            .comparingLong(Tracked::endingMs)
+            .thenComparingLong(Tracked::saleId);
+
+    private final CategoryDao categoryDao;
+    private final SaleDao saleDao;
+    private final long endingSoonMs;
+    private final Lock loading = new ReentrantLock();
+    private final Map<Long, Tracked> ongoing = new HashMap<>();
+    private final NavigableSet<Tracked> later = new TreeSet<>(BY_ENDING);
+    private final NavigableSet<Tracked> soon = new TreeSet<>(BY_ENDING);
+    private final Map<Long, Counts> counts = new HashMap<>();
+    private List<Category> categories = List.of();
+    private Set<Long> closedWhileLoading;
+    private long lastSaleId;
+    private volatile List<CategoryDto> snapshot = List.of();
+
+    /**
+     * Constructeur des compteurs.
+     *
+     * @param categoryDao       DAO des catégories, lu au recalage
+     * @param saleDao           DAO des ventes, lu au recalage et pour les ventes créées
+     * @param endingSoonMinutes fenêtre de fin proche, en minutes
+     */
+    public CategoryFacets(CategoryDao categoryDao,
+                          SaleDao saleDao,
+                          @Value("${app.category.facets.ending-soon-minutes:60}") long endingSoonMinutes) {
+        this.categoryDao = categoryDao;
+        this.saleDao = saleDao;
+        this.endingSoonMs = TimeUnit.MINUTES.toMillis(endingSoonMinutes);
+    }
+
+    /**
+     * @return les catégories et leurs compteurs, par identifiant croissant
+     */
+    public List<CategoryDto> categories() {
+        return snapshot;
+    }
+
+    /**
+     * Charge les compteurs au démarrage.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconcile();
+    }
+
+    /**
+     * Recalcule tous les compteurs depuis la base : catégories, nombre de ventes par catégorie,
+     * ventes non clôturées. Les ventes créées pendant le recalage sont comptées au passage suivant.
+     */
+    @Scheduled(fixedDelayString = "${app.category.facets.reconcile-interval-ms:600000}",
+            initialDelayString = "${app.category.facets.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        loading.lock();
+        try {
+            beginLoad();
+            List<Category> loadedCategories = categoryDao.readAll();
+            long maxSaleId = saleDao.readMaxSaleId();
+            Map<Long, Integer> totals = categoryDao.countSales(maxSaleId);
+            List<Sale> unclosed = new ArrayList<>();
+            saleDao.forEachCategorized(0, maxSaleId, true, unclosed::add);
+            replace(loadedCategories, totals, unclosed, maxSaleId);
+        } finally {
+            endLoad();
+            loading.unlock();
+        }
+    }
+
+    /**
+     * Compte les ventes créées depuis le dernier passage.
+     */
+    @Scheduled(fixedDelayString = "${app.category.facets.refresh-interval-ms:5000}",
+            initialDelayString = "${app.category.facets.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!loading.tryLock()) {
+            return;
+        }
+        try {
+            beginLoad();
+            List<Sale> created = new ArrayList<>();
+            saleDao.forEachCategorized(lastSaleId, Long.MAX_VALUE, false, created::add);
+            append(created);
+        } finally {
+            endLoad();
+            loading.unlock();
+        }
+    }
+
+    /**
+     * Déplace les ventes entrées dans la fenêtre de fin proche, et retire celles arrivées à leur fin.
+     */
+    @Scheduled(fixedDelayString = "${app.category.facets.tick-ms:1000}")
+    public synchronized void advance() {
+        long now = System.currentTimeMillis();
+        boolean changed = false;
+        while (!later.isEmpty() && later.first().endingMs() <= now + endingSoonMs) {
+            Tracked tracked = later.pollFirst();
+            soon.add(tracked);
+            counts(tracked.categoryId()).endingSoon++;
+            changed = true;
+        }
+        while (!soon.isEmpty() && soon.first().endingMs() <= now) {
+            untrack(soon.first().saleId());
+            changed = true;
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    /**
+     * Prend en compte la clôture d'une vente, validée en base.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public synchronized void onClose(long saleId) {
+        if (closedWhileLoading != null) {
+            closedWhileLoading.add(saleId);
+        }
+        if (untrack(saleId)) {
+            publish();
+        }
+    }
+
+    /**
+     * Repousse la date de fin d'une vente prolongée par une enchère.
+     *
+     * @param event prolongation de la vente
+     */
+    @EventListener
+    public synchronized void onSaleExtended(SaleExtendedEvent event) {
+        Tracked tracked = ongoing.get(event.saleId());
+        long endingMs = toEpochMilli(event.endingDate());
+        if (tracked == null || endingMs <= tracked.endingMs()) {
+            return;
+        }
+        untrack(tracked.saleId());
+        track(tracked.saleId(), tracked.categoryId(), endingMs, System.currentTimeMillis());
+        publish();
+    }
+
+    /**
+     * Commence à relever les clôtures, qui peuvent ne pas être vues par la lecture en base qui suit.
+     */
+    private synchronized void beginLoad() {
+        closedWhileLoading = new HashSet<>();
+    }
+
+    private synchronized void endLoad() {
+        closedWhileLoading = null;
+    }
+
+    private synchronized void replace(List<Category> loadedCategories, Map<Long, Integer> totals,
+                                      List<Sale> unclosed, long maxSaleId) {
+        Map<Long, Long> extended = new HashMap<>();
+        ongoing.values().forEach(tracked -> extended.put(tracked.saleId(), tracked.endingMs()));
+
+        categories = loadedCategories;
+        counts.clear();
+        ongoing.clear();
+        later.clear();
+        soon.clear();
+        totals.forEach((categoryId, total) -> counts(categoryId).total = total);
+        long now = System.currentTimeMillis();
+        for (Sale sale : unclosed) {
+            if (!closedWhileLoading.contains(sale.getSaleId())) {
+                long endingMs = Math.max(toEpochMilli(sale.getEndingDate()),
+                        extended.getOrDefault(sale.getSaleId(), Long.MIN_VALUE));
+                track(sale.getSaleId(), categoryOf(sale), endingMs, now);
+            }
+        }
+        lastSaleId = Math.max(lastSaleId, maxSaleId);
+        publish();
+        LOG.info("category.facets.reconciled {}", ongoing.size());
+    }
+
+    private synchronized void append(List<Sale> created) {
+        long now = System.currentTimeMillis();
+        for (Sale sale : created) {
+            counts(categoryOf(sale)).total++;
+            if (sale.getClosedAt() == null && !closedWhileLoading.contains(sale.getSaleId())) {
+                track(sale.getSaleId(), categoryOf(sale), toEpochMilli(sale.getEndingDate()), now);
+            }
+            lastSaleId = Math.max(lastSaleId, sale.getSaleId());
+        }
+        if (!created.isEmpty()) {
+            publish();
+        }
+    }
+
+    /**
+     * Compte une vente en cours, sauf si elle est déjà terminée.
+     */
+    private void track(long saleId, long categoryId, long endingMs, long now) {
+        if (endingMs <= now || ongoing.containsKey(saleId)) {
+            return;
+        }
+        Tracked tracked = new Tracked(saleId, categoryId, endingMs);
+        ongoing.put(saleId, tracked);
+        Counts categoryCounts = counts(categoryId);
+        categoryCounts.ongoing++;
+        if (endingMs <= now + endingSoonMs) {
+            soon.add(tracked);
+            categoryCounts.endingSoon++;
+        } else {
+            later.add(tracked);
+        }
+    }
+
+    /**
+     * @return vrai si la vente était comptée en cours
+     */
+    private boolean untrack(long saleId) {
+        Tracked tracked = ongoing.remove(saleId);
+        if (tracked == null) {
+            return false;
+        }
+        Counts categoryCounts = counts(tracked.categoryId());
+        categoryCounts.ongoing--;
+        if (soon.remove(tracked)) {
+            categoryCounts.endingSoon--;
+        } else {
+            later.remove(tracked);
+        }
+        return true;
+    }
+
+    private Counts counts(long categoryId) {
+        return counts.computeIfAbsent(categoryId, id -> new Counts());
+    }
+
+    private void publish() {
+        List<CategoryDto> published = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            Counts categoryCounts = counts.getOrDefault(category.getCategorieId(), new Counts());
+            CategoryDto dto = category.toDTO();
+            dto.setSaleCount(categoryCounts.total);
+            dto.setOngoingCount(categoryCounts.ongoing);
+            dto.setEndingSoonCount(categoryCounts.endingSoon);
+            published.add(dto);
+        }
+        snapshot = List.copyOf(published);
+    }
+
+    private static long categoryOf(Sale sale) {
+        return sale.getItem().getCategory().getCategorieId();
+    }
+
+    private static long toEpochMilli(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Vente en cours, rangée par date de fin.
+     */
+    private record Tracked(long saleId, long categoryId, long endingMs) {
+    }
+
+    /**
+     * Compteurs d'une catégorie.
+     */
+    private static final class Counts {
+
+        private int total;
+        private int ongoing;
+        private int endingSoon;
+    }
+}
@@ -0,0 +1,254 @@
+package fr.rougeux.projet.auction.service.catalog;
+
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
+import fr.rougeux.projet.auction.dto.response.SalePageDto;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.repository.SaleQuery;
+import fr.rougeux.projet.auction.service.closing.SaleExtendedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Index en mémoire des ventes en cours, rangées par date de fin croissante et par date de début
+ * décroissante, pour servir sans accès à la base les premières pages de la liste non filtrée
+ * des ventes en cours ({@code sort=ENDING_SOON} ou {@code sort=NEWEST}).
+ * <p>
+ * Chaque ordre est une {@link ConcurrentSkipListMap} de clé (date, identifiant de vente) : une page
+ * se lit en O(log n + taille de la page), à partir du curseur de la page précédente,
+ * avec les mêmes curseurs que la lecture en base. L'index est tenu à jour par :
+ * </p>
+ * <ul>
+ *     <li>création : les ventes créées depuis le dernier passage sont lues par identifiant croissant
+ *     toutes les {@code app.sale.ongoing.refresh-interval-ms} ;</li>
+ *     <li>enchère : prix, meneur et nombre d'enchères sont remplacés ({@link #onBid}) ;</li>
+ *     <li>clôture progressive : la vente est reclassée à sa nouvelle date de fin ({@link SaleExtendedEvent}) ;</li>
+ *     <li>clôture : la vente est retirée ({@link #onClose}).</li>
+ * </ul>
+ * <p>
+ * Une vente arrivée à sa date de fin est retirée paresseusement, quand une lecture la rencontre :
+ * dans l'ordre des dates de fin, les ventes terminées sont toutes en tête.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.sale.ongoing.indexed} (ventes indexées).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class OngoingSales {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OngoingSales.class);
+
+    private static final Comparator<Position> ASCENDING = Comparator
+            .comparing(Position::date)
+            .thenComparingLong(Position::saleId);
+
+    private final SaleDao saleDao;
+    private final Map<Long, SaleDto> sales = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Position, SaleDto> byEnding = new ConcurrentSkipListMap<>(ASCENDING);
+    private final ConcurrentSkipListMap<Position, SaleDto> byStart = new ConcurrentSkipListMap<>(ASCENDING.reversed());
+    private volatile boolean ready;
+    private long lastSaleId;
+
+    /**
+     * Constructeur de l'index.
+     *
+     * @param saleDao       DAO de gestion des ventes, lu au démarrage puis périodiquement
+     * @param meterRegistry registre des métriques
+     */
+    public OngoingSales(SaleDao saleDao, MeterRegistry meterRegistry) {
+        this.saleDao = saleDao;
+        Gauge.builder("auction.sale.ongoing.indexed", sales, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Charge les ventes en cours au démarrage ; les pages sont lues en base jusque-là.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        ready = true;
+        LOG.info("sale.ongoing.indexed {}", sales.size());
+    }
+
+    /**
+     * Indexe les ventes créées depuis le dernier passage.
+     */
+    @Scheduled(fixedDelayString = "${app.sale.ongoing.refresh-interval-ms:5000}",
+            initialDelayString = "${app.sale.ongoing.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        saleDao.forEachOngoing(lastSaleId, LocalDateTime.now(), sale -> {
+            SaleDto summary = SaleCatalog.summaryOf(sale.toDTO());
+            sales.compute(sale.getSaleId(), (id, current) -> {
+                if (current != null) {
+                    return current;
+                }
+                byEnding.put(Position.ofEnding(summary), summary);
+                byStart.put(Position.ofStart(summary), summary);
+                return summary;
+            });
+            lastSaleId = sale.getSaleId();
+        });
+    }
+
+    /**
+     * @param query critères d'une page de ventes
+     * @return vrai si la page peut être lue dans l'index : ventes en cours, sans filtre,
+     *         triées par date de fin ou par date de début
+     */
+    public boolean serves(SaleQuery query) {
+        return ready
+                && query.status() == SaleQuery.Status.ONGOING
+                && (query.sort() == SaleQuery.Sort.ENDING_SOON || query.sort() == SaleQuery.Sort.NEWEST)
+                && query.categoryId() == null && query.sellerId() == null
+                && query.minPrice() == null && query.maxPrice() == null
+                && query.endingAfter() == null && query.endingBefore() == null;
+    }
+
+    /**
+     * Lit une page de ventes en cours dans l'index, en retirant au passage les ventes terminées.
+     *
+     * @param query critères de la page, acceptés par {@link #serves}
+     * @param size  taille de la page
+     * @return la page de ventes et le curseur de la suivante
+     */
+    public SalePageDto page(SaleQuery query, int size) {
+        boolean byEndingDate = query.sort() == SaleQuery.Sort.ENDING_SOON;
+        NavigableMap<Position, SaleDto> index = byEndingDate ? byEnding : byStart;
+        if (query.after() != null) {
+            index = index.tailMap(new Position(query.after().date(), query.after().saleId()), false);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<SaleDto> page = new ArrayList<>(size);
+        Position last = null;
+        boolean more = false;
+        for (Map.Entry<Position, SaleDto> entry : index.entrySet()) {
+            SaleDto sale = entry.getValue();
+            if (!sale.getEndingDate().isAfter(now)) {
+                remove(sale.getSaleId(), sale);
+                continue;
+            }
+            if (page.size() == size) {
+                more = true;
+                break;
+            }
+            page.add(sale);
+            last = entry.getKey();
+        }
+        String next = more ? new SaleQuery.Cursor(last.date(), 0, last.saleId()).encode() : null;
+        return new SalePageDto(page, next);
+    }
+
+    /**
+     * Prend en compte une enchère acceptée et validée en base.
+     *
+     * @param sale état de la vente après l'enchère
+     */
+    public void onBid(SaleDto sale) {
+        update(sale.getSaleId(), current -> {
+            if (!SaleCatalog.isNewer(sale, current)) {
+                return current;
+            }
+            SaleDto next = SaleCatalog.summaryOf(current);
+            next.setSalePrice(sale.getSalePrice());
+            next.setLeaderId(sale.getLeaderId());
+            next.setBidCount(sale.getBidCount());
+            if (sale.getEndingDate().isAfter(current.getEndingDate())) {
+                next.setEndingDate(sale.getEndingDate());
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Reclasse une vente prolongée par une enchère.
+     *
+     * @param event prolongation de la vente
+     */
+    @EventListener
+    public void onSaleExtended(SaleExtendedEvent event) {
+        update(event.saleId(), current -> {
+            if (!event.endingDate().isAfter(current.getEndingDate())) {
+                return current;
+            }
+            SaleDto next = SaleCatalog.summaryOf(current);
+            next.setEndingDate(event.endingDate());
+            return next;
+        });
+    }
+
+    /**
+     * Retire une vente clôturée.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public void onClose(long saleId) {
+        SaleDto current = sales.get(saleId);
+        if (current != null) {
+            remove(saleId, current);
+        }
+    }
+
+    /**
+     * Remplace l'état d'une vente indexée, atomiquement pour cette vente, et la reclasse si ses dates changent.
+     */
+    private void update(long saleId, UnaryOperator<SaleDto> change) {
+        sales.computeIfPresent(saleId, (id, current) -> {
+            SaleDto next = change.apply(current);
+            if (next != current) {
+                byEnding.remove(Position.ofEnding(current));
+                byStart.remove(Position.ofStart(current));
+                byEnding.put(Position.ofEnding(next), next);
+                byStart.put(Position.ofStart(next), next);
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Retire une vente si son état indexé est toujours celui donné.
+     */
+    private void remove(long saleId, SaleDto expected) {
+        sales.computeIfPresent(saleId, (id, current) -> {
+            if (current != expected) {
+                return current;
+            }
+            byEnding.remove(Position.ofEnding(current));
+            byStart.remove(Position.ofStart(current));
+            return null;
+        });
+    }
+
+    /**
+     * Clé d'une vente dans un ordre : sa date de fin ou de début, départagée par son identifiant.
+     */
+    private record Position(LocalDateTime date, long saleId) {
+
+        private static Position ofEnding(SaleDto sale) {
+            return new Position(sale.getEndingDate(), sale.getSaleId());
+        }
+
+        private static Position ofStart(SaleDto sale) {
+            return new Position(sale.getStartingDate(), sale.getSaleId());
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package fr.rougeux.projet.auction.service.catalog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
+import fr.rougeux.projet.auction.dto.response.SalePageDto;
+import fr.rougeux.projet.auction.repository.SaleQuery;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache en mémoire du catalogue des ventes : détail des ventes et pages de la liste des ventes.
+ * <p>
+ * Les deux caches sont bornés en nombre d'entrées ({@code app.sale.cache.details.max-size},
+ * {@code app.sale.cache.pages.max-size}) ; l'éviction W-TinyLFU de Caffeine garde les entrées
+ * les plus demandées. Une vente ne change qu'à l'acceptation d'une enchère ou à sa clôture :
+ * ces deux événements, signalés après validation en base, mettent à jour ou invalident
+ * précisément les entrées concernées.
+ * </p>
+ * <ul>
+ *     <li>enchère : le détail de la vente est remplacé par son état après l'enchère, et la vente
+ *     est remplacée dans les pages qui la contiennent ; les pages dont le contenu dépend du prix
+ *     (tri ou filtre par prix) sont invalidées, ainsi que celles dépendant de la date de fin
+ *     si l'enchère a prolongé la vente ;</li>
+ *     <li>clôture : le détail et les pages contenant la vente sont invalidés, ainsi que les pages
+ *     des ventes terminées.</li>
+ * </ul>
+ * <p>
+ * Une page lue en base pendant une modification qui la concerne est retirée aussitôt mise en cache :
+ * chaque modification est datée par une horloge monotone, comparée au début de la lecture.
+ * Une lecture pouvant être faite sur un réplica en retard ({@code app.datasource.replicas.enabled}),
+ * son début est alors reculé de {@code app.datasource.replicas.max-lag-ms}, pour les pages comme
+ * pour le détail des ventes.
+ * Les modifications faites par une autre instance ne sont vues qu'après {@code app.sale.cache.ttl-seconds}.
+ * </p>
+ * <p>
+ * Les enchères et clôtures sont aussi reportées sur l'index des ventes en cours ({@link OngoingSales}),
+ * qui sert les premières pages non filtrées sans passer par ces caches.
+ * </p>
+ * <p>
+ * Métriques exposées : {@code cache.gets} (succès, échecs), {@code cache.evictions}, {@code cache.size}...
+ * avec le tag {@code cache=sale.details} ou {@code cache=sale.pages}.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class SaleCatalog {
+
+    /**
+     * Durée pendant laquelle une modification est prise en compte par les lectures en cours.
+     */
+    private static final long CHANGE_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Cache<Long, SaleDto> details;
+    private final Cache<SaleQuery, SalePageDto> pages;
+    private final Map<Long, Set<SaleQuery>> pagesBySale = new ConcurrentHashMap<>();
+    private final Set<SaleQuery> pricePages = ConcurrentHashMap.newKeySet();
+    private final Set<SaleQuery> endingPages = ConcurrentHashMap.newKeySet();
+    private final Set<SaleQuery> overPages = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong(System.nanoTime());
+    private final OngoingSales ongoingSales;
+    private final long replicaLagNanos;
+    private volatile long pricesChangedAt = Long.MIN_VALUE;
+    private volatile long endingsChangedAt = Long.MIN_VALUE;
+    private volatile long closedAt = Long.MIN_VALUE;
+
+    /**
+     * Constructeur du cache.
+     *
+     * @param detailsSize   nombre maximal de ventes en cache
+     * @param pagesSize     nombre maximal de pages en cache
+     * @param ttlSeconds    durée de vie d'une entrée, pour les modifications faites hors de cette instance
+     * @param ongoingSales  index des ventes en cours, tenu à jour avec le cache
+     * @param replicas      vrai si les lectures peuvent être faites sur un réplica
+     * @param maxLagMs      retard maximal d'un réplica sur le primaire, en millisecondes
+     * @param meterRegistry registre des métriques
+     */
+    public SaleCatalog(@Value("${app.sale.cache.details.max-size:10000}") long detailsSize,
+                       @Value("${app.sale.cache.pages.max-size:2000}") long pagesSize,
+                       @Value("${app.sale.cache.ttl-seconds:300}") long ttlSeconds,
+                       OngoingSales ongoingSales,
+                       @Value("${app.datasource.replicas.enabled:false}") boolean replicas,
+                       @Value("${app.datasource.replicas.max-lag-ms:5000}") long maxLagMs,
+                       MeterRegistry meterRegistry) {
+        this.ongoingSales = ongoingSales;
+        this.replicaLagNanos = replicas ? TimeUnit.MILLISECONDS.toNanos(maxLagMs) : 0;
+        this.details = Caffeine.newBuilder()
+                .maximumSize(detailsSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(pagesSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .executor(Runnable::run)
+                .removalListener(this::unindex)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, details, "sale.details");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "sale.pages");
+    }
+
+    /**
+     * Lit le détail d'une vente depuis le cache, ou le charge. Une invalidation concurrente
+     * attend la fin du chargement, puis le retire.
+     *
+     * @param saleId identifiant de la vente
+     * @param loader lecture du détail en base ; une exception levée n'est pas mise en cache
+     * @return le détail de la vente
+     */
+    public SaleDto detail(long saleId, Supplier<SaleDto> loader) {
+        long started = readStart();
+        boolean[] loaded = new boolean[1];
+        SaleDto detail = details.get(saleId, id -> {
+            loaded[0] = true;
+            return loader.get();
+        });
+        if (loaded[0] && replicaLagNanos > 0 && changedAt.getOrDefault(saleId, Long.MIN_VALUE) > started) {
+            details.asMap().remove(saleId, detail);
+        }
+        return detail;
+    }
+
+    /**
+     * Lit le détail de plusieurs ventes depuis le cache, et charge en une fois celles qui n'y sont pas.
+     * Un détail chargé pendant une modification de sa vente est renvoyé sans être mis en cache.
+     *
+     * @param saleIds identifiants des ventes
+     * @param loader  lecture en base des détails absents du cache ; une vente inexistante est omise
+     * @return le détail des ventes trouvées, par identifiant
+     */
+    public Map<Long, SaleDto> details(Collection<Long> saleIds, Function<Set<Long>, Map<Long, SaleDto>> loader) {
+        Map<Long, SaleDto> found = new HashMap<>(details.getAllPresent(saleIds));
+        Set<Long> missing = new LinkedHashSet<>(saleIds);
+        missing.removeAll(found.keySet());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        long started = readStart();
+        loader.apply(missing).forEach((saleId, sale) -> {
+            SaleDto cached = details.asMap().merge(saleId, sale, (current, next) -> isNewer(next, current) ? next : current);
+            if (changedAt.getOrDefault(saleId, Long.MIN_VALUE) > started) {
+                details.asMap().remove(saleId, cached);
+            }
+            found.put(saleId, cached);
+        });
+        return found;
+    }
+
+    /**
+     * Lit une page de ventes depuis le cache, ou la charge.
+     *
+     * @param query  critères de la page, clé du cache
+     * @param loader lecture de la page en base
+     * @return la page de ventes
+     */
+    public SalePageDto page(SaleQuery query, Supplier<SalePageDto> loader) {
+        SalePageDto cached = pages.getIfPresent(query);
+        if (cached != null) {
+            return cached;
+        }
+        long started = readStart();
+        SalePageDto loaded = loader.get();
+        index(query, loaded);
+        pages.put(query, loaded);
+        if (changedSince(query, loaded, started)) {
+            pages.asMap().remove(query, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Prend en compte une enchère acceptée et validée en base.
+     *
+     * @param sale     état de la vente après l'enchère
+     * @param extended vrai si l'enchère a prolongé la vente
+     */
+    public void onBid(SaleDto sale, boolean extended) {
+        long saleId = sale.getSaleId();
+        long stamp = tick();
+        changedAt.put(saleId, stamp);
+        pricesChangedAt = stamp;
+        if (extended) {
+            endingsChangedAt = stamp;
+        }
+
+        details.asMap().merge(saleId, sale, (current, next) -> isNewer(next, current) ? next : current);
+        pages.invalidateAll(List.copyOf(pricePages));
+        if (extended) {
+            pages.invalidateAll(List.copyOf(endingPages));
+        }
+        Set<SaleQuery> containing = pagesBySale.get(saleId);
+        if (containing != null) {
+            SaleDto summary = summaryOf(sale);
+            for (SaleQuery query : List.copyOf(containing)) {
+                pages.asMap().computeIfPresent(query, (key, page) -> replace(page, summary));
+            }
+        }
+        ongoingSales.onBid(sale);
+    }
+
+    /**
+     * Prend en compte la clôture d'une vente, validée en base.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public void onClose(long saleId) {
+        long stamp = tick();
+        changedAt.put(saleId, stamp);
+        closedAt = stamp;
+
+        details.invalidate(saleId);
+        pages.invalidateAll(List.copyOf(overPages));
+        Set<SaleQuery> containing = pagesBySale.remove(saleId);
+        if (containing != null) {
+            pages.invalidateAll(List.copyOf(containing));
+        }
+        ongoingSales.onClose(saleId);
+    }
+
+    /**
+     * Oublie les modifications trop anciennes pour concerner une lecture en cours.
+     */
+    @Scheduled(fixedDelayString = "${app.sale.cache.sweep-interval-ms:60000}")
+    public void sweep() {
+        long oldest = System.nanoTime() - CHANGE_RETENTION_NANOS;
+        changedAt.values().removeIf(stamp -> stamp - oldest < 0);
+    }
+
+    /**
+     * @return la date à partir de laquelle une modification peut ne pas être vue par une lecture qui commence :
+     *         la dernière modification, reculée du retard maximal d'un réplica
+     */
+    private long readStart() {
+        return clock.get() - replicaLagNanos;
+    }
+
+    /**
+     * @return une date strictement postérieure à toutes les précédentes, proche de {@link System#nanoTime()}
+     */
+    private long tick() {
+        return clock.accumulateAndGet(System.nanoTime(), (previous, now) -> Math.max(previous + 1, now));
+    }
+
+    /**
+     * Vrai si une modification postérieure au début de la lecture peut avoir changé la page.
+     */
+    private boolean changedSince(SaleQuery query, SalePageDto page, long started) {
+        if (dependsOnPrice(query) && pricesChangedAt > started
+                || dependsOnEnding(query) && endingsChangedAt > started
+                || query.status() != SaleQuery.Status.ONGOING && closedAt > started) {
+            return true;
+        }
+        for (SaleDto sale : page.sales()) {
+            if (changedAt.getOrDefault(sale.getSaleId(), Long.MIN_VALUE) > started) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean dependsOnPrice(SaleQuery query) {
+        return query.sort() == SaleQuery.Sort.PRICE_ASC || query.sort() == SaleQuery.Sort.PRICE_DESC
+                || query.minPrice() != null || query.maxPrice() != null;
+    }
+
+    private static boolean dependsOnEnding(SaleQuery query) {
+        return query.sort() == SaleQuery.Sort.ENDING_SOON
+                || query.endingAfter() != null || query.endingBefore() != null;
+    }
+
+    private void index(SaleQuery query, SalePageDto page) {
+        for (SaleDto sale : page.sales()) {
+            pagesBySale.computeIfAbsent(sale.getSaleId(), id -> ConcurrentHashMap.newKeySet()).add(query);
+        }
+        if (dependsOnPrice(query)) {
+            pricePages.add(query);
+        }
+        if (dependsOnEnding(query)) {
+            endingPages.add(query);
+        }
+        if (query.status() != SaleQuery.Status.ONGOING) {
+            overPages.add(query);
+        }
+    }
+
+    /**
+     * Retire une page évincée, expirée ou invalidée des index. Une page remplacée reste indexée.
+     */
+    private void unindex(SaleQuery query, SalePageDto page, RemovalCause cause) {
+        if (cause == RemovalCause.REPLACED || query == null || page == null) {
+            return;
+        }
+        pricePages.remove(query);
+        endingPages.remove(query);
+        overPages.remove(query);
+        for (SaleDto sale : page.sales()) {
+            pagesBySale.computeIfPresent(sale.getSaleId(), (id, queries) -> {
+                queries.remove(query);
+                return queries.isEmpty() ? null : queries;
+            });
+        }
+    }
+
+    /**
+     * Vrai si {@code next} est un état plus récent de la vente que {@code current}.
+     */
+    static boolean isNewer(SaleDto next, SaleDto current) {
+        boolean nextOver = "OVER".equals(next.getStatus());
+        if (nextOver != "OVER".equals(current.getStatus())) {
+            return nextOver;
+        }
+        return next.getBidCount() >= current.getBidCount();
+    }
+
+    private static SalePageDto replace(SalePageDto page, SaleDto summary) {
+        List<SaleDto> sales = new ArrayList<>(page.sales());
+        for (int i = 0; i < sales.size(); i++) {
+            if (sales.get(i).getSaleId() == summary.getSaleId() && isNewer(summary, sales.get(i))) {
+                sales.set(i, summary);
+                return new SalePageDto(sales, page.next());
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Copie d'une vente telle qu'affichée dans la liste : sans ses enchères.
+     */
+    static SaleDto summaryOf(SaleDto sale) {
+        SaleDto summary = new SaleDto();
+        summary.setSaleId(sale.getSaleId());
+        summary.setStartingDate(sale.getStartingDate());
+        summary.setEndingDate(sale.getEndingDate());
+        summary.setStartingPrice(sale.getStartingPrice());
+        summary.setSalePrice(sale.getSalePrice());
+        summary.setStatus(sale.getStatus());
+        summary.setLeaderId(sale.getLeaderId());
+        summary.setBidCount(sale.getBidCount());
+        summary.setSeller(sale.getSeller());
+        summary.setItem(sale.getItem());
+        return summary;
+    }
+}
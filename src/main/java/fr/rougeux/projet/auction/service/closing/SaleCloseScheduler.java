@@ -0,0 +1,276 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Planification de la clôture des ventes à leur date de fin.
+ * <p>
+ * Les dates de fin des ventes non clôturées sont lues une seule fois au démarrage, puis
+ * rangées dans une {@link TimingWheel} : l'ajout, le report ou l'annulation d'une échéance
+ * se font en temps constant. Seules les ventes créées depuis le dernier passage sont ensuite lues,
+ * par identifiant croissant, toutes les {@code app.sale.close.refresh-interval-ms}.
+ * Un thread dédié fait avancer la minuterie ; les clôtures échues sont confiées, une à une,
+ * au {@link SaleCloser} sur un second thread, pour ne pas retarder les échéances suivantes.
+ * </p>
+ * <p>
+ * Une vente n'a qu'une échéance à la fois : la replanifier remplace la précédente.
+ * Les prolongations de la clôture progressive ({@link SaleExtendedEvent}) ne font que repousser
+ * l'échéance : publiées dans le désordre par des enchères concurrentes, elles ne peuvent pas
+ * la ramener en arrière.
+ * Une clôture en échec est retentée après {@code app.sale.close.retry-ms}. Une vente que la clôture
+ * n'a pas modifiée est relue : si elle n'est toujours pas clôturée, sa date de fin a été repoussée
+ * sans que la prolongation soit reçue, et sa clôture est replanifiée à cette date.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.sale.close.pending} (clôtures planifiées).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class SaleCloseScheduler implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SaleCloseScheduler.class);
+
+    private final SaleDao saleDao;
+    private final SaleCloser saleCloser;
+    private final long retryMs;
+    private final LongSupplier clock;
+    private final ExecutorService closer;
+    private final TimingWheel wheel;
+    private final Map<Long, Closing> closings = new ConcurrentHashMap<>();
+    private final Thread timer;
+    private volatile boolean running = true;
+    private long lastSaleId;
+
+    /**
+     * Constructeur du planificateur.
+     *
+     * @param saleDao    DAO de gestion des ventes, lu au démarrage
+     * @param saleCloser service de clôture des ventes
+     * @param tickMs     précision de la minuterie, en millisecondes
+     * @param wheelSize  nombre de cases de chaque roue de la minuterie
+     * @param retryMs    délai avant une nouvelle tentative de clôture en échec, en millisecondes
+     * @param meterRegistry registre des métriques
+     */
+    @Autowired
+    public SaleCloseScheduler(SaleDao saleDao,
+                              SaleCloser saleCloser,
+                              @Value("${app.sale.close.tick-ms:1}") long tickMs,
+                              @Value("${app.sale.close.wheel-size:64}") int wheelSize,
+                              @Value("${app.sale.close.retry-ms:5000}") long retryMs,
+                              MeterRegistry meterRegistry) {
+        this(saleDao, saleCloser, tickMs, wheelSize, retryMs, meterRegistry, System::currentTimeMillis,
+                Executors.newSingleThreadExecutor(r -> new Thread(r, "sale-closer")));
+    }
+
+    /**
+     * Constructeur à horloge et thread de clôture fournis, pour les tests.
+     *
+     * @param clock  horloge, en millisecondes depuis l'epoch
+     * @param closer exécuteur des clôtures échues
+     */
+    SaleCloseScheduler(SaleDao saleDao, SaleCloser saleCloser, long tickMs, int wheelSize, long retryMs,
+                       MeterRegistry meterRegistry, LongSupplier clock, ExecutorService closer) {
+        this.saleDao = saleDao;
+        this.saleCloser = saleCloser;
+        this.retryMs = retryMs;
+        this.clock = clock;
+        this.closer = closer;
+        this.wheel = new TimingWheel(tickMs, wheelSize, clock, closer);
+        this.timer = new Thread(this::run, "sale-close-timer");
+        this.timer.setDaemon(true);
+        Gauge.builder("auction.sale.close.pending", wheel, TimingWheel::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Planifie la clôture de toutes les ventes non clôturées puis démarre la minuterie.
+     * Les ventes déjà terminées sont clôturées immédiatement.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        LOG.info("sale.close.scheduled {}", closings.size());
+        timer.start();
+    }
+
+    /**
+     * Planifie la clôture des ventes non clôturées créées depuis le dernier passage.
+     */
+    @Scheduled(fixedDelayString = "${app.sale.close.refresh-interval-ms:5000}",
+            initialDelayString = "${app.sale.close.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        saleDao.forEachUnclosed(lastSaleId, sale -> {
+            schedule(sale.getSaleId(), sale.getEndingDate());
+            lastSaleId = sale.getSaleId();
+        });
+    }
+
+    /**
+     * Planifie, ou replanifie, la clôture d'une vente.
+     *
+     * @param saleId     identifiant de la vente
+     * @param endingDate date de fin de la vente
+     */
+    public void schedule(long saleId, LocalDateTime endingDate) {
+        schedule(saleId, toEpochMilli(endingDate), false);
+    }
+
+    /**
+     * Repousse la clôture d'une vente prolongée par une enchère, sans relecture en base.
+     *
+     * @param event prolongation de la vente
+     */
+    @EventListener
+    public void onSaleExtended(SaleExtendedEvent event) {
+        schedule(event.saleId(), toEpochMilli(event.endingDate()), true);
+    }
+
+    /**
+     * Annule la clôture planifiée d'une vente.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public void cancel(long saleId) {
+        Closing closing = closings.remove(saleId);
+        if (closing != null) {
+            closing.cancel();
+        }
+    }
+
+    /**
+     * Remplace l'échéance d'une vente, atomiquement pour cette vente. L'échéance est placée dans
+     * la minuterie pendant son enregistrement : une échéance déjà passée, exécutée aussitôt,
+     * attend cet enregistrement avant de le retirer.
+     *
+     * @param laterOnly si vrai, une échéance déjà planifiée plus tard est conservée
+     */
+    private void schedule(long saleId, long deadlineMs, boolean laterOnly) {
+        closings.compute(saleId, (id, previous) -> {
+            if (previous != null) {
+                if (laterOnly && previous.deadlineMs >= deadlineMs) {
+                    return previous;
+                }
+                previous.cancel();
+            }
+            Closing closing = new Closing(deadlineMs);
+            closing.timeout = wheel.schedule(deadlineMs, () -> close(id, closing));
+            return closing;
+        });
+    }
+
+    private static long toEpochMilli(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Clôture une vente sur le thread de clôture, si son échéance n'a été ni remplacée ni annulée entre-temps.
+     */
+    private void close(long saleId, Closing closing) {
+        if (!closings.remove(saleId, closing)) {
+            return;
+        }
+        try {
+            if (!saleCloser.close(saleId)) {
+                rescheduleUnclosed(saleId);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("sale.close.error {}", saleId, e);
+            if (running) {
+                schedule(saleId, clock.getAsLong() + retryMs, true);
+            }
+        }
+    }
+
+    /**
+     * Replanifie à sa date de fin en base une vente que la clôture n'a pas modifiée, si elle n'est pas clôturée.
+     * Une prolongation reçue entre-temps, plus tardive, est conservée.
+     */
+    private void rescheduleUnclosed(long saleId) {
+        Sale sale;
+        try {
+            sale = saleDao.readById(saleId);
+        } catch (EmptyResultDataAccessException e) {
+            return;
+        }
+        if (sale.getClosedAt() == null && running) {
+            schedule(saleId, Math.max(toEpochMilli(sale.getEndingDate()), clock.getAsLong() + 1), true);
+        }
+    }
+
+    /**
+     * Fait avancer la minuterie jusqu'à la prochaine case échue, en l'attendant au plus {@code maxWaitMs}.
+     *
+     * @return vrai si au moins une case est arrivée à échéance
+     */
+    boolean advance(long maxWaitMs) throws InterruptedException {
+        return wheel.advance(maxWaitMs);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                advance(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Échéance de clôture d'une vente.
+     */
+    private static final class Closing {
+
+        private final long deadlineMs;
+        private volatile TimingWheel.Timeout timeout;
+
+        private Closing(long deadlineMs) {
+            this.deadlineMs = deadlineMs;
+        }
+
+        private void cancel() {
+            TimingWheel.Timeout scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel();
+            }
+        }
+    }
+
+    /**
+     * Arrête la minuterie et le thread de clôture à la fermeture du contexte.
+     * Les clôtures non échues seront replanifiées au prochain démarrage.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        timer.interrupt();
+        closer.shutdown();
+        closer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
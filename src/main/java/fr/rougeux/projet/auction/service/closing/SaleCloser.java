@@ -0,0 +1,153 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.repository.UserDao;
+import fr.rougeux.projet.auction.service.catalog.CategoryFacets;
+import fr.rougeux.projet.auction.service.catalog.SaleCatalog;
+import fr.rougeux.projet.auction.service.credit.CreditLedger;
+import fr.rougeux.projet.auction.service.engine.BidSequencer;
+import fr.rougeux.projet.auction.service.event.SaleEventBus;
+import fr.rougeux.projet.auction.service.history.PriceHistory;
+import fr.rougeux.projet.auction.service.search.SaleSearchIndex;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Clôture d'une vente arrivée à sa date de fin.
+ * <p>
+ * En mode séquenceur, la vente est d'abord gelée dans le {@link BidSequencer} et la dernière
+ * enchère acceptée écrite en base. Dans une même transaction, la vente est ensuite marquée
+ * clôturée (prix final et gagnant figés), le gagnant débité du prix final et toutes les
+ * réservations de crédit de la vente supprimées. Le {@link CreditLedger} n'est mis à jour
+ * qu'après validation, l'historique de prix de la vente est enregistré ({@link PriceHistory}),
+ * la vente est invalidée dans le cache du catalogue ({@link SaleCatalog}), décomptée des ventes
+ * en cours de sa catégorie ({@link CategoryFacets}), retirée de l'index de recherche
+ * ({@link SaleSearchIndex}) et la clôture est diffusée aux abonnés de la vente ({@link SaleEventBus}).
+ * </p>
+ * <p>
+ * La clôture est idempotente : une vente déjà clôturée, ou dont la date de fin a été repoussée,
+ * est ignorée. Dans le second cas, le {@link SaleCloseScheduler} relit la date de fin
+ * pour replanifier la clôture.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Service
+public class SaleCloser {
+
+    private final SaleDao saleDao;
+    private final UserDao userDao;
+    private final CreditHoldDao creditHoldDao;
+    private final CreditLedger creditLedger;
+    private final Optional<BidSequencer> sequencer;
+    private final SaleEventBus saleEventBus;
+    private final PriceHistory priceHistory;
+    private final SaleCatalog saleCatalog;
+    private final CategoryFacets categoryFacets;
+    private final SaleSearchIndex saleSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructeur du service de clôture.
+     *
+     * @param saleDao             DAO de gestion des ventes
+     * @param userDao             DAO de gestion des utilisateurs, pour le débit du gagnant
+     * @param creditHoldDao       DAO des réservations de crédit
+     * @param creditLedger        registre en mémoire des réservations
+     * @param sequencer           séquenceur des enchères, présent en mode {@code sequencer}
+     * @param saleEventBus        bus de diffusion des mises à jour de ventes
+     * @param priceHistory        historique de prix des ventes
+     * @param saleCatalog         cache du catalogue des ventes
+     * @param categoryFacets      compteurs des ventes par catégorie
+     * @param saleSearchIndex     index plein texte des ventes en cours
+     * @param transactionTemplate template de la transaction de clôture
+     */
+    public SaleCloser(SaleDao saleDao,
+                      UserDao userDao,
+                      CreditHoldDao creditHoldDao,
+                      CreditLedger creditLedger,
+                      Optional<BidSequencer> sequencer,
+                      SaleEventBus saleEventBus,
+                      PriceHistory priceHistory,
+                      SaleCatalog saleCatalog,
+                      CategoryFacets categoryFacets,
+                      SaleSearchIndex saleSearchIndex,
+                      TransactionTemplate transactionTemplate) {
+        this.saleDao = saleDao;
+        this.userDao = userDao;
+        this.creditHoldDao = creditHoldDao;
+        this.creditLedger = creditLedger;
+        this.sequencer = sequencer;
+        this.saleEventBus = saleEventBus;
+        this.priceHistory = priceHistory;
+        this.saleCatalog = saleCatalog;
+        this.categoryFacets = categoryFacets;
+        this.saleSearchIndex = saleSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Clôture une vente.
+     *
+     * @param saleId identifiant de la vente
+     * @return vrai si la vente a été clôturée par cet appel, faux si elle était déjà clôturée
+     *         ou si sa date de fin n'est pas atteinte
+     */
+    public boolean close(long saleId) {
+        sequencer.ifPresent(s -> s.freeze(saleId).join());
+
+        Closing closing = transactionTemplate.execute(status -> {
+            Optional<Sale> closed = saleDao.close(saleId, LocalDateTime.now());
+            if (closed.isEmpty()) {
+                return null;
+            }
+            long winnerId = closed.get().getLeaderId();
+            if (winnerId != 0) {
+                int price = closed.get().getSalePrice();
+                userDao.debitCredits(List.of(new CreditHold(winnerId, saleId, price)));
+            }
+            return new Closing(closed.get(), creditHoldDao.deleteBySale(saleId));
+        });
+
+        if (closing == null) {
+            // Date de fin repoussée ou vente déjà clôturée : le gel est levé en oubliant le carnet.
+            sequencer.ifPresent(s -> s.evict(saleId));
+            return false;
+        }
+        long winnerId = closing.sale().getLeaderId();
+        List<CreditHold> released = new ArrayList<>();
+        for (CreditHold hold : closing.holds()) {
+            if (hold.getUserId() != winnerId) {
+                CreditHold freed = creditLedger.release(hold.getUserId(), saleId);
+                if (freed != null) {
+                    released.add(freed);
+                }
+            }
+        }
+        // Réservations déjà supprimées par la clôture
+        creditLedger.purged(released);
+        if (winnerId != 0) {
+            creditLedger.settle(winnerId, saleId, closing.sale().getSalePrice());
+        }
+        sequencer.ifPresent(s -> s.evict(saleId));
+        priceHistory.close(saleId);
+        saleCatalog.onClose(saleId);
+        categoryFacets.onClose(saleId);
+        saleSearchIndex.remove(saleId);
+        saleEventBus.publish(SaleEventDto.of(closing.sale().toDTO()));
+        return true;
+    }
+
+    private record Closing(Sale sale, List<CreditHold> holds) {
+    }
+}
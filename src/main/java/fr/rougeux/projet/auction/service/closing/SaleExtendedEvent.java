@@ -0,0 +1,16 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement publié lorsqu'une enchère repousse la date de fin d'une vente (clôture progressive).
+ * Le {@link SaleCloseScheduler} y replanifie la clôture sans relire la vente en base.
+ *
+ * @param saleId     identifiant de la vente
+ * @param endingDate nouvelle date de fin
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public record SaleExtendedEvent(long saleId, LocalDateTime endingDate) {
+}
@@ -0,0 +1,66 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import fr.rougeux.projet.auction.bo.Sale;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Paramètres de la clôture progressive (anti-sniping) des ventes.
+ * <p>
+ * Une enchère acceptée dans les {@code app.sale.soft-close.window-seconds} dernières secondes
+ * d'une vente repousse sa date de fin de {@code app.sale.soft-close.extension-seconds}.
+ * La prolongation est appliquée avec l'acceptation de l'enchère : dans l'UPDATE de <b>SALES</b>
+ * en modes transactionnel et compare-and-set, dans le carnet du {@link fr.rougeux.projet.auction.service.engine.BidSequencer}
+ * en mode séquenceur. La nouvelle date de fin est ensuite publiée par un {@link SaleExtendedEvent}.
+ * Une fenêtre nulle désactive la prolongation.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class SoftClose {
+
+    private final Duration window;
+    private final Duration extension;
+
+    /**
+     * Constructeur des paramètres de clôture progressive.
+     *
+     * @param windowSeconds    fenêtre de fin de vente déclenchant la prolongation, en secondes
+     * @param extensionSeconds durée de la prolongation, en secondes
+     */
+    public SoftClose(@Value("${app.sale.soft-close.window-seconds:0}") long windowSeconds,
+                     @Value("${app.sale.soft-close.extension-seconds:0}") long extensionSeconds) {
+        this.window = Duration.ofSeconds(windowSeconds);
+        this.extension = Duration.ofSeconds(extensionSeconds);
+    }
+
+    /**
+     * @return la fenêtre de fin de vente déclenchant la prolongation
+     */
+    public Duration window() {
+        return window;
+    }
+
+    /**
+     * @return la durée de la prolongation
+     */
+    public Duration extension() {
+        return extension;
+    }
+
+    /**
+     * Prolonge en mémoire une vente si l'enchère tombe dans sa fenêtre de fin.
+     *
+     * @param sale    vente de l'enchère
+     * @param bidTime horodatage de l'enchère acceptée
+     * @return vrai si la date de fin de la vente a été repoussée
+     */
+    public boolean extend(Sale sale, LocalDateTime bidTime) {
+        return sale.extendEnding(bidTime, window, extension);
+    }
+}
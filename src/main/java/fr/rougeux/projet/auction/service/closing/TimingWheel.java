@@ -0,0 +1,278 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Minuterie hiérarchique à roues (hierarchical timing wheel).
+ * <p>
+ * La première roue compte {@code wheelSize} cases d'un tick ; chaque roue supérieure, créée
+ * à la demande, compte autant de cases couvrant chacune l'intervalle complet de la roue
+ * inférieure. Une échéance est rangée dans la case de la plus petite roue qui la couvre :
+ * l'ajout et l'annulation se font en temps constant (liste doublement chaînée par case),
+ * quel que soit le nombre d'échéances en attente.
+ * </p>
+ * <p>
+ * Seules les cases non vides sont placées dans une {@link DelayQueue} : le thread qui appelle
+ * {@link #advance} dort jusqu'à la prochaine case échue, sans réveil à chaque tick. À l'échéance
+ * d'une case, ses entrées sont soit exécutées, soit redescendues dans une roue plus fine.
+ * Les tâches échues sont confiées à l'{@link Executor} fourni.
+ * </p>
+ * <p>
+ * Les échéances sont exprimées en millisecondes depuis l'epoch, lues sur l'horloge fournie
+ * ({@code System::currentTimeMillis} en production). Toutes les opérations sont synchronisées sur l'instance.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public class TimingWheel {
+
+    private final int wheelSize;
+    private final LongSupplier clock;
+    private final Executor executor;
+    private final DelayQueue<Bucket> queue = new DelayQueue<>();
+    private final Wheel root;
+    private int size;
+
+    /**
+     * Construit la minuterie.
+     *
+     * @param tickMs    durée d'un tick de la première roue, en millisecondes
+     * @param wheelSize nombre de cases de chaque roue
+     * @param clock     horloge, en millisecondes depuis l'epoch ; l'instant de départ est lu à la construction
+     * @param executor  exécuteur des tâches échues
+     */
+    public TimingWheel(long tickMs, int wheelSize, LongSupplier clock, Executor executor) {
+        this.wheelSize = wheelSize;
+        this.clock = clock;
+        this.executor = executor;
+        this.root = new Wheel(tickMs, clock.getAsLong());
+    }
+
+    /**
+     * Planifie une tâche. Une échéance déjà atteinte selon l'horloge est exécutée immédiatement,
+     * même si les roues n'ont pas avancé jusqu'à l'instant courant.
+     *
+     * @param deadlineMs échéance, en millisecondes depuis l'epoch
+     * @param task       tâche à exécuter
+     * @return l'échéance planifiée, annulable
+     */
+    public synchronized Timeout schedule(long deadlineMs, Runnable task) {
+        Timeout timeout = new Timeout(deadlineMs, task);
+        if (deadlineMs <= clock.getAsLong()) {
+            expire(timeout);
+        } else {
+            add(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Attend la prochaine case échue puis fait avancer les roues jusqu'à elle,
+     * en exécutant ou redescendant ses entrées.
+     *
+     * @param maxWaitMs durée d'attente maximale, en millisecondes
+     * @return vrai si au moins une case est arrivée à échéance
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     */
+    public boolean advance(long maxWaitMs) throws InterruptedException {
+        Bucket bucket = queue.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return false;
+        }
+        synchronized (this) {
+            while (bucket != null) {
+                root.advanceClock(bucket.expiration);
+                bucket.flush(this::add);
+                bucket = queue.poll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return le nombre d'échéances en attente
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void add(Timeout timeout) {
+        if (!root.add(timeout)) {
+            expire(timeout);
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        size--;
+        executor.execute(timeout.task);
+    }
+
+    /**
+     * Échéance planifiée dans la minuterie.
+     */
+    public final class Timeout {
+
+        private final long deadlineMs;
+        private final Runnable task;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(long deadlineMs, Runnable task) {
+            this.deadlineMs = deadlineMs;
+            this.task = task;
+            size++;
+        }
+
+        /**
+         * @return l'échéance, en millisecondes depuis l'epoch
+         */
+        public long deadlineMs() {
+            return deadlineMs;
+        }
+
+        /**
+         * Annule l'échéance si elle n'a pas encore été déclenchée.
+         *
+         * @return vrai si l'échéance a été annulée, faux si elle a déjà été déclenchée ou annulée
+         */
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Roue de {@code wheelSize} cases d'une durée de {@code tick} millisecondes.
+     */
+    private final class Wheel {
+
+        private final long tick;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private Wheel overflow;
+
+        private Wheel(long tick, long startMs) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMs - (startMs % tick);
+        }
+
+        /**
+         * Range une échéance dans cette roue ou dans une roue supérieure.
+         *
+         * @return faux si l'échéance est déjà atteinte
+         */
+        private boolean add(Timeout timeout) {
+            long deadline = timeout.deadlineMs;
+            if (deadline < currentTime + tick) {
+                return false;
+            }
+            if (deadline < currentTime + interval) {
+                long virtualId = deadline / tick;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                if (bucket.setExpiration(virtualId * tick)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Wheel(interval, currentTime);
+            }
+            return overflow.add(timeout);
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tick) {
+                currentTime = timeMs - (timeMs % tick);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * Case d'une roue : liste doublement chaînée d'échéances.
+     */
+    private final class Bucket implements Delayed {
+
+        private Timeout head;
+        private long expiration = -1;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Vide la case et transmet chacune de ses échéances.
+         */
+        private void flush(Consumer<Timeout> consumer) {
+            expiration = -1;
+            while (head != null) {
+                Timeout timeout = head;
+                remove(timeout);
+                consumer.accept(timeout);
+            }
+        }
+
+        /**
+         * @return vrai si l'échéance de la case a changé, auquel cas elle doit être replacée dans la file
+         */
+        private boolean setExpiration(long expirationMs) {
+            if (expiration == expirationMs) {
+                return false;
+            }
+            expiration = expirationMs;
+            return true;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiration - clock.getAsLong(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiration, ((Bucket) other).expiration);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package fr.rougeux.projet.auction.service.credit;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.bo.User;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registre en mémoire des réservations de crédit des enchérisseurs.
+ * <p>
+ * Chaque compte chargé porte le crédit de l'utilisateur, le total réservé et une réservation
+ * par vente sur laquelle il a enchéri. Une enchère ne modifie qu'une réservation, en temps
+ * constant, sous le verrou de son seul compte ; le crédit disponible est
+ * {@code credit - total réservé}. La table USERS n'est plus écrite à chaque enchère :
+ * seules les lignes de CREDIT_HOLDS le sont.
+ * </p>
+ * <p>
+ * Les réservations des enchérisseurs dépassés sont libérées immédiatement en mémoire,
+ * puis supprimées en base par lots ({@link #drainPurges}). Le registre fait foi pour
+ * l'instance qui l'héberge ; un compte est rechargé depuis la base après un échec d'écriture.
+ * </p>
+ * <p>
+ * Un compte n'est gardé en mémoire que tant qu'il porte une réservation, ou qu'une réservation
+ * libérée n'est pas encore supprimée en base : le registre ne croît qu'avec le nombre
+ * d'enchérisseurs actifs. Les comptes chargés sans qu'aucune réservation n'ait suivi (enchère refusée,
+ * connexion sans enchère) sont retirés toutes les {@code app.credit.ledger.sweep-ms}.
+ * Un compte retiré est rechargé depuis l'utilisateur relu en base à sa prochaine enchère ({@link #isLoaded}).
+ * </p>
+ * <p>
+ * Le registre suppose une seule instance de l'application : un compte est chargé une fois depuis
+ * CREDIT_HOLDS, puis ne voit plus les réservations écrites par une autre instance. Les modes
+ * {@code transactional} et {@code sequencer} ne doivent donc pas être répartis sur plusieurs instances ;
+ * le mode {@code cas} vérifie de plus le crédit contre la somme des réservations en base, dans la
+ * transaction de l'enchère ({@link CreditHoldDao#coversHold}).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class CreditLedger {
+
+    private final CreditHoldDao creditHoldDao;
+
+    /** Comptes chargés, indexés par identifiant d'utilisateur */
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    /** Réservations libérées en mémoire, en attente de suppression en base */
+    private final Queue<CreditHold> pendingPurges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructeur du registre.
+     *
+     * @param creditHoldDao DAO des réservations, utilisé au chargement d'un compte
+     */
+    public CreditLedger(CreditHoldDao creditHoldDao) {
+        this.creditHoldDao = creditHoldDao;
+    }
+
+    /**
+     * Charge le compte d'un utilisateur s'il ne l'est pas encore.
+     * <p>
+     * À appeler hors de tout worker de séquencement : le premier chargement lit
+     * les réservations de l'utilisateur en base.
+     * </p>
+     *
+     * @param user utilisateur lu en base, dont le crédit initialise le compte
+     */
+    public void load(User user) {
+        account(user);
+    }
+
+    /**
+     * Prépare la validation d'une enchère ({@link Bid#validateBid(int)}) : le crédit de son auteur
+     * devient son crédit disponible, et sa réservation actuelle sur la vente est renvoyée.
+     * <p>
+     * La validation n'engage rien : {@link #reserve} vérifie de nouveau le crédit, sous le verrou du compte.
+     * </p>
+     *
+     * @param bid    enchère portant son utilisateur
+     * @param saleId identifiant de la vente
+     * @return la réservation de l'utilisateur sur la vente, 0 s'il n'en a pas
+     */
+    public int previousHold(Bid bid, long saleId) {
+        User user = bid.getUser();
+        Account account = account(user);
+        synchronized (account) {
+            user.setCredit(account.available());
+            return account.holds.getOrDefault(saleId, 0);
+        }
+    }
+
+    /**
+     * Réserve le montant d'une enchère sur le crédit de son auteur.
+     * <p>
+     * La réservation de l'utilisateur sur la vente est portée au plafond de l'enchère
+     * ({@link Bid#getProxyLimit()}, son enchère maximale s'il en a fixé une) :
+     * seule la différence avec sa précédente réservation est engagée, selon la règle
+     * de {@link Bid#checkUserCanBid(int)}. En retour, le crédit de l'utilisateur
+     * porté par l'enchère est son crédit disponible.
+     * </p>
+     *
+     * @param bid    enchère portant son utilisateur et son montant
+     * @param saleId identifiant de la vente
+     * @return la réservation effectuée, annulable par {@link #cancel}
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si le crédit disponible est insuffisant
+     */
+    public Reservation reserve(Bid bid, long saleId) {
+        User user = bid.getUser();
+        while (true) {
+            Account account = account(user);
+            synchronized (account) {
+                if (account.retired) {
+                    // Retiré entre sa lecture et son verrou : le compte est rechargé
+                    continue;
+                }
+                int previous = account.holds.getOrDefault(saleId, 0);
+                user.setCredit(account.available());
+                try {
+                    bid.checkUserCanBid(previous);
+                } catch (RuntimeException e) {
+                    retireIfIdle(user.getUserId(), account);
+                    throw e;
+                }
+
+                int limit = bid.getProxyLimit();
+                account.holds.put(saleId, limit);
+                account.held += limit - previous;
+                return new Reservation(user.getUserId(), saleId, previous, limit);
+            }
+        }
+    }
+
+    /**
+     * Annule une réservation dont l'enchère n'a finalement pas été acceptée.
+     *
+     * @param reservation réservation renvoyée par {@link #reserve}
+     */
+    public void cancel(Reservation reservation) {
+        Account account = accounts.get(reservation.userId());
+        if (account == null) {
+            return;
+        }
+        synchronized (account) {
+            Integer current = account.holds.get(reservation.saleId());
+            if (current == null || current != reservation.amount()) {
+                return;
+            }
+            if (reservation.previousAmount() > 0) {
+                account.holds.put(reservation.saleId(), reservation.previousAmount());
+            } else {
+                account.holds.remove(reservation.saleId());
+            }
+            account.held -= reservation.amount() - reservation.previousAmount();
+            retireIfIdle(reservation.userId(), account);
+        }
+    }
+
+    /**
+     * Libère en mémoire la réservation d'un utilisateur sur une vente (enchérisseur dépassé
+     * ou vente perdue). La suppression en base doit ensuite être planifiée par {@link #schedulePurge},
+     * ou signalée par {@link #purged} si elle est déjà faite : le compte est gardé jusque-là.
+     *
+     * @param userId identifiant de l'utilisateur
+     * @param saleId identifiant de la vente
+     * @return la réservation libérée, ou {@code null} si l'utilisateur n'en avait pas
+     */
+    public CreditHold release(long userId, long saleId) {
+        Account account = accounts.get(userId);
+        if (account == null) {
+            return null;
+        }
+        synchronized (account) {
+            Integer amount = account.holds.remove(saleId);
+            if (amount == null) {
+                return null;
+            }
+            account.held -= amount;
+            account.purging++;
+            return new CreditHold(userId, saleId, amount);
+        }
+    }
+
+    /**
+     * Convertit en débit la réservation du gagnant d'une vente : la réservation est libérée
+     * et le crédit du compte diminue du prix final, qui peut être inférieur au montant réservé
+     * (enchère maximale).
+     *
+     * @param userId identifiant du gagnant
+     * @param saleId identifiant de la vente
+     * @param price  prix final de la vente
+     */
+    public void settle(long userId, long saleId, int price) {
+        Account account = accounts.get(userId);
+        if (account == null) {
+            return;
+        }
+        synchronized (account) {
+            Integer amount = account.holds.remove(saleId);
+            if (amount != null) {
+                account.held -= amount;
+            }
+            account.credit -= price;
+            retireIfIdle(userId, account);
+        }
+    }
+
+    /**
+     * Planifie la suppression en base d'une réservation libérée.
+     * <p>
+     * À n'appeler qu'une fois l'écriture de la réservation validée, pour que la suppression
+     * ne puisse pas la précéder.
+     * </p>
+     *
+     * @param hold réservation libérée
+     */
+    public void schedulePurge(CreditHold hold) {
+        pendingPurges.add(hold);
+    }
+
+    /**
+     * Signale la suppression en base de réservations libérées par {@link #release} ;
+     * les comptes qui n'ont plus rien en cours sont retirés du registre.
+     *
+     * @param holds réservations supprimées
+     */
+    public void purged(List<CreditHold> holds) {
+        for (CreditHold hold : holds) {
+            Account account = accounts.get(hold.getUserId());
+            if (account == null) {
+                continue;
+            }
+            synchronized (account) {
+                if (account.purging > 0) {
+                    account.purging--;
+                }
+                retireIfIdle(hold.getUserId(), account);
+            }
+        }
+    }
+
+    /**
+     * Retire de la file les réservations en attente de suppression.
+     *
+     * @param max nombre maximal de réservations retirées
+     * @return le lot de réservations à supprimer en base
+     */
+    public List<CreditHold> drainPurges(int max) {
+        List<CreditHold> batch = new ArrayList<>();
+        CreditHold hold;
+        while (batch.size() < max && (hold = pendingPurges.poll()) != null) {
+            batch.add(hold);
+        }
+        return batch;
+    }
+
+    /**
+     * @param userId identifiant de l'utilisateur
+     * @return vrai si le compte de l'utilisateur est chargé ; sinon, il doit être rechargé
+     *         depuis un utilisateur relu en base
+     */
+    public boolean isLoaded(long userId) {
+        return accounts.containsKey(userId);
+    }
+
+    /**
+     * Oublie le compte d'un utilisateur, qui sera rechargé depuis la base à sa prochaine enchère.
+     *
+     * @param userId identifiant de l'utilisateur
+     */
+    public void evict(long userId) {
+        Account account = accounts.remove(userId);
+        if (account != null) {
+            synchronized (account) {
+                account.retired = true;
+            }
+        }
+    }
+
+    /**
+     * Retire du registre les comptes chargés qui n'ont plus ni réservation ni suppression en attente.
+     */
+    @Scheduled(fixedDelayString = "${app.credit.ledger.sweep-ms:60000}")
+    public void retireIdle() {
+        accounts.forEach((userId, account) -> {
+            synchronized (account) {
+                retireIfIdle(userId, account);
+            }
+        });
+    }
+
+    /**
+     * Retire du registre un compte sans réservation ni suppression en attente. À appeler sous son verrou.
+     */
+    private void retireIfIdle(long userId, Account account) {
+        if (account.holds.isEmpty() && account.purging == 0) {
+            account.retired = true;
+            accounts.remove(userId, account);
+        }
+    }
+
+    /**
+     * Retourne le compte d'un utilisateur, en le chargeant depuis la base au premier accès.
+     * Les réservations écrites ensuite par une autre instance n'y figurent pas : voir la note de classe.
+     */
+    private Account account(User user) {
+        Account account = accounts.get(user.getUserId());
+        if (account != null) {
+            return account;
+        }
+        Account loaded = new Account(user.getCredit());
+        for (CreditHold hold : creditHoldDao.readByUserId(user.getUserId())) {
+            loaded.holds.put(hold.getSaleId(), hold.getAmount());
+            loaded.held += hold.getAmount();
+        }
+        Account existing = accounts.putIfAbsent(user.getUserId(), loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Réservation effectuée par {@link #reserve}.
+     *
+     * @param userId         identifiant de l'utilisateur
+     * @param saleId         identifiant de la vente
+     * @param previousAmount montant réservé avant l'enchère (0 si aucun)
+     * @param amount         montant réservé après l'enchère
+     */
+    public record Reservation(long userId, long saleId, int previousAmount, int amount) {
+
+        /**
+         * @return la réservation à enregistrer en base
+         */
+        public CreditHold toHold() {
+            return new CreditHold(userId, saleId, amount);
+        }
+    }
+
+    /**
+     * Compte d'un utilisateur : crédit, total réservé, réservations par vente et réservations
+     * libérées dont la suppression en base est attendue.
+     * Toute lecture ou écriture se fait sous le verrou de l'instance.
+     */
+    private static final class Account {
+        private int credit;
+        private int held;
+        private int purging;
+        /** Vrai une fois le compte retiré du registre : il ne doit plus être modifié */
+        private boolean retired;
+        private final Map<Long, Integer> holds = new HashMap<>();
+
+        private Account(int credit) {
+            this.credit = credit;
+        }
+
+        private int available() {
+            return credit - held;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package fr.rougeux.projet.auction.service.engine;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.bo.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal local en écriture anticipée (write-ahead) des enchères acceptées par le {@link BidSequencer}.
+ * <p>
+ * Chaque enchère est ajoutée à un segment mappé en mémoire puis synchronisée sur disque
+ * ({@code msync}) avant d'être acquittée : la réponse n'attend plus la base, et le {@link BidWriter}
+ * vide le journal dans la table BIDS en arrière-plan. Une entrée est formée de sa longueur,
+ * de son CRC32C et de ses données (numéro de séquence, vente, enchérisseur, horodatage, montant,
+ * montant réservé par le meneur et date de fin de la vente après l'enchère, prolongation comprise).
+ * Les segments ont une taille fixe ({@code app.bid.journal.segment-size-mb}) : un nouveau segment
+ * est ouvert quand le courant est plein, et un segment est supprimé dès que toutes ses entrées
+ * ont été écrites en base.
+ * </p>
+ * <p>
+ * Le point de reprise (dernier numéro de séquence écrit en base sans trou) est conservé dans
+ * le fichier {@code checkpoint}. Au démarrage, les entrées qui le suivent sont relues et
+ * rejouées par le {@link BidWriter} ; le rejeu étant idempotent, un point de reprise en retard
+ * ne fait que rejouer des enchères déjà présentes. La lecture d'un segment s'arrête à la
+ * première entrée tronquée ou dont le CRC est faux (écriture interrompue par un crash).
+ * </p>
+ * <p>
+ * Activé par {@code app.bid.journal.enabled=true}, en mode {@code sequencer} uniquement.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+@ConditionalOnExpression("'${app.bid.mode:transactional}' == 'sequencer' and ${app.bid.journal.enabled:false}")
+public class BidJournal implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BidJournal.class);
+
+    private static final String SEGMENT_PREFIX = "bids-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * Données d'une entrée : séquence, vente, utilisateur, secondes et nanosecondes de l'horodatage, montant,
+     * réservation, secondes et nanosecondes de la date de fin
+     */
+    private static final int PAYLOAD_SIZE = Long.BYTES * 5 + Integer.BYTES * 4;
+
+    /** Entrée complète : longueur, CRC et données */
+    private static final int RECORD_SIZE = Integer.BYTES * 2 + PAYLOAD_SIZE;
+
+    /** Horodatage absent */
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    /** Segments présents sur disque, du plus ancien au courant */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    /** Numéros de séquence journalisés mais pas encore écrits en base */
+    private final NavigableSet<Long> pending = new ConcurrentSkipListSet<>();
+
+    /** Entrées relues au démarrage, en attente de rejeu */
+    private List<Entry> recovered = new ArrayList<>();
+
+    private MappedByteBuffer buffer;
+    private long nextSeq;
+    private long checkpoint;
+
+    /**
+     * Constructeur du journal : relit les segments existants puis ouvre un nouveau segment.
+     *
+     * @param directory     répertoire des segments et du point de reprise
+     * @param segmentSizeMb taille d'un segment, en mégaoctets
+     * @throws IOException si le répertoire ou les segments ne peuvent être lus ou créés
+     */
+    public BidJournal(@Value("${app.bid.journal.dir:journal}") Path directory,
+                      @Value("${app.bid.journal.segment-size-mb:64}") int segmentSizeMb) throws IOException {
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSizeMb * 1024L * 1024L);
+        Files.createDirectories(directory);
+
+        this.checkpoint = readCheckpoint();
+        long lastSeq = checkpoint;
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+            for (Path path : paths) {
+                Segment segment = scan(path);
+                if (segment.lastSeq == 0) {
+                    // Aucune entrée valide : le segment est abandonné
+                    Files.delete(path);
+                    continue;
+                }
+                segments.addLast(segment);
+                lastSeq = Math.max(lastSeq, segment.lastSeq);
+            }
+        }
+        recovered.forEach(entry -> pending.add(entry.seq()));
+        this.nextSeq = lastSeq + 1;
+        roll();
+
+        if (!recovered.isEmpty()) {
+            LOG.warn("Bid journal holds {} entries after checkpoint {}.", recovered.size(), checkpoint);
+        }
+    }
+
+    /**
+     * Ajoute une enchère acceptée au journal et la synchronise sur disque.
+     * <p>
+     * Sans enchère, l'entrée ne porte que la réservation (meneur relevant son enchère maximale) :
+     * elle est journalisée avec un montant nul et relue sans enchère.
+     * </p>
+     *
+     * @param bid  enchère acceptée, portant sa vente et son utilisateur, ou {@code null}
+     * @param hold réservation de crédit de l'auteur de l'enchère sur la vente
+     * @return le numéro de séquence de l'entrée, à signaler par {@link #drained} une fois l'enchère écrite en base
+     * @throws UncheckedIOException si un nouveau segment ne peut être créé
+     */
+    public synchronized long append(Bid bid, CreditHold hold) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            try {
+                roll();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        long seq = nextSeq;
+        int position = buffer.position();
+        LocalDateTime time = bid != null ? bid.getBidTime() : null;
+        LocalDateTime endingDate = bid != null ? bid.getSale().getEndingDate() : null;
+
+        buffer.putInt(PAYLOAD_SIZE);
+        buffer.putInt(0);
+        buffer.putLong(seq);
+        buffer.putLong(hold.getSaleId());
+        buffer.putLong(hold.getUserId());
+        buffer.putLong(time != null ? time.toEpochSecond(ZoneOffset.UTC) : NO_TIME);
+        buffer.putInt(time != null ? time.getNano() : 0);
+        buffer.putInt(bid != null ? bid.getBidAmount() : 0);
+        buffer.putInt(hold.getAmount());
+        buffer.putLong(endingDate != null ? endingDate.toEpochSecond(ZoneOffset.UTC) : NO_TIME);
+        buffer.putInt(endingDate != null ? endingDate.getNano() : 0);
+
+        buffer.putInt(position + Integer.BYTES, crc(buffer, position + Integer.BYTES * 2));
+        buffer.force(position, RECORD_SIZE);
+
+        nextSeq++;
+        segments.getLast().lastSeq = seq;
+        pending.add(seq);
+        return seq;
+    }
+
+    /**
+     * Signale qu'une entrée a été écrite en base (ou abandonnée) et n'a plus à être rejouée.
+     *
+     * @param seq numéro de séquence renvoyé par {@link #append}
+     */
+    public void drained(long seq) {
+        pending.remove(seq);
+    }
+
+    /**
+     * Renvoie, une seule fois, les entrées journalisées au-delà du point de reprise lors du démarrage.
+     *
+     * @return les entrées à rejouer, dans l'ordre de leur séquence
+     */
+    public synchronized List<Entry> recover() {
+        List<Entry> entries = recovered;
+        recovered = List.of();
+        return entries;
+    }
+
+    /**
+     * Avance le point de reprise jusqu'à la dernière entrée écrite en base sans trou,
+     * puis supprime les segments entièrement écrits.
+     * <p>
+     * Le fichier de point de reprise est remplacé de manière atomique mais sans synchronisation :
+     * après un crash, il peut être en retard, ce qui ne provoque qu'un rejeu idempotent.
+     * </p>
+     */
+    public synchronized void checkpoint() {
+        long drainedUpTo = pending.isEmpty() ? nextSeq - 1 : pending.first() - 1;
+        if (drainedUpTo <= checkpoint) {
+            return;
+        }
+        try {
+            Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.write(tmp, ByteBuffer.allocate(Long.BYTES).putLong(0, drainedUpTo).array());
+            Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = drainedUpTo;
+
+            while (segments.size() > 1 && segments.getFirst().lastSeq <= checkpoint) {
+                Files.deleteIfExists(segments.removeFirst().path);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to advance the bid journal checkpoint to {}.", drainedUpTo, e);
+        }
+    }
+
+    /**
+     * @return le nombre d'entrées journalisées pas encore écrites en base
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Ouvre un nouveau segment, nommé d'après le premier numéro de séquence qu'il contiendra.
+     */
+    private void roll() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+        }
+        Path path = directory.resolve("%s%020d%s".formatted(SEGMENT_PREFIX, nextSeq, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segments.addLast(new Segment(path, nextSeq - 1));
+        LOG.info("Bid journal rolled to segment {}.", path.getFileName());
+    }
+
+    /**
+     * Relit un segment existant et conserve ses entrées postérieures au point de reprise.
+     */
+    private Segment scan(Path path) throws IOException {
+        Segment segment = new Segment(path, 0);
+        ByteBuffer read;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        while (read.remaining() >= Integer.BYTES) {
+            int position = read.position();
+            int length = read.getInt();
+            if (length == 0) {
+                break;
+            }
+            if (length != PAYLOAD_SIZE || read.remaining() < Integer.BYTES + PAYLOAD_SIZE) {
+                LOG.warn("Truncated entry at offset {} of bid journal segment {}.", position, path.getFileName());
+                break;
+            }
+            int expected = read.getInt();
+            if (crc(read, position + Integer.BYTES * 2) != expected) {
+                LOG.warn("Corrupted entry at offset {} of bid journal segment {}.", position, path.getFileName());
+                break;
+            }
+
+            long seq = read.getLong();
+            long saleId = read.getLong();
+            long userId = read.getLong();
+            long epochSecond = read.getLong();
+            int nano = read.getInt();
+            int amount = read.getInt();
+            int held = read.getInt();
+            LocalDateTime endingDate = toDate(read.getLong(), read.getInt());
+
+            segment.lastSeq = seq;
+            if (seq > checkpoint) {
+                recovered.add(new Entry(seq, amount != 0 ? toBid(saleId, userId, amount, toDate(epochSecond, nano), endingDate) : null,
+                        new CreditHold(userId, saleId, held)));
+            }
+        }
+        return segment;
+    }
+
+    private static Bid toBid(long saleId, long userId, int amount, LocalDateTime time, LocalDateTime endingDate) {
+        Sale sale = new Sale();
+        sale.setSaleId(saleId);
+        sale.setEndingDate(endingDate);
+        User user = new User();
+        user.setUserId(userId);
+
+        Bid bid = new Bid();
+        bid.setSale(sale);
+        bid.setUser(user);
+        bid.setBidAmount(amount);
+        bid.setBidTime(time);
+        return bid;
+    }
+
+    private static LocalDateTime toDate(long epochSecond, int nano) {
+        return epochSecond != NO_TIME ? LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC) : null;
+    }
+
+    private static int crc(ByteBuffer source, int payloadOffset) {
+        CRC32C crc = new CRC32C();
+        crc.update(source.slice(payloadOffset, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    /**
+     * Synchronise le segment courant et enregistre le point de reprise à l'arrêt de l'application.
+     */
+    @Override
+    public synchronized void destroy() {
+        buffer.force();
+        checkpoint();
+        if (!pending.isEmpty()) {
+            LOG.warn("Bid journal stopped with {} entries to replay at next startup.", pending.size());
+        }
+    }
+
+    /**
+     * Entrée relue au démarrage : numéro de séquence, enchère (portant les seuls identifiants
+     * de sa vente et de son utilisateur, et la date de fin de la vente) et réservation de crédit de son auteur.
+     *
+     * @param seq  numéro de séquence de l'entrée
+     * @param bid  enchère journalisée, {@code null} pour une entrée ne portant que la réservation
+     * @param hold réservation de crédit de l'auteur de l'enchère sur la vente
+     */
+    public record Entry(long seq, Bid bid, CreditHold hold) {
+    }
+
+    /**
+     * Segment sur disque et dernier numéro de séquence qu'il contient.
+     */
+    private static final class Segment {
+        private final Path path;
+        private long lastSeq;
+
+        private Segment(Path path, long lastSeq) {
+            this.path = path;
+            this.lastSeq = lastSeq;
+        }
+    }
+}
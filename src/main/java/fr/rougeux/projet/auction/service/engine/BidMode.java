@@ -0,0 +1,19 @@
+package fr.rougeux.projet.auction.service.engine;
+
+/**
+ * Modes d'acceptation des enchères, sélectionnés par la propriété {@code app.bid.mode}.
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public enum BidMode {
+
+    /** Relecture de la vente et de ses enchères puis insertion, dans une même transaction */
+    TRANSACTIONAL,
+
+    /** Acceptation décidée par un UPDATE conditionnel sur le prix de la vente (compare-and-set) */
+    CAS,
+
+    /** Validation en mémoire par le {@link BidSequencer} de la vente, persistance asynchrone */
+    SEQUENCER
+}
@@ -0,0 +1,437 @@
+package fr.rougeux.projet.auction.service.engine;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
+import fr.rougeux.projet.auction.exception.BusinessException;
+import fr.rougeux.projet.auction.exception.NotFoundException;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.service.catalog.SaleCatalog;
+import fr.rougeux.projet.auction.service.closing.SaleExtendedEvent;
+import fr.rougeux.projet.auction.service.closing.SoftClose;
+import fr.rougeux.projet.auction.service.credit.CreditLedger;
+import fr.rougeux.projet.auction.service.event.SaleEventBus;
+import fr.rougeux.projet.auction.service.history.PriceHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Séquenceur d'enchères à écrivain unique par vente.
+ * <p>
+ * Les ventes sont réparties sur un nombre fixe de workers mono-thread
+ * ({@code saleId mod workers}) : toutes les enchères d'une même vente sont donc
+ * traitées séquentiellement par le même thread, sans verrou ni transaction.
+ * Chaque worker tient en mémoire un {@link SaleBook} par vente, chargé depuis la base
+ * lors de la première enchère, qui fait foi pour le prix courant et le meneur.
+ * Le crédit de l'enchérisseur est réservé dans le {@link CreditLedger} ; celui du meneur
+ * dépassé y est libéré. Les enchères acceptées sont persistées de manière asynchrone
+ * par le {@link BidWriter}, après journalisation locale par le {@link BidJournal} s'il est activé.
+ * </p>
+ * <p>
+ * Une enchère peut fixer une enchère maximale ({@link Bid#getMaxAmount()}) : le séquenceur enchérit
+ * alors pour son auteur, par incréments de {@code app.bid.proxy.increment}. La confrontation avec
+ * l'enchère maximale du meneur est résolue en une seule étape par le {@link SaleBook} et ne produit
+ * qu'une enchère visible, seule persistée. L'enchère maximale du meneur est sa réservation de crédit
+ * sur la vente : elle est relue depuis CREDIT_HOLDS au chargement du carnet.
+ * </p>
+ * <p>
+ * La clôture progressive ({@link SoftClose}) est appliquée au carnet par le thread du shard, dans
+ * la même étape que l'acceptation : la date de fin prolongée est persistée avec l'enchère et publiée
+ * aussitôt par un {@link SaleExtendedEvent}. À la clôture, la vente est gelée ({@link #freeze}).
+ * </p>
+ * <p>
+ * Une enchère validée en base est reportée dans le cache du catalogue ({@link SaleCatalog}),
+ * et ajoutée à l'historique de prix de sa vente ({@link PriceHistory}) par le thread du shard.
+ * Si son écriture échoue, l'état en mémoire a divergé de la base : le carnet est oublié, pour être relu
+ * à la prochaine enchère, et l'état de la vente en base est diffusé aux abonnés ({@link SaleEventBus#correct}),
+ * l'enchère ayant pu être acquittée et diffusée dès sa journalisation.
+ * </p>
+ * <p>
+ * L'état en mémoire n'est valable que pour une seule instance de l'application :
+ * ce mode suppose que toutes les enchères d'une vente arrivent sur le même nœud.
+ * Activé par {@code app.bid.mode=sequencer}.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "app.bid.mode", havingValue = "sequencer")
+public class BidSequencer implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BidSequencer.class);
+
+    private final SaleDao saleDao;
+    private final CreditHoldDao creditHoldDao;
+    private final BidWriter bidWriter;
+    private final CreditLedger creditLedger;
+    private final SoftClose softClose;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PriceHistory priceHistory;
+    private final SaleCatalog saleCatalog;
+    private final SaleEventBus saleEventBus;
+    private final int topBids;
+    private final int proxyIncrement;
+    private final boolean ackOnCommit;
+
+    /** Workers mono-thread, un par shard */
+    private final ExecutorService[] workers;
+
+    /** Carnets de chaque shard, confinés au thread de leur worker */
+    private final Map<Long, SaleBook>[] books;
+
+    /**
+     * Constructeur du séquenceur.
+     *
+     * @param saleDao   DAO de gestion des ventes, utilisé au chargement d'un carnet
+     * @param creditHoldDao DAO des réservations de crédit, utilisé au chargement de l'enchère maximale du meneur
+     * @param bidWriter writer asynchrone des enchères acceptées
+     * @param creditLedger registre des réservations de crédit
+     * @param softClose paramètres de la clôture progressive
+     * @param eventPublisher publication des prolongations de vente
+     * @param priceHistory historique de prix des ventes
+     * @param saleCatalog cache du catalogue des ventes
+     * @param saleEventBus bus de diffusion des mises à jour de ventes, pour corriger une enchère abandonnée
+     * @param workers   nombre de workers entre lesquels les ventes sont réparties
+     * @param topBids   nombre d'enchères conservées par vente pour la réponse
+     * @param proxyIncrement incrément des enchères automatiques
+     * @param ackOnCommit si vrai, la réponse attend la validation en base de l'enchère
+     */
+    @SuppressWarnings("unchecked")
+    public BidSequencer(SaleDao saleDao,
+                        CreditHoldDao creditHoldDao,
+                        BidWriter bidWriter,
+                        CreditLedger creditLedger,
+                        SoftClose softClose,
+                        ApplicationEventPublisher eventPublisher,
+                        PriceHistory priceHistory,
+                        SaleCatalog saleCatalog,
+                        SaleEventBus saleEventBus,
+                        @Value("${app.bid.sequencer.workers:4}") int workers,
+                        @Value("${app.bid.sequencer.top-bids:20}") int topBids,
+                        @Value("${app.bid.proxy.increment:1}") int proxyIncrement,
+                        @Value("${app.bid.writer.ack-on-commit:true}") boolean ackOnCommit) {
+        this.saleDao = saleDao;
+        this.creditHoldDao = creditHoldDao;
+        this.bidWriter = bidWriter;
+        this.creditLedger = creditLedger;
+        this.softClose = softClose;
+        this.eventPublisher = eventPublisher;
+        this.priceHistory = priceHistory;
+        this.saleCatalog = saleCatalog;
+        this.saleEventBus = saleEventBus;
+        this.topBids = topBids;
+        this.proxyIncrement = proxyIncrement;
+        this.ackOnCommit = ackOnCommit;
+        this.workers = new ExecutorService[workers];
+        this.books = new Map[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "bid-sequencer-" + i;
+            this.workers[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+            this.books[i] = new HashMap<>();
+        }
+    }
+
+    /**
+     * Soumet une enchère au worker de sa vente.
+     * <p>
+     * La décision est complétée avec une copie de la vente (prix courant et plus hautes enchères)
+     * dès l'acceptation en mémoire, ou en erreur avec une
+     * {@link fr.rougeux.projet.auction.exception.BusinessException} si une règle métier la refuse.
+     * La durabilité est complétée une fois l'enchère journalisée par le {@link BidJournal} s'il est
+     * activé, validée en base par le {@link BidWriter} sinon, ou en erreur si sa persistance échoue ;
+     * si {@code app.bid.writer.ack-on-commit} vaut {@code false}, elle l'est avec la décision.
+     * </p>
+     *
+     * @param saleId identifiant de la vente
+     * @param bid    enchère portant l'utilisateur et le montant, horodatée à son acceptation
+     * @return la soumission, à abandonner ({@link Submission#abandon}) si sa décision se fait attendre
+     */
+    public Submission submit(long saleId, Bid bid) {
+        int shard = Math.floorMod(saleId, workers.length);
+        Submission submission = new Submission();
+        workers[shard].execute(() -> {
+            if (!submission.claimed.compareAndSet(false, true)) {
+                // Abandonnée avant d'être traitée : l'enchère n'est pas appliquée
+                return;
+            }
+            Accepted accepted;
+            try {
+                accepted = accept(shard, saleId, bid);
+            } catch (RuntimeException e) {
+                submission.decision.completeExceptionally(e);
+                submission.durable.completeExceptionally(e);
+                return;
+            }
+            submission.decision.complete(accepted.sale());
+            if (ackOnCommit) {
+                accepted.durable().whenComplete((v, e) -> {
+                    if (e == null) {
+                        submission.durable.complete(null);
+                    } else {
+                        submission.durable.completeExceptionally(e);
+                    }
+                });
+            } else {
+                submission.durable.complete(null);
+            }
+        });
+        return submission;
+    }
+
+    /**
+     * Valide et résout une enchère sur le thread de son shard.
+     * <p>
+     * Le crédit de l'enchérisseur est réservé à hauteur de son plafond ; si l'enchère maximale
+     * du meneur l'emporte, cette réservation est aussitôt annulée et seule l'enchère automatique
+     * du meneur est persistée. Le meneur peut relever son enchère maximale sans dépasser le prix
+     * courant : seule sa réservation est alors relevée et persistée, sans enchère visible
+     * ({@link #raiseLeaderMax}). L'enchère est horodatée ici, à l'heure du serveur : la prolongation
+     * de la vente suit l'ordre d'acceptation, quel que soit le temps passé en file.
+     * </p>
+     */
+    private Accepted accept(int shard, long saleId, Bid bid) {
+        SaleBook book = books[shard].computeIfAbsent(saleId, this::load);
+
+        long userId = bid.getUser().getUserId();
+        long previousLeader = book.getLeaderId();
+
+        if (book.isClosed()) {
+            throw new BusinessException("bid.sale.over");
+        }
+        bid.setSale(book.getSale());
+        bid.setBidTime(LocalDateTime.now());
+        if (userId == previousLeader && bid.getMaxAmount() != 0 && bid.getBidAmount() <= book.getCurrentPrice()) {
+            return raiseLeaderMax(shard, saleId, book, bid);
+        }
+        bid.validateBid(creditLedger.previousHold(bid, saleId));
+        if (userId == previousLeader && book.getLeaderMax() > bid.getProxyLimit()) {
+            // Le meneur ne peut pas abaisser son enchère maximale
+            bid.setMaxAmount(book.getLeaderMax());
+        }
+        CreditLedger.Reservation reservation = creditLedger.reserve(bid, saleId);
+        Bid visible = book.resolve(bid, proxyIncrement);
+        boolean extended = softClose.extend(book.getSale(), bid.getBidTime());
+        // La vente du carnet reste confinée au shard : le thread d'écriture reçoit son état à l'acceptation
+        visible.setSale(acceptedSale(book.getSale()));
+
+        long leader = book.getLeaderId();
+        CreditHold hold;
+        if (leader == userId) {
+            hold = reservation.toHold();
+        } else {
+            creditLedger.cancel(reservation);
+            hold = new CreditHold(leader, saleId, book.getLeaderMax());
+        }
+
+        CreditHold released = previousLeader != 0 && previousLeader != leader
+                ? creditLedger.release(previousLeader, saleId)
+                : null;
+
+        BidWriter.Ticket ticket = bidWriter.write(visible, hold);
+        book.setLastWrite(ticket.committed());
+        if (extended) {
+            eventPublisher.publishEvent(new SaleExtendedEvent(saleId, book.getSale().getEndingDate()));
+        }
+        Sale snapshot = book.snapshot();
+        ticket.committed().whenComplete((v, e) -> {
+            if (e == null) {
+                if (released != null) {
+                    creditLedger.schedulePurge(released);
+                }
+                saleCatalog.onBid(snapshot.toDTO(), extended);
+                workers[shard].execute(() -> priceHistory.record(saleId, visible.getBidTime(), visible.getBidAmount()));
+                return;
+            }
+            // L'état en mémoire a divergé de la base : il sera relu à la prochaine enchère
+            creditLedger.evict(userId);
+            if (previousLeader != 0) {
+                creditLedger.evict(previousLeader);
+            }
+            workers[shard].execute(() -> {
+                books[shard].remove(saleId);
+                publishStored(saleId);
+            });
+        });
+
+        return new Accepted(snapshot, ticket.durable());
+    }
+
+    /**
+     * Fige ce que l'écriture d'une enchère lit de sa vente : l'identifiant et la date de fin à l'acceptation.
+     * La copie n'est plus modifiée ensuite, et peut être lue sans synchronisation par le thread d'écriture.
+     *
+     * @param sale vente du carnet, modifiée par les enchères suivantes du shard
+     * @return une vente portant le seul identifiant et la date de fin courante
+     */
+    private static Sale acceptedSale(Sale sale) {
+        Sale accepted = new Sale();
+        accepted.setSaleId(sale.getSaleId());
+        accepted.setEndingDate(sale.getEndingDate());
+        return accepted;
+    }
+
+    /**
+     * Diffuse l'état en base d'une vente dont une enchère acceptée n'a pas pu être écrite,
+     * à la place de l'état déjà diffusé qui la comptait.
+     */
+    private void publishStored(long saleId) {
+        try {
+            saleEventBus.correct(SaleEventDto.of(saleDao.readById(saleId).toDTO()));
+        } catch (DataAccessException e) {
+            LOG.error("Failed to publish the stored state of sale {} after a dropped bid.", saleId, e);
+        }
+    }
+
+    /**
+     * Relève l'enchère maximale du meneur sans changer le prix courant : seule sa réservation
+     * est portée au nouveau plafond, puis persistée.
+     *
+     * @throws fr.rougeux.projet.auction.exception.BusinessException si la vente est terminée, si le nouveau
+     *         plafond ne dépasse pas l'actuel, ou si le crédit disponible ne le couvre pas
+     */
+    private Accepted raiseLeaderMax(int shard, long saleId, SaleBook book, Bid bid) {
+        bid.checkSaleStatus();
+        if (bid.getMaxAmount() <= book.getLeaderMax()) {
+            throw new BusinessException("bid.maxAmount.tooLow");
+        }
+        long userId = bid.getUser().getUserId();
+        CreditLedger.Reservation reservation = creditLedger.reserve(bid, saleId);
+        book.raiseLeaderMax(bid.getMaxAmount());
+
+        BidWriter.Ticket ticket = bidWriter.writeHold(reservation.toHold());
+        book.setLastWrite(ticket.committed());
+        ticket.committed().whenComplete((v, e) -> {
+            if (e != null) {
+                creditLedger.evict(userId);
+                workers[shard].execute(() -> books[shard].remove(saleId));
+            }
+        });
+        return new Accepted(book.snapshot(), ticket.durable());
+    }
+
+    /**
+     * Gèle une vente avant sa clôture, sur le thread de son shard : les enchères suivantes
+     * sont refusées.
+     *
+     * @param saleId identifiant de la vente
+     * @return un futur complété une fois écrite en base la dernière enchère acceptée sur la vente
+     *         (qu'elle ait réussi ou non)
+     */
+    public CompletableFuture<Void> freeze(long saleId) {
+        int shard = Math.floorMod(saleId, workers.length);
+        return CompletableFuture.supplyAsync(() -> {
+                    SaleBook book = books[shard].get(saleId);
+                    return book != null ? book.close() : CompletableFuture.<Void>completedFuture(null);
+                }, workers[shard])
+                .thenCompose(Function.identity())
+                .exceptionally(e -> null);
+    }
+
+    /**
+     * Oublie le carnet d'une vente clôturée : une enchère ultérieure la relira, clôturée, depuis la base.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public void evict(long saleId) {
+        int shard = Math.floorMod(saleId, workers.length);
+        workers[shard].execute(() -> books[shard].remove(saleId));
+    }
+
+    /**
+     * Charge l'état d'une vente depuis la base lors de sa première enchère.
+     */
+    private SaleBook load(long saleId) {
+        try {
+            Sale sale = saleDao.readDetail(saleId, topBids);
+            LOG.info("Loading sale {} into the bid sequencer.", saleId);
+            List<Bid> bids = sale.getBids();
+            int leaderMax = bids.isEmpty()
+                    ? 0
+                    : creditHoldDao.readAmount(bids.getFirst().getUser().getUserId(), saleId);
+            return new SaleBook(sale, bids, topBids, leaderMax);
+        } catch (EmptyResultDataAccessException e) {
+            throw new NotFoundException("sale.not.found");
+        }
+    }
+
+    /**
+     * Enchère acceptée en mémoire : état de la vente pour la réponse et futur de sa durabilité.
+     */
+    private record Accepted(Sale sale, CompletableFuture<Void> durable) {
+    }
+
+    /**
+     * Enchère soumise au séquenceur : sa décision, puis sa durabilité.
+     * <p>
+     * Tant que le worker ne l'a pas prise en charge, l'enchère peut être abandonnée : elle ne sera
+     * alors jamais appliquée. Une fois prise en charge, sa décision arrive sans attendre l'écriture
+     * de l'enchère en base.
+     * </p>
+     */
+    public static final class Submission {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Sale> decision = new CompletableFuture<>();
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private Submission() {
+        }
+
+        /**
+         * @return le futur de la décision, complété avec l'état de la vente après acceptation
+         */
+        public CompletableFuture<Sale> decision() {
+            return decision;
+        }
+
+        /**
+         * @return le futur de la durabilité de l'enchère acceptée
+         */
+        public CompletableFuture<Void> durable() {
+            return durable;
+        }
+
+        /**
+         * Abandonne l'enchère si le worker ne l'a pas encore prise en charge.
+         *
+         * @return vrai si l'enchère ne sera jamais appliquée, faux si sa décision est acquise ou en cours
+         */
+        public boolean abandon() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Arrête les workers à la fermeture du contexte.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
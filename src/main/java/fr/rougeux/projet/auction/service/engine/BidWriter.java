@@ -0,0 +1,524 @@
+package fr.rougeux.projet.auction.service.engine;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.exception.BusinessException;
+import fr.rougeux.projet.auction.repository.BidDao;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistance par lots (group commit) des enchères acceptées par le {@link BidSequencer}.
+ * <p>
+ * Les enchères sont placées dans une file bornée, vidée par un thread dédié : le premier
+ * élément ouvre une fenêtre de {@code app.bid.writer.window-ms} pendant laquelle les suivants
+ * sont agrégés, jusqu'à {@code app.bid.writer.batch-size} enchères. Le lot est ensuite écrit
+ * en une seule transaction (insertions, report sur la vente et réservations de crédit en batch JDBC),
+ * et chaque futur n'est complété qu'après validation de cette transaction.
+ * </p>
+ * <p>
+ * Si le lot échoue, ses enchères sont réécrites une à une, pour que seule l'enchère fautive
+ * soit signalée en erreur. Lorsque la file est pleine, l'écriture est refusée immédiatement.
+ * Une réservation relevée sans enchère visible ({@link #writeHold}) suit la même file, pour
+ * ne pas être écrite avant une enchère précédente du même meneur.
+ * </p>
+ * <p>
+ * Si le {@link BidJournal} est activé, chaque enchère y est d'abord journalisée : elle est
+ * durable, et donc acquittable, dès sa synchronisation sur disque, avant son écriture en base.
+ * Une entrée n'est retirée du journal qu'une fois écrite en base, ou abandonnée si la base
+ * la refuse (violation de contrainte) ; le futur de l'enchère, déjà acquittée, est alors complété en erreur
+ * et le {@link BidSequencer} diffuse l'état de la vente relu en base. Après toute autre erreur (base indisponible, délai dépassé),
+ * l'enchère déjà acquittée est réessayée par le thread d'écriture avant les enchères suivantes,
+ * qui attendent dans la file, après un délai doublé à chaque échec de
+ * {@code app.bid.writer.retry-backoff-ms} à {@code app.bid.writer.retry-max-backoff-ms} ;
+ * une nouvelle tentative n'insère pas une enchère déjà présente, ni ne la reporte de nouveau sur sa vente,
+ * au cas où l'échec aurait suivi la validation. Les enchères encore en échec à l'arrêt restent dans le journal et sont rejouées
+ * au prochain démarrage, avant le démarrage du thread d'écriture.
+ * </p>
+ * <p>
+ * Métriques exposées : {@code auction.bid.writer.batch.size} (taille des lots),
+ * {@code auction.bid.writer.commit} (durée des transactions) et
+ * {@code auction.bid.writer.queue.depth} (enchères en attente).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "app.bid.mode", havingValue = "sequencer")
+public class BidWriter implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BidWriter.class);
+
+    private final BidDao bidDao;
+    private final SaleDao saleDao;
+    private final CreditHoldDao creditHoldDao;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<BidJournal> journal;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final long windowNanos;
+    private final long retryBackoffNanos;
+    private final long retryMaxBackoffNanos;
+    private final DistributionSummary batchSizes;
+    private final Timer commitTimer;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /** Enchères journalisées en attente d'une nouvelle tentative, propres au thread d'écriture */
+    private final List<PendingWrite> retries = new ArrayList<>();
+    private long retryAt;
+    private long backoffNanos;
+
+    /**
+     * Constructeur du writer d'enchères.
+     *
+     * @param bidDao              DAO de gestion des enchères
+     * @param saleDao             DAO de gestion des ventes
+     * @param creditHoldDao       DAO des réservations de crédit
+     * @param transactionTemplate template de transaction utilisé pour chaque lot
+     * @param journal             journal local des enchères, présent uniquement s'il est activé
+     * @param meterRegistry       registre des métriques du writer
+     * @param windowMs            durée maximale d'agrégation d'un lot, en millisecondes
+     * @param batchSize           nombre maximal d'enchères par lot
+     * @param queueCapacity       nombre maximal d'enchères en attente d'écriture
+     * @param retryBackoffMs      délai avant la première nouvelle tentative d'une enchère journalisée, en millisecondes
+     * @param retryMaxBackoffMs   délai maximal entre deux tentatives, en millisecondes
+     */
+    public BidWriter(BidDao bidDao,
+                     SaleDao saleDao,
+                     CreditHoldDao creditHoldDao,
+                     TransactionTemplate transactionTemplate,
+                     Optional<BidJournal> journal,
+                     MeterRegistry meterRegistry,
+                     @Value("${app.bid.writer.window-ms:5}") long windowMs,
+                     @Value("${app.bid.writer.batch-size:200}") int batchSize,
+                     @Value("${app.bid.writer.queue-capacity:10000}") int queueCapacity,
+                     @Value("${app.bid.writer.retry-backoff-ms:100}") long retryBackoffMs,
+                     @Value("${app.bid.writer.retry-max-backoff-ms:30000}") long retryMaxBackoffMs) {
+        this.bidDao = bidDao;
+        this.saleDao = saleDao;
+        this.creditHoldDao = creditHoldDao;
+        this.transactionTemplate = transactionTemplate;
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMs);
+        this.retryMaxBackoffNanos = Math.max(retryBackoffNanos, TimeUnit.MILLISECONDS.toNanos(retryMaxBackoffMs));
+        this.backoffNanos = retryBackoffNanos;
+
+        this.batchSizes = DistributionSummary.builder("auction.bid.writer.batch.size")
+                .description("Number of bids committed per transaction")
+                .baseUnit("bids")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("auction.bid.writer.commit")
+                .description("Duration of a bid batch transaction")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("auction.bid.writer.queue.depth", queue, BlockingQueue::size)
+                .description("Bids waiting to be written")
+                .register(meterRegistry);
+        journal.ifPresent(bidJournal -> Gauge.builder("auction.bid.journal.pending", bidJournal, BidJournal::pendingCount)
+                .description("Journaled bids not yet written to the database")
+                .register(meterRegistry));
+
+        journal.ifPresent(this::replay);
+
+        this.thread = new Thread(this::run, "bid-writer");
+        this.thread.start();
+    }
+
+    /**
+     * Planifie la persistance d'une enchère acceptée.
+     * <p>
+     * Si le journal est activé, l'enchère y est ajoutée avant son placement dans la file,
+     * sous le même verrou : l'ordre de la file est celui des numéros de séquence.
+     * </p>
+     *
+     * @param bid  enchère acceptée, portant son utilisateur et sa vente figée à l'acceptation
+     * @param hold réservation de crédit de l'enchérisseur sur la vente
+     * @return les futurs de la durabilité de l'enchère et de son écriture en base
+     */
+    public Ticket write(Bid bid, CreditHold hold) {
+        return enqueue(bid, hold);
+    }
+
+    /**
+     * Planifie la persistance de la réservation relevée d'un meneur, sans enchère visible.
+     *
+     * @param hold nouvelle réservation du meneur sur la vente
+     * @return les futurs de la durabilité de la réservation et de son écriture en base
+     */
+    public Ticket writeHold(CreditHold hold) {
+        return enqueue(null, hold);
+    }
+
+    private Ticket enqueue(Bid bid, CreditHold hold) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (journal.isEmpty()) {
+            if (!running || !queue.offer(new PendingWrite(bid, hold, 0, done))) {
+                reject(hold, done);
+            }
+            return new Ticket(done, done);
+        }
+
+        synchronized (this) {
+            // Le thread d'écriture est le seul consommateur : une place libre le reste jusqu'à l'offre
+            if (!running || queue.remainingCapacity() == 0) {
+                reject(hold, done);
+                return new Ticket(done, done);
+            }
+            long seq;
+            try {
+                seq = journal.get().append(bid, hold);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to journal bid of user {} on sale {}.", hold.getUserId(), hold.getSaleId(), e);
+                done.completeExceptionally(e);
+                return new Ticket(done, done);
+            }
+            queue.offer(new PendingWrite(bid, hold, seq, done));
+        }
+        return new Ticket(CompletableFuture.completedFuture(null), done);
+    }
+
+    private void reject(CreditHold hold, CompletableFuture<Void> done) {
+        LOG.warn("Bid writer is full or stopped, rejecting bid on sale {}.", hold.getSaleId());
+        done.completeExceptionally(new BusinessException("bid.writer.overloaded"));
+    }
+
+    /**
+     * Boucle du thread d'écriture : agrège les enchères de la file en lots et les écrit.
+     * <p>
+     * Tant que des enchères journalisées attendent une nouvelle tentative, la file n'est plus vidée :
+     * les enchères sont écrites dans l'ordre de leur séquence, et une file pleine refuse les suivantes.
+     * </p>
+     */
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!retries.isEmpty()) {
+                    if (!running) {
+                        break;
+                    }
+                    long wait = retryAt - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(Math.min(wait, TimeUnit.MILLISECONDS.toNanos(100)));
+                    } else {
+                        retry();
+                    }
+                    continue;
+                }
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.done().completeExceptionally(e));
+                break;
+            } catch (RuntimeException e) {
+                LOG.error("Unexpected error in the bid writer.", e);
+                batch.forEach(pending -> pending.done().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // Arrêt : les enchères restantes ne seront pas écrites, celles journalisées seront rejouées
+        if (!retries.isEmpty()) {
+            LOG.warn("Bid writer stopped with {} bids to retry, kept in the journal.", retries.size() + queue.size());
+        }
+        retries.forEach(pending -> pending.done().completeExceptionally(new IllegalStateException("Bid writer stopped")));
+        retries.clear();
+        PendingWrite pending;
+        while ((pending = queue.poll()) != null) {
+            pending.done().completeExceptionally(new IllegalStateException("Bid writer stopped"));
+        }
+    }
+
+    /**
+     * Complète le lot avec les enchères arrivées pendant la fenêtre d'agrégation.
+     */
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Écrit un lot dans une seule transaction, puis acquitte ses enchères.
+     * En cas d'échec, les enchères du lot sont réécrites une à une ; si le journal est activé
+     * et que l'erreur ne vient pas d'une enchère refusée, le lot entier est réessayé plus tard.
+     */
+    private void flush(List<PendingWrite> batch) {
+        try {
+            commit(batch, false);
+            batchSizes.record(batch.size());
+            batch.forEach(this::complete);
+            checkpoint();
+            return;
+        } catch (RuntimeException e) {
+            if (retriable(e)) {
+                LOG.warn("Failed to commit a batch of {} journaled bids, will retry.", batch.size(), e);
+                batch.forEach(this::scheduleRetry);
+                return;
+            }
+            if (batch.size() == 1) {
+                fail(batch.getFirst(), e);
+                return;
+            }
+            LOG.warn("Failed to commit a batch of {} bids, retrying them one by one.", batch.size(), e);
+        }
+
+        for (PendingWrite pending : batch) {
+            if (!retries.isEmpty()) {
+                // Une enchère précédente sera réessayée : les suivantes la suivent
+                scheduleRetry(pending);
+                continue;
+            }
+            try {
+                commit(List.of(pending), false);
+                batchSizes.record(1);
+                complete(pending);
+            } catch (RuntimeException e) {
+                fail(pending, e);
+            }
+        }
+        checkpoint();
+    }
+
+    /**
+     * Réessaie les enchères journalisées en échec, par lots, sans réinsérer celles déjà présentes.
+     * Un lot refusé par la base est réessayé enchère par enchère ; toute autre erreur reporte
+     * le reste à la tentative suivante, après un délai doublé.
+     */
+    private void retry() {
+        List<PendingWrite> due = new ArrayList<>(retries);
+        retries.clear();
+        LOG.info("Retrying {} journaled bids.", due.size());
+
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<PendingWrite> chunk = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                commit(chunk, true);
+                batchSizes.record(chunk.size());
+                chunk.forEach(this::complete);
+            } catch (DataIntegrityViolationException e) {
+                for (PendingWrite pending : chunk) {
+                    if (!retries.isEmpty()) {
+                        scheduleRetry(pending);
+                        continue;
+                    }
+                    try {
+                        commit(List.of(pending), true);
+                        batchSizes.record(1);
+                        complete(pending);
+                    } catch (RuntimeException rejected) {
+                        fail(pending, rejected);
+                    }
+                }
+            } catch (RuntimeException e) {
+                retries.addAll(due.subList(from, due.size()));
+                LOG.warn("Failed to retry {} journaled bids.", retries.size(), e);
+                break;
+            }
+            if (!retries.isEmpty()) {
+                retries.addAll(due.subList(from + chunk.size(), due.size()));
+                break;
+            }
+        }
+        checkpoint();
+
+        backoffNanos = retries.isEmpty() ? retryBackoffNanos : Math.min(backoffNanos * 2, retryMaxBackoffNanos);
+        retryAt = System.nanoTime() + backoffNanos;
+    }
+
+    /**
+     * @param idempotent vrai pour ignorer les enchères déjà présentes en base (nouvelle tentative)
+     */
+    private void commit(List<PendingWrite> batch, boolean idempotent) {
+        List<Bid> bids = batch.stream().map(PendingWrite::bid).filter(Objects::nonNull).toList();
+        List<CreditHold> holds = batch.stream().map(PendingWrite::hold).toList();
+
+        commitTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+            if (idempotent) {
+                // Une enchère déjà présente a été reportée sur sa vente dans la même transaction
+                saleDao.recordBids(bidDao.createAllIfAbsent(bids));
+            } else {
+                bidDao.createAll(bids);
+                saleDao.recordBids(bids);
+            }
+            creditHoldDao.upsertAll(holds);
+        }));
+    }
+
+    /**
+     * @return vrai si l'erreur ne tient pas aux enchères elles-mêmes et qu'elles sont journalisées :
+     * elles peuvent être réessayées
+     */
+    private boolean retriable(RuntimeException e) {
+        return journal.isPresent() && running && !(e instanceof DataIntegrityViolationException);
+    }
+
+    private void complete(PendingWrite pending) {
+        journal.ifPresent(bidJournal -> bidJournal.drained(pending.seq()));
+        pending.done().complete(null);
+    }
+
+    private void fail(PendingWrite pending, RuntimeException e) {
+        CreditHold hold = pending.hold();
+        if (retriable(e)) {
+            LOG.warn("Failed to persist journaled bid {} on sale {}, will retry.", pending.seq(), hold.getSaleId(), e);
+            scheduleRetry(pending);
+            return;
+        }
+        LOG.error("Failed to persist bid of user {} on sale {}.", hold.getUserId(), hold.getSaleId(), e);
+        if (journal.isPresent()) {
+            if (e instanceof DataIntegrityViolationException) {
+                // Déjà acquittée : le séquenceur corrige l'état diffusé de la vente à l'échec du futur
+                LOG.error("Dropping acknowledged bid {} on sale {} rejected by the database.", pending.seq(), hold.getSaleId());
+                journal.get().drained(pending.seq());
+            } else {
+                LOG.warn("Bid {} is kept in the journal and will be replayed at next startup.", pending.seq());
+            }
+        }
+        pending.done().completeExceptionally(e);
+    }
+
+    private void scheduleRetry(PendingWrite pending) {
+        if (retries.isEmpty()) {
+            retryAt = System.nanoTime() + backoffNanos;
+        }
+        retries.add(pending);
+    }
+
+    private void checkpoint() {
+        journal.ifPresent(BidJournal::checkpoint);
+    }
+
+    /**
+     * Rejoue les entrées du journal qui n'ont pas été écrites en base avant l'arrêt précédent.
+     * <p>
+     * Le rejeu est idempotent : une enchère déjà présente (même vente, même montant) n'est pas
+     * réinsérée, et seules les enchères insérées sont reportées sur leur vente, avec la date de fin
+     * journalisée (prolongation comprise) ; seule la dernière réservation journalisée de chaque vente,
+     * celle de son meneur, est réécrite.
+     * Une entrée refusée par la base est abandonnée ; toute autre erreur interrompt le démarrage.
+     * </p>
+     */
+    private void replay(BidJournal bidJournal) {
+        List<BidJournal.Entry> entries = bidJournal.recover();
+        if (entries.isEmpty()) {
+            return;
+        }
+        LOG.warn("Replaying {} journaled bids not yet written to the database.", entries.size());
+
+        Set<Long> leading = entries.stream()
+                .collect(Collectors.toMap(entry -> entry.hold().getSaleId(), Function.identity(),
+                        (a, b) -> a.seq() >= b.seq() ? a : b))
+                .values().stream()
+                .map(BidJournal.Entry::seq)
+                .collect(Collectors.toSet());
+
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<BidJournal.Entry> chunk = entries.subList(from, Math.min(from + batchSize, entries.size()));
+            try {
+                replay(chunk, leading);
+            } catch (DataIntegrityViolationException e) {
+                for (BidJournal.Entry entry : chunk) {
+                    try {
+                        replay(List.of(entry), leading);
+                    } catch (DataIntegrityViolationException rejected) {
+                        LOG.error("Dropping journaled bid {} rejected by the database.", entry.seq(), rejected);
+                    }
+                }
+            }
+            chunk.forEach(entry -> bidJournal.drained(entry.seq()));
+        }
+
+        bidJournal.checkpoint();
+    }
+
+    private void replay(List<BidJournal.Entry> chunk, Set<Long> leading) {
+        List<Bid> bids = chunk.stream().map(BidJournal.Entry::bid).filter(Objects::nonNull).toList();
+        List<CreditHold> holds = chunk.stream()
+                .filter(entry -> leading.contains(entry.seq()))
+                .map(BidJournal.Entry::hold)
+                .toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            saleDao.recordBids(bidDao.createAllIfAbsent(bids));
+            creditHoldDao.upsertAll(holds);
+        });
+    }
+
+    /**
+     * Termine les écritures en attente avant l'arrêt de l'application.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        if (thread.isAlive()) {
+            LOG.warn("Bid writer stopped with pending writes.");
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Futurs d'une écriture planifiée.
+     *
+     * @param durable   complété dès que l'enchère survit à un crash : après sa journalisation
+     *                  si le journal est activé, après sa validation en base sinon
+     * @param committed complété après validation de l'enchère en base, ou en erreur si son écriture a échoué
+     */
+    public record Ticket(CompletableFuture<Void> durable, CompletableFuture<Void> committed) {
+    }
+
+    /**
+     * Enchère (ou {@code null} pour une réservation seule) en attente d'écriture, avec son numéro de séquence dans le journal (0 sans journal)
+     * et le futur à compléter après validation.
+     */
+    private record PendingWrite(Bid bid, CreditHold hold, long seq, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,221 @@
+package fr.rougeux.projet.auction.service.engine;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.bo.User;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * État en mémoire d'une vente tenu par le {@link BidSequencer}.
+ * <p>
+ * Un carnet n'est manipulé que par le worker auquel sa vente est affectée :
+ * il n'est donc jamais partagé entre threads et ne nécessite aucune synchronisation.
+ * Il porte le prix courant, le meneur et les dernières enchères acceptées (qui sont, par construction, les plus hautes).
+ * </p>
+ * <p>
+ * Il porte aussi l'enchère maximale du meneur, pour l'enchère automatique (proxy) : après chaque
+ * résolution, seule l'enchère maximale du meneur peut encore dépasser le prix courant, celles
+ * des autres enchérisseurs étant toutes couvertes. Une enchère concurrente est donc résolue
+ * en temps constant face à ce seul plafond, quel que soit le nombre d'enchères automatiques
+ * engagées, et ne produit qu'une enchère visible.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+final class SaleBook {
+
+    /** Vente sans ses enchères ; {@code salePrice}, {@code leaderId} et {@code bidCount} y sont tenus à jour */
+    private final Sale sale;
+
+    /** Nombre maximal d'enchères conservées pour la réponse */
+    private final int topSize;
+
+    /** Plus hautes enchères acceptées, la plus haute en tête */
+    private final Deque<Bid> topBids = new ArrayDeque<>();
+
+    /** Enchère maximale du meneur, au moins égale au prix courant */
+    private int leaderMax;
+
+    /** Vrai une fois la vente gelée pour sa clôture : plus aucune enchère n'est acceptée */
+    private boolean closed;
+
+    /** Écriture en base de la dernière enchère acceptée */
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    /**
+     * Construit le carnet à partir de l'état persisté de la vente.
+     *
+     * @param sale    vente lue en base, avec son nombre d'enchères (ses enchères sont ignorées)
+     * @param bids    plus hautes enchères existantes, triées par montant décroissant
+     * @param topSize nombre d'enchères à conserver pour la réponse
+     * @param leaderMax montant réservé par le meneur sur la vente, qui est son enchère maximale (0 si inconnu)
+     */
+    SaleBook(Sale sale, List<Bid> bids, int topSize, int leaderMax) {
+        this.topSize = topSize;
+        this.sale = new Sale(sale);
+        this.sale.setBids(null);
+        this.sale.setSalePrice(sale.getStartingPrice());
+        this.sale.setLeaderId(0);
+        this.sale.setBidCount(Math.max(sale.getBidCount(), bids.size()));
+
+        for (Bid bid : bids) {
+            if (topBids.size() >= topSize) {
+                break;
+            }
+            topBids.addLast(bid);
+        }
+        if (!topBids.isEmpty()) {
+            this.sale.setSalePrice(topBids.getFirst().getBidAmount());
+            this.sale.setLeaderId(topBids.getFirst().getUser().getUserId());
+        }
+        this.leaderMax = Math.max(leaderMax, this.sale.getSalePrice());
+    }
+
+    /**
+     * @return la vente portée par le carnet, avec le prix courant dans {@code salePrice}
+     */
+    Sale getSale() {
+        return sale;
+    }
+
+    /**
+     * @return le prix courant de la vente
+     */
+    int getCurrentPrice() {
+        return sale.getSalePrice();
+    }
+
+    /**
+     * @return l'identifiant de l'utilisateur menant la vente (0 si aucune enchère)
+     */
+    long getLeaderId() {
+        return sale.getLeaderId();
+    }
+
+    /**
+     * @return l'enchère maximale du meneur (le prix courant s'il n'en a pas fixé)
+     */
+    int getLeaderMax() {
+        return leaderMax;
+    }
+
+    /**
+     * @return vrai si la vente est gelée pour sa clôture
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gèle la vente pour sa clôture.
+     *
+     * @return le futur de l'écriture en base de la dernière enchère acceptée
+     */
+    CompletableFuture<Void> close() {
+        closed = true;
+        return lastWrite;
+    }
+
+    /**
+     * Retient l'écriture en base de la dernière enchère acceptée, attendue à la clôture.
+     *
+     * @param write futur de validation de l'écriture
+     */
+    void setLastWrite(CompletableFuture<Void> write) {
+        this.lastWrite = write;
+    }
+
+    /**
+     * Relève l'enchère maximale du meneur, sans enchère visible ni changement du prix courant.
+     *
+     * @param max nouvelle enchère maximale, supérieure à l'actuelle
+     */
+    void raiseLeaderMax(int max) {
+        leaderMax = Math.max(leaderMax, max);
+    }
+
+    /**
+     * Résout une enchère validée face à l'enchère maximale du meneur, en une seule étape.
+     * <ul>
+     *     <li>si le meneur est un autre utilisateur et que son plafond couvre celui de l'enchère,
+     *     il reste meneur et le prix passe au plafond de l'enchère plus un incrément,
+     *     dans la limite de son propre plafond (à plafond égal, le meneur l'emporte) ;</li>
+     *     <li>sinon, l'enchérisseur devient (ou reste) meneur, au plus haut entre le montant
+     *     de son enchère et le plafond du meneur dépassé plus un incrément, dans la limite de son plafond.</li>
+     * </ul>
+     *
+     * @param bid       enchère validée, dont le montant dépasse le prix courant
+     * @param increment incrément minimal des enchères automatiques
+     * @return l'enchère visible à persister : celle de l'enchérisseur (éventuellement relevée)
+     *         ou l'enchère automatique du meneur
+     */
+    Bid resolve(Bid bid, int increment) {
+        long userId = bid.getUser().getUserId();
+        long leaderId = sale.getLeaderId();
+        int limit = bid.getProxyLimit();
+
+        if (leaderId != 0 && leaderId != userId) {
+            if (leaderMax >= limit) {
+                Bid automatic = new Bid();
+                automatic.setUser(topBids.getFirst().getUser());
+                automatic.setSale(sale);
+                automatic.setBidTime(bid.getBidTime());
+                automatic.setBidAmount((int) Math.min((long) limit + increment, leaderMax));
+                apply(automatic);
+                return automatic;
+            }
+            bid.setBidAmount(Math.max(bid.getBidAmount(), (int) Math.min((long) leaderMax + increment, limit)));
+        }
+
+        apply(bid);
+        leaderMax = limit;
+        return bid;
+    }
+
+    /**
+     * Enregistre une enchère déjà validée comme nouvelle meilleure offre.
+     *
+     * @param bid enchère acceptée
+     */
+    private void apply(Bid bid) {
+        long userId = bid.getUser().getUserId();
+        sale.setSalePrice(bid.getBidAmount());
+        sale.setLeaderId(userId);
+        sale.setBidCount(sale.getBidCount() + 1);
+
+        Bid light = new Bid();
+        light.setBidId(bid.getBidId());
+        light.setBidTime(bid.getBidTime());
+        light.setBidAmount(bid.getBidAmount());
+
+        // Seules les informations publiques de l'enchérisseur sont conservées
+        User bidder = new User();
+        bidder.setUserId(userId);
+        bidder.setLastName(bid.getUser().getLastName());
+        bidder.setFirstName(bid.getUser().getFirstName());
+        bidder.setUserImg(bid.getUser().getUserImg());
+        light.setUser(bidder);
+
+        topBids.addFirst(light);
+        if (topBids.size() > topSize) {
+            topBids.removeLast();
+        }
+    }
+
+    /**
+     * Construit une copie de la vente et de ses plus hautes enchères, destinée à la réponse.
+     *
+     * @return une nouvelle instance de {@link Sale} indépendante du carnet
+     */
+    Sale snapshot() {
+        Sale copy = new Sale(sale);
+        copy.setBids(new ArrayList<>(topBids));
+        return copy;
+    }
+}
@@ -0,0 +1,149 @@
+package fr.rougeux.projet.auction.service.event;
+
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
+import fr.rougeux.projet.auction.exception.BusinessException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+
+/**
+ * Encodage des trames binaires du canal WebSocket d'enchères.
+ * <p>
+ * Chaque trame commence par un octet de type ; les entiers sont en big-endian et les dates
+ * en millisecondes depuis l'epoch.
+ * </p>
+ * <ul>
+ *     <li>client → serveur, {@link #BID} (21 octets) : numéro de séquence client (int), vente (long),
+ *     montant (int), enchère maximale (int, 0 si aucune) ;</li>
+ *     <li>client → serveur, {@link #SUBSCRIBE} / {@link #UNSUBSCRIBE} (9 octets) : vente (long) ;</li>
+ *     <li>serveur → client, {@link #ACK} (22 octets) : séquence (int), vente (long), prix courant (int),
+ *     nombre d'enchères (int), 1 si l'enchérisseur mène (byte) ;</li>
+ *     <li>serveur → client, {@link #REJECT} : séquence (int), longueur (byte) puis clé du message d'erreur (UTF-8) ;</li>
+ *     <li>serveur → client, {@link #SALE} (34 octets) : vente (long), prix courant (int), meneur (long),
+ *     nombre d'enchères (int), date de fin (long), 1 si la vente est terminée (byte).</li>
+ * </ul>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public final class BidFrameCodec {
+
+    public static final byte BID = 1;
+    public static final byte ACK = 2;
+    public static final byte REJECT = 3;
+    public static final byte SALE = 4;
+    public static final byte SUBSCRIBE = 5;
+    public static final byte UNSUBSCRIBE = 6;
+
+    private static final int BID_SIZE = 1 + Integer.BYTES * 3 + Long.BYTES;
+    private static final int SALE_ID_SIZE = 1 + Long.BYTES;
+    private static final int ACK_SIZE = 2 + Integer.BYTES * 3 + Long.BYTES;
+    private static final int SALE_SIZE = 2 + Integer.BYTES * 2 + Long.BYTES * 3;
+
+    private BidFrameCodec() {
+    }
+
+    /**
+     * Enchère reçue d'un client.
+     *
+     * @param clientSeq numéro de séquence attribué par le client, renvoyé dans la réponse
+     * @param saleId    identifiant de la vente
+     * @param amount    montant de l'enchère
+     * @param maxAmount enchère maximale (0 si aucune)
+     */
+    public record BidFrame(int clientSeq, long saleId, int amount, int maxAmount) {
+    }
+
+    /**
+     * @param frame trame reçue
+     * @return le type de la trame
+     * @throws BusinessException si la trame est vide
+     */
+    public static byte typeOf(ByteBuffer frame) {
+        if (!frame.hasRemaining()) {
+            throw new BusinessException("bid.frame.invalid");
+        }
+        return frame.get(frame.position());
+    }
+
+    /**
+     * @param frame trame {@link #BID}
+     * @return l'enchère décodée
+     * @throws BusinessException si la trame n'a pas la taille attendue
+     */
+    public static BidFrame decodeBid(ByteBuffer frame) {
+        checkSize(frame, BID_SIZE);
+        frame.get();
+        return new BidFrame(frame.getInt(), frame.getLong(), frame.getInt(), frame.getInt());
+    }
+
+    /**
+     * @param frame trame {@link #SUBSCRIBE} ou {@link #UNSUBSCRIBE}
+     * @return l'identifiant de la vente
+     * @throws BusinessException si la trame n'a pas la taille attendue
+     */
+    public static long decodeSaleId(ByteBuffer frame) {
+        checkSize(frame, SALE_ID_SIZE);
+        frame.get();
+        return frame.getLong();
+    }
+
+    /**
+     * @param clientSeq numéro de séquence de l'enchère acceptée
+     * @param sale      état de la vente après l'enchère
+     * @param leading   vrai si l'enchérisseur mène la vente
+     * @return la trame {@link #ACK}
+     */
+    public static byte[] encodeAck(int clientSeq, SaleEventDto sale, boolean leading) {
+        return ByteBuffer.allocate(ACK_SIZE)
+                .put(ACK)
+                .putInt(clientSeq)
+                .putLong(sale.saleId())
+                .putInt(sale.salePrice())
+                .putInt(sale.bidCount())
+                .put((byte) (leading ? 1 : 0))
+                .array();
+    }
+
+    /**
+     * @param clientSeq numéro de séquence de l'enchère refusée (0 si la trame n'a pu être lue)
+     * @param reason    clé du message d'erreur
+     * @return la trame {@link #REJECT}
+     */
+    public static byte[] encodeReject(int clientSeq, String reason) {
+        byte[] text = reason.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(text.length, 255);
+        return ByteBuffer.allocate(1 + Integer.BYTES + 1 + length)
+                .put(REJECT)
+                .putInt(clientSeq)
+                .put((byte) length)
+                .put(text, 0, length)
+                .array();
+    }
+
+    /**
+     * @param event mise à jour de la vente
+     * @return la trame {@link #SALE}
+     */
+    public static byte[] encodeSaleEvent(SaleEventDto event) {
+        long endingMs = event.endingDate() != null
+                ? event.endingDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+        return ByteBuffer.allocate(SALE_SIZE)
+                .put(SALE)
+                .putLong(event.saleId())
+                .putInt(event.salePrice())
+                .putLong(event.leaderId())
+                .putInt(event.bidCount())
+                .putLong(endingMs)
+                .put((byte) ("OVER".equals(event.status()) ? 1 : 0))
+                .array();
+    }
+
+    private static void checkSize(ByteBuffer frame, int size) {
+        if (frame.remaining() != size) {
+            throw new BusinessException("bid.frame.invalid");
+        }
+    }
+}
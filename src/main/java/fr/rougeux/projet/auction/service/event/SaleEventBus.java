@@ -0,0 +1,415 @@
+package fr.rougeux.projet.auction.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
+import fr.rougeux.projet.auction.exception.BusinessException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Bus de diffusion en mémoire des mises à jour de ventes vers les flux Server-Sent Events
+ * et les canaux WebSocket binaires.
+ * <p>
+ * Chaque mise à jour publiée est encodée une seule fois en une trame SSE et une trame binaire
+ * ({@link BidFrameCodec}), partagées telles quelles par tous les abonnés de la vente :
+ * aucune relecture en base ni conversion en DTO par abonné.
+ * Une mise à jour plus ancienne que la dernière connue de la vente (nombre d'enchères inférieur,
+ * ou vente déjà clôturée) est ignorée, ce qui absorbe les publications concurrentes désordonnées ;
+ * seule une correction ({@link #correct}), publiée quand une enchère déjà diffusée n'a pas pu être
+ * écrite en base, remplace la dernière trame quel que soit son nombre d'enchères.
+ * La dernière trame de chaque vente est envoyée à tout nouvel abonné. Une fois la trame de clôture
+ * diffusée, elle n'est plus conservée que {@code app.sale.events.closed-retention-ms} : le temps
+ * d'ignorer les publications en retard et de servir les abonnés qui se reconnectent.
+ * </p>
+ * <p>
+ * Les abonnés SSE sont des {@link SseEmitter} asynchrones : une connexion inactive n'occupe aucun thread.
+ * Les abonnés binaires ({@link BinarySubscription}) suivent un ensemble de ventes qui évolue pendant la connexion.
+ * La diffusion est faite hors du thread de l'enchère, sur un pool de {@code app.sale.events.dispatchers}
+ * threads entre lesquels les ventes sont réparties ({@code saleId mod dispatchers}), ce qui conserve
+ * l'ordre des trames d'une vente. Un commentaire SSE est envoyé à tous les abonnés toutes les
+ * {@code app.sale.events.heartbeat-ms} pour détecter et retirer les connexions coupées.
+ * </p>
+ * <p>
+ * Les threads de diffusion n'écrivent jamais sur une connexion SSE : ils déposent la trame dans la file
+ * de l'abonné, bornée à {@code app.sale.events.queue-capacity} trames, qu'un thread virtuel vide
+ * vers le client. Un client trop lent pour suivre, dont la file est pleine, est déconnecté ;
+ * à sa reconnexion, il reçoit la dernière trame de chaque vente.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.sale.events.subscribers} (abonnés connectés).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class SaleEventBus implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SaleEventBus.class);
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int maxSales;
+    private final int queueCapacity;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> connected = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Frame> latest = new ConcurrentHashMap<>();
+    private final Cache<Long, Frame> closed;
+    private final ExecutorService[] dispatchers;
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("sale-events-writer-", 0).factory());
+
+    /**
+     * Constructeur du bus.
+     *
+     * @param objectMapper  sérialiseur JSON des mises à jour
+     * @param timeoutMs     durée de vie d'un flux avant reconnexion du client, en millisecondes
+     * @param maxSales      nombre maximal de ventes par flux multiplexé
+     * @param dispatchers   nombre de threads de diffusion
+     * @param queueCapacity nombre maximal de trames en attente d'envoi par abonné SSE
+     * @param closedRetentionMs durée de conservation de la trame de clôture d'une vente, en millisecondes
+     * @param meterRegistry registre des métriques
+     */
+    public SaleEventBus(ObjectMapper objectMapper,
+                        @Value("${app.sale.events.timeout-ms:1800000}") long timeoutMs,
+                        @Value("${app.sale.events.max-sales:50}") int maxSales,
+                        @Value("${app.sale.events.dispatchers:2}") int dispatchers,
+                        @Value("${app.sale.events.queue-capacity:32}") int queueCapacity,
+                        @Value("${app.sale.events.closed-retention-ms:60000}") long closedRetentionMs,
+                        MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.maxSales = maxSales;
+        this.queueCapacity = queueCapacity;
+        this.closed = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(closedRetentionMs))
+                .build();
+        this.dispatchers = new ExecutorService[dispatchers];
+        for (int i = 0; i < dispatchers; i++) {
+            String name = "sale-events-" + i;
+            this.dispatchers[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
+        Gauge.builder("auction.sale.events.subscribers", connected, Set::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ouvre un flux SSE des mises à jour d'une ou plusieurs ventes.
+     *
+     * @param saleIds identifiants des ventes suivies
+     * @return le flux, alimenté par la dernière mise à jour connue de chaque vente puis par les suivantes
+     * @throws BusinessException si aucune vente, ou trop de ventes, sont demandées
+     */
+    public SseEmitter subscribe(Collection<Long> saleIds) {
+        Set<Long> ids = Set.copyOf(saleIds);
+        if (ids.isEmpty()) {
+            throw new BusinessException("sale.events.empty");
+        }
+        if (ids.size() > maxSales) {
+            throw new BusinessException("sale.events.tooMany");
+        }
+
+        SseSubscriber subscriber = new SseSubscriber(new SseEmitter(timeoutMs));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        connected.add(subscriber);
+        ids.forEach(saleId -> watch(subscriber, saleId));
+        return subscriber.emitter;
+    }
+
+    /**
+     * Ouvre un abonnement binaire, initialement vide, dont les ventes suivies sont ajoutées
+     * par {@link BinarySubscription#watch}.
+     *
+     * @param sink envoi d'une trame binaire au client ; doit être sûr entre threads et ne pas bloquer
+     * @return l'abonnement, à fermer à la déconnexion du client
+     */
+    public BinarySubscription subscribeBinary(Consumer<byte[]> sink) {
+        BinarySubscription subscription = new BinarySubscription(sink);
+        connected.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Ajoute une vente aux ventes suivies d'un abonné et lui envoie sa dernière trame connue.
+     */
+    private void watch(Subscriber subscriber, long saleId) {
+        if (!subscriber.saleIds.add(saleId)) {
+            return;
+        }
+        subscribers.compute(saleId, (id, audience) -> {
+            Set<Subscriber> watching = audience != null ? audience : ConcurrentHashMap.newKeySet();
+            watching.add(subscriber);
+            return watching;
+        });
+        Frame frame = latest.get(saleId);
+        if (frame == null) {
+            frame = closed.getIfPresent(saleId);
+        }
+        if (frame != null) {
+            Frame last = frame;
+            dispatcher(saleId).execute(() -> subscriber.send(last));
+        }
+    }
+
+    private void unwatch(Subscriber subscriber, long saleId) {
+        if (!subscriber.saleIds.remove(saleId)) {
+            return;
+        }
+        subscribers.computeIfPresent(saleId, (id, audience) -> {
+            audience.remove(subscriber);
+            return audience.isEmpty() ? null : audience;
+        });
+    }
+
+    /**
+     * Publie la mise à jour d'une vente. La trame est encodée sur le thread appelant,
+     * puis diffusée de manière asynchrone.
+     *
+     * @param event mise à jour de la vente
+     */
+    public void publish(SaleEventDto event) {
+        publish(event, false);
+    }
+
+    /**
+     * Publie l'état d'une vente relu en base, en remplaçant la dernière trame diffusée
+     * même si elle compte plus d'enchères : une enchère déjà diffusée a été abandonnée.
+     *
+     * @param event état de la vente en base
+     */
+    public void correct(SaleEventDto event) {
+        publish(event, true);
+    }
+
+    /**
+     * @param replace vrai pour remplacer la dernière trame de la vente même plus récente
+     */
+    private void publish(SaleEventDto event, boolean replace) {
+        Frame frame;
+        try {
+            frame = new Frame(event.bidCount(), "OVER".equals(event.status()),
+                    SseEmitter.event().name("sale").data(objectMapper.writeValueAsString(event), MediaType.TEXT_PLAIN).build(),
+                    BidFrameCodec.encodeSaleEvent(event));
+        } catch (JsonProcessingException e) {
+            LOG.error("Failed to encode event of sale {}.", event.saleId(), e);
+            return;
+        }
+        long saleId = event.saleId();
+        if (closed.getIfPresent(saleId) != null) {
+            return;
+        }
+        if (latest.merge(saleId, frame, (previous, next) -> replace || next.isNewerThan(previous) ? next : previous) != frame) {
+            return;
+        }
+        if (closed.getIfPresent(saleId) != null) {
+            // Clôture diffusée entre-temps : la trame en retard ne doit pas survivre à la vente
+            latest.remove(saleId, frame);
+            return;
+        }
+        dispatcher(saleId).execute(() -> {
+            Set<Subscriber> audience = subscribers.get(saleId);
+            if (audience != null) {
+                audience.forEach(subscriber -> subscriber.send(frame));
+            }
+            if (frame.over) {
+                closed.put(saleId, frame);
+                latest.remove(saleId, frame);
+            }
+        });
+    }
+
+    /**
+     * Envoie un commentaire SSE à tous les abonnés : une connexion coupée échoue à l'écriture et est retirée.
+     */
+    @Scheduled(fixedDelayString = "${app.sale.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : List.copyOf(connected)) {
+            if (subscriber instanceof SseSubscriber sse) {
+                sse.send(HEARTBEAT);
+            }
+        }
+    }
+
+    private ExecutorService dispatcher(long saleId) {
+        return dispatchers[Math.floorMod(saleId, dispatchers.length)];
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!connected.remove(subscriber)) {
+            return;
+        }
+        List.copyOf(subscriber.saleIds).forEach(saleId -> unwatch(subscriber, saleId));
+    }
+
+    /**
+     * Ferme les flux et arrête les threads de diffusion à la fermeture du contexte.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Subscriber subscriber : List.copyOf(connected)) {
+            if (subscriber instanceof SseSubscriber sse) {
+                sse.emitter.complete();
+            }
+        }
+        for (ExecutorService dispatcher : dispatchers) {
+            dispatcher.shutdown();
+        }
+        for (ExecutorService dispatcher : dispatchers) {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        writers.shutdown();
+        writers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Trames SSE et binaire encodées d'une mise à jour, versionnées par le nombre d'enchères de la vente.
+     */
+    private record Frame(int bidCount, boolean over, Set<DataWithMediaType> sse, byte[] binary) {
+
+        private boolean isNewerThan(Frame other) {
+            if (over != other.over) {
+                return over;
+            }
+            return bidCount > other.bidCount;
+        }
+    }
+
+    /**
+     * Client abonné et ventes qu'il suit.
+     */
+    private abstract static class Subscriber {
+
+        private final Set<Long> saleIds = ConcurrentHashMap.newKeySet();
+
+        abstract void send(Frame frame);
+    }
+
+    /**
+     * Abonné Server-Sent Events, dont les trames sont écrites dans l'ordre par au plus un thread à la fois.
+     */
+    private final class SseSubscriber extends Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private SseSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        void send(Frame frame) {
+            send(frame.sse);
+        }
+
+        /**
+         * Met une trame en file sans bloquer, et déconnecte l'abonné si sa file est pleine.
+         */
+        private void send(Set<DataWithMediaType> items) {
+            if (!queue.offer(items)) {
+                LOG.debug("Disconnecting a slow SSE subscriber: {} frames pending.", queueCapacity);
+                unsubscribe(this);
+                emitter.complete();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<DataWithMediaType> items;
+                while ((items = queue.poll()) != null) {
+                    try {
+                        emitter.send(items);
+                    } catch (IOException | IllegalStateException e) {
+                        // Connexion coupée ou flux terminé : le conteneur notifie l'erreur, le retrait est immédiat
+                        unsubscribe(this);
+                        queue.clear();
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+
+    /**
+     * Abonnement binaire d'un canal WebSocket, dont les ventes suivies évoluent pendant la connexion.
+     */
+    public final class BinarySubscription extends Subscriber {
+
+        private final Consumer<byte[]> sink;
+
+        private BinarySubscription(Consumer<byte[]> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Suit une vente supplémentaire.
+         *
+         * @param saleId identifiant de la vente
+         * @return faux si l'abonnement suit déjà le nombre maximal de ventes
+         */
+        public boolean watch(long saleId) {
+            if (!super.saleIds.contains(saleId) && super.saleIds.size() >= maxSales) {
+                return false;
+            }
+            SaleEventBus.this.watch(this, saleId);
+            return true;
+        }
+
+        /**
+         * Cesse de suivre une vente.
+         *
+         * @param saleId identifiant de la vente
+         */
+        public void unwatch(long saleId) {
+            SaleEventBus.this.unwatch(this, saleId);
+        }
+
+        /**
+         * Ferme l'abonnement.
+         */
+        public void close() {
+            unsubscribe(this);
+        }
+
+        @Override
+        void send(Frame frame) {
+            sink.accept(frame.binary);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package fr.rougeux.projet.auction.service.history;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.rougeux.projet.auction.bo.PriceBucket;
+import fr.rougeux.projet.auction.repository.PriceBucketDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Historique de prix des ventes par minute (ouverture, plus haut, plus bas, clôture, nombre d'enchères).
+ * <p>
+ * Chaque enchère acceptée met à jour la {@link PriceSeries} de sa vente, en mémoire. Les minutes
+ * évincées des séries, et toutes celles d'une vente à sa clôture, sont fusionnées par lots dans
+ * la table SALE_PRICE_BUCKETS toutes les {@code app.sale.price-history.flush-interval-ms}.
+ * Une série est chargée à la première enchère de sa vente : seules les enchères au-delà du plus haut
+ * prix déjà enregistré sont agrégées depuis BIDS, par la base.
+ * </p>
+ * <p>
+ * Une enchère reçue après la clôture de sa vente ({@link #close}) est ignorée : elle ne recrée pas
+ * de série, qui resterait en mémoire faute de seconde clôture. La vente est retenue comme close
+ * pendant {@code app.sale.price-history.closed-retention-ms} ; l'enchère, enregistrée dans BIDS,
+ * reste comptée à la lecture.
+ * </p>
+ * <p>
+ * La lecture fusionne les minutes enregistrées et celles en mémoire : son coût dépend du nombre
+ * d'intervalles, pas du nombre d'enchères.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.sale.price-history.series} (séries en mémoire).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class PriceHistory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceHistory.class);
+
+    private final PriceBucketDao priceBucketDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int batchSize;
+    private final Map<Long, PriceSeries> series = new ConcurrentHashMap<>();
+    private final Cache<Long, Boolean> closed;
+    private final Queue<PriceBucket> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructeur de l'historique.
+     *
+     * @param priceBucketDao DAO des intervalles enregistrés
+     * @param transactionTemplate template de transaction de chaque lot
+     * @param capacity       nombre de minutes gardées en mémoire par vente
+     * @param batchSize      taille maximale d'un lot écrit en base
+     * @param closedRetentionMs durée pendant laquelle les enchères d'une vente clôturée sont ignorées, en millisecondes
+     * @param meterRegistry  registre des métriques
+     */
+    public PriceHistory(PriceBucketDao priceBucketDao,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${app.sale.price-history.capacity:64}") int capacity,
+                        @Value("${app.sale.price-history.batch-size:500}") int batchSize,
+                        @Value("${app.sale.price-history.closed-retention-ms:60000}") long closedRetentionMs,
+                        MeterRegistry meterRegistry) {
+        this.priceBucketDao = priceBucketDao;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.closed = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(closedRetentionMs))
+                .build();
+        Gauge.builder("auction.sale.price-history.series", series, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ajoute une enchère acceptée à l'historique de sa vente. Les enchères peuvent être
+     * ajoutées dans le désordre ; une enchère déjà comptée en base, ou reçue après la clôture de la vente,
+     * est ignorée.
+     *
+     * @param saleId identifiant de la vente
+     * @param time   date de l'enchère
+     * @param amount montant de l'enchère
+     */
+    public void record(long saleId, LocalDateTime time, int amount) {
+        PriceSeries current = series.computeIfAbsent(saleId, this::load);
+        if (current == null) {
+            return;
+        }
+        PriceBucket evicted = current.record(saleId, time, amount);
+        if (evicted != null) {
+            pending.add(evicted);
+        }
+    }
+
+    /**
+     * Charge la série d'une vente avec les enchères pas encore enregistrées dans SALE_PRICE_BUCKETS.
+     *
+     * @return la série, {@code null} si la vente vient d'être clôturée
+     */
+    private PriceSeries load(long saleId) {
+        if (closed.getIfPresent(saleId) != null) {
+            return null;
+        }
+        int maxClose = priceBucketDao.readMaxClose(saleId);
+        PriceSeries loaded = new PriceSeries(capacity, maxClose);
+        for (PriceBucket bucket : priceBucketDao.aggregateBids(saleId, maxClose)) {
+            PriceBucket evicted = loaded.seed(bucket);
+            if (evicted != null) {
+                pending.add(evicted);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Lit l'historique de prix d'une vente.
+     *
+     * @param saleId        identifiant de la vente
+     * @param bucketMinutes durée d'un intervalle, en minutes
+     * @return les intervalles, par date croissante
+     */
+    public List<PriceBucket> read(long saleId, int bucketMinutes) {
+        TreeMap<Long, PriceBucket> buckets = new TreeMap<>();
+        int maxClose = 0;
+        for (PriceBucket bucket : priceBucketDao.readBySale(saleId)) {
+            add(buckets, bucket, bucketMinutes);
+            maxClose = Math.max(maxClose, bucket.getClosePrice());
+        }
+        for (PriceBucket bucket : pending) {
+            if (bucket.getSaleId() == saleId) {
+                add(buckets, bucket, bucketMinutes);
+                maxClose = Math.max(maxClose, bucket.getClosePrice());
+            }
+        }
+
+        PriceSeries current = series.get(saleId);
+        if (current != null) {
+            current.snapshot(saleId).forEach(bucket -> add(buckets, bucket, bucketMinutes));
+        } else {
+            // Vente sans série en mémoire (clôturée, ou pas d'enchère depuis le démarrage)
+            priceBucketDao.aggregateBids(saleId, maxClose).forEach(bucket -> add(buckets, bucket, bucketMinutes));
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Ajoute une minute à l'intervalle qui la contient.
+     */
+    private static void add(TreeMap<Long, PriceBucket> buckets, PriceBucket bucket, int bucketMinutes) {
+        long minute = PriceSeries.minuteOf(bucket.getBucketStart());
+        long start = minute - Math.floorMod(minute, bucketMinutes);
+        PriceBucket existing = buckets.get(start);
+        if (existing != null) {
+            existing.merge(bucket);
+        } else {
+            buckets.put(start, new PriceBucket(bucket.getSaleId(), PriceSeries.timeOf(start), bucket.getOpenPrice(),
+                    bucket.getHighPrice(), bucket.getLowPrice(), bucket.getClosePrice(), bucket.getBidCount()));
+        }
+    }
+
+    /**
+     * Enregistre la série d'une vente clôturée et la retire de la mémoire.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public void close(long saleId) {
+        closed.put(saleId, Boolean.TRUE);
+        PriceSeries removed = series.remove(saleId);
+        if (removed != null) {
+            pending.addAll(removed.close(saleId));
+        }
+        flush();
+    }
+
+    /**
+     * Fusionne en base, par lots, les minutes évincées des séries.
+     * En cas d'échec, le lot est replacé dans la file pour la prochaine exécution.
+     */
+    @Scheduled(fixedDelayString = "${app.sale.price-history.flush-interval-ms:60000}")
+    public synchronized void flush() {
+        List<PriceBucket> batch;
+        while (!(batch = drain()).isEmpty()) {
+            List<PriceBucket> merged = batch;
+            try {
+                transactionTemplate.executeWithoutResult(status -> priceBucketDao.mergeAll(merged));
+            } catch (DataAccessException e) {
+                LOG.error("db.access.error", e);
+                pending.addAll(merged);
+                return;
+            }
+        }
+    }
+
+    private List<PriceBucket> drain() {
+        List<PriceBucket> batch = new ArrayList<>();
+        PriceBucket bucket;
+        while (batch.size() < batchSize && (bucket = pending.poll()) != null) {
+            batch.add(bucket);
+        }
+        return batch;
+    }
+}
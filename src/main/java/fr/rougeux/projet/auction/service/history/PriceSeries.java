@@ -0,0 +1,156 @@
+package fr.rougeux.projet.auction.service.history;
+
+import fr.rougeux.projet.auction.bo.PriceBucket;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Historique de prix en mémoire d'une vente : tampon circulaire des dernières minutes ayant reçu
+ * des enchères, en tableaux de types primitifs (une minute occupe 28 octets).
+ * <p>
+ * Une enchère met à jour la minute la plus récente en temps constant. Quand le tampon est plein,
+ * la plus ancienne minute en est évincée et renvoyée à l'appelant pour être enregistrée en base ;
+ * une enchère tardive dont la minute n'est plus dans le tampon est renvoyée de même, comme agrégat
+ * partiel. Les enchères d'un montant inférieur ou égal à {@code floorAmount}, déjà comptées
+ * en base au chargement de la série, sont ignorées, comme toutes celles reçues après la clôture
+ * de la série ({@link #close}).
+ * </p>
+ * <p>
+ * Les minutes sont des nombres de minutes depuis 1970-01-01T00:00, sans fuseau, comme les dates de BIDS.
+ * Toutes les opérations sont synchronisées sur l'instance.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+final class PriceSeries {
+
+    private final long[] minutes;
+    private final int[] open;
+    private final int[] high;
+    private final int[] low;
+    private final int[] close;
+    private final int[] count;
+    private int newest = -1;
+    private int size;
+    private int floorAmount;
+    private boolean closed;
+
+    /**
+     * @param capacity    nombre de minutes gardées en mémoire
+     * @param floorAmount montant jusqu'auquel les enchères sont déjà comptées en base
+     */
+    PriceSeries(int capacity, int floorAmount) {
+        this.minutes = new long[capacity];
+        this.open = new int[capacity];
+        this.high = new int[capacity];
+        this.low = new int[capacity];
+        this.close = new int[capacity];
+        this.count = new int[capacity];
+        this.floorAmount = floorAmount;
+    }
+
+    /**
+     * Ajoute une enchère acceptée.
+     *
+     * @param saleId identifiant de la vente
+     * @param time   date de l'enchère
+     * @param amount montant de l'enchère
+     * @return l'agrégat à enregistrer en base (minute évincée ou enchère tardive), {@code null} si aucun
+     */
+    synchronized PriceBucket record(long saleId, LocalDateTime time, int amount) {
+        if (closed || amount <= floorAmount) {
+            return null;
+        }
+        return add(saleId, minuteOf(time), amount, amount, 1);
+    }
+
+    /**
+     * Ajoute un agrégat lu en base au chargement de la série.
+     *
+     * @param bucket agrégat d'une minute
+     * @return la minute évincée à enregistrer en base, {@code null} si aucune
+     */
+    synchronized PriceBucket seed(PriceBucket bucket) {
+        floorAmount = Math.max(floorAmount, bucket.getClosePrice());
+        return add(bucket.getSaleId(), minuteOf(bucket.getBucketStart()), bucket.getLowPrice(),
+                bucket.getHighPrice(), bucket.getBidCount());
+    }
+
+    private PriceBucket add(long saleId, long minute, int min, int max, int bids) {
+        for (int i = 0, slot = newest; i < size; i++, slot = previous(slot)) {
+            if (minutes[slot] == minute) {
+                open[slot] = Math.min(open[slot], min);
+                high[slot] = Math.max(high[slot], max);
+                low[slot] = Math.min(low[slot], min);
+                close[slot] = Math.max(close[slot], max);
+                count[slot] += bids;
+                return null;
+            }
+            if (minutes[slot] < minute) {
+                break;
+            }
+        }
+        if (size > 0 && minute < minutes[newest]) {
+            // Minute absente du tampon et plus ancienne que la plus récente : agrégat partiel à fusionner en base
+            return new PriceBucket(saleId, timeOf(minute), min, max, min, max, bids);
+        }
+
+        newest = (newest + 1) % minutes.length;
+        PriceBucket evicted = null;
+        if (size == minutes.length) {
+            evicted = bucketAt(saleId, newest);
+        } else {
+            size++;
+        }
+        minutes[newest] = minute;
+        open[newest] = min;
+        high[newest] = max;
+        low[newest] = min;
+        close[newest] = max;
+        count[newest] = bids;
+        return evicted;
+    }
+
+    /**
+     * Clôt la série : les enchères reçues ensuite sont ignorées.
+     *
+     * @param saleId identifiant de la vente
+     * @return les minutes en mémoire, par date croissante, à enregistrer en base
+     */
+    synchronized List<PriceBucket> close(long saleId) {
+        closed = true;
+        return snapshot(saleId);
+    }
+
+    /**
+     * @param saleId identifiant de la vente
+     * @return les minutes en mémoire, par date croissante
+     */
+    synchronized List<PriceBucket> snapshot(long saleId) {
+        List<PriceBucket> buckets = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            buckets.add(bucketAt(saleId, Math.floorMod(newest - i, minutes.length)));
+        }
+        return buckets;
+    }
+
+    private int previous(int slot) {
+        return slot == 0 ? minutes.length - 1 : slot - 1;
+    }
+
+    private PriceBucket bucketAt(long saleId, int slot) {
+        return new PriceBucket(saleId, timeOf(minutes[slot]), open[slot], high[slot], low[slot], close[slot], count[slot]);
+    }
+
+    static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime timeOf(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,232 @@
+package fr.rougeux.projet.auction.service.idempotency;
+
+import fr.rougeux.projet.auction.exception.BusinessException;
+import fr.rougeux.projet.auction.repository.IdempotencyKeyDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Registre des clés d'idempotence ({@code Idempotency-Key}) des requêtes rejouables.
+ * <p>
+ * La première requête d'une clé est exécutée et le corps de sa réponse conservé tel quel :
+ * une requête répétée avec la même clé renvoie ces octets sans nouvelle exécution.
+ * Les requêtes concurrentes d'une même clé attendent l'exécution en cours, au plus
+ * {@code app.bid.idempotency.wait-ms}, et en partagent le résultat. Une exécution en échec
+ * n'est pas conservée : ses requêtes concurrentes reçoivent la même erreur, et une nouvelle
+ * tentative est exécutée.
+ * </p>
+ * <p>
+ * Les clés sont propres à chaque utilisateur et liées à l'empreinte de leur requête :
+ * réutiliser une clé pour une autre requête est refusé. Elles sont gardées en mémoire
+ * pendant {@code app.bid.idempotency.ttl-seconds}, dans la limite de
+ * {@code app.bid.idempotency.max-entries} clés (les plus anciennes sont oubliées en premier).
+ * Avec {@code app.bid.idempotency.database=true}, les clés sont aussi réservées dans la table
+ * IDEMPOTENCY_KEYS, partagée entre les instances ; une clé en cours d'exécution sur une autre
+ * instance est refusée.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.idempotency.keys} (clés en mémoire).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final long waitMs;
+    private final boolean database;
+    private final Map<Id, Entry> entries = new ConcurrentHashMap<>();
+    // Durée de vie commune : l'ordre d'insertion est aussi l'ordre d'expiration
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Constructeur du registre.
+     *
+     * @param idempotencyKeyDao DAO des clés partagées
+     * @param ttlSeconds        durée de conservation d'une clé, en secondes
+     * @param maxEntries        nombre maximal de clés gardées en mémoire
+     * @param waitMs            attente maximale d'une exécution en cours, en millisecondes
+     * @param database          vrai pour partager les clés entre les instances par la base
+     * @param meterRegistry     registre des métriques
+     */
+    public IdempotencyStore(IdempotencyKeyDao idempotencyKeyDao,
+                            @Value("${app.bid.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${app.bid.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${app.bid.idempotency.wait-ms:10000}") long waitMs,
+                            @Value("${app.bid.idempotency.database:false}") boolean database,
+                            MeterRegistry meterRegistry) {
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.waitMs = waitMs;
+        this.database = database;
+        Gauge.builder("auction.idempotency.keys", entries, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Réponse d'une requête idempotente.
+     *
+     * @param body     corps de la réponse
+     * @param replayed vrai si la réponse est celle d'une exécution précédente
+     */
+    public record Response(byte[] body, boolean replayed) {
+    }
+
+    /**
+     * Exécute une requête une seule fois par clé.
+     *
+     * @param owner       utilisateur authentifié
+     * @param key         clé d'idempotence fournie par le client
+     * @param fingerprint empreinte de la requête
+     * @param action      exécution de la requête, renvoyant le corps de sa réponse
+     * @return la réponse, exécutée ou rejouée
+     * @throws BusinessException si la clé est invalide, déjà utilisée pour une autre requête,
+     *                           ou toujours en cours d'exécution
+     */
+    public Response execute(String owner, String key, String fingerprint, Supplier<byte[]> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("idempotency.key.invalid");
+        }
+        Id id = new Id(owner, key);
+        long now = System.currentTimeMillis();
+        Entry created = new Entry(id, fingerprint, now + ttl.toMillis());
+        Entry existing;
+        while ((existing = entries.putIfAbsent(id, created)) != null && existing.expiresAtMs <= now) {
+            entries.remove(id, existing);
+        }
+        if (existing != null) {
+            checkFingerprint(existing.fingerprint, fingerprint);
+            return new Response(await(existing.body), true);
+        }
+        order.add(created);
+        queued.incrementAndGet();
+        evict(now);
+
+        try {
+            Response response = database ? executeShared(id, fingerprint, action) : new Response(action.get(), false);
+            created.body.complete(response.body());
+            return response;
+        } catch (RuntimeException e) {
+            entries.remove(id, created);
+            created.body.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Réserve la clé en base avant d'exécuter la requête, ou rejoue la réponse enregistrée par une autre instance.
+     */
+    private Response executeShared(Id id, String fingerprint, Supplier<byte[]> action) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        if (!idempotencyKeyDao.claim(id.owner(), id.key(), fingerprint, expiresAt)) {
+            IdempotencyKeyDao.StoredKey stored = idempotencyKeyDao.read(id.owner(), id.key())
+                    .orElseThrow(() -> new BusinessException("idempotency.key.inProgress"));
+            checkFingerprint(stored.fingerprint(), fingerprint);
+            if (stored.response() == null) {
+                throw new BusinessException("idempotency.key.inProgress");
+            }
+            return new Response(stored.response(), true);
+        }
+
+        byte[] body;
+        try {
+            body = action.get();
+        } catch (RuntimeException e) {
+            idempotencyKeyDao.release(id.owner(), id.key());
+            throw e;
+        }
+        try {
+            idempotencyKeyDao.complete(id.owner(), id.key(), body);
+        } catch (DataAccessException e) {
+            // La requête est exécutée : la réponse est renvoyée, la clé reste réservée jusqu'à son expiration
+            LOG.error("db.access.error", e);
+        }
+        return new Response(body, false);
+    }
+
+    private static void checkFingerprint(String expected, String fingerprint) {
+        if (!expected.equals(fingerprint)) {
+            throw new BusinessException("idempotency.key.mismatch");
+        }
+    }
+
+    /**
+     * Attend le résultat de l'exécution en cours d'une clé.
+     */
+    private byte[] await(CompletableFuture<byte[]> body) {
+        try {
+            return body.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessException("idempotency.key.inProgress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("idempotency.key.inProgress");
+        }
+    }
+
+    /**
+     * Oublie les clés expirées, puis les plus anciennes tant que la limite est dépassée.
+     */
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = order.peek()) != null && (oldest.expiresAtMs <= now || queued.get() > maxEntries)) {
+            if (order.remove(oldest)) {
+                queued.decrementAndGet();
+                entries.remove(oldest.id, oldest);
+            }
+        }
+    }
+
+    private record Id(String owner, String key) {
+    }
+
+    /**
+     * Clé en mémoire et résultat, éventuellement en cours, de sa requête.
+     */
+    private static final class Entry {
+
+        private final Id id;
+        private final String fingerprint;
+        private final long expiresAtMs;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+
+        private Entry(Id id, String fingerprint, long expiresAtMs) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+}
@@ -1,21 +1,46 @@
 package fr.rougeux.projet.auction.service.impl;
 
 import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.CreditHold;
 import fr.rougeux.projet.auction.bo.Sale;
 import fr.rougeux.projet.auction.bo.User;
+import fr.rougeux.projet.auction.configuration.datasource.RecentWriters;
+import fr.rougeux.projet.auction.dto.bo.BidDto;
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
 import fr.rougeux.projet.auction.dto.request.BidRequestDto;
 import fr.rougeux.projet.auction.dto.response.BidResponseDto;
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
 import fr.rougeux.projet.auction.exception.BusinessException;
 import fr.rougeux.projet.auction.exception.NotFoundException;
 import fr.rougeux.projet.auction.repository.BidDao;
 import fr.rougeux.projet.auction.repository.SaleDao;
 import fr.rougeux.projet.auction.repository.UserDao;
 import fr.rougeux.projet.auction.service.BidService;
+import fr.rougeux.projet.auction.service.closing.SaleExtendedEvent;
+import fr.rougeux.projet.auction.service.closing.SoftClose;
+import fr.rougeux.projet.auction.service.credit.CreditLedger;
+import fr.rougeux.projet.auction.service.engine.BidMode;
+import fr.rougeux.projet.auction.service.engine.BidSequencer;
+import fr.rougeux.projet.auction.service.catalog.SaleCatalog;
+import fr.rougeux.projet.auction.service.event.SaleEventBus;
+import fr.rougeux.projet.auction.service.history.PriceHistory;
+import fr.rougeux.projet.auction.repository.CreditHoldDao;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Implémentation du service {@link BidService} gérant la logique métier des enchères.
@@ -24,13 +49,35 @@ import org.springframework.transaction.annotation.Transactional;
  * <ul>
  *     <li>la vérification de l’existence de la vente et de l’utilisateur,</li>
  *     <li>la validation métier via le BO {@link Bid},</li>
- *     <li>la persistance des données ({@link BidDao}, {@link UserDao}),</li>
+ *     <li>la réservation du crédit de l’enchérisseur dans le {@link CreditLedger},</li>
+ *     <li>la persistance des données ({@link BidDao}, {@link CreditHoldDao}),</li>
  *     <li>et la préparation de la réponse pour l’API.</li>
  * </ul>
  *
- * <p>Toutes les opérations critiques sont exécutées dans une transaction
- * (grâce à {@link Transactional}) pour garantir la cohérence entre
- * la création de l’enchère et la mise à jour du crédit utilisateur.</p>
+ * <p>Trois modes d'acceptation sont disponibles, selon la propriété {@code app.bid.mode} ({@link BidMode}) :
+ * <ul>
+ *     <li>{@code transactional} (par défaut) – la vente et ses meilleures enchères sont relues puis l’enchère
+ *     est persistée dans une même transaction, avec la réservation de crédit de l’enchérisseur,</li>
+ *     <li>{@code cas} – l’acceptation est décidée par un UPDATE conditionnel sur le prix de la vente
+ *     ({@link SaleDao#compareAndSetPrice}) ; l’enchère n’est insérée qu’en cas de succès,</li>
+ *     <li>{@code sequencer} – l’enchère est validée en mémoire par le {@link BidSequencer}
+ *     de sa vente, sans lecture en base, puis persistée de manière asynchrone.</li>
+ * </ul>
+ *
+ * <p>L’enchère automatique (enchère maximale, {@link BidRequestDto#getMaxAmount()}) repose sur l’état
+ * en mémoire du séquenceur : elle n’est acceptée qu’en mode {@code sequencer}.</p>
+ *
+ * <p>Dans tous les modes, le crédit engagé est réservé sur la vente (table CREDIT_HOLDS) au lieu
+ * d’être débité : la réservation du meneur dépassé est libérée dès l’acceptation de l’enchère,
+ * et seule celle du gagnant est débitée à la fin de la vente.</p>
+ *
+ * <p>Dans tous les modes, une enchère acceptée dans la fenêtre de fin de la vente la prolonge
+ * ({@link SoftClose}), atomiquement avec son acceptation ; la nouvelle date de fin est publiée
+ * par un {@link SaleExtendedEvent} après validation.</p>
+ *
+ * <p>Chaque enchère acceptée est diffusée aux abonnés de la vente par le {@link SaleEventBus},
+ * et, une fois validée en base, reportée dans le cache du catalogue ({@link SaleCatalog})
+ * et ajoutée à l'historique de prix de la vente ({@link PriceHistory}).</p>
  *
  * <p>Les exceptions levées sont de deux types :
  * <ul>
@@ -44,6 +91,8 @@ import org.springframework.transaction.annotation.Transactional;
  * @see BidDao
  * @see SaleDao
  * @see UserDao
+ * @see CreditLedger
+ * @see BidSequencer
  *
  * @author Rougeux Max
  * @version 1.0
@@ -54,6 +103,19 @@ public class BidServiceImpl implements BidService {
     private final SaleDao saleDao;
     private final BidDao bidDao;
     private final UserDao userDao;
+    private final CreditHoldDao creditHoldDao;
+    private final CreditLedger creditLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final SoftClose softClose;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SaleEventBus saleEventBus;
+    private final PriceHistory priceHistory;
+    private final SaleCatalog saleCatalog;
+    private final RecentWriters recentWriters;
+    private final BidMode mode;
+    private final Optional<BidSequencer> sequencer;
+    private final long sequencerTimeoutMs;
+    private final int topBids;
 
     /**
      * Constructeur principal du service d’enchères.
@@ -61,11 +123,52 @@ public class BidServiceImpl implements BidService {
      * @param saleDao DAO de gestion des ventes
      * @param bidDao DAO de gestion des enchères
      * @param userDao DAO de gestion des utilisateurs
+     * @param creditHoldDao DAO des réservations de crédit
+     * @param creditLedger registre en mémoire des réservations de crédit
+     * @param transactionTemplate template de transaction des modes transactionnel et compare-and-set
+     * @param softClose paramètres de la clôture progressive
+     * @param eventPublisher publication des prolongations de vente
+     * @param saleEventBus bus de diffusion des mises à jour de ventes
+     * @param priceHistory historique de prix des ventes, alimenté ici dans les modes transactionnel et compare-and-set
+     * @param saleCatalog cache du catalogue des ventes, mis à jour ici dans les modes transactionnel et compare-and-set
+     * @param recentWriters enchérisseurs récents, dont les lectures suivantes restent sur le primaire
+     * @param mode mode d’acceptation des enchères
+     * @param sequencer séquenceur d’enchères, présent uniquement en mode {@code sequencer}
+     * @param sequencerTimeoutMs délai maximal d’attente de la décision du séquenceur
+     * @param topBids nombre d’enchères de la vente renvoyées avec la réponse
      */
-    public BidServiceImpl(SaleDao saleDao, BidDao bidDao, UserDao userDao) {
+    public BidServiceImpl(SaleDao saleDao,
+                          BidDao bidDao,
+                          UserDao userDao,
+                          CreditHoldDao creditHoldDao,
+                          CreditLedger creditLedger,
+                          TransactionTemplate transactionTemplate,
+                          SoftClose softClose,
+                          ApplicationEventPublisher eventPublisher,
+                          SaleEventBus saleEventBus,
+                          PriceHistory priceHistory,
+                          SaleCatalog saleCatalog,
+                          RecentWriters recentWriters,
+                          @Value("${app.bid.mode:transactional}") BidMode mode,
+                          Optional<BidSequencer> sequencer,
+                          @Value("${app.bid.sequencer.timeout-ms:5000}") long sequencerTimeoutMs,
+                          @Value("${app.sale.detail.top-bids:20}") int topBids) {
         this.saleDao = saleDao;
         this.bidDao = bidDao;
         this.userDao = userDao;
+        this.creditHoldDao = creditHoldDao;
+        this.creditLedger = creditLedger;
+        this.transactionTemplate = transactionTemplate;
+        this.softClose = softClose;
+        this.eventPublisher = eventPublisher;
+        this.saleEventBus = saleEventBus;
+        this.priceHistory = priceHistory;
+        this.saleCatalog = saleCatalog;
+        this.recentWriters = recentWriters;
+        this.mode = mode;
+        this.sequencer = sequencer;
+        this.sequencerTimeoutMs = sequencerTimeoutMs;
+        this.topBids = topBids;
     }
 
     /**
@@ -73,10 +176,9 @@ public class BidServiceImpl implements BidService {
      *
      * <p>Cette méthode :
      * <ol>
-     *     <li>Récupère la vente associée et ses enchères existantes,</li>
      *     <li>Récupère l’utilisateur à partir du contexte de sécurité,</li>
-     *     <li>Construit et valide l’objet {@link Bid},</li>
-     *     <li>Persiste la nouvelle enchère et met à jour le crédit utilisateur,</li>
+     *     <li>Construit l’objet {@link Bid},</li>
+     *     <li>Le fait valider puis persister selon le {@link BidMode} configuré,</li>
      *     <li>Retourne un {@link BidResponseDto} prêt pour l’API.</li>
      * </ol>
      * </p>
@@ -90,38 +192,329 @@ public class BidServiceImpl implements BidService {
      * @throws BusinessException si la validation métier échoue
      */
     @Override
-    @Transactional
     public BidResponseDto placeBid(BidRequestDto bidRequest) {
-        Sale sale;
-        try {
-            sale = saleDao.readById(bidRequest.getSaleId());
-            sale.setBids(bidDao.readAll(sale.getSaleId()));
-        } catch (EmptyResultDataAccessException e) {
-            throw new NotFoundException("sale.not.found");
-        }
-
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return placeBid(loadBidder(authentication.getName()), bidRequest);
+    }
+
+    /**
+     * Lit l’utilisateur en base et charge son compte de crédit.
+     *
+     * @param email adresse e-mail de l’utilisateur authentifié
+     * @return l’utilisateur lu en base
+     * @throws NotFoundException si l’utilisateur n’existe pas
+     */
+    @Override
+    public User loadBidder(String email) {
         User user;
         try {
-            user = userDao.readByEmail(authentication.getName());
+            user = userDao.readByEmail(email);
         } catch (EmptyResultDataAccessException e) {
             throw new NotFoundException("user.not.found");
         }
+        creditLedger.load(user);
+        return user;
+    }
+
+    /**
+     * Place une enchère pour un enchérisseur déjà chargé, sans relire l’utilisateur en base :
+     * son crédit disponible est tenu par le {@link CreditLedger}. Si son compte en a été retiré
+     * depuis, l’utilisateur est relu pour que le compte ne soit pas rechargé avec un crédit périmé.
+     *
+     * @param bidder enchérisseur chargé par {@link #loadBidder}
+     * @param bidRequest DTO contenant les informations de l’enchère à placer
+     * @return {@link BidResponseDto} contenant la vente mise à jour et l’utilisateur actualisé
+     */
+    @Override
+    public BidResponseDto placeBid(User bidder, BidRequestDto bidRequest) {
+        User user = creditLedger.isLoaded(bidder.getUserId()) ? bidder : loadBidder(bidder.getEmail());
 
         Bid bid = new Bid();
-        bid.setSale(sale);
         bid.setUser(user);
         bid.setBidAmount(bidRequest.getBidAmount());
-        bid.setBidTime(bidRequest.getBidTime());
+        bid.setMaxAmount(bidRequest.getMaxAmount());
+        bid.setBidTime(LocalDateTime.now());
 
-        bid.validateBid();
-        bidDao.create(bid);
-        userDao.update(bid.getUser());
+        if (bid.getMaxAmount() != 0 && mode != BidMode.SEQUENCER) {
+            throw new BusinessException("bid.proxy.unsupported");
+        }
 
-        Sale updatedSale = new Sale(bid.getSale());
-        bid.getSale().setBids(null);
-        updatedSale.getBids().addFirst(bid);
+        long saleId = bidRequest.getSaleId();
+        BidResponseDto response = switch (mode) {
+            case SEQUENCER -> {
+                BidSequencer bidSequencer = sequencer.orElseThrow();
+                Sequenced sequenced = awaitSequencer(bidSequencer.submit(saleId, bid));
+                yield new BidResponseDto(sequenced.sale().toDTO(), user.toDTO(), sequenced.pending());
+            }
+            case CAS -> {
+                SaleDao.RecordedBid recorded = placeBidCompareAndSet(saleId, bid);
+                BidResponseDto accepted = readResponse(saleId, bid);
+                saleCatalog.onBid(accepted.sale(), recorded.extended());
+                yield accepted;
+            }
+            case TRANSACTIONAL -> placeBidTransactional(saleId, bid);
+        };
+        saleEventBus.publish(SaleEventDto.of(response.sale()));
+        recentWriters.record(user.getEmail());
+        return response;
+    }
 
-        return new BidResponseDto(updatedSale.toDTO(), bid.getUser().toDTO());
+    /**
+     * Place une enchère en relisant la vente et ses enchères dans une transaction,
+     * puis libère la réservation du meneur dépassé une fois la transaction validée.
+     *
+     * @param saleId identifiant de la vente
+     * @param bid enchère portant l’utilisateur, le montant et l’horodatage
+     * @return {@link BidResponseDto} contenant la vente mise à jour et l’utilisateur actualisé
+     */
+    private BidResponseDto placeBidTransactional(long saleId, Bid bid) {
+        CreditLedger.Reservation[] reservation = new CreditLedger.Reservation[1];
+        SaleDao.RecordedBid[] recorded = new SaleDao.RecordedBid[1];
+        try {
+            BidResponseDto response = transactionTemplate.execute(status -> {
+                Sale sale;
+                try {
+                    sale = saleDao.readDetail(saleId, topBids);
+                } catch (EmptyResultDataAccessException e) {
+                    throw new NotFoundException("sale.not.found");
+                }
+
+                bid.setSale(sale);
+
+                bid.validateBid(creditLedger.previousHold(bid, saleId));
+                reservation[0] = creditLedger.reserve(bid, saleId);
+                bidDao.create(bid);
+                recorded[0] = saleDao.recordBid(bid, softClose.window(), softClose.extension())
+                        .orElseThrow(() -> rejectionOf(saleId));
+                creditHoldDao.upsert(reservation[0].toHold());
+
+                return buildResponse(bid, recorded[0]);
+            });
+            releaseOutbid(recorded[0].previousLeaderId(), bid);
+            publishExtension(saleId, recorded[0]);
+            priceHistory.record(saleId, bid.getBidTime(), bid.getBidAmount());
+            saleCatalog.onBid(response.sale(), recorded[0].extended());
+            return response;
+        } catch (RuntimeException e) {
+            if (reservation[0] != null) {
+                creditLedger.cancel(reservation[0]);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Construit la réponse du mode transactionnel à partir de la vente relue et de la ligne mise à jour.
+     * <p>
+     * Le prix, le meneur, le nombre d'enchères et la date de fin sont ceux renvoyés par l'UPDATE,
+     * qui comptent les enchères acceptées entre la lecture de la vente et son report.
+     * </p>
+     *
+     * @param bid enchère acceptée, portant la vente relue avant son insertion
+     * @param recorded ligne de la vente après le report de l'enchère
+     * @return {@link BidResponseDto} contenant la vente mise à jour et l’utilisateur actualisé
+     */
+    private BidResponseDto buildResponse(Bid bid, SaleDao.RecordedBid recorded) {
+        Sale sale = bid.getSale();
+        List<Bid> previous = sale.getBids();
+        sale.setBids(null);
+
+        SaleDto updatedSale = sale.toDTO();
+        List<BidDto> bids = new ArrayList<>(topBids);
+        bids.add(bid.toDTO());
+        for (int i = 0; i < previous.size() && bids.size() < topBids; i++) {
+            bids.add(previous.get(i).toDTO());
+        }
+        updatedSale.setBidLst(bids);
+        updatedSale.setSalePrice(recorded.currentPrice());
+        updatedSale.setLeaderId(recorded.leaderId());
+        updatedSale.setBidCount(recorded.bidCount());
+        updatedSale.setEndingDate(recorded.endingDate());
+
+        return new BidResponseDto(updatedSale, bid.getUser().toDTO());
+    }
+
+    /**
+     * Place une enchère par compare-and-set sur le prix de la vente.
+     *
+     * <p>Le crédit est réservé en mémoire avant la transaction, puis vérifié dans la transaction
+     * contre la somme des réservations en base, la ligne de l’utilisateur verrouillée : plusieurs
+     * instances peuvent servir le mode compare-and-set sans engager deux fois le même crédit.
+     * L’UPDATE conditionnel décide ensuite de l’acceptation : deux enchères concurrentes
+     * d’un même montant ne peuvent plus être acceptées toutes les deux. Il renvoie aussi
+     * le meneur dépassé, dont la réservation est libérée après validation.</p>
+     *
+     * @param saleId identifiant de la vente
+     * @param bid enchère portant l’utilisateur, le montant et l’horodatage
+     * @return l’enchère reportée sur la vente
+     * @throws BusinessException si l’enchère est refusée
+     */
+    private SaleDao.RecordedBid placeBidCompareAndSet(long saleId, Bid bid) {
+        Sale sale = new Sale();
+        sale.setSaleId(saleId);
+        bid.setSale(sale);
+
+        bid.validateBid(creditLedger.previousHold(bid, saleId));
+        CreditLedger.Reservation reservation = creditLedger.reserve(bid, saleId);
+        SaleDao.RecordedBid recorded;
+        try {
+            recorded = transactionTemplate.execute(status -> {
+                // Le registre ne voit pas les réservations des autres instances : la base fait foi
+                if (!creditHoldDao.coversHold(reservation.toHold())) {
+                    throw new BusinessException("user.credit.insufficient");
+                }
+                SaleDao.RecordedBid accepted = saleDao.compareAndSetPrice(saleId, bid.getBidAmount(),
+                                bid.getUser().getUserId(), softClose.window(), softClose.extension())
+                        .orElseThrow(() -> rejectionOf(saleId));
+                bidDao.create(bid);
+                creditHoldDao.upsert(reservation.toHold());
+                return accepted;
+            });
+        } catch (RuntimeException e) {
+            creditLedger.cancel(reservation);
+            throw e;
+        }
+        releaseOutbid(recorded.previousLeaderId(), bid);
+        publishExtension(saleId, recorded);
+        priceHistory.record(saleId, bid.getBidTime(), bid.getBidAmount());
+        return recorded;
+    }
+
+    /**
+     * Publie la nouvelle date de fin d'une vente prolongée par une enchère validée en base.
+     *
+     * @param saleId identifiant de la vente
+     * @param recorded enchère reportée sur la vente
+     */
+    private void publishExtension(long saleId, SaleDao.RecordedBid recorded) {
+        if (recorded.extended()) {
+            eventPublisher.publishEvent(new SaleExtendedEvent(saleId, recorded.endingDate()));
+        }
+    }
+
+    /**
+     * Libère la réservation du meneur dépassé par une enchère validée en base,
+     * et planifie sa suppression.
+     *
+     * @param previousLeader identifiant du meneur avant l’enchère (0 si aucun)
+     * @param bid enchère acceptée
+     */
+    private void releaseOutbid(long previousLeader, Bid bid) {
+        if (previousLeader == 0 || previousLeader == bid.getUser().getUserId()) {
+            return;
+        }
+        CreditHold released = creditLedger.release(previousLeader, bid.getSale().getSaleId());
+        if (released != null) {
+            creditLedger.schedulePurge(released);
+        }
+    }
+
+    /**
+     * Détermine la raison du refus d’un compare-and-set, hors du chemin nominal.
+     *
+     * @param saleId identifiant de la vente
+     * @return l’exception métier correspondant à la raison du refus
+     */
+    private BusinessException rejectionOf(long saleId) {
+        Sale sale;
+        try {
+            sale = saleDao.readById(saleId);
+        } catch (EmptyResultDataAccessException e) {
+            return new NotFoundException("sale.not.found");
+        }
+        return sale.isOngoing()
+                ? new BusinessException("bid.amount.tooLow")
+                : new BusinessException("bid.sale.over");
+    }
+
+    /**
+     * Relit la vente et ses meilleures enchères après validation de la transaction, pour la réponse.
+     *
+     * @param saleId identifiant de la vente
+     * @param bid enchère acceptée
+     * @return {@link BidResponseDto} contenant la vente mise à jour et l’utilisateur actualisé
+     */
+    private BidResponseDto readResponse(long saleId, Bid bid) {
+        Sale sale = saleDao.readDetail(saleId, topBids);
+
+        return new BidResponseDto(sale.toDTO(), bid.getUser().toDTO());
+    }
+
+    /**
+     * Attend la décision du séquenceur, puis son écriture en base, et restitue les exceptions métier
+     * qu’il a levées.
+     * <p>
+     * {@code bid.timeout} n’est levée que si l’enchère n’a pas été examinée : elle est alors retirée
+     * de la file et ne sera jamais appliquée. Une fois la décision prise, seule l’écriture en base
+     * est attendue dans le délai restant ; au-delà, l’enchère est renvoyée comme acceptée mais
+     * en attente d’écriture ({@link BidResponseDto#pending()}), réponse que la couche d’idempotence
+     * conserve comme une autre.
+     * </p>
+     *
+     * @param submission soumission renvoyée par {@link BidSequencer#submit}
+     * @return la vente après acceptation de l’enchère, et vrai si son écriture n’est pas encore confirmée
+     * @throws BusinessException si l’enchère est refusée, ou n’a pas été examinée dans le délai
+     */
+    private Sequenced awaitSequencer(BidSequencer.Submission submission) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sequencerTimeoutMs);
+        Sale sale;
+        try {
+            sale = submission.decision().get(sequencerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (submission.abandon()) {
+                throw new BusinessException("bid.timeout");
+            }
+            sale = awaitDecision(submission);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (submission.abandon()) {
+                throw new BusinessException("bid.timeout");
+            }
+            sale = awaitDecision(submission);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+
+        try {
+            submission.durable().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return new Sequenced(sale, false);
+        } catch (TimeoutException e) {
+            return new Sequenced(sale, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sequenced(sale, true);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Attend une décision déjà en cours d’examen, qui n’attend pas l’écriture de l’enchère en base.
+     */
+    private static Sale awaitDecision(BidSequencer.Submission submission) {
+        try {
+            return submission.decision().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    /**
+     * Enchère acceptée par le séquenceur.
+     *
+     * @param sale    vente après l’enchère
+     * @param pending vrai si l’écriture en base n’est pas encore confirmée
+     */
+    private record Sequenced(Sale sale, boolean pending) {
     }
 }
@@ -1,12 +1,8 @@
 package fr.rougeux.projet.auction.service.impl;
 
-import fr.rougeux.projet.auction.bo.Category;
 import fr.rougeux.projet.auction.dto.bo.CategoryDto;
-import fr.rougeux.projet.auction.repository.CategoryDao;
 import fr.rougeux.projet.auction.service.CategoryService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.dao.DataAccessException;
+import fr.rougeux.projet.auction.service.catalog.CategoryFacets;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,10 +12,11 @@ import java.util.List;
  * <p>
  * Fournit la logique métier pour la gestion des catégories :
  * <ul>
- *     <li>Lecture de toutes les catégories</li>
- *     <li>Conversion des entités {@link Category} en {@link CategoryDto}</li>
+ *     <li>Lecture de toutes les catégories, avec le nombre de ventes au total, en cours
+ *     et se terminant bientôt</li>
  * </ul>
- * Cette classe utilise un {@link CategoryDao} pour accéder aux données dans la base.
+ * Les catégories et leurs compteurs sont tenus en mémoire par {@link CategoryFacets} :
+ * leur lecture ne fait aucun accès à la base.
  * </p>
  *
  * @author Rougeux Max
@@ -28,36 +25,24 @@ import java.util.List;
 @Service
 public class CategoryServiceImpl implements CategoryService {
 
-    private static final Logger LOG = LoggerFactory.getLogger(CategoryServiceImpl.class);
-    private final CategoryDao categoryDao;
+    private final CategoryFacets categoryFacets;
 
     /**
      * Constructeur de l'implémentation du service.
      *
-     * @param dao le {@link CategoryDao} injecté par Spring pour accéder aux données des catégories
+     * @param categoryFacets les compteurs des ventes par catégorie
      */
-    public CategoryServiceImpl(CategoryDao dao) {
-        this.categoryDao = dao;
+    public CategoryServiceImpl(CategoryFacets categoryFacets) {
+        this.categoryFacets = categoryFacets;
     }
 
     /**
-     * Récupère toutes les catégories de la base de données et les convertit en {@link CategoryDto}.
-     * <p>
-     * En cas d'erreur d'accès à la base de données, une exception {@link DataAccessException} est levée.
-     * </p>
+     * Récupère toutes les catégories et leurs compteurs de ventes.
      *
      * @return une liste de {@link CategoryDto} représentant toutes les catégories
      */
     @Override
     public List<CategoryDto> findAll() {
-        try {
-            LOG.info("Fetching categories from the database.");
-            List<Category> categories = categoryDao.readAll();
-
-            return categories.stream().map(Category::toDTO).toList();
-        } catch (DataAccessException e) {
-            LOG.error("db.access.error");
-            throw e;
-        }
+        return categoryFacets.categories();
     }
 }
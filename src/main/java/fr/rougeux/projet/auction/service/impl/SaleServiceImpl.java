@@ -1,28 +1,62 @@
 package fr.rougeux.projet.auction.service.impl;
 
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.PriceBucket;
 import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.dto.bo.BidDto;
 import fr.rougeux.projet.auction.dto.bo.SaleDto;
+import fr.rougeux.projet.auction.dto.request.SaleSearchDto;
+import fr.rougeux.projet.auction.dto.response.BidPageDto;
+import fr.rougeux.projet.auction.dto.response.PriceBucketDto;
+import fr.rougeux.projet.auction.dto.response.SaleHitDto;
+import fr.rougeux.projet.auction.dto.response.SalePageDto;
+import fr.rougeux.projet.auction.exception.BusinessException;
 import fr.rougeux.projet.auction.exception.NotFoundException;
 import fr.rougeux.projet.auction.repository.BidDao;
 import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.repository.SaleQuery;
+import fr.rougeux.projet.auction.service.RowStream;
 import fr.rougeux.projet.auction.service.SaleService;
+import fr.rougeux.projet.auction.service.catalog.OngoingSales;
+import fr.rougeux.projet.auction.service.catalog.SaleCatalog;
+import fr.rougeux.projet.auction.service.history.PriceHistory;
+import fr.rougeux.projet.auction.service.search.SaleSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Implémentation du {@link SaleService}.
  * <p>
  * Contient la logique métier des ventes aux enchères :
  * <ul>
- *     <li>Lecture de toutes les ventes avec enchère actuelle</li>
- *     <li>Lecture d’une vente et de ses enchères</li>
+ *     <li>Lecture paginée par clé des ventes, filtrées et triées, avec enchère actuelle</li>
+ *     <li>Parcours sans liste intermédiaire de toutes les ventes filtrées, ou de l’historique des enchères d’une vente</li>
+ *     <li>Lecture d’une vente et de ses meilleures enchères, ou de plusieurs ventes par leurs identifiants</li>
+ *     <li>Pagination par clé de l’historique des enchères d’une vente</li>
+ *     <li>Historique de prix d’une vente par intervalles</li>
+ *     <li>Recherche plein texte des ventes en cours</li>
  *     <li>Placement d’une enchère avec gestion du crédit utilisateur</li>
  * </ul>
+ * Le détail des ventes et les pages de la liste sont servis depuis le {@link SaleCatalog} ; les pages
+ * non filtrées des ventes en cours triées par date de fin ou de début, depuis l'{@link OngoingSales}.
  *
  * @author Rougeux Max
  * @version 1.0
@@ -31,32 +65,151 @@ import java.util.List;
 public class SaleServiceImpl implements SaleService {
 
     private static final Logger LOG = LoggerFactory.getLogger(SaleServiceImpl.class);
+    private static final Pattern BUCKET = Pattern.compile("(\\d{1,4})([mh])");
+    private static final int MAX_BUCKET_MINUTES = 7 * 24 * 60;
     private final SaleDao saleDao;
     private final BidDao bidDao;
+    private final PriceHistory priceHistory;
+    private final SaleCatalog saleCatalog;
+    private final OngoingSales ongoingSales;
+    private final SaleSearchIndex saleSearchIndex;
+    private final int topBids;
+    private final int maxPageSize;
+    private final int maxSalePageSize;
+    private final int maxSearchResults;
+    private final int maxLookupIds;
+    private final int lookupChunkSize;
 
     /**
      * Constructeur du service de vente.
      *
      * @param saleDao le DAO utilisé pour accéder aux ventes en base de données
+     * @param bidDao le DAO utilisé pour accéder aux enchères
+     * @param priceHistory l'historique de prix des ventes
+     * @param saleCatalog le cache du catalogue des ventes
+     * @param ongoingSales l'index en mémoire des ventes en cours
+     * @param saleSearchIndex l'index plein texte des ventes en cours
+     * @param topBids nombre d'enchères incluses dans le détail d'une vente
+     * @param maxPageSize taille maximale d'une page de l'historique des enchères
+     * @param maxSalePageSize taille maximale d'une page de la liste des ventes
+     * @param maxSearchResults nombre maximal de résultats d'une recherche
+     * @param maxLookupIds nombre maximal de ventes lues par identifiants en un appel
+     * @param lookupChunkSize nombre d'identifiants par requête d'une lecture par identifiants
      */
-    public SaleServiceImpl(SaleDao saleDao, BidDao bidDao) {
+    public SaleServiceImpl(SaleDao saleDao,
+                           BidDao bidDao,
+                           PriceHistory priceHistory,
+                           SaleCatalog saleCatalog,
+                           OngoingSales ongoingSales,
+                           SaleSearchIndex saleSearchIndex,
+                           @Value("${app.sale.detail.top-bids:20}") int topBids,
+                           @Value("${app.sale.bids.max-page-size:200}") int maxPageSize,
+                           @Value("${app.sale.list.max-page-size:100}") int maxSalePageSize,
+                           @Value("${app.sale.search.max-results:100}") int maxSearchResults,
+                           @Value("${app.sale.lookup.max-ids:2000}") int maxLookupIds,
+                           @Value("${app.sale.lookup.chunk-size:1000}") int lookupChunkSize) {
         this.bidDao = bidDao;
         this.saleDao = saleDao;
+        this.priceHistory = priceHistory;
+        this.saleCatalog = saleCatalog;
+        this.ongoingSales = ongoingSales;
+        this.saleSearchIndex = saleSearchIndex;
+        this.topBids = topBids;
+        this.maxPageSize = maxPageSize;
+        this.maxSalePageSize = maxSalePageSize;
+        this.maxSearchResults = maxSearchResults;
+        this.maxLookupIds = maxLookupIds;
+        this.lookupChunkSize = lookupChunkSize;
     }
 
     /**
-     * Récupère toutes les ventes de la base de données.
+     * Récupère une page de ventes filtrées et triées, par pagination par clé.
+     * <p>
+     * Une vente de plus que demandé est lue pour savoir s'il existe une page suivante.
+     * Sans filtre de statut, seules les ventes en cours sont renvoyées.
+     * </p>
      *
-     * @return une liste de {@link SaleDto} représentant toutes les ventes
+     * @param search filtres, tri, curseur et taille de la page, bornée à {@code app.sale.list.max-page-size}
+     * @return la page de ventes et le curseur de la suivante
+     * @throws BusinessException si un filtre, le tri ou le curseur est invalide
      * @throws DataAccessException si un problème survient lors de l'accès à la base
      */
     @Override
-    public List<SaleDto> findAll() {
+    public SalePageDto findPage(SaleSearchDto search) {
+        int size = Math.clamp(search.getLimit(), 1, maxSalePageSize);
+        SaleQuery query = toQuery(search, size + 1);
+        if (ongoingSales.serves(query)) {
+            return ongoingSales.page(query, size);
+        }
+        return saleCatalog.page(query, () -> readPage(query, size));
+    }
+
+    /**
+     * Prépare le parcours de toutes les ventes filtrées et triées, à partir du curseur éventuel,
+     * sans taille de page : chaque vente lue est convertie et transmise aussitôt.
+     *
+     * @param search filtres, tri et curseur ; la taille de page est ignorée
+     * @return le parcours des ventes, dans l'ordre du tri
+     * @throws BusinessException si un filtre, le tri ou le curseur est invalide
+     */
+    @Override
+    public RowStream<SaleDto> streamSales(SaleSearchDto search) {
+        SaleQuery query = toQuery(search, 0);
+        LocalDateTime now = LocalDateTime.now();
+        return action -> saleDao.forEachPage(query, now, sale -> action.accept(sale.toDTO()));
+    }
+
+    /**
+     * Valide les paramètres de recherche et construit les critères de lecture.
+     *
+     * @param search paramètres de recherche
+     * @param limit  nombre de ventes à lire
+     * @return les critères de lecture
+     * @throws BusinessException si un filtre, le tri ou le curseur est invalide
+     */
+    private static SaleQuery toQuery(SaleSearchDto search, int limit) {
+        SaleQuery.Status status;
+        SaleQuery.Sort sort;
+        try {
+            status = SaleQuery.Status.valueOf(search.getStatus().trim().toUpperCase(Locale.ROOT));
+            sort = SaleQuery.Sort.parse(search.getSort());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new BusinessException("sale.filter.invalid");
+        }
+        if (search.getMinPrice() != null && search.getMaxPrice() != null && search.getMinPrice() > search.getMaxPrice()
+                || search.getEndingAfter() != null && search.getEndingBefore() != null
+                && !search.getEndingAfter().isBefore(search.getEndingBefore())) {
+            throw new BusinessException("sale.filter.invalid");
+        }
+        SaleQuery.Cursor after = null;
+        if (search.getAfter() != null && !search.getAfter().isEmpty()) {
+            try {
+                after = SaleQuery.Cursor.decode(search.getAfter(), sort);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new BusinessException("sale.cursor.invalid");
+            }
+        }
+        return new SaleQuery(search.getCategoryId(), status, search.getMinPrice(), search.getMaxPrice(),
+                search.getSellerId(), search.getEndingAfter(), search.getEndingBefore(), sort, after, limit);
+    }
+
+    /**
+     * Lit en base une page de ventes et construit le curseur de la suivante.
+     *
+     * @param query critères de la page, avec une vente de plus que la taille de la page
+     * @param size  taille de la page
+     * @return la page de ventes
+     */
+    private SalePageDto readPage(SaleQuery query, int size) {
         try {
-            LOG.info("Fetching all sales from the database.");
-            List<Sale> sales = saleDao.readAll();
+            List<Sale> sales = saleDao.readPage(query, LocalDateTime.now());
 
-            return sales.stream().map(Sale::toDTO).toList();
+            String next = null;
+            if (sales.size() > size) {
+                sales = sales.subList(0, size);
+                next = query.sort().cursorOf(sales.getLast()).encode();
+            }
+            return new SalePageDto(sales.stream().map(Sale::toDTO).toList(), next);
         } catch (DataAccessException e) {
             LOG.error("db.access.error");
             throw e;
@@ -64,7 +217,9 @@ public class SaleServiceImpl implements SaleService {
     }
 
     /**
-     * Récupère une vente par son identifiant.
+     * Récupère une vente par son identifiant et ses {@code app.sale.detail.top-bids} meilleures enchères :
+     * la taille de la réponse ne dépend pas du nombre d'enchères de la vente.
+     * La vente est lue en base seulement si elle n'est pas dans le cache du catalogue.
      *
      * @param id l'identifiant de la vente
      * @return le {@link SaleDto} correspondant
@@ -72,9 +227,62 @@ public class SaleServiceImpl implements SaleService {
      */
     @Override
     public SaleDto findById(long id) {
+        return saleCatalog.detail(id, () -> readById(id));
+    }
+
+    /**
+     * Récupère plusieurs ventes par leurs identifiants. Les ventes absentes du cache du catalogue
+     * sont lues par lots de {@code app.sale.lookup.chunk-size} identifiants, en deux requêtes par lot :
+     * les ventes, puis les meilleures enchères de toutes les ventes du lot.
+     *
+     * @param ids les identifiants des ventes, au plus {@code app.sale.lookup.max-ids} distincts
+     * @return les ventes trouvées, dans l'ordre des identifiants demandés
+     * @throws BusinessException si la liste est vide ou trop longue
+     * @throws DataAccessException si un problème survient lors de l'accès à la base
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<SaleDto> findByIds(List<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        if (distinct.isEmpty()) {
+            throw new BusinessException("sale.ids.empty");
+        }
+        if (distinct.size() > maxLookupIds) {
+            throw new BusinessException("sale.ids.too.many");
+        }
+        Map<Long, SaleDto> found = saleCatalog.details(distinct, this::readByIds);
+        return distinct.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private Map<Long, SaleDto> readByIds(Set<Long> ids) {
         try {
-            Sale sale = saleDao.readById(id);
-            sale.setBids(bidDao.readAll(sale.getSaleId()));
+            Map<Long, SaleDto> found = new HashMap<>();
+            List<Long> remaining = List.copyOf(ids);
+            for (int from = 0; from < remaining.size(); from += lookupChunkSize) {
+                List<Long> chunk = remaining.subList(from, Math.min(from + lookupChunkSize, remaining.size()));
+                List<Sale> sales = saleDao.readByIds(chunk);
+                if (sales.isEmpty()) {
+                    continue;
+                }
+                Map<Long, List<Bid>> bids = bidDao.readTopBySales(sales.stream().map(Sale::getSaleId).toList(), topBids);
+                for (Sale sale : sales) {
+                    sale.setBids(bids.getOrDefault(sale.getSaleId(), new ArrayList<>()));
+                    found.put(sale.getSaleId(), sale.toDTO());
+                }
+            }
+            return found;
+        } catch (DataAccessException e) {
+            LOG.error("db.access.error");
+            throw e;
+        }
+    }
+
+    private SaleDto readById(long id) {
+        try {
+            Sale sale = saleDao.readDetail(id, topBids);
             LOG.info("Sale found: {}", sale);
 
             return sale.toDTO();
@@ -84,6 +292,100 @@ public class SaleServiceImpl implements SaleService {
         }
     }
 
+    /**
+     * Récupère une page de l'historique des enchères d'une vente, par pagination par clé.
+     * <p>
+     * Une enchère de plus que demandé est lue pour savoir s'il existe une page suivante.
+     * </p>
+     *
+     * @param id    l'identifiant de la vente
+     * @param after curseur {@code montant,identifiant} de la dernière enchère de la page précédente,
+     *              {@code null} pour la première page
+     * @param limit nombre maximal d'enchères de la page, borné à {@code app.sale.bids.max-page-size}
+     * @return la page d'enchères et le curseur de la suivante
+     * @throws BusinessException si le curseur est invalide
+     */
+    @Override
+    public BidPageDto findBids(long id, String after, int limit) {
+        int size = Math.clamp(limit, 1, maxPageSize);
+        List<Bid> bids;
+        if (after == null || after.isEmpty()) {
+            bids = bidDao.readTop(id, size + 1);
+        } else {
+            String[] cursor = after.split(",");
+            int afterAmount;
+            long afterBidId;
+            try {
+                if (cursor.length != 2) {
+                    throw new NumberFormatException(after);
+                }
+                afterAmount = Integer.parseInt(cursor[0].trim());
+                afterBidId = Long.parseLong(cursor[1].trim());
+            } catch (NumberFormatException e) {
+                throw new BusinessException("bid.cursor.invalid");
+            }
+            bids = bidDao.readPage(id, afterAmount, afterBidId, size + 1);
+        }
+
+        String next = null;
+        if (bids.size() > size) {
+            bids = bids.subList(0, size);
+            Bid last = bids.getLast();
+            next = last.getBidAmount() + "," + last.getBidId();
+        }
+        return new BidPageDto(bids.stream().map(Bid::toDTO).toList(), next);
+    }
+
+    /**
+     * Prépare le parcours de tout l'historique des enchères d'une vente, par montant décroissant.
+     *
+     * @param id l'identifiant de la vente
+     * @return le parcours des enchères, vide si la vente n'existe pas
+     */
+    @Override
+    public RowStream<BidDto> streamBids(long id) {
+        return action -> bidDao.forEachBySale(id, bid -> action.accept(bid.toDTO()));
+    }
+
+    /**
+     * Récupère l'historique de prix d'une vente, regroupé à partir des intervalles d'une minute
+     * tenus par le {@link PriceHistory} : le coût ne dépend pas du nombre d'enchères.
+     *
+     * @param id     l'identifiant de la vente
+     * @param bucket durée d'un intervalle, {@code <n>m} ou {@code <n>h}, au plus une semaine
+     * @return les intervalles, par date croissante
+     * @throws BusinessException si la durée est invalide
+     */
+    @Override
+    public List<PriceBucketDto> findPriceHistory(long id, String bucket) {
+        Matcher matcher = BUCKET.matcher(bucket == null ? "" : bucket.trim());
+        if (!matcher.matches()) {
+            throw new BusinessException("price.bucket.invalid");
+        }
+        int minutes = Integer.parseInt(matcher.group(1)) * ("h".equals(matcher.group(2)) ? 60 : 1);
+        if (minutes < 1 || minutes > MAX_BUCKET_MINUTES) {
+            throw new BusinessException("price.bucket.invalid");
+        }
+        return priceHistory.read(id, minutes).stream().map(PriceBucket::toDTO).toList();
+    }
+
+    /**
+     * Recherche les ventes en cours dans l'index plein texte en mémoire, sans accès à la base.
+     *
+     * @param q     texte recherché
+     * @param limit nombre maximal de ventes, borné à {@code app.sale.search.max-results}
+     * @return les ventes trouvées, par pertinence décroissante
+     * @throws BusinessException si le texte est vide
+     */
+    @Override
+    public List<SaleHitDto> search(String q, int limit) {
+        if (q == null || q.isBlank()) {
+            throw new BusinessException("search.query.empty");
+        }
+        int size = Math.max(1, Math.min(limit, maxSearchResults));
+        return saleSearchIndex.search(q.trim(), size);
+    }
+
     /**
      * Récupère toutes les ventes associées à un utilisateur donné.
      * <p>
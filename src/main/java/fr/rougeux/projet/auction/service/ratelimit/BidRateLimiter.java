@@ -0,0 +1,201 @@
+package fr.rougeux.projet.auction.service.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limitation du débit des enchères par seaux à jetons ({@link TokenBucket}).
+ * <p>
+ * Chaque enchère prend un jeton dans le seau de son auteur et dans celui de son auteur sur la vente
+ * visée : un client ne peut ni inonder l'API, ni s'acharner sur une même vente. Les limites dépendent
+ * du rôle : le premier rôle de {@code app.bid.rate-limit.roles} détenu par l'utilisateur fixe
+ * {@code app.bid.rate-limit.<rôle>.per-user.*} et {@code app.bid.rate-limit.<rôle>.per-sale.*}
+ * ({@code capacity}, {@code refill-per-second}) ; à défaut, le dernier rôle de la liste s'applique.
+ * </p>
+ * <p>
+ * Les seaux sont rangés dans une table bornée à {@code app.bid.rate-limit.max-buckets} entrées ;
+ * les seaux pleins inutilisés depuis {@code app.bid.rate-limit.idle-ms} en sont retirés périodiquement,
+ * ou dès que la table est pleine. Si elle le reste, les nouveaux clients sont refusés.
+ * </p>
+ * <p>
+ * Métriques exposées : {@code auction.bid.rate-limited} (enchères refusées)
+ * et {@code auction.bid.rate-limit.buckets} (seaux en mémoire).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class BidRateLimiter {
+
+    private static final String PREFIX = "app.bid.rate-limit.";
+    private static final long FULL_RETRY_MS = 1000;
+
+    private final boolean enabled;
+    private final List<RoleLimits> roles = new ArrayList<>();
+    private final int maxBuckets;
+    private final long idleMs;
+    private final long originNanos = System.nanoTime();
+    private final Map<Object, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Counter rejected;
+
+    /**
+     * Limites d'un rôle.
+     *
+     * @param perUser seau de l'utilisateur
+     * @param perSale seau de l'utilisateur sur une vente
+     */
+    public record Limits(RateLimit perUser, RateLimit perSale) {
+    }
+
+    private record RoleLimits(String authority, Limits limits) {
+    }
+
+    private record UserKey(String subject) {
+    }
+
+    private record SaleKey(String subject, long saleId) {
+    }
+
+    /**
+     * Constructeur du limiteur.
+     *
+     * @param environment   propriétés de l'application, pour les limites de chaque rôle
+     * @param enabled       faux pour désactiver la limitation
+     * @param roles         rôles ayant des limites, par ordre de priorité
+     * @param maxBuckets    nombre maximal de seaux en mémoire
+     * @param idleMs        inactivité après laquelle un seau plein est oublié, en millisecondes
+     * @param meterRegistry registre des métriques
+     * @throws IllegalStateException si une limite est invalide, ou si aucun rôle n'est configuré
+     */
+    public BidRateLimiter(Environment environment,
+                          @Value("${app.bid.rate-limit.enabled:true}") boolean enabled,
+                          @Value("${app.bid.rate-limit.roles:USER}") List<String> roles,
+                          @Value("${app.bid.rate-limit.max-buckets:100000}") int maxBuckets,
+                          @Value("${app.bid.rate-limit.idle-ms:300000}") long idleMs,
+                          MeterRegistry meterRegistry) {
+        if (roles.isEmpty()) {
+            throw new IllegalStateException(PREFIX + "roles is empty.");
+        }
+        if (maxBuckets < 1 || idleMs < 1) {
+            throw new IllegalStateException("Invalid " + PREFIX + "max-buckets " + maxBuckets + " or idle-ms " + idleMs);
+        }
+        this.enabled = enabled;
+        for (String role : roles) {
+            String prefix = PREFIX + role.toLowerCase(Locale.ROOT);
+            this.roles.add(new RoleLimits("ROLE_" + role,
+                    new Limits(limit(environment, prefix + ".per-user", 20, 10),
+                            limit(environment, prefix + ".per-sale", 5, 2))));
+        }
+        this.maxBuckets = maxBuckets;
+        this.idleMs = idleMs;
+        this.rejected = Counter.builder("auction.bid.rate-limited").register(meterRegistry);
+        Gauge.builder("auction.bid.rate-limit.buckets", buckets, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws IllegalStateException si la capacité ou le débit sont hors limites (un débit nul notamment)
+     */
+    private static RateLimit limit(Environment environment, String prefix, int defaultCapacity, int defaultRefillPerSecond) {
+        int capacity = environment.getProperty(prefix + ".capacity", Integer.class, defaultCapacity);
+        int refillPerSecond = environment.getProperty(prefix + ".refill-per-second", Integer.class, defaultRefillPerSecond);
+        try {
+            return new RateLimit(capacity, refillPerSecond);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid " + prefix + ".capacity " + capacity
+                    + " or " + prefix + ".refill-per-second " + refillPerSecond
+                    + " (capacity from 1 to " + TokenBucket.MAX_CAPACITY + ", refill from 1)", e);
+        }
+    }
+
+    /**
+     * @param authorities autorités de l'utilisateur authentifié
+     * @return les limites de son rôle le plus prioritaire
+     */
+    public Limits limitsFor(Collection<? extends GrantedAuthority> authorities) {
+        for (RoleLimits role : roles) {
+            for (GrantedAuthority authority : authorities) {
+                if (role.authority().equals(authority.getAuthority())) {
+                    return role.limits();
+                }
+            }
+        }
+        return roles.getLast().limits();
+    }
+
+    /**
+     * Prend un jeton pour une enchère, dans le seau de l'utilisateur puis dans celui de la vente.
+     *
+     * @param limits  limites du rôle de l'utilisateur
+     * @param subject identifiant de l'utilisateur authentifié
+     * @param saleId  identifiant de la vente, négatif s'il est inconnu
+     * @return 0 si l'enchère est autorisée, sinon le délai avant la prochaine tentative, en millisecondes
+     */
+    public long tryAcquire(Limits limits, String subject, long saleId) {
+        if (!enabled) {
+            return 0;
+        }
+        long nowMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+        long waitMs = tryAcquire(new UserKey(subject), limits.perUser(), nowMs);
+        if (waitMs == 0 && saleId >= 0) {
+            waitMs = tryAcquire(new SaleKey(subject, saleId), limits.perSale(), nowMs);
+        }
+        if (waitMs > 0) {
+            rejected.increment();
+        }
+        return waitMs;
+    }
+
+    private long tryAcquire(Object key, RateLimit limit, long nowMs) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                evictIdle(nowMs);
+                if (buckets.size() >= maxBuckets) {
+                    return FULL_RETRY_MS;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(limit, nowMs));
+        }
+        return bucket.tryAcquire(nowMs);
+    }
+
+    /**
+     * Retire les seaux pleins inutilisés.
+     */
+    @Scheduled(fixedDelayString = "${app.bid.rate-limit.idle-ms:300000}")
+    public void evictIdle() {
+        evictIdle(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos));
+    }
+
+    /**
+     * Un seul thread parcourt la table à la fois ; les autres ne l'attendent pas.
+     */
+    private void evictIdle(long nowMs) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.isIdle(nowMs, idleMs));
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
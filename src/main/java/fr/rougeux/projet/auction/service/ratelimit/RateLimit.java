@@ -0,0 +1,21 @@
+package fr.rougeux.projet.auction.service.ratelimit;
+
+/**
+ * Paramètres d'un seau à jetons.
+ *
+ * @param capacity        nombre maximal de jetons, soit la rafale autorisée
+ * @param refillPerSecond jetons ajoutés par seconde, soit le débit soutenu autorisé
+ * @author Rougeux Max
+ * @version 1.0
+ */
+public record RateLimit(int capacity, int refillPerSecond) {
+
+    /**
+     * @throws IllegalArgumentException si la capacité ou le débit sont hors limites
+     */
+    public RateLimit {
+        if (capacity < 1 || capacity > TokenBucket.MAX_CAPACITY || refillPerSecond < 1) {
+            throw new IllegalArgumentException("Invalid rate limit " + capacity + "/" + refillPerSecond);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package fr.rougeux.projet.auction.service.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seau à jetons sans verrou.
+ * <p>
+ * L'état tient dans un seul {@code long}, mis à jour par compare-and-set : les 40 bits de poids fort
+ * portent l'instant du dernier remplissage (millisecondes depuis l'origine du {@link BidRateLimiter}),
+ * les 24 bits de poids faible le nombre de jetons en millièmes. Le remplissage est calculé à chaque
+ * demande à partir du temps écoulé, sans tâche de fond ; un refus ne modifie pas l'état.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+final class TokenBucket {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long ONE = 1000;
+
+    static final long MAX_CAPACITY = TOKEN_MASK / ONE;
+
+    private final long capacity;
+    private final long refillPerSecond;
+    private final AtomicLong state;
+
+    /**
+     * Crée un seau plein.
+     *
+     * @param limit paramètres du seau
+     * @param nowMs instant courant, en millisecondes depuis l'origine
+     */
+    TokenBucket(RateLimit limit, long nowMs) {
+        this.capacity = limit.capacity() * ONE;
+        this.refillPerSecond = limit.refillPerSecond();
+        this.state = new AtomicLong(pack(nowMs, capacity));
+    }
+
+    /**
+     * Prend un jeton.
+     *
+     * @param nowMs instant courant, en millisecondes depuis l'origine
+     * @return 0 si un jeton a été pris, sinon le délai avant le prochain jeton, en millisecondes
+     */
+    long tryAcquire(long nowMs) {
+        while (true) {
+            long current = state.get();
+            long time = Math.max(nowMs, current >>> TOKEN_BITS);
+            long tokens = refill(current, nowMs);
+            if (tokens < ONE) {
+                return (ONE - tokens + refillPerSecond - 1) / refillPerSecond;
+            }
+            if (state.compareAndSet(current, pack(time, tokens - ONE))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param nowMs  instant courant, en millisecondes depuis l'origine
+     * @param idleMs durée d'inactivité minimale, en millisecondes
+     * @return vrai si le seau est inutilisé depuis {@code idleMs} et plein : l'oublier ne change rien
+     */
+    boolean isIdle(long nowMs, long idleMs) {
+        long current = state.get();
+        return nowMs - (current >>> TOKEN_BITS) >= idleMs && refill(current, nowMs) == capacity;
+    }
+
+    /**
+     * @return les jetons, en millièmes, après remplissage jusqu'à {@code nowMs}
+     */
+    private long refill(long current, long nowMs) {
+        // Au-delà de capacity millisecondes, le seau est plein quel que soit le débit : borner
+        // le temps écoulé évite de déborder le produit après une longue inactivité
+        long elapsed = Math.min(capacity, Math.max(0, nowMs - (current >>> TOKEN_BITS)));
+        // millisecondes × jetons par seconde = millièmes de jeton
+        return Math.min(capacity, (current & TOKEN_MASK) + elapsed * refillPerSecond);
+    }
+
+    private static long pack(long timeMs, long tokens) {
+        return (timeMs << TOKEN_BITS) | tokens;
+    }
+}
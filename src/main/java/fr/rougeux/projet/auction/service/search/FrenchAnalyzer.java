@@ -0,0 +1,126 @@
+package fr.rougeux.projet.auction.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Découpage d'un texte français en termes d'index.
+ * <p>
+ * Le texte est mis en minuscules et ses accents retirés (forme NFD sans marques combinantes,
+ * ligatures æ et œ développées), puis découpé sur tout caractère qui n'est ni une lettre ni un chiffre :
+ * les élisions ({@code l'}, {@code qu'}...) deviennent des mots vides, retirés comme les articles
+ * et prépositions courants. Chaque mot est réduit par une racinisation minimale (pluriels, {@code -aux},
+ * {@code -er}, {@code -e} final), à la manière du {@code FrenchMinimalStemmer} de Lucene.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+final class FrenchAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "au", "aux", "avec", "c", "ce", "ces", "d", "dans", "de", "des", "du", "elle", "en", "et",
+            "il", "j", "l", "la", "le", "les", "leur", "m", "ma", "mais", "me", "mes", "n", "ne", "ni", "nos",
+            "notre", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "s", "sa", "se", "ses", "son",
+            "sur", "t", "ta", "te", "tes", "ton", "un", "une", "vos", "votre", "y");
+
+    private FrenchAnalyzer() {
+    }
+
+    /**
+     * @param text texte à découper, éventuellement {@code null}
+     * @return les mots du texte, en minuscules et sans accents, mots vides retirés, non racinisés
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean inWord = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                String word = folded.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @param text texte à découper, éventuellement {@code null}
+     * @return les termes d'index du texte, racinisés
+     */
+    static List<String> terms(String text) {
+        List<String> words = words(text);
+        words.replaceAll(FrenchAnalyzer::stem);
+        return words;
+    }
+
+    /**
+     * @param text texte quelconque
+     * @return le texte en minuscules, sans accents ni ligatures
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            switch (Character.getType(c)) {
+                case Character.NON_SPACING_MARK, Character.COMBINING_SPACING_MARK, Character.ENCLOSING_MARK -> {
+                }
+                default -> {
+                    if (c == 'æ') {
+                        folded.append("ae");
+                    } else if (c == 'œ') {
+                        folded.append("oe");
+                    } else {
+                        folded.append(c);
+                    }
+                }
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Racinisation minimale d'un mot sans accents : les mots de moins de six lettres sont conservés.
+     *
+     * @param word mot en minuscules, sans accents
+     * @return la racine du mot
+     */
+    static String stem(String word) {
+        int length = word.length();
+        if (length < 6) {
+            return word;
+        }
+        if (word.charAt(length - 1) == 'x') {
+            if (word.charAt(length - 3) == 'a' && word.charAt(length - 2) == 'u') {
+                return word.substring(0, length - 2) + "l";
+            }
+            return word.substring(0, length - 1);
+        }
+        if (word.charAt(length - 1) == 's') {
+            length--;
+        }
+        if (word.charAt(length - 1) == 'r') {
+            length--;
+        }
+        if (word.charAt(length - 1) == 'e') {
+            length--;
+        }
+        if (word.charAt(length - 1) == word.charAt(length - 2) && Character.isLetter(word.charAt(length - 1))) {
+            length--;
+        }
+        return word.substring(0, length);
+    }
+}
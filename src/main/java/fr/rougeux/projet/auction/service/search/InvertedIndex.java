@@ -0,0 +1,590 @@
+package fr.rougeux.projet.auction.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Index inversé en mémoire des articles des ventes, classé par BM25.
+ * <p>
+ * Chaque vente est un document, numéroté dans l'ordre d'ajout ; les listes de postings
+ * (document, fréquence) de chaque terme sont des tableaux primitifs triés par document,
+ * et les termes sont aussi rangés par ordre alphabétique pour la recherche par préfixe.
+ * Les termes du nom de l'article comptent {@value #NAME_WEIGHT} fois. Une vente retirée ou
+ * remplacée n'est que marquée supprimée ; les postings sont compactés quand plus d'un quart
+ * des documents sont supprimés.
+ * </p>
+ * <p>
+ * Non sûr entre threads : les accès sont synchronisés par {@link SaleSearchIndex}.
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+final class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_WEIGHT = 2;
+
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final NavigableSet<String> sortedTerms = new TreeSet<>();
+    private final Map<Long, Integer> docsBySale = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] saleIds = new long[1024];
+    private long[] categoryIds = new long[1024];
+    private long[] endings = new long[1024];
+    private String[] names = new String[1024];
+    private int[] lengths = new int[1024];
+    private int docCount;
+    private long totalLength;
+
+    /**
+     * Vente trouvée.
+     *
+     * @param saleId     identifiant de la vente
+     * @param categoryId catégorie de l'article
+     * @param itemName   nom de l'article
+     * @param score      score BM25
+     */
+    record Hit(long saleId, long categoryId, String itemName, float score) {
+    }
+
+    /**
+     * Ajoute une vente, ou remplace son document.
+     *
+     * @param saleId     identifiant de la vente
+     * @param categoryId catégorie de l'article
+     * @param endingMs   date de fin de la vente, en millisecondes depuis l'epoch
+     * @param name       nom de l'article
+     * @param desc       description de l'article
+     */
+    void add(long saleId, long categoryId, long endingMs, String name, String desc) {
+        remove(saleId);
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String term : FrenchAnalyzer.terms(name)) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String term : FrenchAnalyzer.terms(desc)) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        int doc = docCount++;
+        if (doc == saleIds.length) {
+            int capacity = doc * 2;
+            saleIds = Arrays.copyOf(saleIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            endings = Arrays.copyOf(endings, capacity);
+            names = Arrays.copyOf(names, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        saleIds[doc] = saleId;
+        categoryIds[doc] = categoryId;
+        endings[doc] = endingMs;
+        names[doc] = name;
+        lengths[doc] = length;
+        totalLength += length;
+        docsBySale.put(saleId, doc);
+        int docLength = length;
+        frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, t -> {
+            sortedTerms.add(t);
+            return new Postings();
+        }).add(doc, frequency, docLength));
+    }
+
+    /**
+     * Retire une vente.
+     *
+     * @param saleId identifiant de la vente
+     * @return vrai si la vente était indexée
+     */
+    boolean remove(long saleId) {
+        Integer doc = docsBySale.remove(saleId);
+        if (doc == null) {
+            return false;
+        }
+        deleted.set(doc);
+        totalLength -= lengths[doc];
+        names[doc] = null;
+        if (docCount > 1024 && deleted.cardinality() * 4 > docCount) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Met à jour la date de fin d'une vente indexée.
+     *
+     * @param saleId   identifiant de la vente
+     * @param endingMs nouvelle date de fin, en millisecondes depuis l'epoch
+     */
+    void extend(long saleId, long endingMs) {
+        Integer doc = docsBySale.get(saleId);
+        if (doc != null && endings[doc] < endingMs) {
+            endings[doc] = endingMs;
+        }
+    }
+
+    /**
+     * @return le nombre de ventes indexées
+     */
+    int size() {
+        return docsBySale.size();
+    }
+
+    /**
+     * Recherche les ventes en cours dont l'article contient les termes, classées par score BM25 décroissant.
+     * <p>
+     * Un document est trouvé s'il contient au moins un terme. Les termes commençant par {@code prefix}
+     * (au plus {@code maxExpansions}, par ordre alphabétique) forment un seul terme de la requête :
+     * un document n'est compté que pour le meilleur d'entre eux.
+     * </p>
+     * <p>
+     * Les listes sont parcourues document par document avec l'élagage MaxScore : dès que les
+     * {@code limit} meilleurs scores sont connus, les termes dont la contribution maximale cumulée
+     * ne peut plus dépasser le plus faible d'entre eux ne sont plus parcourus, seulement consultés
+     * pour les documents candidats. Une requête sur un terme rare ne lit donc que ses postings,
+     * même combinée à un terme très fréquent.
+     * </p>
+     * <p>
+     * Les contributions maximales sont calculées par bloc de {@value Postings#BLOCK_SIZE} postings
+     * (fréquence maximale, document le plus court) : les blocs dont la somme des maxima ne peut
+     * plus dépasser le plus faible des meilleurs scores sont sautés sans être lus, ce qui borne
+     * le coût d'un terme fréquent une fois les meilleurs scores connus.
+     * </p>
+     *
+     * @param exact         termes exacts, racinisés
+     * @param prefix        début du dernier mot de la requête, {@code null} si aucun
+     * @param nowMs         instant présent : les ventes terminées sont ignorées
+     * @param limit         nombre maximal de ventes renvoyées
+     * @param maxExpansions nombre maximal de termes développés depuis le préfixe
+     * @return les ventes trouvées
+     */
+    List<Hit> search(Collection<String> exact, String prefix, long nowMs, int limit, int maxExpansions) {
+        if (docsBySale.isEmpty()) {
+            return List.of();
+        }
+        float averageLength = Math.max(1f, (float) totalLength / docsBySale.size());
+        List<Clause> clauses = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(exact)) {
+            Postings postings = terms.get(term);
+            if (postings != null) {
+                clauses.add(new Clause(List.of(postings), averageLength));
+            }
+        }
+        if (prefix != null) {
+            List<Postings> expansions = new ArrayList<>();
+            for (String term : sortedTerms.tailSet(prefix, true)) {
+                if (!term.startsWith(prefix) || expansions.size() == maxExpansions) {
+                    break;
+                }
+                if (!exact.contains(term)) {
+                    expansions.add(terms.get(term));
+                }
+            }
+            if (!expansions.isEmpty()) {
+                clauses.add(new Clause(expansions, averageLength));
+            }
+        }
+        if (clauses.isEmpty()) {
+            return List.of();
+        }
+
+        // Termes par contribution maximale croissante : bounds[i] borne le score cumulé des termes 0..i
+        clauses.sort((a, b) -> Float.compare(a.upperBound, b.upperBound));
+        int count = clauses.size();
+        float[] bounds = new float[count];
+        float cumulated = 0;
+        for (int i = 0; i < count; i++) {
+            cumulated += clauses.get(i).upperBound;
+            bounds[i] = cumulated;
+        }
+
+        float[] blockBounds = new float[count];
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        float threshold = 0;
+        int essential = 0;
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = essential; i < count; i++) {
+                doc = Math.min(doc, clauses.get(i).doc);
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            float[] remaining = bounds;
+            if (top.size() == limit) {
+                // Maxima des blocs couvrant doc : aucun document jusqu'à la fin du plus court ne peut dépasser leur somme
+                float bound = 0;
+                int end = Integer.MAX_VALUE;
+                for (int i = 0; i < count; i++) {
+                    Clause clause = clauses.get(i);
+                    clause.shallowAdvance(doc, averageLength);
+                    bound += clause.blockBound;
+                    blockBounds[i] = i == 0 ? clause.blockBound : blockBounds[i - 1] + clause.blockBound;
+                    end = Math.min(end, clause.blockEnd);
+                }
+                if (bound <= threshold) {
+                    if (end == Integer.MAX_VALUE) {
+                        break;
+                    }
+                    for (int i = essential; i < count; i++) {
+                        clauses.get(i).advance(end + 1);
+                    }
+                    continue;
+                }
+                remaining = blockBounds;
+            }
+            if (live(doc, nowMs)) {
+                float score = 0;
+                for (int i = essential; i < count; i++) {
+                    Clause clause = clauses.get(i);
+                    if (clause.doc == doc) {
+                        score += clause.score(averageLength);
+                    }
+                }
+                for (int i = essential - 1; i >= 0 && score + remaining[i] > threshold; i--) {
+                    Clause clause = clauses.get(i);
+                    clause.advance(doc);
+                    if (clause.doc == doc) {
+                        score += clause.score(averageLength);
+                    }
+                }
+                if (top.size() < limit || score > threshold) {
+                    top.add(new Hit(saleIds[doc], categoryIds[doc], names[doc], score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                    if (top.size() == limit) {
+                        threshold = top.peek().score();
+                        while (essential < count && bounds[essential] <= threshold) {
+                            essential++;
+                        }
+                    }
+                }
+            }
+            for (Clause clause : clauses) {
+                if (clause.doc == doc) {
+                    clause.advance(doc + 1);
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return hits;
+    }
+
+    private boolean live(int doc, long nowMs) {
+        return !deleted.get(doc) && endings[doc] > nowMs;
+    }
+
+    /**
+     * Fréquence inverse BM25 ; la fréquence du terme compte les documents supprimés non encore compactés.
+     */
+    private float idf(Postings postings) {
+        return (float) Math.log(1 + (docCount - postings.size + 0.5) / (postings.size + 0.5));
+    }
+
+    /**
+     * Contribution BM25 d'un terme, croissante avec sa fréquence et décroissante avec la longueur du document.
+     */
+    private static float weight(float idf, int frequency, int length, float averageLength) {
+        float norm = K1 * (1 - B + B * length / averageLength);
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    /**
+     * Renumérote les documents non supprimés et retire leurs postings des listes.
+     */
+    private void compact() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = live;
+            saleIds[live] = saleIds[doc];
+            categoryIds[live] = categoryIds[doc];
+            endings[live] = endings[doc];
+            names[live] = names[doc];
+            lengths[live] = lengths[doc];
+            live++;
+        }
+        Arrays.fill(names, live, docCount, null);
+        docCount = live;
+        deleted.clear();
+        docsBySale.replaceAll((saleId, doc) -> remap[doc]);
+        terms.entrySet().removeIf(entry -> {
+            if (entry.getValue().remap(remap, lengths) > 0) {
+                return false;
+            }
+            sortedTerms.remove(entry.getKey());
+            return true;
+        });
+    }
+
+    /**
+     * Terme de la requête : une liste de postings, ou les listes des termes développés d'un préfixe,
+     * dont le document courant est le plus petit document non encore parcouru.
+     * <p>
+     * Les listes non épuisées sont rangées en tas par document courant : avancer ne déplace que les
+     * listes en retard, quel que soit le nombre de termes développés. Chaque liste est aussi placée
+     * sur un bloc, qui n'avance qu'à la demande ({@link #shallowAdvance}) : le bloc courant borne la
+     * contribution du terme jusqu'à son dernier document.
+     * </p>
+     */
+    private final class Clause {
+
+        private final Postings[] lists;
+        private final float[] idfs;
+        private final int[] positions;
+        private final int[] blocks;
+        private final float[] listBounds;
+        private final int[] heap;
+        private final float upperBound;
+        private int heapSize;
+        private int doc;
+        private float blockBound;
+        private int blockEnd = -1;
+
+        private Clause(List<Postings> lists, float averageLength) {
+            this.lists = lists.toArray(Postings[]::new);
+            this.idfs = new float[this.lists.length];
+            this.positions = new int[this.lists.length];
+            this.blocks = new int[this.lists.length];
+            this.listBounds = new float[this.lists.length];
+            this.heap = new int[this.lists.length];
+            float max = 0;
+            for (int i = 0; i < this.lists.length; i++) {
+                Postings postings = this.lists[i];
+                idfs[i] = idf(postings);
+                for (int block = 0; block < postings.blocks(); block++) {
+                    max = Math.max(max, postings.blockBound(block, idfs[i], averageLength));
+                }
+                listBounds[i] = postings.blockBound(0, idfs[i], averageLength);
+                heap[i] = i;
+            }
+            this.upperBound = max;
+            this.heapSize = this.lists.length;
+            for (int node = heapSize / 2 - 1; node >= 0; node--) {
+                siftDown(node);
+            }
+            this.doc = heapSize > 0 ? current(heap[0]) : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Place chaque liste sur son premier bloc dont le dernier document est supérieur ou égal à
+         * {@code target}, puis calcule la contribution maximale du terme ({@link #blockBound}) sur
+         * les documents de {@code target} à {@link #blockEnd}. Sans effet tant que {@code target}
+         * ne dépasse pas {@link #blockEnd}.
+         */
+        private void shallowAdvance(int target, float averageLength) {
+            if (target <= blockEnd) {
+                return;
+            }
+            blockBound = 0;
+            blockEnd = Integer.MAX_VALUE;
+            for (int i = 0; i < lists.length; i++) {
+                Postings postings = lists[i];
+                int block = blocks[i];
+                if (block < postings.blocks() && postings.blockLast[block] < target) {
+                    block = postings.seekBlock(block, target);
+                    blocks[i] = block;
+                    if (block < postings.blocks()) {
+                        listBounds[i] = postings.blockBound(block, idfs[i], averageLength);
+                    }
+                }
+                if (block < postings.blocks()) {
+                    blockBound = Math.max(blockBound, listBounds[i]);
+                    blockEnd = Math.min(blockEnd, postings.blockLast[block]);
+                }
+            }
+        }
+
+        /**
+         * Place chaque liste sur son premier document supérieur ou égal à {@code target}.
+         */
+        private void advance(int target) {
+            while (heapSize > 0 && current(heap[0]) < target) {
+                int list = heap[0];
+                positions[list] = lists[list].seek(positions[list], target);
+                if (positions[list] == lists[list].size) {
+                    heap[0] = heap[--heapSize];
+                }
+                if (heapSize > 0) {
+                    siftDown(0);
+                }
+            }
+            doc = heapSize > 0 ? current(heap[0]) : Integer.MAX_VALUE;
+        }
+
+        /**
+         * @return la meilleure contribution des listes placées sur le document courant
+         */
+        private float score(float averageLength) {
+            return heapSize > 0 ? score(0, averageLength) : 0;
+        }
+
+        /**
+         * Parcourt le sous-tas des listes placées sur le document courant.
+         */
+        private float score(int node, float averageLength) {
+            int list = heap[node];
+            if (current(list) != doc) {
+                return 0;
+            }
+            float best = weight(idfs[list], lists[list].freqs[positions[list]], lengths[doc], averageLength);
+            int child = 2 * node + 1;
+            if (child < heapSize) {
+                best = Math.max(best, score(child, averageLength));
+            }
+            if (child + 1 < heapSize) {
+                best = Math.max(best, score(child + 1, averageLength));
+            }
+            return best;
+        }
+
+        private int current(int list) {
+            return lists[list].docs[positions[list]];
+        }
+
+        private void siftDown(int node) {
+            int list = heap[node];
+            int current = current(list);
+            while (true) {
+                int child = 2 * node + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && current(heap[child + 1]) < current(heap[child])) {
+                    child++;
+                }
+                if (current(heap[child]) >= current) {
+                    break;
+                }
+                heap[node] = heap[child];
+                node = child;
+            }
+            heap[node] = list;
+        }
+    }
+
+    /**
+     * Postings d'un terme : documents croissants et fréquences du terme, découpés en blocs de
+     * {@value #BLOCK_SIZE} dont sont retenus le dernier document, la plus forte fréquence et
+     * la longueur du plus court document.
+     */
+    private static final class Postings {
+
+        private static final int BLOCK_SIZE = 128;
+
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+        private int[] blockLast = new int[1];
+        private int[] blockMaxFreq = new int[1];
+        private int[] blockMinLength = new int[1];
+
+        private void add(int doc, int frequency, int length) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = frequency;
+            int block = size / BLOCK_SIZE;
+            if (block == blockLast.length) {
+                blockLast = Arrays.copyOf(blockLast, block * 2);
+                blockMaxFreq = Arrays.copyOf(blockMaxFreq, block * 2);
+                blockMinLength = Arrays.copyOf(blockMinLength, block * 2);
+            }
+            if (size % BLOCK_SIZE == 0) {
+                blockMaxFreq[block] = frequency;
+                blockMinLength[block] = length;
+            } else {
+                blockMaxFreq[block] = Math.max(blockMaxFreq[block], frequency);
+                blockMinLength[block] = Math.min(blockMinLength[block], length);
+            }
+            blockLast[block] = doc;
+            size++;
+        }
+
+        private int blocks() {
+            return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
+
+        /**
+         * @return la contribution maximale du terme aux documents d'un bloc
+         */
+        private float blockBound(int block, float idf, float averageLength) {
+            return weight(idf, blockMaxFreq[block], blockMinLength[block], averageLength);
+        }
+
+        /**
+         * Recherche, à partir d'un bloc, du premier bloc dont le dernier document est supérieur ou égal à la cible.
+         *
+         * @return le bloc trouvé, {@link #blocks()} si aucun bloc ne convient
+         */
+        private int seekBlock(int from, int target) {
+            int found = Arrays.binarySearch(blockLast, from, blocks(), target);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        /**
+         * Recherche exponentielle puis dichotomique, à partir d'une position, du premier document
+         * supérieur ou égal à la cible.
+         *
+         * @return la position trouvée, {@code size} si aucun document ne convient
+         */
+        private int seek(int from, int target) {
+            if (from >= size || docs[from] >= target) {
+                return from;
+            }
+            int low = from;
+            int step = 1;
+            int high = from + 1;
+            while (high < size && docs[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            int found = Arrays.binarySearch(docs, low + 1, Math.min(high, size), target);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        /**
+         * Renumérote les documents et recalcule les blocs.
+         *
+         * @param remap   nouveau numéro de chaque document, négatif s'il est supprimé
+         * @param lengths longueurs des documents renumérotés
+         * @return le nombre de postings restants
+         */
+        private int remap(int[] remap, int[] lengths) {
+            int[] oldDocs = docs;
+            int[] oldFreqs = freqs;
+            int oldSize = size;
+            size = 0;
+            for (int i = 0; i < oldSize; i++) {
+                int doc = remap[oldDocs[i]];
+                if (doc >= 0) {
+                    add(doc, oldFreqs[i], lengths[doc]);
+                }
+            }
+            return size;
+        }
+    }
+}
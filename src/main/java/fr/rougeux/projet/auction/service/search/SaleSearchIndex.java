@@ -0,0 +1,207 @@
+package fr.rougeux.projet.auction.service.search;
+
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.dto.response.SaleHitDto;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.service.closing.SaleExtendedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index plein texte en mémoire des ventes non clôturées, sur le nom et la description de leur objet.
+ * <p>
+ * Les termes sont extraits par {@link FrenchAnalyzer} (minuscules, accents retirés, mots vides ignorés,
+ * racinisation minimale) et rangés dans un {@link InvertedIndex}. Les résultats sont classés par
+ * pertinence BM25, le nom de l'objet pesant double ; le dernier mot d'une requête en cours de saisie
+ * est aussi cherché comme préfixe, développé en au plus {@code app.sale.search.max-expansions} termes.
+ * </p>
+ * <p>
+ * L'index est construit au démarrage puis complété toutes les {@code app.sale.search.refresh-interval-ms}
+ * par les ventes créées depuis, lues par identifiant croissant. Une vente clôturée en est retirée
+ * ({@link #remove}), une vente prolongée y voit sa date de fin repoussée ; une vente terminée
+ * mais pas encore clôturée n'est plus jamais renvoyée. Les recherches sont concurrentes entre elles,
+ * les mises à jour exclusives.
+ * </p>
+ * <p>
+ * Métrique exposée : {@code auction.sale.search.indexed} (ventes indexées).
+ * </p>
+ *
+ * @author Rougeux Max
+ * @version 1.0
+ */
+@Component
+public class SaleSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SaleSearchIndex.class);
+
+    /**
+     * Nombre de ventes indexées par prise du verrou d'écriture, pour ne pas bloquer les recherches.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private final SaleDao saleDao;
+    private final int maxExpansions;
+    private final InvertedIndex index = new InvertedIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long lastSaleId;
+
+    /**
+     * Constructeur de l'index.
+     *
+     * @param saleDao       DAO de gestion des ventes, lu au démarrage puis périodiquement
+     * @param maxExpansions nombre maximal de termes développés à partir du préfixe d'une requête
+     * @param meterRegistry registre des métriques
+     */
+    public SaleSearchIndex(SaleDao saleDao,
+                           @Value("${app.sale.search.max-expansions:16}") int maxExpansions,
+                           MeterRegistry meterRegistry) {
+        this.saleDao = saleDao;
+        this.maxExpansions = maxExpansions;
+        Gauge.builder("auction.sale.search.indexed", this, SaleSearchIndex::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Construit l'index à partir des ventes non clôturées.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        LOG.info("sale.search.indexed {}", size());
+    }
+
+    /**
+     * Indexe les ventes créées depuis la dernière lecture.
+     */
+    @Scheduled(fixedDelayString = "${app.sale.search.refresh-interval-ms:30000}",
+            initialDelayString = "${app.sale.search.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        List<Sale> batch = new ArrayList<>(BATCH_SIZE);
+        saleDao.forEachSearchable(lastSaleId, sale -> {
+            batch.add(sale);
+            lastSaleId = sale.getSaleId();
+            if (batch.size() == BATCH_SIZE) {
+                indexAll(batch);
+                batch.clear();
+            }
+        });
+        indexAll(batch);
+    }
+
+    /**
+     * Indexe une vente, ou remplace son entrée si elle est déjà indexée : à appeler quand l'objet
+     * d'une vente est modifié. Une vente nouvelle est indexée par {@link #refresh}.
+     *
+     * @param sale vente portant sa date de fin et son objet (nom, description, catégorie)
+     */
+    public void index(Sale sale) {
+        indexAll(List.of(sale));
+    }
+
+    /**
+     * Retire une vente de l'index.
+     *
+     * @param saleId identifiant de la vente
+     */
+    public void remove(long saleId) {
+        lock.writeLock().lock();
+        try {
+            index.remove(saleId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Repousse la date de fin d'une vente prolongée par une enchère.
+     *
+     * @param event prolongation de la vente
+     */
+    @EventListener
+    public void onSaleExtended(SaleExtendedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.extend(event.saleId(), toEpochMilli(event.endingDate()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recherche les ventes en cours dont l'objet correspond à une requête.
+     *
+     * @param text  texte saisi ; son dernier mot est aussi cherché comme préfixe s'il n'est suivi d'aucun séparateur
+     * @param limit nombre maximal de résultats
+     * @return les ventes trouvées, par pertinence décroissante
+     */
+    public List<SaleHitDto> search(String text, int limit) {
+        List<String> words = FrenchAnalyzer.words(text);
+        Set<String> exact = new LinkedHashSet<>();
+        for (String word : words) {
+            exact.add(FrenchAnalyzer.stem(word));
+        }
+        String prefix = null;
+        char last = text.charAt(text.length() - 1);
+        if (!words.isEmpty() && Character.isLetterOrDigit(last) && words.get(words.size() - 1).length() >= 2) {
+            prefix = words.get(words.size() - 1);
+        }
+
+        List<InvertedIndex.Hit> hits;
+        lock.readLock().lock();
+        try {
+            hits = index.search(exact, prefix, System.currentTimeMillis(), limit, maxExpansions);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits.stream()
+                .map(hit -> new SaleHitDto(hit.saleId(), hit.itemName(), hit.categoryId(), hit.score()))
+                .toList();
+    }
+
+    private void indexAll(List<Sale> sales) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Sale sale : sales) {
+                index.add(sale.getSaleId(),
+                        sale.getItem().getCategory().getCategorieId(),
+                        toEpochMilli(sale.getEndingDate()),
+                        sale.getItem().getItemName(),
+                        sale.getItem().getItemDesc());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long toEpochMilli(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -5,6 +5,9 @@
 USE AUCTION;
 
 -- Drop existing tables (important order)
+IF OBJECT_ID('SALE_PRICE_BUCKETS', 'U') IS NOT NULL DROP TABLE SALE_PRICE_BUCKETS;
+IF OBJECT_ID('IDEMPOTENCY_KEYS', 'U') IS NOT NULL DROP TABLE IDEMPOTENCY_KEYS;
+IF OBJECT_ID('CREDIT_HOLDS', 'U') IS NOT NULL DROP TABLE CREDIT_HOLDS;
 IF OBJECT_ID('BIDS', 'U') IS NOT NULL DROP TABLE BIDS;
 IF OBJECT_ID('WITHDRAWALS', 'U') IS NOT NULL DROP TABLE WITHDRAWALS;
 IF OBJECT_ID('SALES', 'U') IS NOT NULL DROP TABLE SALES;
@@ -75,9 +78,17 @@ CREATE TABLE SALES (
     ending_date DATETIME2 NOT NULL,
     starting_price INTEGER CHECK (starting_price >= 0),
     sale_price INTEGER CHECK (sale_price >= 0),
+    current_price INTEGER CHECK (current_price >= 0), -- highest accepted bid, NULL until the first bid
+    leader_user_id INTEGER,                           -- author of the highest accepted bid
+    bid_count INTEGER NOT NULL DEFAULT 0,
+    closed_at DATETIME2,                              -- set when the sale is closed, NULL while it accepts bids
+    winner_user_id INTEGER,                           -- leader at closing time
+    list_price AS COALESCE(current_price, starting_price, 0) PERSISTED, -- displayed price, filtered and sorted by the listing
 
     CONSTRAINT fk_sale_item FOREIGN KEY (item_id) REFERENCES ITEMS(item_id),
-    CONSTRAINT fk_sale_user FOREIGN KEY (seller_id) REFERENCES USERS(user_id) ON DELETE CASCADE
+    CONSTRAINT fk_sale_user FOREIGN KEY (seller_id) REFERENCES USERS(user_id) ON DELETE CASCADE,
+    CONSTRAINT fk_sale_leader FOREIGN KEY (leader_user_id) REFERENCES USERS(user_id),
+    CONSTRAINT fk_sale_winner FOREIGN KEY (winner_user_id) REFERENCES USERS(user_id)
 );
 
 -- =========================================
@@ -105,10 +116,62 @@ CREATE TABLE BIDS (
     CONSTRAINT fk_bid_user FOREIGN KEY (user_id) REFERENCES USERS(user_id)
 );
 
+-- =========================================
+-- Table CREDIT_HOLDS (credit reserved by a bidder on a sale)
+-- =========================================
+CREATE TABLE CREDIT_HOLDS (
+    user_id INTEGER NOT NULL,
+    sale_id INTEGER NOT NULL,
+    amount INTEGER NOT NULL CHECK (amount > 0),
+    updated_at DATETIME2 NOT NULL DEFAULT SYSDATETIME(),
+
+    CONSTRAINT pk_credit_holds PRIMARY KEY (user_id, sale_id),
+    CONSTRAINT fk_hold_user FOREIGN KEY (user_id) REFERENCES USERS(user_id),
+    CONSTRAINT fk_hold_sale FOREIGN KEY (sale_id) REFERENCES SALES(sale_id) ON DELETE CASCADE
+);
+
+-- =========================================
+-- Table IDEMPOTENCY_KEYS (idempotency keys shared between instances, response NULL while in flight)
+-- =========================================
+CREATE TABLE IDEMPOTENCY_KEYS (
+    owner NVARCHAR(50) NOT NULL,
+    idem_key NVARCHAR(128) NOT NULL,
+    fingerprint NVARCHAR(100) NOT NULL,
+    response VARBINARY(MAX) NULL,
+    expires_at DATETIME2 NOT NULL,
+
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (owner, idem_key)
+);
+
+-- =========================================
+-- Table SALE_PRICE_BUCKETS (per-minute price history of a sale: open, high, low, close, bid count)
+-- =========================================
+CREATE TABLE SALE_PRICE_BUCKETS (
+    sale_id INTEGER NOT NULL,
+    bucket_start DATETIME2(0) NOT NULL,
+    open_price INTEGER NOT NULL,
+    high_price INTEGER NOT NULL,
+    low_price INTEGER NOT NULL,
+    close_price INTEGER NOT NULL,
+    bid_count INTEGER NOT NULL,
+
+    CONSTRAINT pk_sale_price_buckets PRIMARY KEY (sale_id, bucket_start),
+    CONSTRAINT fk_price_bucket_sale FOREIGN KEY (sale_id) REFERENCES SALES(sale_id) ON DELETE CASCADE
+);
+
 -- =========================================
 -- Indexes for performance
 -- =========================================
 CREATE INDEX idx_items_category ON ITEMS(category_id);
-CREATE INDEX idx_sales_seller ON SALES(seller_id);
+-- Sale listing: one index per filter / sort key, sale_id (clustering key) breaks ties in keyset pages
+CREATE INDEX idx_sales_seller ON SALES(seller_id, ending_date);
+CREATE INDEX idx_sales_item ON SALES(item_id);
+CREATE INDEX idx_sales_unclosed ON SALES(ending_date) INCLUDE (sale_id) WHERE closed_at IS NULL;
+CREATE INDEX idx_sales_ending ON SALES(ending_date);
+CREATE INDEX idx_sales_starting ON SALES(starting_date) INCLUDE (ending_date, closed_at);
+CREATE INDEX idx_sales_price ON SALES(list_price) INCLUDE (ending_date, closed_at);
 CREATE INDEX idx_bids_user ON BIDS(user_id);
-CREATE INDEX idx_bids_sale ON BIDS(sale_id);
+-- Covering index of the bid history: top bids and keyset pages of a sale are read in index order
+CREATE INDEX idx_bids_sale ON BIDS(sale_id, bid_amount DESC, bid_id) INCLUDE (bid_time, user_id);
+CREATE INDEX idx_credit_holds_sale ON CREDIT_HOLDS(sale_id);
+CREATE INDEX idx_idempotency_keys_expires ON IDEMPOTENCY_KEYS(expires_at);
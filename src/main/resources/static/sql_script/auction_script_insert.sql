@@ -353,6 +353,18 @@ VALUES
 ('2025-08-10 19:00:00', 92, 10, 1),
 ('2025-08-10 19:25:00', 94, 10, 2);
 
-
-
-
+-- ========================
+-- Backfill SALES.current_price, leader_user_id and bid_count from BIDS
+-- (kept up to date on every accepted bid afterwards)
+-- ========================
+UPDATE s
+SET s.current_price = a.max_amount, s.leader_user_id = a.leader_id, s.bid_count = a.bid_count
+FROM SALES s
+CROSS APPLY (
+    SELECT COUNT(*) AS bid_count, MAX(b.bid_amount) AS max_amount,
+           (SELECT TOP 1 l.user_id FROM BIDS l
+            WHERE l.sale_id = s.sale_id
+            ORDER BY l.bid_amount DESC, l.bid_id) AS leader_id
+    FROM BIDS b
+    WHERE b.sale_id = s.sale_id
+) a;
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class TestBid {
@@ -133,7 +134,7 @@ class TestBid {
         bid.checkSaleStatus();
     }
     /**
-     * Vérifie que checkUserCanBid() lève une exception si l'utilisateur n'a pas assez de crédit
+     * Vérifie que checkUserCanBid(0) lève une exception si l'utilisateur n'a pas assez de crédit
      * et qu'il n'a pas d'enchère précédente sur la vente.
      */
     @Test
@@ -149,10 +150,10 @@ class TestBid {
         bid.setSale(sale);
         bid.setBidAmount(150);
 
-        assertThrows(BusinessException.class, bid::checkUserCanBid);
+        assertThrows(BusinessException.class, () -> bid.checkUserCanBid(0));
     }
     /**
-     * Vérifie que checkUserCanBid() passe si l'utilisateur a assez de crédit
+     * Vérifie que checkUserCanBid(0) passe si l'utilisateur a assez de crédit
      * et qu'il n'a pas d'enchère précédente sur la vente.
      */
     @Test
@@ -168,10 +169,10 @@ class TestBid {
         bid.setSale(sale);
         bid.setBidAmount(150);
 
-        bid.checkUserCanBid();
+        bid.checkUserCanBid(0);
     }
     /**
-     * Vérifie que checkUserCanBid() lève une exception si l'utilisateur n'a pas assez de crédit
+     * Vérifie que checkUserCanBid(previousBid) lève une exception si l'utilisateur n'a pas assez de crédit
      * pour couvrir la différence avec sa précédente enchère sur la même vente.
      */
     @Test
@@ -180,30 +181,18 @@ class TestBid {
         user.setUserId(1L);
         user.setCredit(10);
 
-        User user2 = new User();
-        user2.setUserId(2L);
-
-        Bid otherBid = new Bid();
-        otherBid.setUser(user2);
-        otherBid.setBidAmount(150);
-
-        Bid otherUserBid = new Bid();
-        otherUserBid.setUser(user);
-        otherBid.setBidAmount(140);
-
         Sale sale = new Sale();
         sale.setStartingPrice(150);
-        sale.setBids(List.of(otherBid, otherUserBid));
 
         Bid bid = new Bid();
         bid.setUser(user);
         bid.setSale(sale);
         bid.setBidAmount(151);
 
-        assertThrows(BusinessException.class, bid::checkUserCanBid);
+        assertThrows(BusinessException.class, () -> bid.checkUserCanBid(140));
     }
     /**
-     * Vérifie que checkUserCanBid() passe si l'utilisateur a assez de crédit
+     * Vérifie que checkUserCanBid(previousBid) passe si l'utilisateur a assez de crédit
      * pour couvrir la différence avec sa précédente enchère sur la même vente.
      */
     @Test
@@ -212,31 +201,19 @@ class TestBid {
         user.setUserId(1L);
         user.setCredit(20);
 
-        User user2 = new User();
-        user2.setUserId(2L);
-
-        Bid otherBid = new Bid();
-        otherBid.setUser(user2);
-        otherBid.setBidAmount(150);
-
-        Bid otherUserBid = new Bid();
-        otherUserBid.setUser(user);
-        otherUserBid.setBidAmount(140);
-
         Sale sale = new Sale();
         sale.setStartingPrice(150);
-        sale.setBids(List.of(otherBid, otherUserBid));
 
         Bid bid = new Bid();
         bid.setUser(user);
         bid.setSale(sale);
         bid.setBidAmount(160);
 
-        bid.checkUserCanBid();
+        bid.checkUserCanBid(140);
     }
 
     /**
-     * Vérifie que validateBid() passe si validateBid() ne lève aucune exception.
+     * Vérifie que validateBid(previousBid) passe si toutes les règles sont respectées.
      */
     @Test
     void testValidateBid_AllValid() {
@@ -251,21 +228,120 @@ class TestBid {
         otherBid.setUser(user2);
         otherBid.setBidAmount(150);
 
-        Bid otherUserBid = new Bid();
-        otherUserBid.setUser(user);
-        otherUserBid.setBidAmount(140);
-
         Sale sale = new Sale();
         sale.setStartingPrice(150);
         sale.setEndingDate(LocalDateTime.now().plusDays(1));
         sale.setSeller(user2);
-        sale.setBids(List.of(otherBid, otherUserBid));
+        sale.setBids(List.of(otherBid));
 
         Bid bid = new Bid();
         bid.setUser(user);
         bid.setSale(sale);
         bid.setBidAmount(160);
 
-        bid.validateBid();
+        bid.validateBid(140);
+    }
+    /**
+     * Vérifie que validateBid(previousBid) ne vérifie pas l'état d'une vente qui n'a pas été lue
+     * (mode compare-and-set), mais vérifie toujours le crédit.
+     */
+    @Test
+    void testValidateBid_SaleStateUnknown() {
+        User user = new User();
+        user.setCredit(100);
+
+        Sale sale = new Sale();
+        sale.setSaleId(1L);
+
+        Bid bid = new Bid();
+        bid.setUser(user);
+        bid.setSale(sale);
+        bid.setBidAmount(100);
+
+        bid.validateBid(0);
+        user.setCredit(100);
+        bid.setBidAmount(101);
+        assertThrows(BusinessException.class, () -> bid.validateBid(0));
+    }
+    /**
+     * Vérifie que checkHigherBid() lève une exception si le montant ne dépasse pas
+     * le prix courant porté par salePrice.
+     */
+    @Test
+    void testCheckHigherBid_CurrentPrice() {
+        User user = new User();
+        user.setCredit(500);
+
+        Sale sale = new Sale();
+        sale.setStartingPrice(50);
+        sale.setSalePrice(120);
+
+        Bid bid = new Bid();
+        bid.setUser(user);
+        bid.setSale(sale);
+        bid.setBidAmount(120);
+
+        assertThrows(BusinessException.class, bid::checkHigherBid);
+    }
+
+    /**
+     * Vérifie que checkUserCanBid(previousBid) ne débite que la différence avec la précédente enchère.
+     */
+    @Test
+    void testCheckUserCanBidWithPrevious_DebitsDifference() {
+        User user = new User();
+        user.setCredit(30);
+
+        Sale sale = new Sale();
+        sale.setStartingPrice(50);
+        sale.setSalePrice(120);
+
+        Bid bid = new Bid();
+        bid.setUser(user);
+        bid.setSale(sale);
+        bid.setBidAmount(130);
+
+        bid.checkUserCanBid(110);
+
+        assertEquals(10, user.getCredit());
+    }
+    /**
+     * Vérifie que checkMaxAmount() lève une exception si l'enchère maximale
+     * est inférieure au montant de l'enchère.
+     */
+    @Test
+    void testCheckMaxAmount_TooLow() {
+        Bid bid = new Bid();
+        bid.setBidAmount(150);
+        bid.setMaxAmount(120);
+
+        assertThrows(BusinessException.class, bid::checkMaxAmount);
+    }
+    /**
+     * Vérifie que checkMaxAmount() passe si aucune enchère maximale n'est fixée.
+     */
+    @Test
+    void testCheckMaxAmount_NoMax() {
+        Bid bid = new Bid();
+        bid.setBidAmount(150);
+
+        bid.checkMaxAmount();
+        assertEquals(150, bid.getProxyLimit());
+    }
+    /**
+     * Vérifie que checkUserCanBid(int) vérifie le crédit jusqu'à l'enchère maximale.
+     */
+    @Test
+    void testUserCanBid_CreditTooLow_ForMaxAmount() {
+        User user = new User();
+        user.setCredit(200);
+
+        Bid bid = new Bid();
+        bid.setUser(user);
+        bid.setBidAmount(150);
+        bid.setMaxAmount(300);
+
+        assertEquals(300, bid.getProxyLimit());
+        assertThrows(BusinessException.class, () -> bid.checkUserCanBid(0));
     }
 }
@@ -1,10 +1,15 @@
 package fr.rougeux.projet.auction.bo;
 
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TestSale {
 
@@ -51,4 +56,57 @@ class TestSale {
 
         assertEquals(200, sale.getCurrentPrice());
     }
+
+    /**
+     * Vérifie que le meneur et le nombre d'enchères sont conservés par le constructeur de copie
+     * et reportés dans le DTO.
+     */
+    @Test
+    void testCopyAndDto_LeaderAndBidCount() {
+        Sale sale = new Sale();
+        sale.setEndingDate(LocalDateTime.now().plusDays(1));
+        sale.setLeaderId(4L);
+        sale.setBidCount(12);
+
+        SaleDto dto = new Sale(sale).toDTO();
+
+        assertEquals(4L, dto.getLeaderId());
+        assertEquals(12, dto.getBidCount());
+    }
+
+    /**
+     * Vérifie qu'une vente clôturée n'est plus en cours, même avant sa date de fin.
+     */
+    @Test
+    void testIsOngoing_Closed() {
+        Sale sale = new Sale();
+        sale.setEndingDate(LocalDateTime.now().plusDays(1));
+        assertTrue(sale.isOngoing());
+
+        sale.setClosedAt(LocalDateTime.now());
+        assertFalse(sale.isOngoing());
+        assertFalse(new Sale(sale).isOngoing());
+    }
+
+    /**
+     * Vérifie qu'une enchère placée dans la fenêtre de fin prolonge la vente,
+     * et qu'une enchère placée avant ne la prolonge pas.
+     */
+    @Test
+    void testExtendEnding_SoftClose() {
+        LocalDateTime end = LocalDateTime.of(2030, 1, 1, 12, 0);
+        Sale sale = new Sale();
+        sale.setEndingDate(end);
+        Duration window = Duration.ofSeconds(30);
+        Duration extension = Duration.ofSeconds(120);
+
+        assertFalse(sale.extendEnding(end.minusSeconds(31), window, extension));
+        assertEquals(end, sale.getEndingDate());
+
+        assertTrue(sale.extendEnding(end.minusSeconds(30), window, extension));
+        assertEquals(end.plusSeconds(120), sale.getEndingDate());
+
+        assertFalse(sale.extendEnding(end.minusSeconds(1), Duration.ZERO, extension));
+        assertEquals(end.plusSeconds(120), sale.getEndingDate());
+    }
 }
@@ -0,0 +1,222 @@
+package fr.rougeux.projet.auction.service.catalog;
+
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.dto.bo.SaleDto;
+import fr.rougeux.projet.auction.dto.response.SalePageDto;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import fr.rougeux.projet.auction.repository.SaleQuery;
+import fr.rougeux.projet.auction.service.closing.SaleExtendedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestOngoingSales {
+
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+
+    private final Map<Long, Sale> table = new TreeMap<>();
+    private final OngoingSales ongoingSales = new OngoingSales(saleDao(table), new SimpleMeterRegistry());
+
+    /**
+     * Vérifie que les pages par date de fin se suivent sans trou ni doublon, les égalités étant
+     * départagées par l'identifiant, et que chaque curseur est celui de la lecture en base.
+     */
+    @Test
+    void testPage_CursorContinuityEndingSoon() {
+        add(1, BASE.minusDays(2), BASE.plusHours(3));
+        add(2, BASE.minusDays(1), BASE.plusHours(1));
+        add(3, BASE.minusDays(3), BASE.plusHours(1));
+        add(4, BASE.minusDays(4), BASE.plusHours(2));
+        add(5, BASE.minusDays(5), BASE.plusHours(4));
+        ongoingSales.start();
+
+        assertEquals(List.of(2L, 3L, 4L, 1L, 5L), walk(SaleQuery.Sort.ENDING_SOON, 2));
+    }
+    /**
+     * Vérifie que les pages par date de début décroissante se suivent sans trou ni doublon,
+     * avec les curseurs de la lecture en base.
+     */
+    @Test
+    void testPage_CursorContinuityNewest() {
+        add(1, BASE.minusDays(1), BASE.plusHours(1));
+        add(2, BASE.minusDays(1), BASE.plusHours(2));
+        add(3, BASE.minusDays(3), BASE.plusHours(3));
+        add(4, BASE.minusHours(1), BASE.plusHours(4));
+        ongoingSales.start();
+
+        assertEquals(List.of(4L, 2L, 1L, 3L), walk(SaleQuery.Sort.NEWEST, 3));
+    }
+    /**
+     * Vérifie qu'un curseur produit par la lecture en base reprend l'index juste après sa vente.
+     */
+    @Test
+    void testPage_ContinuesFromDatabaseCursor() {
+        add(1, BASE.minusDays(1), BASE.plusHours(1));
+        add(2, BASE.minusDays(1), BASE.plusHours(2));
+        add(3, BASE.minusDays(1), BASE.plusHours(3));
+        ongoingSales.start();
+        String fromDatabase = SaleQuery.Sort.ENDING_SOON.cursorOf(table.get(1L)).encode();
+
+        SalePageDto page = ongoingSales.page(query(SaleQuery.Sort.ENDING_SOON,
+                SaleQuery.Cursor.decode(fromDatabase, SaleQuery.Sort.ENDING_SOON)), 10);
+
+        assertEquals(List.of(2L, 3L), ids(page));
+        assertNull(page.next());
+    }
+    /**
+     * Vérifie que les ventes terminées sont retirées des deux ordres quand une lecture les rencontre.
+     */
+    @Test
+    void testPage_PrunesEndedSales() {
+        LocalDateTime now = LocalDateTime.now();
+        add(1, now.minusDays(1), now.minusMinutes(1));
+        add(2, now.minusDays(2), BASE.plusHours(1));
+        add(3, now.minusHours(1), now.minusSeconds(1));
+        ongoingSales.start();
+
+        assertEquals(List.of(2L), ids(ongoingSales.page(query(SaleQuery.Sort.ENDING_SOON, null), 10)));
+
+        // Une vente retirée de l'index n'est plus reclassée, et n'apparaît plus dans l'autre ordre
+        ongoingSales.onSaleExtended(new SaleExtendedEvent(3, BASE.plusHours(2)));
+        assertEquals(List.of(2L), ids(ongoingSales.page(query(SaleQuery.Sort.NEWEST, null), 10)));
+    }
+    /**
+     * Vérifie qu'une prolongation reclasse la vente à sa nouvelle date de fin, sans changer l'ordre
+     * des dates de début, et qu'une prolongation plus courte reçue dans le désordre est ignorée.
+     */
+    @Test
+    void testOnSaleExtended_Rekeys() {
+        add(1, BASE.minusDays(2), BASE.plusHours(1));
+        add(2, BASE.minusDays(1), BASE.plusHours(2));
+        ongoingSales.start();
+
+        ongoingSales.onSaleExtended(new SaleExtendedEvent(1, BASE.plusHours(3)));
+        ongoingSales.onSaleExtended(new SaleExtendedEvent(1, BASE.plusMinutes(90)));
+
+        SalePageDto page = ongoingSales.page(query(SaleQuery.Sort.ENDING_SOON, null), 10);
+        assertEquals(List.of(2L, 1L), ids(page));
+        assertEquals(BASE.plusHours(3), page.sales().get(1).getEndingDate());
+        assertEquals(List.of(2L, 1L), ids(ongoingSales.page(query(SaleQuery.Sort.NEWEST, null), 10)));
+        assertEquals(List.of(1L), walkFrom(SaleQuery.Sort.ENDING_SOON, 2));
+    }
+    /**
+     * Vérifie qu'une enchère met à jour prix, meneur et nombre d'enchères, et qu'un état plus ancien est ignoré.
+     */
+    @Test
+    void testOnBid_KeepsNewestState() {
+        add(1, BASE.minusDays(1), BASE.plusHours(1));
+        ongoingSales.start();
+
+        ongoingSales.onBid(bid(1, 150, 2));
+        ongoingSales.onBid(bid(1, 120, 1));
+
+        SaleDto sale = ongoingSales.page(query(SaleQuery.Sort.ENDING_SOON, null), 10).sales().getFirst();
+        assertEquals(150, sale.getSalePrice());
+        assertEquals(2, sale.getBidCount());
+        assertEquals(7L, sale.getLeaderId());
+    }
+    /**
+     * Vérifie que le rafraîchissement n'ajoute que les ventes créées depuis le dernier passage,
+     * et qu'une vente clôturée est retirée.
+     */
+    @Test
+    void testRefreshAndClose() {
+        add(1, BASE.minusDays(1), BASE.plusHours(1));
+        ongoingSales.start();
+        add(2, BASE.minusDays(1), BASE.plusHours(2));
+
+        ongoingSales.refresh();
+        ongoingSales.onClose(1);
+
+        SalePageDto page = ongoingSales.page(query(SaleQuery.Sort.ENDING_SOON, null), 10);
+        assertEquals(List.of(2L), ids(page));
+        assertTrue(ongoingSales.serves(query(SaleQuery.Sort.NEWEST, null)));
+    }
+
+    /**
+     * Parcourt toutes les pages d'un ordre en suivant les curseurs, en vérifiant que chacun
+     * est celui que la lecture en base produit pour la dernière vente de sa page.
+     */
+    private List<Long> walk(SaleQuery.Sort sort, int size) {
+        List<Long> ids = new ArrayList<>();
+        SaleQuery.Cursor after = null;
+        while (true) {
+            SalePageDto page = ongoingSales.page(query(sort, after), size);
+            ids.addAll(ids(page));
+            if (page.next() == null) {
+                return ids;
+            }
+            assertEquals(size, page.sales().size());
+            Sale last = table.get(page.sales().getLast().getSaleId());
+            assertEquals(sort.cursorOf(last).encode(), page.next());
+            after = SaleQuery.Cursor.decode(page.next(), sort);
+        }
+    }
+
+    /**
+     * @return les ventes après la vente {@code saleId} dans l'ordre donné, selon son état indexé
+     */
+    private List<Long> walkFrom(SaleQuery.Sort sort, long saleId) {
+        SaleDto sale = ongoingSales.page(query(sort, null), 10).sales().stream()
+                .filter(candidate -> candidate.getSaleId() == saleId).findFirst().orElseThrow();
+        LocalDateTime date = sort == SaleQuery.Sort.ENDING_SOON ? sale.getEndingDate() : sale.getStartingDate();
+        return ids(ongoingSales.page(query(sort, new SaleQuery.Cursor(date, 0, saleId)), 10));
+    }
+
+    private void add(long saleId, LocalDateTime start, LocalDateTime end) {
+        Sale sale = new Sale();
+        sale.setSaleId(saleId);
+        sale.setStartingDate(start);
+        sale.setEndingDate(end);
+        sale.setStartingPrice(100);
+        table.put(saleId, sale);
+    }
+
+    private static SaleDto bid(long saleId, int price, int bidCount) {
+        SaleDto sale = new SaleDto();
+        sale.setSaleId(saleId);
+        sale.setSalePrice(price);
+        sale.setLeaderId(7L);
+        sale.setBidCount(bidCount);
+        sale.setStatus("ONGOING");
+        sale.setEndingDate(BASE.plusHours(1));
+        return sale;
+    }
+
+    private static SaleQuery query(SaleQuery.Sort sort, SaleQuery.Cursor after) {
+        return new SaleQuery(null, SaleQuery.Status.ONGOING, null, null, null, null, null, sort, after, 10);
+    }
+
+    private static List<Long> ids(SalePageDto page) {
+        return page.sales().stream().map(SaleDto::getSaleId).toList();
+    }
+
+    /**
+     * DAO des ventes ne servant que le parcours des ventes en cours, par identifiant croissant.
+     */
+    private static SaleDao saleDao(Map<Long, Sale> table) {
+        return (SaleDao) Proxy.newProxyInstance(SaleDao.class.getClassLoader(), new Class<?>[]{SaleDao.class},
+                (proxy, method, args) -> {
+                    if (!"forEachOngoing".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    long afterSaleId = (long) args[0];
+                    @SuppressWarnings("unchecked")
+                    Consumer<Sale> action = (Consumer<Sale>) args[2];
+                    table.values().stream().filter(sale -> sale.getSaleId() > afterSaleId).toList().forEach(action);
+                    return null;
+                });
+    }
+}
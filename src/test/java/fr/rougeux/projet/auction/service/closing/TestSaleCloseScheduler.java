@@ -0,0 +1,239 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.repository.SaleDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestSaleCloseScheduler {
+
+    private static final long START = LocalDateTime.of(2026, 10, 16, 12, 0)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    private static final long RETRY_MS = 1_000;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private final List<Long> closed = new CopyOnWriteArrayList<>();
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+    private final Set<Long> moved = ConcurrentHashMap.newKeySet();
+    private final Map<Long, LocalDateTime> unclosed = new TreeMap<>();
+    private final ExecutorService closer = Executors.newSingleThreadExecutor();
+    private SaleCloseScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new SaleCloseScheduler(saleDao(unclosed), new RecordingCloser(), 1, 64, RETRY_MS,
+                new SimpleMeterRegistry(), now::get, closer);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        scheduler.destroy();
+    }
+
+    /**
+     * Vérifie qu'une vente est clôturée à sa date de fin, et pas avant.
+     */
+    @Test
+    void testSchedule_ClosesAtEndingDate() throws Exception {
+        scheduler.schedule(1, date(START + 100));
+
+        advanceTo(START + 99);
+        assertTrue(closed.isEmpty());
+
+        advanceTo(START + 100);
+        assertEquals(List.of(1L), closed);
+    }
+    /**
+     * Vérifie que replanifier une vente remplace son échéance, même plus tôt, et qu'elle n'est clôturée qu'une fois.
+     */
+    @Test
+    void testSchedule_ReplacesPreviousDeadline() throws Exception {
+        scheduler.schedule(1, date(START + 100));
+        scheduler.schedule(1, date(START + 50));
+
+        advanceTo(START + 50);
+        assertEquals(List.of(1L), closed);
+
+        advanceTo(START + 200);
+        assertEquals(List.of(1L), closed);
+    }
+    /**
+     * Vérifie qu'une prolongation repousse l'échéance, et qu'une prolongation plus courte,
+     * reçue dans le désordre, ne l'avance pas.
+     */
+    @Test
+    void testOnSaleExtended_OnlyPostpones() throws Exception {
+        scheduler.schedule(1, date(START + 100));
+        scheduler.onSaleExtended(new SaleExtendedEvent(1, date(START + 150)));
+        scheduler.onSaleExtended(new SaleExtendedEvent(1, date(START + 120)));
+
+        advanceTo(START + 149);
+        assertTrue(closed.isEmpty());
+
+        advanceTo(START + 150);
+        assertEquals(List.of(1L), closed);
+    }
+    /**
+     * Vérifie qu'une vente dont la clôture est annulée n'est jamais clôturée.
+     */
+    @Test
+    void testCancel_NeverCloses() throws Exception {
+        scheduler.schedule(1, date(START + 100));
+        scheduler.cancel(1);
+
+        advanceTo(START + 1_000);
+
+        assertTrue(closed.isEmpty());
+    }
+    /**
+     * Vérifie qu'une vente déjà terminée est clôturée dès sa planification.
+     */
+    @Test
+    void testSchedule_PastEndingDate() throws Exception {
+        scheduler.schedule(1, date(START - 1_000));
+
+        drain();
+
+        assertEquals(List.of(1L), closed);
+    }
+    /**
+     * Vérifie qu'une clôture en échec est retentée après le délai de nouvelle tentative.
+     */
+    @Test
+    void testClose_FailureRetried() throws Exception {
+        failing.add(1L);
+        scheduler.schedule(1, date(START + 100));
+
+        advanceTo(START + 100);
+        assertTrue(closed.isEmpty());
+
+        advanceTo(START + 100 + RETRY_MS - 1);
+        assertTrue(closed.isEmpty());
+
+        advanceTo(START + 100 + RETRY_MS);
+        assertEquals(List.of(1L), closed);
+    }
+    /**
+     * Vérifie qu'une vente que la clôture n'a pas modifiée est replanifiée à sa date de fin relue en base.
+     */
+    @Test
+    void testClose_EndingDateMovedRescheduled() throws Exception {
+        moved.add(1L);
+        unclosed.put(1L, date(START + 300));
+        scheduler.schedule(1, date(START + 100));
+
+        advanceTo(START + 299);
+        assertTrue(closed.isEmpty());
+
+        advanceTo(START + 300);
+        assertEquals(List.of(1L), closed);
+    }
+    /**
+     * Vérifie que le rafraîchissement planifie les seules ventes créées depuis le dernier passage.
+     */
+    @Test
+    void testRefresh_SchedulesCreatedSales() throws Exception {
+        unclosed.put(1L, date(START + 100));
+        scheduler.refresh();
+        scheduler.cancel(1);
+        unclosed.put(2L, date(START + 200));
+
+        scheduler.refresh();
+
+        advanceTo(START + 1_000);
+        assertEquals(List.of(2L), closed);
+    }
+
+    private static LocalDateTime date(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    /**
+     * Règle l'horloge, fait avancer la minuterie puis attend les clôtures échues.
+     */
+    private void advanceTo(long timeMs) throws Exception {
+        now.set(timeMs);
+        scheduler.advance(0);
+        drain();
+    }
+
+    private void drain() throws ExecutionException, InterruptedException {
+        closer.submit(() -> { }).get();
+    }
+
+    /**
+     * DAO des ventes ne servant que la lecture d'une vente non clôturée et le parcours des ventes
+     * non clôturées, par identifiant croissant.
+     */
+    private static SaleDao saleDao(Map<Long, LocalDateTime> unclosed) {
+        return (SaleDao) Proxy.newProxyInstance(SaleDao.class.getClassLoader(), new Class<?>[]{SaleDao.class},
+                (proxy, method, args) -> {
+                    if ("readById".equals(method.getName())) {
+                        Sale sale = new Sale();
+                        sale.setSaleId((long) args[0]);
+                        sale.setEndingDate(unclosed.get((long) args[0]));
+                        return sale;
+                    }
+                    if (!"forEachUnclosed".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    long afterSaleId = (long) args[0];
+                    @SuppressWarnings("unchecked")
+                    Consumer<Sale> action = (Consumer<Sale>) args[1];
+                    unclosed.forEach((saleId, endingDate) -> {
+                        if (saleId > afterSaleId) {
+                            Sale sale = new Sale();
+                            sale.setSaleId(saleId);
+                            sale.setEndingDate(endingDate);
+                            action.accept(sale);
+                        }
+                    });
+                    return null;
+                });
+    }
+
+    /**
+     * Service de clôture qui enregistre les ventes clôturées, échoue une fois pour les ventes de {@code failing}
+     * et ignore une fois celles de {@code moved}, comme une vente dont la date de fin a été repoussée.
+     */
+    private final class RecordingCloser extends SaleCloser {
+
+        private RecordingCloser() {
+            super(null, null, null, null, Optional.empty(), null, null, null, null, null, null);
+        }
+
+        @Override
+        public boolean close(long saleId) {
+            if (failing.remove(saleId)) {
+                throw new IllegalStateException("sale.close.failed");
+            }
+            if (moved.remove(saleId)) {
+                return false;
+            }
+            closed.add(saleId);
+            return true;
+        }
+    }
+}
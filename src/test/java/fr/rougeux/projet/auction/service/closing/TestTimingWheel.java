@@ -0,0 +1,131 @@
+package fr.rougeux.projet.auction.service.closing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestTimingWheel {
+
+    /** Roues de 4 cases d'un tick de 1 ms : 4 ms, puis 16 ms, puis 64 ms */
+    private static final int WHEEL_SIZE = 4;
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> fired = new ArrayList<>();
+    private final List<Long> firedAt = new ArrayList<>();
+    private final TimingWheel wheel = new TimingWheel(1, WHEEL_SIZE, now::get, Runnable::run);
+
+    /**
+     * Vérifie que des échéances rangées dans trois roues différentes se déclenchent dans l'ordre,
+     * chacune au tick de son échéance.
+     */
+    @Test
+    void testAdvance_OrderAcrossLevels() throws InterruptedException {
+        schedule(30);
+        schedule(2);
+        schedule(9);
+        schedule(5);
+
+        advanceTo(40);
+
+        assertEquals(List.of(2L, 5L, 9L, 30L), fired);
+        assertEquals(fired, firedAt);
+        assertEquals(0, wheel.size());
+    }
+    /**
+     * Vérifie qu'après un saut d'horloge au-delà de toutes les échéances, elles se déclenchent
+     * en une seule avance, toujours dans l'ordre.
+     */
+    @Test
+    void testAdvance_ClockJumpKeepsOrder() throws InterruptedException {
+        schedule(11);
+        schedule(9);
+        schedule(50);
+
+        now.set(1_000);
+        assertTrue(wheel.advance(0));
+
+        assertEquals(List.of(9L, 11L, 50L), fired);
+        assertFalse(wheel.advance(0));
+    }
+    /**
+     * Vérifie qu'avance ne déclenche rien avant l'échéance de la prochaine case.
+     */
+    @Test
+    void testAdvance_NothingDue() throws InterruptedException {
+        schedule(3);
+        now.set(2);
+
+        assertFalse(wheel.advance(0));
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+    }
+    /**
+     * Vérifie qu'une échéance annulée avant son déclenchement n'est jamais exécutée,
+     * et qu'une seconde annulation échoue.
+     */
+    @Test
+    void testCancel_BeforeFiring() throws InterruptedException {
+        TimingWheel.Timeout timeout = schedule(20);
+        schedule(21);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(1, wheel.size());
+
+        advanceTo(30);
+
+        assertEquals(List.of(21L), fired);
+    }
+    /**
+     * Vérifie que l'annulation d'une échéance déjà déclenchée échoue.
+     */
+    @Test
+    void testCancel_AfterFiring() throws InterruptedException {
+        TimingWheel.Timeout timeout = schedule(3);
+
+        advanceTo(3);
+
+        assertEquals(List.of(3L), fired);
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+    }
+    /**
+     * Vérifie qu'une échéance déjà atteinte selon l'horloge est exécutée dès sa planification,
+     * même si la minuterie n'a pas avancé depuis sa création.
+     */
+    @Test
+    void testSchedule_PastDeadline() {
+        now.set(10);
+
+        TimingWheel.Timeout past = schedule(4);
+        TimingWheel.Timeout current = schedule(10);
+
+        assertEquals(List.of(4L, 10L), fired);
+        assertEquals(0, wheel.size());
+        assertFalse(past.cancel());
+        assertFalse(current.cancel());
+    }
+
+    private TimingWheel.Timeout schedule(long deadlineMs) {
+        return wheel.schedule(deadlineMs, () -> {
+            fired.add(deadlineMs);
+            firedAt.add(now.get());
+        });
+    }
+
+    /**
+     * Avance l'horloge d'un tick à la fois jusqu'à {@code timeMs}, en faisant avancer la minuterie à chaque tick.
+     */
+    private void advanceTo(long timeMs) throws InterruptedException {
+        while (now.get() < timeMs) {
+            now.incrementAndGet();
+            wheel.advance(0);
+        }
+    }
+}
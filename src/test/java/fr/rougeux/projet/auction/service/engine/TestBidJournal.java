@@ -0,0 +1,229 @@
+package fr.rougeux.projet.auction.service.engine;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.CreditHold;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.bo.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestBidJournal {
+
+    /** Taille d'une entrée sur disque : longueur, CRC et données */
+    private static final int RECORD_SIZE = 64;
+
+    private static final LocalDateTime BID_TIME = LocalDateTime.of(2026, 10, 16, 12, 30, 15, 123_456_789);
+    private static final LocalDateTime ENDING_DATE = LocalDateTime.of(2026, 10, 16, 12, 31, 15, 500_000_000);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Vérifie que les entrées non écrites en base sont relues à l'identique au redémarrage, une seule fois.
+     */
+    @Test
+    void testRecover_EntriesAfterRestart() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        assertEquals(1, journal.append(bid(10, 7, 150), new CreditHold(7, 10, 300)));
+        assertEquals(2, journal.append(bid(11, 8, 90), new CreditHold(8, 11, 90)));
+        journal.destroy();
+
+        BidJournal reopened = new BidJournal(directory, 1);
+        List<BidJournal.Entry> entries = reopened.recover();
+
+        assertEquals(2, entries.size());
+        BidJournal.Entry first = entries.getFirst();
+        assertEquals(1, first.seq());
+        assertEquals(10, first.bid().getSale().getSaleId());
+        assertEquals(7, first.bid().getUser().getUserId());
+        assertEquals(150, first.bid().getBidAmount());
+        assertEquals(BID_TIME, first.bid().getBidTime());
+        assertEquals(ENDING_DATE, first.bid().getSale().getEndingDate());
+        assertEquals(300, first.hold().getAmount());
+        assertEquals(2, entries.get(1).seq());
+        assertEquals(2, reopened.pendingCount());
+        assertTrue(reopened.recover().isEmpty());
+    }
+    /**
+     * Vérifie qu'une entrée sans enchère (plafond relevé par le meneur) est relue avec sa seule réservation.
+     */
+    @Test
+    void testRecover_HoldOnlyEntry() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        journal.append(null, new CreditHold(7, 10, 500));
+        journal.destroy();
+
+        List<BidJournal.Entry> entries = new BidJournal(directory, 1).recover();
+
+        assertEquals(1, entries.size());
+        assertNull(entries.getFirst().bid());
+        assertEquals(7, entries.getFirst().hold().getUserId());
+        assertEquals(10, entries.getFirst().hold().getSaleId());
+        assertEquals(500, entries.getFirst().hold().getAmount());
+    }
+    /**
+     * Vérifie que la numérotation reprend après la dernière entrée relue.
+     */
+    @Test
+    void testAppend_SequenceContinuesAfterRestart() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        journal.append(bid(10, 7, 150), new CreditHold(7, 10, 150));
+        journal.append(bid(10, 8, 160), new CreditHold(8, 10, 160));
+        journal.destroy();
+
+        BidJournal reopened = new BidJournal(directory, 1);
+
+        assertEquals(3, reopened.append(bid(10, 7, 170), new CreditHold(7, 10, 170)));
+    }
+    /**
+     * Vérifie que le point de reprise écarte du rejeu les entrées écrites en base.
+     */
+    @Test
+    void testCheckpoint_SkipsDrainedEntries() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        for (int amount = 100; amount < 103; amount++) {
+            journal.append(bid(10, 7, amount), new CreditHold(7, 10, amount));
+        }
+        journal.drained(1);
+        journal.drained(2);
+        journal.checkpoint();
+        journal.destroy();
+
+        List<BidJournal.Entry> entries = new BidJournal(directory, 1).recover();
+
+        assertEquals(1, entries.size());
+        assertEquals(3, entries.getFirst().seq());
+    }
+    /**
+     * Vérifie que le point de reprise s'arrête avant la première entrée non écrite,
+     * même si des entrées suivantes le sont.
+     */
+    @Test
+    void testCheckpoint_StopsAtGap() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        for (int amount = 100; amount < 103; amount++) {
+            journal.append(bid(10, 7, amount), new CreditHold(7, 10, amount));
+        }
+        journal.drained(1);
+        journal.drained(3);
+        journal.checkpoint();
+        journal.destroy();
+
+        List<BidJournal.Entry> entries = new BidJournal(directory, 1).recover();
+
+        assertEquals(List.of(2L, 3L), entries.stream().map(BidJournal.Entry::seq).toList());
+    }
+    /**
+     * Vérifie que la lecture d'un segment s'arrête à la première entrée dont le CRC est faux.
+     */
+    @Test
+    void testRecover_StopsAtCorruptedEntry() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        for (int amount = 100; amount < 103; amount++) {
+            journal.append(bid(10, 7, amount), new CreditHold(7, 10, amount));
+        }
+        journal.destroy();
+
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.WRITE)) {
+            // Montant de la deuxième entrée
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), RECORD_SIZE + 44);
+        }
+        List<BidJournal.Entry> entries = new BidJournal(directory, 1).recover();
+
+        assertEquals(List.of(1L), entries.stream().map(BidJournal.Entry::seq).toList());
+    }
+    /**
+     * Vérifie qu'une entrée tronquée par un crash est ignorée, et que son numéro est réattribué.
+     */
+    @Test
+    void testRecover_IgnoresTornRecord() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        journal.append(bid(10, 7, 100), new CreditHold(7, 10, 100));
+        journal.append(bid(10, 8, 110), new CreditHold(8, 10, 110));
+        journal.destroy();
+
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.WRITE)) {
+            channel.truncate(RECORD_SIZE + 20);
+        }
+        BidJournal reopened = new BidJournal(directory, 1);
+
+        assertEquals(List.of(1L), reopened.recover().stream().map(BidJournal.Entry::seq).toList());
+        assertEquals(2, reopened.append(bid(10, 8, 110), new CreditHold(8, 10, 110)));
+    }
+    /**
+     * Vérifie qu'un nouveau segment est ouvert quand le courant est plein, et que les segments
+     * entièrement écrits en base sont supprimés au point de reprise.
+     */
+    @Test
+    void testCheckpoint_DeletesDrainedSegments() throws IOException {
+        BidJournal journal = new BidJournal(directory, 1);
+        int perSegment = 1024 * 1024 / RECORD_SIZE;
+        for (int seq = 1; seq <= perSegment + 1; seq++) {
+            journal.append(bid(10, 7, seq), new CreditHold(7, 10, seq));
+        }
+
+        assertEquals(2, segmentCount());
+
+        for (long seq = 1; seq <= perSegment + 1; seq++) {
+            journal.drained(seq);
+        }
+        journal.checkpoint();
+
+        assertEquals(1, segmentCount());
+        assertEquals(0, journal.pendingCount());
+        journal.destroy();
+        assertTrue(new BidJournal(directory, 1).recover().isEmpty());
+    }
+    /**
+     * Vérifie qu'un segment sans aucune entrée valide est supprimé au démarrage.
+     */
+    @Test
+    void testOpen_DeletesEmptySegment() throws IOException {
+        new BidJournal(directory, 1).destroy();
+
+        new BidJournal(directory, 1);
+
+        assertEquals(1, segmentCount());
+    }
+
+    private Path firstSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).sorted().findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    private static Bid bid(long saleId, long userId, int amount) {
+        Sale sale = new Sale();
+        sale.setSaleId(saleId);
+        sale.setEndingDate(ENDING_DATE);
+        User user = new User();
+        user.setUserId(userId);
+
+        Bid bid = new Bid();
+        bid.setSale(sale);
+        bid.setUser(user);
+        bid.setBidAmount(amount);
+        bid.setBidTime(BID_TIME);
+        return bid;
+    }
+}
@@ -0,0 +1,200 @@
+package fr.rougeux.projet.auction.service.engine;
+
+import fr.rougeux.projet.auction.bo.Bid;
+import fr.rougeux.projet.auction.bo.Sale;
+import fr.rougeux.projet.auction.bo.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TestSaleBook {
+
+    private static final int INCREMENT = 5;
+    private static final long LEADER = 1;
+    private static final long CHALLENGER = 2;
+
+    /**
+     * Vérifie que le meneur dont le plafond dépasse celui du challenger reste meneur,
+     * au plafond du challenger plus un incrément.
+     */
+    @Test
+    void testResolve_LeaderMaxCoversChallenger() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 150, 0), INCREMENT);
+
+        assertEquals(LEADER, visible.getUser().getUserId());
+        assertEquals(155, visible.getBidAmount());
+        assertEquals(LEADER, book.getLeaderId());
+        assertEquals(155, book.getCurrentPrice());
+        assertEquals(200, book.getLeaderMax());
+        assertEquals(2, book.getSale().getBidCount());
+    }
+    /**
+     * Vérifie qu'à plafond égal le meneur l'emporte, au montant de son plafond.
+     */
+    @Test
+    void testResolve_TieGoesToLeader() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 150, 200), INCREMENT);
+
+        assertEquals(LEADER, visible.getUser().getUserId());
+        assertEquals(200, visible.getBidAmount());
+        assertEquals(LEADER, book.getLeaderId());
+        assertEquals(200, book.getLeaderMax());
+    }
+    /**
+     * Vérifie que le prix automatique du meneur est plafonné à son enchère maximale,
+     * même si le plafond du challenger plus un incrément la dépasse.
+     */
+    @Test
+    void testResolve_LeaderPriceCappedAtMax() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 198, 0), INCREMENT);
+
+        assertEquals(LEADER, visible.getUser().getUserId());
+        assertEquals(200, visible.getBidAmount());
+    }
+    /**
+     * Vérifie que le challenger dont le plafond dépasse celui du meneur plus un incrément
+     * devient meneur, au plafond dépassé plus un incrément.
+     */
+    @Test
+    void testResolve_ChallengerBeatsLeaderMaxPlusIncrement() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+        Bid bid = bid(CHALLENGER, 150, 300);
+
+        Bid visible = book.resolve(bid, INCREMENT);
+
+        assertSame(bid, visible);
+        assertEquals(205, visible.getBidAmount());
+        assertEquals(CHALLENGER, book.getLeaderId());
+        assertEquals(205, book.getCurrentPrice());
+        assertEquals(300, book.getLeaderMax());
+    }
+    /**
+     * Vérifie que le challenger qui dépasse le plafond du meneur de moins d'un incrément
+     * devient meneur à son propre plafond.
+     */
+    @Test
+    void testResolve_ChallengerBeatsLeaderMaxByLessThanIncrement() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 150, 202), INCREMENT);
+
+        assertEquals(CHALLENGER, visible.getUser().getUserId());
+        assertEquals(202, visible.getBidAmount());
+    }
+    /**
+     * Vérifie que le montant saisi par le challenger est conservé s'il dépasse déjà
+     * le plafond du meneur plus un incrément.
+     */
+    @Test
+    void testResolve_ChallengerAmountAboveLeaderMax() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 250, 0), INCREMENT);
+
+        assertEquals(250, visible.getBidAmount());
+        assertEquals(250, book.getLeaderMax());
+    }
+    /**
+     * Vérifie que {@code limit + increment} ne déborde pas quand le plafond du challenger
+     * approche {@link Integer#MAX_VALUE}.
+     */
+    @Test
+    void testResolve_IncrementOverflow() {
+        SaleBook book = bookLedBy(LEADER, 100, Integer.MAX_VALUE);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 150, Integer.MAX_VALUE - 1), INCREMENT);
+
+        assertEquals(LEADER, visible.getUser().getUserId());
+        assertEquals(Integer.MAX_VALUE, visible.getBidAmount());
+    }
+    /**
+     * Vérifie que {@code leaderMax + increment} ne déborde pas quand le challenger
+     * dépasse un plafond proche de {@link Integer#MAX_VALUE}.
+     */
+    @Test
+    void testResolve_LeaderMaxIncrementOverflow() {
+        SaleBook book = bookLedBy(LEADER, 100, Integer.MAX_VALUE - 1);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 150, Integer.MAX_VALUE), INCREMENT);
+
+        assertEquals(CHALLENGER, visible.getUser().getUserId());
+        assertEquals(Integer.MAX_VALUE, visible.getBidAmount());
+    }
+    /**
+     * Vérifie que le meneur qui relève son enchère maximale ne change ni le prix ni le nombre d'enchères.
+     */
+    @Test
+    void testRaiseLeaderMax_KeepsPrice() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        book.raiseLeaderMax(400);
+
+        assertEquals(LEADER, book.getLeaderId());
+        assertEquals(100, book.getCurrentPrice());
+        assertEquals(400, book.getLeaderMax());
+        assertEquals(1, book.getSale().getBidCount());
+
+        Bid visible = book.resolve(bid(CHALLENGER, 300, 0), INCREMENT);
+
+        assertEquals(LEADER, visible.getUser().getUserId());
+        assertEquals(305, visible.getBidAmount());
+    }
+    /**
+     * Vérifie que le meneur qui surenchérit sur lui-même devient meneur à son montant,
+     * avec son nouveau plafond.
+     */
+    @Test
+    void testResolve_LeaderBidsAgain() {
+        SaleBook book = bookLedBy(LEADER, 100, 200);
+
+        Bid visible = book.resolve(bid(LEADER, 120, 500), INCREMENT);
+
+        assertEquals(120, visible.getBidAmount());
+        assertEquals(LEADER, book.getLeaderId());
+        assertEquals(500, book.getLeaderMax());
+    }
+    /**
+     * Vérifie que la première enchère d'une vente sans meneur est acceptée à son montant.
+     */
+    @Test
+    void testResolve_FirstBid() {
+        Sale sale = new Sale();
+        sale.setSaleId(10);
+        sale.setStartingPrice(100);
+        SaleBook book = new SaleBook(sale, List.of(), 5, 0);
+
+        Bid visible = book.resolve(bid(CHALLENGER, 110, 300), INCREMENT);
+
+        assertEquals(110, visible.getBidAmount());
+        assertEquals(CHALLENGER, book.getLeaderId());
+        assertEquals(300, book.getLeaderMax());
+    }
+
+    private static SaleBook bookLedBy(long leaderId, int price, int leaderMax) {
+        Sale sale = new Sale();
+        sale.setSaleId(10);
+        sale.setStartingPrice(50);
+        sale.setBidCount(1);
+        return new SaleBook(sale, List.of(bid(leaderId, price, 0)), 5, leaderMax);
+    }
+
+    private static Bid bid(long userId, int amount, int maxAmount) {
+        User user = new User();
+        user.setUserId(userId);
+
+        Bid bid = new Bid();
+        bid.setUser(user);
+        bid.setBidAmount(amount);
+        bid.setMaxAmount(maxAmount);
+        return bid;
+    }
+}
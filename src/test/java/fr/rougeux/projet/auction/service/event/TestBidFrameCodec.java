@@ -0,0 +1,150 @@
+package fr.rougeux.projet.auction.service.event;
+
+import fr.rougeux.projet.auction.dto.response.SaleEventDto;
+import fr.rougeux.projet.auction.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestBidFrameCodec {
+
+    private static final LocalDateTime ENDING = LocalDateTime.of(2026, 10, 16, 18, 0, 0, 250_000_000);
+
+    /**
+     * Vérifie que decodeBid() relit dans l'ordre séquence, vente, montant et enchère maximale.
+     */
+    @Test
+    void testDecodeBid() {
+        ByteBuffer frame = ByteBuffer.allocate(21)
+                .put(BidFrameCodec.BID)
+                .putInt(42)
+                .putLong(123_456_789_012L)
+                .putInt(150)
+                .putInt(300)
+                .flip();
+
+        assertEquals(BidFrameCodec.BID, BidFrameCodec.typeOf(frame));
+        assertEquals(new BidFrameCodec.BidFrame(42, 123_456_789_012L, 150, 300), BidFrameCodec.decodeBid(frame));
+    }
+    /**
+     * Vérifie que typeOf() ne consomme pas l'octet de type.
+     */
+    @Test
+    void testTypeOf_DoesNotConsume() {
+        ByteBuffer frame = ByteBuffer.allocate(9).put(BidFrameCodec.SUBSCRIBE).putLong(7).flip();
+
+        BidFrameCodec.typeOf(frame);
+
+        assertEquals(0, frame.position());
+        assertEquals(7, BidFrameCodec.decodeSaleId(frame));
+    }
+    /**
+     * Vérifie que typeOf() refuse une trame vide.
+     */
+    @Test
+    void testTypeOf_Empty() {
+        BusinessException e = assertThrows(BusinessException.class, () -> BidFrameCodec.typeOf(ByteBuffer.allocate(0)));
+
+        assertEquals("bid.frame.invalid", e.getMessage());
+    }
+    /**
+     * Vérifie que decodeBid() refuse une trame tronquée ou trop longue.
+     */
+    @Test
+    void testDecodeBid_WrongSize() {
+        ByteBuffer truncated = ByteBuffer.allocate(20).put(BidFrameCodec.BID).flip().limit(20);
+        ByteBuffer tooLong = ByteBuffer.allocate(22).put(BidFrameCodec.BID).flip().limit(22);
+
+        assertThrows(BusinessException.class, () -> BidFrameCodec.decodeBid(truncated));
+        assertThrows(BusinessException.class, () -> BidFrameCodec.decodeBid(tooLong));
+    }
+    /**
+     * Vérifie que decodeSaleId() refuse une trame qui n'a pas la taille attendue.
+     */
+    @Test
+    void testDecodeSaleId_WrongSize() {
+        ByteBuffer frame = ByteBuffer.allocate(5).put(BidFrameCodec.UNSUBSCRIBE).putInt(7).flip();
+
+        assertThrows(BusinessException.class, () -> BidFrameCodec.decodeSaleId(frame));
+    }
+    /**
+     * Vérifie le contenu et la taille de la trame d'acquittement.
+     */
+    @Test
+    void testEncodeAck() {
+        SaleEventDto sale = new SaleEventDto(9, "OPEN", 160, 3, 12, ENDING);
+
+        ByteBuffer frame = ByteBuffer.wrap(BidFrameCodec.encodeAck(42, sale, true));
+
+        assertEquals(22, frame.remaining());
+        assertEquals(BidFrameCodec.ACK, frame.get());
+        assertEquals(42, frame.getInt());
+        assertEquals(9, frame.getLong());
+        assertEquals(160, frame.getInt());
+        assertEquals(12, frame.getInt());
+        assertEquals(1, frame.get());
+        assertFalse(frame.hasRemaining());
+    }
+    /**
+     * Vérifie que la trame de refus porte la clé du message d'erreur, préfixée de sa longueur.
+     */
+    @Test
+    void testEncodeReject() {
+        ByteBuffer frame = ByteBuffer.wrap(BidFrameCodec.encodeReject(42, "bid.rateLimited"));
+
+        assertEquals(BidFrameCodec.REJECT, frame.get());
+        assertEquals(42, frame.getInt());
+        int length = frame.get() & 0xFF;
+        byte[] reason = new byte[length];
+        frame.get(reason);
+
+        assertEquals("bid.rateLimited", new String(reason, StandardCharsets.UTF_8));
+        assertFalse(frame.hasRemaining());
+    }
+    /**
+     * Vérifie qu'une clé de plus de 255 octets est tronquée à la longueur encodable sur un octet.
+     */
+    @Test
+    void testEncodeReject_LongReason() {
+        byte[] frame = BidFrameCodec.encodeReject(1, "x".repeat(300));
+
+        assertEquals(255, frame[5] & 0xFF);
+        assertEquals(1 + Integer.BYTES + 1 + 255, frame.length);
+    }
+    /**
+     * Vérifie le contenu de la trame de mise à jour, date de fin en millisecondes depuis l'epoch.
+     */
+    @Test
+    void testEncodeSaleEvent() {
+        SaleEventDto event = new SaleEventDto(9, "OVER", 160, 3_000_000_000L, 12, ENDING);
+
+        ByteBuffer frame = ByteBuffer.wrap(BidFrameCodec.encodeSaleEvent(event));
+
+        assertEquals(34, frame.remaining());
+        assertEquals(BidFrameCodec.SALE, frame.get());
+        assertEquals(9, frame.getLong());
+        assertEquals(160, frame.getInt());
+        assertEquals(3_000_000_000L, frame.getLong());
+        assertEquals(12, frame.getInt());
+        assertEquals(ENDING.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), frame.getLong());
+        assertEquals(1, frame.get());
+        assertFalse(frame.hasRemaining());
+    }
+    /**
+     * Vérifie qu'une vente ouverte sans date de fin est encodée avec une date à 0.
+     */
+    @Test
+    void testEncodeSaleEvent_OpenWithoutEnding() {
+        ByteBuffer frame = ByteBuffer.wrap(BidFrameCodec.encodeSaleEvent(new SaleEventDto(9, "OPEN", 160, 3, 12, null)));
+
+        assertEquals(0, frame.getLong(1 + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES));
+        assertEquals(0, frame.get(33));
+    }
+}
@@ -0,0 +1,173 @@
+package fr.rougeux.projet.auction.service.history;
+
+import fr.rougeux.projet.auction.bo.PriceBucket;
+import fr.rougeux.projet.auction.repository.PriceBucketDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static fr.rougeux.projet.auction.service.history.TestPriceSeries.assertBucket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestPriceHistory {
+
+    private static final long SALE_ID = 10;
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 10, 16, 12, 0);
+
+    private final InMemoryPriceBucketDao dao = new InMemoryPriceBucketDao();
+
+    /**
+     * Vérifie que la lecture regroupe les minutes par intervalle aligné sur sa durée.
+     */
+    @Test
+    void testRead_GroupsByInterval() {
+        PriceHistory history = history(64);
+        history.record(SALE_ID, NOON.plusMinutes(1), 100);
+        history.record(SALE_ID, NOON.plusMinutes(3), 120);
+        history.record(SALE_ID, NOON.plusMinutes(4), 110);
+        history.record(SALE_ID, NOON.plusMinutes(7), 130);
+
+        List<PriceBucket> buckets = history.read(SALE_ID, 5);
+
+        assertEquals(2, buckets.size());
+        assertBucket(buckets.get(0), NOON, 100, 120, 100, 120, 3);
+        assertBucket(buckets.get(1), NOON.plusMinutes(5), 130, 130, 130, 130, 1);
+        assertEquals(4, history.read(SALE_ID, 1).size());
+    }
+    /**
+     * Vérifie que la lecture fusionne les minutes enregistrées en base, évincées en attente d'écriture et en mémoire.
+     */
+    @Test
+    void testRead_MergesStoredPendingAndMemory() {
+        dao.mergeAll(List.of(new PriceBucket(SALE_ID, NOON, 80, 90, 80, 90, 2)));
+        PriceHistory history = history(1);
+        history.record(SALE_ID, NOON.plusMinutes(2), 100);
+        history.record(SALE_ID, NOON.plusMinutes(4), 110);
+
+        List<PriceBucket> buckets = history.read(SALE_ID, 5);
+
+        assertEquals(1, buckets.size());
+        assertBucket(buckets.getFirst(), NOON, 80, 110, 80, 110, 4);
+    }
+    /**
+     * Vérifie que les minutes évincées sont écrites en base au prochain vidage.
+     */
+    @Test
+    void testFlush_WritesEvictedMinutes() {
+        PriceHistory history = history(1);
+        history.record(SALE_ID, NOON, 100);
+        history.record(SALE_ID, NOON.plusMinutes(1), 110);
+
+        history.flush();
+
+        assertEquals(List.of(NOON), dao.readBySale(SALE_ID).stream().map(PriceBucket::getBucketStart).toList());
+    }
+    /**
+     * Vérifie que la série est chargée avec les seules enchères au-delà du plus haut prix déjà enregistré.
+     */
+    @Test
+    void testRecord_LoadsBidsAboveStoredClose() {
+        dao.mergeAll(List.of(new PriceBucket(SALE_ID, NOON, 80, 90, 80, 90, 2)));
+        dao.bid(NOON, 85);
+        dao.bid(NOON.plusMinutes(1), 95);
+        PriceHistory history = history(64);
+
+        history.record(SALE_ID, NOON.plusMinutes(1), 100);
+
+        List<PriceBucket> buckets = history.read(SALE_ID, 1);
+        assertEquals(2, buckets.size());
+        assertBucket(buckets.get(1), NOON.plusMinutes(1), 95, 100, 95, 100, 2);
+    }
+    /**
+     * Vérifie qu'une enchère reçue après la clôture de la vente est ignorée et ne recrée pas de série en mémoire.
+     */
+    @Test
+    void testRecord_AfterCloseIgnored() {
+        PriceHistory history = history(64);
+        history.record(SALE_ID, NOON, 100);
+        history.close(SALE_ID);
+        int loads = dao.loads;
+
+        history.record(SALE_ID, NOON.plusMinutes(1), 110);
+
+        assertEquals(loads, dao.loads);
+        List<PriceBucket> buckets = history.read(SALE_ID, 1);
+        assertEquals(1, buckets.size());
+        assertBucket(buckets.getFirst(), NOON, 100, 100, 100, 100, 1);
+        assertEquals(1, dao.readBySale(SALE_ID).size());
+    }
+
+    private PriceHistory history(int capacity) {
+        return new PriceHistory(dao, new DirectTransactionTemplate(), capacity, 500, 60_000, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Exécute les callbacks sans transaction.
+     */
+    private static final class DirectTransactionTemplate extends TransactionTemplate {
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+
+    /**
+     * Tables SALE_PRICE_BUCKETS et BIDS d'une seule vente, en mémoire.
+     */
+    private static final class InMemoryPriceBucketDao implements PriceBucketDao {
+
+        private final Map<LocalDateTime, PriceBucket> stored = new TreeMap<>();
+        private final List<PriceBucket> bids = new ArrayList<>();
+        private int loads;
+
+        private void bid(LocalDateTime time, int amount) {
+            bids.add(new PriceBucket(SALE_ID, time.withSecond(0), amount, amount, amount, amount, 1));
+        }
+
+        @Override
+        public List<PriceBucket> readBySale(long saleId) {
+            return new ArrayList<>(stored.values());
+        }
+
+        @Override
+        public int readMaxClose(long saleId) {
+            loads++;
+            return stored.values().stream().mapToInt(PriceBucket::getClosePrice).max().orElse(0);
+        }
+
+        @Override
+        public List<PriceBucket> aggregateBids(long saleId, int afterAmount) {
+            Map<LocalDateTime, PriceBucket> buckets = new TreeMap<>();
+            for (PriceBucket bid : bids) {
+                if (bid.getClosePrice() > afterAmount) {
+                    merge(buckets, bid);
+                }
+            }
+            return new ArrayList<>(buckets.values());
+        }
+
+        @Override
+        public void mergeAll(List<PriceBucket> buckets) {
+            buckets.forEach(bucket -> merge(stored, bucket));
+        }
+
+        private static void merge(Map<LocalDateTime, PriceBucket> buckets, PriceBucket bucket) {
+            PriceBucket existing = buckets.get(bucket.getBucketStart());
+            if (existing != null) {
+                existing.merge(bucket);
+            } else {
+                buckets.put(bucket.getBucketStart(), new PriceBucket(bucket.getSaleId(), bucket.getBucketStart(),
+                        bucket.getOpenPrice(), bucket.getHighPrice(), bucket.getLowPrice(), bucket.getClosePrice(),
+                        bucket.getBidCount()));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package fr.rougeux.projet.auction.service.history;
+
+import fr.rougeux.projet.auction.bo.PriceBucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestPriceSeries {
+
+    private static final long SALE_ID = 10;
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 10, 16, 12, 0);
+
+    /**
+     * Vérifie que les enchères d'une même minute sont agrégées : ouverture, plus haut, plus bas, clôture et nombre.
+     */
+    @Test
+    void testRecord_SameMinuteAggregates() {
+        PriceSeries series = new PriceSeries(4, 0);
+
+        assertNull(series.record(SALE_ID, NOON.plusSeconds(5), 100));
+        assertNull(series.record(SALE_ID, NOON.plusSeconds(30), 120));
+        assertNull(series.record(SALE_ID, NOON.plusSeconds(59), 110));
+
+        List<PriceBucket> buckets = series.snapshot(SALE_ID);
+        assertEquals(1, buckets.size());
+        assertBucket(buckets.getFirst(), NOON, 100, 120, 100, 120, 3);
+    }
+    /**
+     * Vérifie que le tampon plein évince sa plus ancienne minute, renvoyée pour être enregistrée.
+     */
+    @Test
+    void testRecord_EvictsOldestWhenFull() {
+        PriceSeries series = new PriceSeries(2, 0);
+        series.record(SALE_ID, NOON, 100);
+        series.record(SALE_ID, NOON.plusMinutes(1), 110);
+
+        PriceBucket evicted = series.record(SALE_ID, NOON.plusMinutes(2), 120);
+
+        assertBucket(evicted, NOON, 100, 100, 100, 100, 1);
+        assertEquals(List.of(NOON.plusMinutes(1), NOON.plusMinutes(2)), starts(series.snapshot(SALE_ID)));
+    }
+    /**
+     * Vérifie qu'une enchère tardive dont la minute est encore en mémoire y est agrégée,
+     * et que celle dont la minute a été évincée est renvoyée comme agrégat partiel.
+     */
+    @Test
+    void testRecord_LateBids() {
+        PriceSeries series = new PriceSeries(2, 0);
+        series.record(SALE_ID, NOON.plusMinutes(5), 150);
+        series.record(SALE_ID, NOON.plusMinutes(6), 160);
+
+        assertNull(series.record(SALE_ID, NOON.plusMinutes(5).plusSeconds(40), 155));
+        PriceBucket partial = series.record(SALE_ID, NOON.plusMinutes(3), 140);
+
+        assertBucket(partial, NOON.plusMinutes(3), 140, 140, 140, 140, 1);
+        List<PriceBucket> buckets = series.snapshot(SALE_ID);
+        assertEquals(List.of(NOON.plusMinutes(5), NOON.plusMinutes(6)), starts(buckets));
+        assertBucket(buckets.getFirst(), NOON.plusMinutes(5), 150, 155, 150, 155, 2);
+    }
+    /**
+     * Vérifie que les enchères déjà comptées en base au chargement (montant inférieur ou égal au plancher) sont ignorées.
+     */
+    @Test
+    void testRecord_AtOrBelowFloorIgnored() {
+        PriceSeries series = new PriceSeries(4, 100);
+
+        assertNull(series.record(SALE_ID, NOON, 90));
+        assertNull(series.record(SALE_ID, NOON, 100));
+
+        assertTrue(series.snapshot(SALE_ID).isEmpty());
+    }
+    /**
+     * Vérifie qu'un agrégat lu en base est fusionné avec les enchères suivantes de la même minute,
+     * et relève le plancher des enchères ignorées.
+     */
+    @Test
+    void testSeed_MergesWithLaterBids() {
+        PriceSeries series = new PriceSeries(4, 0);
+        series.seed(new PriceBucket(SALE_ID, NOON, 110, 120, 110, 120, 3));
+
+        assertNull(series.record(SALE_ID, NOON.plusSeconds(50), 115));
+        assertNull(series.record(SALE_ID, NOON.plusSeconds(50), 130));
+
+        List<PriceBucket> buckets = series.snapshot(SALE_ID);
+        assertEquals(1, buckets.size());
+        assertBucket(buckets.getFirst(), NOON, 110, 130, 110, 130, 4);
+    }
+    /**
+     * Vérifie que la clôture renvoie les minutes en mémoire, et que les enchères reçues ensuite sont ignorées.
+     */
+    @Test
+    void testClose_IgnoresLaterBids() {
+        PriceSeries series = new PriceSeries(4, 0);
+        series.record(SALE_ID, NOON, 100);
+
+        List<PriceBucket> closed = series.close(SALE_ID);
+
+        assertEquals(List.of(NOON), starts(closed));
+        assertNull(series.record(SALE_ID, NOON.plusMinutes(1), 110));
+        assertNull(series.record(SALE_ID, NOON.minusMinutes(10), 120));
+        assertEquals(List.of(NOON), starts(series.snapshot(SALE_ID)));
+    }
+
+    private static List<LocalDateTime> starts(List<PriceBucket> buckets) {
+        return buckets.stream().map(PriceBucket::getBucketStart).toList();
+    }
+
+    static void assertBucket(PriceBucket bucket, LocalDateTime start, int open, int high, int low, int close, int count) {
+        assertEquals(start, bucket.getBucketStart());
+        assertEquals(open, bucket.getOpenPrice());
+        assertEquals(high, bucket.getHighPrice());
+        assertEquals(low, bucket.getLowPrice());
+        assertEquals(close, bucket.getClosePrice());
+        assertEquals(count, bucket.getBidCount());
+    }
+}
@@ -0,0 +1,68 @@
+package fr.rougeux.projet.auction.service.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestBidRateLimiter {
+
+    /**
+     * Vérifie qu'un débit de remplissage nul est refusé au démarrage, en nommant la propriété fautive.
+     */
+    @Test
+    void testConstructor_ZeroRefill() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.bid.rate-limit.user.per-sale.refill-per-second", "0");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> limiter(environment, List.of("USER"), 100, 1_000));
+
+        assertTrue(e.getMessage().contains("app.bid.rate-limit.user.per-sale.refill-per-second"));
+    }
+    /**
+     * Vérifie qu'une capacité hors bornes est refusée au démarrage.
+     */
+    @Test
+    void testConstructor_CapacityTooLarge() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.bid.rate-limit.user.per-user.capacity", String.valueOf(TokenBucket.MAX_CAPACITY + 1));
+
+        assertThrows(IllegalStateException.class, () -> limiter(environment, List.of("USER"), 100, 1_000));
+    }
+    /**
+     * Vérifie qu'une liste de rôles vide, une table sans place ou une inactivité nulle sont refusées au démarrage.
+     */
+    @Test
+    void testConstructor_InvalidSettings() {
+        MockEnvironment environment = new MockEnvironment();
+
+        assertThrows(IllegalStateException.class, () -> limiter(environment, List.of(), 100, 1_000));
+        assertThrows(IllegalStateException.class, () -> limiter(environment, List.of("USER"), 0, 1_000));
+        assertThrows(IllegalStateException.class, () -> limiter(environment, List.of("USER"), 100, 0));
+    }
+    /**
+     * Vérifie que le seau de l'utilisateur sur une vente limite les enchères sur cette seule vente.
+     */
+    @Test
+    void testTryAcquire_PerSaleLimit() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.bid.rate-limit.user.per-sale.capacity", "1");
+        BidRateLimiter limiter = limiter(environment, List.of("USER"), 100, 1_000);
+        BidRateLimiter.Limits limits = limiter.limitsFor(List.of());
+
+        assertEquals(0, limiter.tryAcquire(limits, "alice", 1));
+        assertTrue(limiter.tryAcquire(limits, "alice", 1) > 0);
+        assertEquals(0, limiter.tryAcquire(limits, "alice", 2));
+        assertEquals(0, limiter.tryAcquire(limits, "bob", 1));
+    }
+
+    private static BidRateLimiter limiter(MockEnvironment environment, List<String> roles, int maxBuckets, long idleMs) {
+        return new BidRateLimiter(environment, true, roles, maxBuckets, idleMs, new SimpleMeterRegistry());
+    }
+}
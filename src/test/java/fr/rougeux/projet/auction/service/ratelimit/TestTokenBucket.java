@@ -0,0 +1,125 @@
+package fr.rougeux.projet.auction.service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestTokenBucket {
+
+    /**
+     * Vérifie qu'un seau neuf autorise une rafale de sa capacité, puis refuse.
+     */
+    @Test
+    void testTryAcquire_BurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(3, 1), 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(1000, bucket.tryAcquire(0));
+    }
+    /**
+     * Vérifie que le remplissage est proportionnel au temps écoulé, au millième de jeton près.
+     */
+    @Test
+    void testTryAcquire_RefillMath() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(2, 4), 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        // 100 ms à 4 jetons par seconde : 0,4 jeton, il en manque 0,6 soit 150 ms
+        assertEquals(150, bucket.tryAcquire(100));
+        assertEquals(0, bucket.tryAcquire(250));
+        assertEquals(250, bucket.tryAcquire(250));
+    }
+    /**
+     * Vérifie qu'un refus ne consomme rien : le délai annoncé suffit à obtenir le jeton.
+     */
+    @Test
+    void testTryAcquire_RefusalKeepsState() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(1, 2), 0);
+        bucket.tryAcquire(0);
+
+        assertEquals(500, bucket.tryAcquire(0));
+        assertEquals(300, bucket.tryAcquire(200));
+        assertEquals(0, bucket.tryAcquire(500));
+    }
+    /**
+     * Vérifie que le délai avant le prochain jeton (Retry-After) est arrondi à la milliseconde supérieure.
+     */
+    @Test
+    void testTryAcquire_RetryAfterRoundsUp() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(1, 3), 0);
+        bucket.tryAcquire(0);
+
+        assertEquals(334, bucket.tryAcquire(0));
+        assertEquals(1, bucket.tryAcquire(333));
+        assertEquals(0, bucket.tryAcquire(334));
+    }
+    /**
+     * Vérifie que le remplissage s'arrête à la capacité, même après une longue inactivité.
+     */
+    @Test
+    void testTryAcquire_CapacityClamp() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(2, 10), 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertEquals(0, bucket.tryAcquire(60_000));
+        assertEquals(0, bucket.tryAcquire(60_000));
+        assertEquals(100, bucket.tryAcquire(60_000));
+    }
+    /**
+     * Vérifie que le remplissage ne déborde pas après des mois d'inactivité, au débit maximal.
+     */
+    @Test
+    void testTryAcquire_LongIdleMaxRefill() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(1, Integer.MAX_VALUE), 0);
+        bucket.tryAcquire(0);
+        long months = 200L * 24 * 3600 * 1000;
+
+        assertEquals(0, bucket.tryAcquire(months));
+        assertEquals(1, bucket.tryAcquire(months));
+    }
+    /**
+     * Vérifie qu'un instant antérieur au dernier remplissage n'ajoute aucun jeton.
+     */
+    @Test
+    void testTryAcquire_ClockBehindLastRefill() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(1, 1), 1_000);
+        bucket.tryAcquire(1_000);
+
+        assertEquals(1000, bucket.tryAcquire(500));
+        assertEquals(0, bucket.tryAcquire(2_000));
+    }
+    /**
+     * Vérifie qu'un seau n'est oubliable qu'inutilisé depuis idleMs et de nouveau plein.
+     */
+    @Test
+    void testIsIdle() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(5, 1), 0);
+
+        assertFalse(bucket.isIdle(999, 1_000));
+        assertTrue(bucket.isIdle(1_000, 1_000));
+
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(0);
+        }
+
+        assertFalse(bucket.isIdle(1_000, 1_000));
+        assertFalse(bucket.isIdle(4_999, 1_000));
+        assertTrue(bucket.isIdle(5_000, 1_000));
+    }
+    /**
+     * Vérifie que les limites hors bornes sont refusées, un débit nul notamment.
+     */
+    @Test
+    void testRateLimit_Invalid() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit((int) TokenBucket.MAX_CAPACITY + 1, 1));
+    }
+}
@@ -0,0 +1,71 @@
+package fr.rougeux.projet.auction.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestFrenchAnalyzer {
+
+    /**
+     * Vérifie que fold() met en minuscules, retire les accents et développe les ligatures.
+     */
+    @Test
+    void testFold_AccentsAndLigatures() {
+        assertEquals("ete a noel, coeur et ex aequo", FrenchAnalyzer.fold("Été à Noël, Cœur et ex æquo"));
+    }
+    /**
+     * Vérifie que words() découpe sur tout caractère qui n'est ni une lettre ni un chiffre
+     * et retire les mots vides, y compris ceux laissés par les élisions.
+     */
+    @Test
+    void testWords_StopWordsAndElisions() {
+        assertEquals(List.of("armoire", "grand", "mere", "1900", "etait", "ici"),
+                FrenchAnalyzer.words("L'armoire de la grand-mère (1900) qu'elle n'était pas... ici"));
+    }
+    /**
+     * Vérifie que words() renvoie une liste vide pour un texte absent, vide ou sans mot.
+     */
+    @Test
+    void testWords_Empty() {
+        assertTrue(FrenchAnalyzer.words(null).isEmpty());
+        assertTrue(FrenchAnalyzer.words("").isEmpty());
+        assertTrue(FrenchAnalyzer.words("le, la, les !").isEmpty());
+    }
+    /**
+     * Vérifie que stem() ramène le singulier et le pluriel à la même racine.
+     */
+    @Test
+    void testStem_Plural() {
+        assertEquals("armoir", FrenchAnalyzer.stem("armoire"));
+        assertEquals("armoir", FrenchAnalyzer.stem("armoires"));
+        assertEquals("cheval", FrenchAnalyzer.stem("chevaux"));
+        assertEquals("bijou", FrenchAnalyzer.stem("bijoux"));
+    }
+    /**
+     * Vérifie que stem() retire les terminaisons -er et -e, puis une consonne doublée.
+     */
+    @Test
+    void testStem_Endings() {
+        assertEquals("chant", FrenchAnalyzer.stem("chanter"));
+        assertEquals("pas", FrenchAnalyzer.stem("passer"));
+        assertEquals("vaissel", FrenchAnalyzer.stem("vaisselle"));
+    }
+    /**
+     * Vérifie que stem() conserve les mots de moins de six lettres.
+     */
+    @Test
+    void testStem_ShortWord() {
+        assertEquals("table", FrenchAnalyzer.stem("table"));
+        assertEquals("vases", FrenchAnalyzer.stem("vases"));
+    }
+    /**
+     * Vérifie que terms() enchaîne découpage, mots vides et racinisation.
+     */
+    @Test
+    void testTerms() {
+        assertEquals(List.of("cheval", "bois", "peint"), FrenchAnalyzer.terms("Les chevaux de bois peints"));
+    }
+}
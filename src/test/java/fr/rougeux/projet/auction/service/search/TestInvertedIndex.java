@@ -0,0 +1,165 @@
+package fr.rougeux.projet.auction.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestInvertedIndex {
+
+    private static final long NOW = 1_000;
+    private static final long OPEN = 2_000;
+    private static final int EXPANSIONS = 16;
+
+    /**
+     * Vérifie qu'un terme du nom de l'article pèse plus que le même terme dans la description.
+     */
+    @Test
+    void testSearch_NameWeighsMore() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Table basse", "armoire assortie en noyer");
+        index.add(2, 1, OPEN, "Armoire normande", "table assortie en noyer");
+
+        assertEquals(List.of(2L, 1L), saleIds(index.search(List.of("armoir"), null, NOW, 10, EXPANSIONS)));
+    }
+    /**
+     * Vérifie qu'un terme rare pèse plus qu'un terme présent dans la plupart des ventes.
+     */
+    @Test
+    void testSearch_RareTermWeighsMore() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Lampe", "ancien modele");
+        index.add(2, 1, OPEN, "Lampe", "ancien laiton");
+        index.add(3, 1, OPEN, "Lampe", "ancien opaline");
+        index.add(4, 1, OPEN, "Miroir", "ancien");
+
+        List<InvertedIndex.Hit> hits = index.search(List.of("lampe", "opalin"), null, NOW, 10, EXPANSIONS);
+
+        assertEquals(3L, hits.get(0).saleId());
+        assertEquals(3, hits.size());
+    }
+    /**
+     * Vérifie qu'à fréquence égale, la vente à la description la plus courte est classée devant.
+     */
+    @Test
+    void testSearch_ShorterDocumentFirst() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Vase", "porcelaine bleue peinte a la main, signee, vers 1900");
+        index.add(2, 1, OPEN, "Vase", "porcelaine");
+
+        List<InvertedIndex.Hit> hits = index.search(List.of("porcelain"), null, NOW, 10, EXPANSIONS);
+
+        assertEquals(List.of(2L, 1L), saleIds(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+    /**
+     * Vérifie que le préfixe est développé en tous les termes qui commencent par lui.
+     */
+    @Test
+    void testSearch_PrefixExpansion() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Armoire", "chene");
+        index.add(2, 1, OPEN, "Armure", "acier");
+        index.add(3, 1, OPEN, "Table", "chene");
+
+        List<Long> saleIds = saleIds(index.search(List.of(), "arm", NOW, 10, EXPANSIONS));
+
+        assertEquals(2, saleIds.size());
+        assertTrue(saleIds.containsAll(List.of(1L, 2L)));
+    }
+    /**
+     * Vérifie que le préfixe n'est développé qu'en au plus maxExpansions termes, par ordre alphabétique.
+     */
+    @Test
+    void testSearch_PrefixExpansionCapped() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Armure", "acier");
+        index.add(2, 1, OPEN, "Armoire", "chene");
+
+        assertEquals(List.of(2L), saleIds(index.search(List.of(), "arm", NOW, 10, 1)));
+    }
+    /**
+     * Vérifie qu'une vente ne compte qu'une fois pour un préfixe dont elle contient plusieurs développements.
+     */
+    @Test
+    void testSearch_PrefixCountsBestExpansion() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Armoire", "chene");
+        index.add(2, 1, OPEN, "Armoire", "armure");
+
+        float armoire = score(index.search(List.of("armoir"), null, NOW, 10, EXPANSIONS), 2);
+        float armure = score(index.search(List.of("armur"), null, NOW, 10, EXPANSIONS), 2);
+
+        assertEquals(Math.max(armoire, armure), score(index.search(List.of(), "arm", NOW, 10, EXPANSIONS), 2), 1e-6);
+    }
+    /**
+     * Vérifie que les ventes terminées ou retirées ne sont pas renvoyées, et qu'une prolongation
+     * rend une vente à nouveau trouvable.
+     */
+    @Test
+    void testSearch_EndedRemovedAndExtended() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, 1, OPEN, "Horloge", "comtoise");
+        index.add(2, 1, NOW, "Horloge", "murale");
+        index.add(3, 1, OPEN, "Horloge", "bronze");
+        index.remove(3);
+
+        assertEquals(List.of(1L), saleIds(index.search(List.of("horlog"), null, NOW, 10, EXPANSIONS)));
+
+        index.extend(2, OPEN);
+
+        assertEquals(2, index.search(List.of("horlog"), null, NOW, 10, EXPANSIONS).size());
+        assertEquals(2, index.size());
+    }
+    /**
+     * Vérifie que l'élagage (MaxScore et maxima par bloc) renvoie les mêmes scores qu'un parcours complet,
+     * y compris après compaction des ventes retirées.
+     */
+    @Test
+    void testSearch_PruningMatchesExhaustive() {
+        String[] words = {"armoire", "table", "chaise", "lampe", "miroir", "tapis", "horloge", "ancien",
+                "moderne", "chene", "noyer", "metal", "verre", "armure", "arbre", "bronze"};
+        Random random = new Random(42);
+        InvertedIndex index = new InvertedIndex();
+        for (int saleId = 0; saleId < 5_000; saleId++) {
+            StringBuilder desc = new StringBuilder();
+            int length = 1 + random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                desc.append(words[Math.min(words.length - 1, (int) Math.abs(random.nextGaussian() * 5))]).append(' ');
+            }
+            index.add(saleId, 1, random.nextInt(10) == 0 ? NOW : OPEN, words[random.nextInt(words.length)], desc.toString());
+            if (random.nextInt(3) == 0) {
+                index.remove(random.nextInt(saleId + 1));
+            }
+        }
+
+        for (int query = 0; query < 50; query++) {
+            List<String> exact = new ArrayList<>();
+            for (int i = random.nextInt(3); i > 0; i--) {
+                exact.add(FrenchAnalyzer.stem(words[random.nextInt(words.length)]));
+            }
+            String prefix = random.nextBoolean() ? "ar" : null;
+            int limit = 1 + random.nextInt(20);
+
+            List<InvertedIndex.Hit> pruned = index.search(exact, prefix, NOW, limit, EXPANSIONS);
+            List<InvertedIndex.Hit> exhaustive = index.search(exact, prefix, NOW, 10_000, EXPANSIONS);
+
+            assertEquals(Math.min(limit, exhaustive.size()), pruned.size());
+            for (int i = 0; i < pruned.size(); i++) {
+                assertEquals(exhaustive.get(i).score(), pruned.get(i).score(), 1e-4);
+            }
+        }
+    }
+
+    private static List<Long> saleIds(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(InvertedIndex.Hit::saleId).toList();
+    }
+
+    private static float score(List<InvertedIndex.Hit> hits, long saleId) {
+        return hits.stream().filter(hit -> hit.saleId() == saleId).findFirst().orElseThrow().score();
+    }
+}